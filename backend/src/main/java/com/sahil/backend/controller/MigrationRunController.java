@@ -0,0 +1,148 @@
+package com.sahil.backend.controller;
+
+import com.sahil.backend.model.MigrationRun;
+import com.sahil.backend.service.MigrationExecutorService;
+import com.sahil.backend.service.ProgressStreamService;
+import com.sahil.backend.service.RunMetricsService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+@RestController
+@RequestMapping("/api/migrations/run")
+@CrossOrigin(origins = "*")
+public class MigrationRunController {
+    @Autowired
+    private MigrationExecutorService migrationExecutorService;
+
+    @Autowired
+    private RunMetricsService runMetricsService;
+
+    @Autowired
+    private ProgressStreamService progressStreamService;
+
+    @GetMapping("/{runId}/progress/stream")
+    public ResponseEntity<?> streamProgress(@PathVariable UUID runId) {
+        try {
+            SseEmitter emitter = progressStreamService.subscribe(runId);
+            return ResponseEntity.ok().contentType(MediaType.TEXT_EVENT_STREAM).body(emitter);
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    @PostMapping("/{runId}/resume")
+    public ResponseEntity<?> resumeRun(@PathVariable UUID runId) {
+        try {
+            MigrationRun run = migrationExecutorService.resumeRun(runId);
+
+            Map<String, Object> response = new HashMap<>();
+            response.put("runId", run.getId());
+            response.put("status", run.getStatus());
+            return ResponseEntity.ok(response);
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    @PostMapping("/{runId}/dead-letters/replay")
+    public ResponseEntity<?> replayDeadLetters(@PathVariable UUID runId) {
+        try {
+            return ResponseEntity.ok(migrationExecutorService.replayDeadLetters(runId));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    @PostMapping("/{runId}/pause")
+    public ResponseEntity<?> pauseRun(@PathVariable UUID runId) {
+        try {
+            MigrationRun run = migrationExecutorService.pauseRun(runId);
+
+            Map<String, Object> response = new HashMap<>();
+            response.put("runId", run.getId());
+            response.put("status", statusOf(run));
+            return ResponseEntity.ok(response);
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    @PostMapping("/{runId}/cancel")
+    public ResponseEntity<?> cancelRun(@PathVariable UUID runId) {
+        try {
+            MigrationRun run = migrationExecutorService.cancelRun(runId);
+
+            Map<String, Object> response = new HashMap<>();
+            response.put("runId", run.getId());
+            response.put("status", statusOf(run));
+            return ResponseEntity.ok(response);
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    @GetMapping("/{runId}/queue")
+    public ResponseEntity<?> getQueuePosition(@PathVariable UUID runId) {
+        int position = migrationExecutorService.getQueuePosition(runId);
+        if (position == 0) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND)
+                    .body(Map.of("error", "Run is not waiting for admission on this instance"));
+        }
+        return ResponseEntity.ok(Map.of("runId", runId, "status", "QUEUED", "position", position));
+    }
+
+    @GetMapping("/scheduler")
+    public ResponseEntity<?> getScheduler() {
+        return ResponseEntity.ok(migrationExecutorService.getSchedulerSnapshot());
+    }
+
+    @GetMapping("/{runId}/metrics")
+    public ResponseEntity<?> getRunMetrics(@PathVariable UUID runId) {
+        if (!runMetricsService.isTracked(runId)) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND)
+                    .body(Map.of("error", "Run is not executing on this instance"));
+        }
+        return ResponseEntity.ok(runMetricsService.snapshot(runId));
+    }
+
+    @GetMapping("/{runId}/replication")
+    public ResponseEntity<?> getReplicationLag(@PathVariable UUID runId) {
+        List<Map<String, Object>> tables = runMetricsService.replicationSnapshot(runId);
+        if (tables == null) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND)
+                    .body(Map.of("error", "Run is not replicating on this instance"));
+        }
+        return ResponseEntity.ok(tables);
+    }
+
+    @PostMapping("/{runId}/replication/stop")
+    public ResponseEntity<?> stopReplication(@PathVariable UUID runId) {
+        try {
+            MigrationRun run = migrationExecutorService.stopReplication(runId);
+
+            Map<String, Object> response = new HashMap<>();
+            response.put("runId", run.getId());
+            response.put("status", run.getStatus());
+            return ResponseEntity.ok(response);
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    /**
+     * PAUSING or CANCELLING while the run is still draining on this node
+     */
+    private String statusOf(MigrationRun run) {
+        String active = migrationExecutorService.getActiveStatus(run.getId());
+        return active != null ? active : run.getStatus();
+    }
+}
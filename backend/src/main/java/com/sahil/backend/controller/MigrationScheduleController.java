@@ -0,0 +1,29 @@
+package com.sahil.backend.controller;
+
+import com.sahil.backend.service.MigrationExecutorService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.Map;
+import java.util.UUID;
+
+@RestController
+@RequestMapping("/api/migrations")
+@CrossOrigin(origins = "*")
+public class MigrationScheduleController {
+    @Autowired
+    private MigrationExecutorService migrationExecutorService;
+
+    /**
+     * Predicted dispatch order and timing of a migration's tables, without running it
+     */
+    @GetMapping("/{migrationId}/schedule/preview")
+    public ResponseEntity<?> previewSchedule(@PathVariable UUID migrationId) {
+        try {
+            return ResponseEntity.ok(migrationExecutorService.previewSchedule(migrationId));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+}
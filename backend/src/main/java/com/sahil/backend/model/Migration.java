@@ -20,6 +20,54 @@ public class Migration {
     @Column(nullable = false)
     private String status; // DRAFT, PLANNED, RUNNING, COMPLETED, FAILED
 
+    @Column(name = "executor_mode")
+    private String executorMode; // PLATFORM, VIRTUAL; null uses the node default
+
+    @Column(name = "max_concurrent_tasks")
+    private Integer maxConcurrentTasks;
+
+    @Column(name = "max_target_connections")
+    private Integer maxTargetConnections;
+
+    // Bounds for the adaptive number of concurrent batch commits against the target
+    @Column(name = "min_write_concurrency")
+    private Integer minWriteConcurrency;
+
+    @Column(name = "max_write_concurrency")
+    private Integer maxWriteConcurrency;
+
+    // Keep tailing the source change stream after the bulk load until stopped
+    @Column(name = "cdc_enabled")
+    private Boolean cdcEnabled;
+
+    @Column(name = "load_profile")
+    private String loadProfile; // STANDARD, UNLOGGED; null is STANDARD
+
+    // Read budget against the source, shared by all reader tasks of a run; null or 0 is unlimited
+    @Column(name = "source_max_docs_per_second")
+    private Long sourceMaxDocsPerSecond;
+
+    @Column(name = "source_max_bytes_per_second")
+    private Long sourceMaxBytesPerSecond;
+
+    @Column(name = "source_read_preference")
+    private String sourceReadPreference; // primary, secondaryPreferred, ...; null is primary
+
+    // Pause source reads while a secondary is further behind than this; null or 0 never pauses
+    @Column(name = "source_max_replication_lag_seconds")
+    private Integer sourceMaxReplicationLagSeconds;
+
+    // Stage encoded batches in local files so extraction runs ahead of the load; null is off
+    @Column(name = "staging_enabled")
+    private Boolean stagingEnabled;
+
+    @Column(name = "staging_compression")
+    private String stagingCompression; // NONE or LZ4; null is NONE
+
+    // Share of the node's workers relative to other runs while both have tasks queued; null is 1
+    @Column(name = "scheduling_weight")
+    private Integer schedulingWeight;
+
     @Column(nullable = false, columnDefinition = "TIMESTAMP DEFAULT CURRENT_TIMESTAMP")
     private LocalDateTime createdAt;
 
@@ -69,6 +117,118 @@ public class Migration {
         this.status = status;
     }
 
+    public String getExecutorMode() {
+        return executorMode;
+    }
+
+    public void setExecutorMode(String executorMode) {
+        this.executorMode = executorMode;
+    }
+
+    public Integer getMaxConcurrentTasks() {
+        return maxConcurrentTasks;
+    }
+
+    public void setMaxConcurrentTasks(Integer maxConcurrentTasks) {
+        this.maxConcurrentTasks = maxConcurrentTasks;
+    }
+
+    public Integer getMaxTargetConnections() {
+        return maxTargetConnections;
+    }
+
+    public void setMaxTargetConnections(Integer maxTargetConnections) {
+        this.maxTargetConnections = maxTargetConnections;
+    }
+
+    public Integer getMinWriteConcurrency() {
+        return minWriteConcurrency;
+    }
+
+    public void setMinWriteConcurrency(Integer minWriteConcurrency) {
+        this.minWriteConcurrency = minWriteConcurrency;
+    }
+
+    public Integer getMaxWriteConcurrency() {
+        return maxWriteConcurrency;
+    }
+
+    public void setMaxWriteConcurrency(Integer maxWriteConcurrency) {
+        this.maxWriteConcurrency = maxWriteConcurrency;
+    }
+
+    public Long getSourceMaxDocsPerSecond() {
+        return sourceMaxDocsPerSecond;
+    }
+
+    public void setSourceMaxDocsPerSecond(Long sourceMaxDocsPerSecond) {
+        this.sourceMaxDocsPerSecond = sourceMaxDocsPerSecond;
+    }
+
+    public Long getSourceMaxBytesPerSecond() {
+        return sourceMaxBytesPerSecond;
+    }
+
+    public void setSourceMaxBytesPerSecond(Long sourceMaxBytesPerSecond) {
+        this.sourceMaxBytesPerSecond = sourceMaxBytesPerSecond;
+    }
+
+    public String getSourceReadPreference() {
+        return sourceReadPreference;
+    }
+
+    public void setSourceReadPreference(String sourceReadPreference) {
+        this.sourceReadPreference = sourceReadPreference;
+    }
+
+    public Integer getSourceMaxReplicationLagSeconds() {
+        return sourceMaxReplicationLagSeconds;
+    }
+
+    public void setSourceMaxReplicationLagSeconds(Integer sourceMaxReplicationLagSeconds) {
+        this.sourceMaxReplicationLagSeconds = sourceMaxReplicationLagSeconds;
+    }
+
+    public Boolean getStagingEnabled() {
+        return stagingEnabled;
+    }
+
+    public void setStagingEnabled(Boolean stagingEnabled) {
+        this.stagingEnabled = stagingEnabled;
+    }
+
+    public String getStagingCompression() {
+        return stagingCompression;
+    }
+
+    public void setStagingCompression(String stagingCompression) {
+        this.stagingCompression = stagingCompression;
+    }
+
+    public Integer getSchedulingWeight() {
+        return schedulingWeight;
+    }
+
+    public void setSchedulingWeight(Integer schedulingWeight) {
+        this.schedulingWeight = schedulingWeight;
+    }
+
+    public Boolean getCdcEnabled() {
+        return cdcEnabled;
+    }
+
+    public void setCdcEnabled(Boolean cdcEnabled) {
+        this.cdcEnabled = cdcEnabled;
+    }
+
+    public String getLoadProfile() {
+        return loadProfile;
+    }
+
+    public void setLoadProfile(String loadProfile) {
+        this.loadProfile = loadProfile;
+    }
+
     public LocalDateTime getCreatedAt() {
         return createdAt;
     }
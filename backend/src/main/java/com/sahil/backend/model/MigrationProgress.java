@@ -17,12 +17,33 @@ public class MigrationProgress {
     @Column(name = "table_name")
     private String tableName;
 
+    // Set on partition sub-records; points at the table-level progress row
+    @Column(name = "parent_id")
+    private UUID parentId;
+
+    @Column(name = "partition_index")
+    private Integer partitionIndex;
+
+    // _id range bounds as extended JSON, null when open-ended
+    @Column(name = "range_start", columnDefinition = "TEXT")
+    private String rangeStart;
+
+    @Column(name = "range_end", columnDefinition = "TEXT")
+    private String rangeEnd;
+
+    // _id of the last committed batch, used as the resume position
+    @Column(name = "last_id", columnDefinition = "TEXT")
+    private String lastId;
+
     @Column(name = "rows_total")
     private Long rowsTotal;
 
     @Column(name = "rows_processed")
     private Long rowsProcessed;
 
+    @Column(name = "bytes_written")
+    private Long bytesWritten;
+
     @Column
     private String status;
 
@@ -37,6 +58,7 @@ public class MigrationProgress {
         this.tableName = tableName;
         this.rowsTotal = rowsTotal;
         this.rowsProcessed = rowsProcessed;
+        this.bytesWritten = 0L;
         this.status = status;
         this.updatedAt = LocalDateTime.now();
     }
@@ -65,6 +87,46 @@ public class MigrationProgress {
         this.tableName = tableName;
     }
 
+    public UUID getParentId() {
+        return parentId;
+    }
+
+    public void setParentId(UUID parentId) {
+        this.parentId = parentId;
+    }
+
+    public Integer getPartitionIndex() {
+        return partitionIndex;
+    }
+
+    public void setPartitionIndex(Integer partitionIndex) {
+        this.partitionIndex = partitionIndex;
+    }
+
+    public String getRangeStart() {
+        return rangeStart;
+    }
+
+    public void setRangeStart(String rangeStart) {
+        this.rangeStart = rangeStart;
+    }
+
+    public String getRangeEnd() {
+        return rangeEnd;
+    }
+
+    public void setRangeEnd(String rangeEnd) {
+        this.rangeEnd = rangeEnd;
+    }
+
+    public String getLastId() {
+        return lastId;
+    }
+
+    public void setLastId(String lastId) {
+        this.lastId = lastId;
+    }
+
     public Long getRowsTotal() {
         return rowsTotal;
     }
@@ -81,6 +143,14 @@ public class MigrationProgress {
         this.rowsProcessed = rowsProcessed;
     }
 
+    public Long getBytesWritten() {
+        return bytesWritten;
+    }
+
+    public void setBytesWritten(Long bytesWritten) {
+        this.bytesWritten = bytesWritten;
+    }
+
     public String getStatus() {
         return status;
     }
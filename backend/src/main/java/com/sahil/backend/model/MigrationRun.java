@@ -1,8 +1,11 @@
 package com.sahil.backend.model;
 
 import jakarta.persistence.*;
+import io.hypersistence.utils.hibernate.type.json.JsonType;
+import org.hibernate.annotations.Type;
 import java.time.LocalDateTime;
 import java.util.UUID;
+import com.fasterxml.jackson.databind.JsonNode;
 
 @Entity
 @Table(name = "migration_runs")
@@ -18,7 +21,7 @@ public class MigrationRun {
     private UUID planId;
 
     @Column(nullable = false)
-    private String status; // RUNNING, COMPLETED, FAILED
+    private String status; // RUNNING, REPLICATING, COMPLETED, FAILED, NEEDS_RELOAD
 
     @Column(name = "started_at", nullable = false, columnDefinition = "TIMESTAMP DEFAULT CURRENT_TIMESTAMP")
     private LocalDateTime startedAt;
@@ -26,6 +29,19 @@ public class MigrationRun {
     @Column(name = "ended_at")
     private LocalDateTime endedAt;
 
+    // STANDARD or UNLOGGED; an UNLOGGED run that stops before finalizing cannot be trusted
+    @Column(name = "load_profile")
+    private String loadProfile;
+
+    // Final per-task pipeline metrics, written when the run finishes
+    @Type(JsonType.class)
+    @Column(name = "metrics_json", columnDefinition = "jsonb")
+    private JsonNode metricsJson;
+
+    // Change-stream resume token (extended JSON), taken before the bulk copy in CDC mode
+    @Column(name = "resume_token", columnDefinition = "TEXT")
+    private String resumeToken;
+
     public MigrationRun() {
     }
 
@@ -83,4 +99,28 @@ public class MigrationRun {
     public void setEndedAt(LocalDateTime endedAt) {
         this.endedAt = endedAt;
     }
+
+    public String getLoadProfile() {
+        return loadProfile;
+    }
+
+    public void setLoadProfile(String loadProfile) {
+        this.loadProfile = loadProfile;
+    }
+
+    public JsonNode getMetricsJson() {
+        return metricsJson;
+    }
+
+    public void setMetricsJson(JsonNode metricsJson) {
+        this.metricsJson = metricsJson;
+    }
+
+    public String getResumeToken() {
+        return resumeToken;
+    }
+
+    public void setResumeToken(String resumeToken) {
+        this.resumeToken = resumeToken;
+    }
 }
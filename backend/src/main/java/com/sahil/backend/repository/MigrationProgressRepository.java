@@ -0,0 +1,13 @@
+package com.sahil.backend.repository;
+
+import com.sahil.backend.model.MigrationProgress;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.UUID;
+
+@Repository
+public interface MigrationProgressRepository extends JpaRepository<MigrationProgress, UUID> {
+    List<MigrationProgress> findByRunId(UUID runId);
+}
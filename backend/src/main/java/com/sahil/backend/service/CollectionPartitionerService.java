@@ -0,0 +1,128 @@
+package com.sahil.backend.service;
+
+import com.mongodb.client.MongoCollection;
+import com.sahil.backend.service.worker.IdRange;
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+@Service
+public class CollectionPartitionerService {
+
+    // Collections smaller than this are copied by a single task
+    @Value("${migration.partition.min-documents:1000000}")
+    private long minDocumentsToPartition;
+
+    // Target number of documents per partition
+    @Value("${migration.partition.target-documents:5000000}")
+    private long targetDocumentsPerPartition;
+
+    // Sampled _id values per partition when computing split points
+    @Value("${migration.partition.samples-per-partition:100}")
+    private int samplesPerPartition;
+
+    // SAMPLE uses $sample split points, BUCKET_AUTO scans the _id index with $bucketAuto
+    @Value("${migration.partition.strategy:SAMPLE}")
+    private String strategy;
+
+    /**
+     * Splits a collection into contiguous _id ranges, at most maxPartitions of them
+     */
+    public List<IdRange> partition(MongoCollection<Document> collection, long estimatedCount, int maxPartitions) {
+        int partitions = plannedPartitionCount(estimatedCount, maxPartitions);
+        if (partitions <= 1) {
+            return List.of(IdRange.all());
+        }
+
+        try {
+            List<Object> splitPoints = "BUCKET_AUTO".equalsIgnoreCase(strategy)
+                    ? bucketAutoSplitPoints(collection, partitions)
+                    : sampledSplitPoints(collection, partitions);
+            return toRanges(splitPoints);
+        } catch (Exception e) {
+            System.err.println("⚠️ Could not partition " + collection.getNamespace().getCollectionName()
+                    + ", copying it as one range: " + e.getMessage());
+            return List.of(IdRange.all());
+        }
+    }
+
+    /**
+     * Number of ranges partition() aims for, before split points are known
+     */
+    public int plannedPartitionCount(long estimatedCount, int maxPartitions) {
+        if (estimatedCount < minDocumentsToPartition || maxPartitions <= 1) {
+            return 1;
+        }
+        long wanted = Math.max(2, (estimatedCount + targetDocumentsPerPartition - 1) / targetDocumentsPerPartition);
+        return (int) Math.min(maxPartitions, wanted);
+    }
+
+    /**
+     * Picks evenly spaced _id values from a sorted random sample
+     */
+    private List<Object> sampledSplitPoints(MongoCollection<Document> collection, int partitions) {
+        int sampleSize = partitions * samplesPerPartition;
+        List<Document> pipeline = Arrays.asList(
+                new Document("$sample", new Document("size", sampleSize)),
+                new Document("$project", new Document("_id", 1)),
+                new Document("$sort", new Document("_id", 1)));
+
+        List<Object> sampledIds = new ArrayList<>();
+        for (Document doc : collection.aggregate(pipeline).allowDiskUse(true)) {
+            sampledIds.add(doc.get("_id"));
+        }
+
+        List<Object> splitPoints = new ArrayList<>();
+        for (int i = 1; i < partitions; i++) {
+            int index = (int) ((long) i * sampledIds.size() / partitions);
+            if (index < sampledIds.size()) {
+                Object candidate = sampledIds.get(index);
+                if (splitPoints.isEmpty() || !splitPoints.get(splitPoints.size() - 1).equals(candidate)) {
+                    splitPoints.add(candidate);
+                }
+            }
+        }
+        return splitPoints;
+    }
+
+    /**
+     * Uses $bucketAuto boundaries on _id; exact but reads every _id
+     */
+    private List<Object> bucketAutoSplitPoints(MongoCollection<Document> collection, int partitions) {
+        List<Document> pipeline = Arrays.asList(
+                new Document("$bucketAuto", new Document("groupBy", "$_id").append("buckets", partitions)));
+
+        List<Object> splitPoints = new ArrayList<>();
+        for (Document bucket : collection.aggregate(pipeline).allowDiskUse(true)) {
+            Document bounds = bucket.get("_id", Document.class);
+            // Bucket minimums after the first become the split points
+            if (bounds != null && bounds.get("min") != null) {
+                splitPoints.add(bounds.get("min"));
+            }
+        }
+        if (!splitPoints.isEmpty()) {
+            splitPoints.remove(0);
+        }
+        return splitPoints;
+    }
+
+    private List<IdRange> toRanges(List<Object> splitPoints) {
+        // Split points come back in BSON sort order, mixed types included; types IdRange cannot
+        // place in that order are not split
+        if (!splitPoints.stream().allMatch(IdRange::isOrderable)) {
+            return List.of(IdRange.all());
+        }
+        List<IdRange> ranges = new ArrayList<>();
+        Object lower = null;
+        for (Object point : splitPoints) {
+            ranges.add(new IdRange(lower, point));
+            lower = point;
+        }
+        ranges.add(new IdRange(lower, null));
+        return ranges;
+    }
+}
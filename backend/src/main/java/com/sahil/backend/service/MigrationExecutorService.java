@@ -2,9 +2,13 @@ package com.sahil.backend.service;
 
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mongodb.MongoException;
+import com.mongodb.ReadPreference;
 import com.mongodb.client.MongoClient;
-import com.mongodb.client.MongoClients;
+import com.mongodb.client.MongoChangeStreamCursor;
+import com.mongodb.client.MongoCollection;
 import com.mongodb.client.MongoDatabase;
+import com.mongodb.client.model.changestream.ChangeStreamDocument;
 import com.sahil.backend.model.Migration;
 import com.sahil.backend.model.MigrationPlan;
 import com.sahil.backend.model.MigrationProgress;
@@ -13,15 +17,52 @@ import com.sahil.backend.repository.MigrationPlanRepository;
 import com.sahil.backend.repository.MigrationProgressRepository;
 import com.sahil.backend.repository.MigrationRepository;
 import com.sahil.backend.repository.MigrationRunRepository;
+import com.sahil.backend.service.worker.AdaptiveBatchSizer;
+import com.sahil.backend.service.worker.AimdConcurrencyLimiter;
+import com.sahil.backend.service.worker.BatchInsertSink;
+import com.sahil.backend.service.worker.BinaryCopySink;
+import com.sahil.backend.service.worker.BsonJsonEncoder;
+import com.sahil.backend.service.worker.ChangeStreamReplicator;
+import com.sahil.backend.service.worker.CompiledTableMapping;
+import com.sahil.backend.service.worker.DeadLetterStore;
+import com.sahil.backend.service.worker.IdRange;
+import com.sahil.backend.service.worker.RetryPolicy;
+import com.sahil.backend.service.worker.RowBatch;
+import com.sahil.backend.service.worker.RowSink;
+import com.sahil.backend.service.worker.RunControl;
+import com.sahil.backend.service.worker.SourceReadGovernor;
+import com.sahil.backend.service.worker.StagingStore;
+import com.sahil.backend.service.worker.TableScheduler;
 import com.sahil.backend.service.worker.TableMigrationTask;
+import com.sahil.backend.service.worker.TargetCheckpointStore;
+import com.sahil.backend.service.worker.TargetPermits;
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import jakarta.annotation.PostConstruct;
+import org.bson.BsonDocument;
+import org.bson.Document;
+import org.bson.RawBsonDocument;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.ConnectionCallback;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
 
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.*;
+import java.util.stream.Collectors;
 
 @Service
 public class MigrationExecutorService {
@@ -44,8 +85,126 @@ public class MigrationExecutorService {
     @Autowired
     private ObjectMapper objectMapper;
 
-    // Fixed thread pool
-    private final ExecutorService executorService = Executors.newFixedThreadPool(4);
+    @Autowired
+    private CollectionPartitionerService collectionPartitionerService;
+
+    @Autowired
+    private RunMetricsService runMetricsService;
+
+    @Autowired
+    private MongoConnectionService mongoConnectionService;
+
+    @Autowired
+    private PostLoadService postLoadService;
+
+    @Autowired
+    private ProgressFlusherService progressFlusherService;
+
+    @Autowired
+    private RunScheduler runScheduler;
+
+    // PLATFORM runs on the pool below, VIRTUAL gives every task its own virtual thread; either
+    // way RunScheduler decides how many tasks run at once
+    @Value("${migration.executor.default-mode:PLATFORM}")
+    private String defaultExecutorMode;
+
+    @Value("${migration.executor.default-max-concurrent-tasks:8}")
+    private int defaultMaxConcurrentTasks;
+
+    @Value("${migration.executor.default-max-target-connections:16}")
+    private int defaultMaxTargetConnections;
+
+    // Adaptive batch sizing: rows per batch move toward one target commit time per batch
+    @Value("${migration.batch.initial-rows:1000}")
+    private int initialBatchRows;
+
+    @Value("${migration.batch.min-rows:50}")
+    private int minBatchRows;
+
+    @Value("${migration.batch.max-rows:20000}")
+    private int maxBatchRows;
+
+    @Value("${migration.batch.target-commit-millis:500}")
+    private long targetCommitMillis;
+
+    @Value("${migration.batch.max-bytes:33554432}")
+    private long maxBatchBytes;
+
+    // Per-task copy rate assumed by the schedule preview
+    @Value("${migration.scheduler.estimated-bytes-per-second:20971520}")
+    private double estimatedBytesPerSecond;
+
+    // Bounds of the AIMD limit on concurrent batch commits per target, unless the Migration sets them
+    @Value("${migration.aimd.default-floor:1}")
+    private int defaultWriteConcurrencyFloor;
+
+    @Value("${migration.aimd.default-ceiling:16}")
+    private int defaultWriteConcurrencyCeiling;
+
+    // Extended JSON form of ObjectId, Date, Decimal128 etc. in JSONB columns: RELAXED or CANONICAL
+    @Value("${migration.json.extended-mode:RELAXED}")
+    private String jsonExtendedMode;
+
+    // Local staging files of runs with staging enabled, one directory per run
+    @Value("${migration.staging.dir:${java.io.tmpdir}/migration-staging}")
+    private String stagingDir;
+
+    // Size of each memory-mapped staging segment
+    @Value("${migration.staging.segment-bytes:67108864}")
+    private long stagingSegmentBytes;
+
+    // Replays of a batch after transient target failures, with exponential backoff and full jitter
+    @Value("${migration.retry.max-attempts:8}")
+    private int retryMaxAttempts;
+
+    @Value("${migration.retry.base-delay-millis:200}")
+    private long retryBaseDelayMillis;
+
+    @Value("${migration.retry.max-delay-millis:30000}")
+    private long retryMaxDelayMillis;
+
+    // How long pause and cancel wait for a run's in-flight batches to commit
+    @Value("${migration.control.drain-timeout-seconds:60}")
+    private long drainTimeoutSeconds;
+
+    // Executions of a statement before pgjdbc switches it to a named server-side statement
+    @Value("${migration.target.prepare-threshold:5}")
+    private int targetPrepareThreshold;
+
+    // Platform threads for tasks; RunScheduler caps how many are busy at once
+    private final ExecutorService executorService = Executors.newCachedThreadPool();
+
+    // Reader and transform stages of each task's pipeline in PLATFORM mode
+    private final ExecutorService stageExecutorService = Executors.newCachedThreadPool();
+
+    // Tasks and stages block on I/O most of the time, so in VIRTUAL mode concurrency is
+    // bounded by RunScheduler and the target permits rather than by a pool size
+    private final ExecutorService virtualExecutorService = Executors.newVirtualThreadPerTaskExecutor();
+
+    // Concurrent tasks per target database (host:port/db), shared by every run writing to it
+    private final Map<String, TargetPermits> targetPermits = new ConcurrentHashMap<>();
+
+    // Adaptive limit on concurrent batch commits per target database, shared like targetPermits
+    private final Map<String, AimdConcurrencyLimiter> writeLimiters = new ConcurrentHashMap<>();
+
+    // Runs with tasks executing in this JVM
+    private final Map<UUID, RunContext> activeRuns = new ConcurrentHashMap<>();
+
+    /**
+     * A run still marked RUNNING at startup was interrupted by a crash. If it loaded into
+     * UNLOGGED tables, PostgreSQL may have truncated them, so the run needs a full reload.
+     */
+    @PostConstruct
+    public void markInterruptedUnloggedRuns() {
+        migrationRunRepository.findAll().stream()
+                .filter(run -> "RUNNING".equals(run.getStatus()) && "UNLOGGED".equals(run.getLoadProfile()))
+                .forEach(run -> {
+                    run.setStatus("NEEDS_RELOAD");
+                    run.setEndedAt(java.time.LocalDateTime.now());
+                    migrationRunRepository.save(run);
+                    System.err.println("❌ Run " + run.getId() + " was interrupted during an UNLOGGED load; it needs a reload");
+                });
+    }
 
     public MigrationRun executeMigration(UUID migrationId) {
         // 1. Fetch Migration & Plan
@@ -64,82 +223,55 @@ public class MigrationExecutorService {
             throw new RuntimeException("No migration plan found");
         }
 
-        // 2. Create Run Record
-        MigrationRun run = new MigrationRun(migrationId, plan.getId(), "RUNNING");
+        // 2. Create Run Record; it stays QUEUED until the node has room for it
+        MigrationRun run = new MigrationRun(migrationId, plan.getId(), "QUEUED");
+        run.setLoadProfile("UNLOGGED".equalsIgnoreCase(migration.getLoadProfile()) ? "UNLOGGED" : "STANDARD");
         MigrationRun savedRun = migrationRunRepository.save(run);
 
-        // 3. Connect to Source (Mongo)
-        // Build connection string - support both standard MongoDB and MongoDB Atlas
-        String connectionString;
-        if (migration.getSourceUsername() != null && !migration.getSourceUsername().isEmpty()) {
-            // MongoDB Atlas or authenticated MongoDB
-            // Check if it's an Atlas cluster (contains mongodb.net)
-            if (migration.getSourceHost().contains("mongodb.net")) {
-                // MongoDB Atlas - use SRV connection string
-                connectionString = String.format("mongodb+srv://%s:%s@%s/%s",
-                        migration.getSourceUsername(),
-                        migration.getSourcePassword(),
-                        migration.getSourceHost(),
-                        migration.getSourceDatabase());
-            } else {
-                // Standard MongoDB with authentication
-                connectionString = String.format("mongodb://%s:%s@%s:%d/%s",
-                        migration.getSourceUsername(),
-                        migration.getSourcePassword(),
-                        migration.getSourceHost(),
-                        migration.getSourcePort(),
-                        migration.getSourceDatabase());
-            }
-        } else {
-            // No authentication
-            connectionString = String.format("mongodb://%s:%d",
-                    migration.getSourceHost(),
-                    migration.getSourcePort());
+        int tasks = resolveMaxConcurrentTasks(migration);
+        Runnable start = () -> startRun(savedRun, migration, plan);
+        if (runScheduler.admit(savedRun.getId(), tasks, tasks + 1, () -> startQueued(savedRun.getId(), start))) {
+            startAdmitted(savedRun.getId(), start);
         }
+        return savedRun;
+    }
 
-        MongoClient mongoClient = MongoClients.create(connectionString);
-        MongoDatabase mongoDatabase = mongoClient.getDatabase(migration.getSourceDatabase());
-
-        // 4. Create Target Database Connection (PostgreSQL)
-        String targetJdbcUrl = String.format("jdbc:postgresql://%s:%d/%s",
-                migration.getTargetHost(),
-                migration.getTargetPort(),
-                migration.getTargetDatabase());
+    /**
+     * Connects to the source and target, creates the target tables and dispatches the tasks
+     * of a newly admitted run
+     */
+    private void startRun(MigrationRun savedRun, Migration migration, MigrationPlan plan) {
+        savedRun.setStatus("RUNNING");
+        migrationRunRepository.save(savedRun);
 
-        org.springframework.jdbc.datasource.DriverManagerDataSource targetDataSource = new org.springframework.jdbc.datasource.DriverManagerDataSource();
-        targetDataSource.setDriverClassName("org.postgresql.Driver");
-        targetDataSource.setUrl(targetJdbcUrl);
-        targetDataSource.setUsername(migration.getTargetUsername());
-        targetDataSource.setPassword(migration.getTargetPassword());
+        // 3. Connect to Source (Mongo) through the shared client registry. The context is
+        // registered right away so that a failed start closes it, see startAdmitted
+        RunContext runContext = createRunContext(savedRun.getId(), migration, savedRun.getLoadProfile());
+        activeRuns.put(savedRun.getId(), runContext);
+        MongoDatabase mongoDatabase = connectSource(migration, runContext);
 
-        JdbcTemplate targetJdbcTemplate = new JdbcTemplate(targetDataSource);
+        // 4. Create Target Database Connection (PostgreSQL), pooled for the lifetime of the run
+        JdbcTemplate targetJdbcTemplate = connectTarget(migration, runContext);
+        TargetCheckpointStore.ensureTable(targetJdbcTemplate);
+        DeadLetterStore.ensureTable(targetJdbcTemplate);
 
-        // Test target database connection
-        try {
-            targetJdbcTemplate.execute("SELECT 1");
-            System.out.println("✅ Successfully connected to target database: " + targetJdbcUrl);
-        } catch (Exception e) {
-            String errorMsg = String.format(
-                    "Failed to connect to target PostgreSQL database.\n" +
-                            "Host: %s\n" +
-                            "Port: %d\n" +
-                            "Database: %s\n" +
-                            "Username: %s\n" +
-                            "Error: %s",
-                    migration.getTargetHost(),
-                    migration.getTargetPort(),
-                    migration.getTargetDatabase(),
-                    migration.getTargetUsername(),
-                    e.getMessage());
-            System.err.println("❌ " + errorMsg);
-            throw new RuntimeException(errorMsg, e);
+        // In CDC mode, remember where the change stream stands before any document is copied
+        boolean cdcEnabled = Boolean.TRUE.equals(migration.getCdcEnabled());
+        if (cdcEnabled) {
+            savedRun.setResumeToken(captureResumeToken(mongoDatabase));
+            migrationRunRepository.save(savedRun);
         }
 
         // 5. Parse Plan and Submit Tasks
         JsonNode planJson = plan.getPlanJson();
         JsonNode tableMappings = planJson.get("tableMappings");
 
-        List<CompletableFuture<Boolean>> futures = new ArrayList<>();
+        // The replicator validates the mappings, so a plan it rejects fails before any table is touched
+        ChangeStreamReplicator replicator = cdcEnabled
+                ? createReplicator(savedRun, mongoDatabase, targetJdbcTemplate, tableMappings)
+                : null;
+
+        List<TableWork> tables = new ArrayList<>();
 
         if (tableMappings != null && tableMappings.isArray()) {
             for (JsonNode mapping : tableMappings) {
@@ -149,41 +281,604 @@ public class MigrationExecutorService {
 
                 // Create target table first
                 try {
-                    createTargetTable(targetJdbcTemplate, targetTable, columns);
+                    createTargetTable(targetJdbcTemplate, targetTable, columns, runContext.isUnlogged());
                 } catch (Exception e) {
                     throw new RuntimeException("Failed to create target table: " + targetTable + " - " + e.getMessage(),
                             e);
                 }
 
+                // Split large collections into _id ranges so one collection can use every worker
+                MongoCollection<Document> collection = mongoDatabase.getCollection(sourceCollection);
+                long estimatedRows = collection.estimatedDocumentCount();
+                List<IdRange> ranges = collectionPartitionerService.partition(
+                        collection, estimatedRows, runContext.getMaxConcurrentTasks());
+                boolean partitioned = ranges.size() > 1;
+
                 // Create Progress Record
                 MigrationProgress progress = new MigrationProgress(
                         savedRun.getId(),
                         targetTable,
+                        estimatedRows,
                         0L,
-                        0L,
-                        "PENDING");
+                        partitioned ? "RUNNING" : "PENDING");
                 MigrationProgress savedProgress = migrationProgressRepository.save(progress);
 
-                // Create Task
-                TableMigrationTask task = new TableMigrationTask(
-                        sourceCollection,
-                        targetTable,
-                        columns,
-                        mongoDatabase,
-                        targetJdbcTemplate,
-                        migrationProgressRepository,
-                        savedProgress.getId(),
-                        objectMapper);
+                List<MigrationProgress> partitions = new ArrayList<>();
+                if (partitioned) {
+                    for (int i = 0; i < ranges.size(); i++) {
+                        MigrationProgress partitionProgress = new MigrationProgress(
+                                savedRun.getId(),
+                                targetTable,
+                                estimatedRows / ranges.size(),
+                                0L,
+                                "PENDING");
+                        partitionProgress.setParentId(savedProgress.getId());
+                        partitionProgress.setPartitionIndex(i);
+                        partitionProgress.setRangeStart(IdRange.encodeBound(ranges.get(i).getLower()));
+                        partitionProgress.setRangeEnd(IdRange.encodeBound(ranges.get(i).getUpper()));
+                        partitions.add(migrationProgressRepository.save(partitionProgress));
+                    }
+                }
+
+                tables.add(new TableWork(mapping, savedProgress, partitions,
+                        collectionSizeBytes(mongoDatabase, sourceCollection, estimatedRows)));
+            }
+        }
+
+        List<CompletableFuture<Boolean>> futures = dispatchTables(runContext, tables, planJson, mongoDatabase,
+                targetJdbcTemplate, false);
+
+        // 6. Monitor Global Status (Async), then hand over to change-stream replication in CDC mode
+        monitorRun(savedRun, runContext, futures, targetJdbcTemplate, planJson, replicator);
+    }
+
+    /**
+     * Starts an admitted run. If starting fails, the run's connections are closed, the run is
+     * marked FAILED (unless starting already gave it a more specific status), gives its share
+     * of the node back, and the error goes to the caller.
+     */
+    private void startAdmitted(UUID runId, Runnable start) {
+        try {
+            start.run();
+        } catch (RuntimeException e) {
+            RunContext runContext = activeRuns.remove(runId);
+            if (runContext != null) {
+                runContext.close();
+            }
+            runScheduler.release(runId);
+            migrationRunRepository.findById(runId).ifPresent(run -> {
+                if ("QUEUED".equals(run.getStatus()) || "RUNNING".equals(run.getStatus())) {
+                    run.setStatus("FAILED");
+                    run.setEndedAt(java.time.LocalDateTime.now());
+                    migrationRunRepository.save(run);
+                }
+            });
+            throw e;
+        }
+    }
+
+    /**
+     * Starts a run once it reaches the front of the admission queue; nobody is waiting for
+     * the result any more, so a failure is only logged
+     */
+    private void startQueued(UUID runId, Runnable start) {
+        try {
+            startAdmitted(runId, start);
+        } catch (RuntimeException e) {
+            System.err.println("❌ Queued run " + runId + " failed to start: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Position of a run in this node's admission queue, 0 once it has been admitted
+     */
+    public int getQueuePosition(UUID runId) {
+        return runScheduler.getQueuePosition(runId);
+    }
+
+    public Map<String, Object> getSchedulerSnapshot() {
+        return runScheduler.snapshot();
+    }
+
+    /**
+     * Restarts the unfinished tables and partitions of an interrupted run from their
+     * last committed _id watermark. Completed work is skipped, and because each watermark
+     * is committed in the target together with its rows, no committed row is copied twice.
+     */
+    public MigrationRun resumeRun(UUID runId) {
+        MigrationRun run = migrationRunRepository.findById(runId)
+                .orElseThrow(() -> new RuntimeException("Migration run not found"));
+
+        if (activeRuns.containsKey(runId) || runScheduler.getQueuePosition(runId) > 0) {
+            throw new RuntimeException("Migration run is still in progress");
+        }
+        if ("COMPLETED".equals(run.getStatus())) {
+            throw new RuntimeException("Migration run already completed");
+        }
+        if (RunControl.CANCELLED.equals(run.getStatus())) {
+            throw new RuntimeException("Migration run was cancelled");
+        }
+        if ("NEEDS_RELOAD".equals(run.getStatus())) {
+            throw new RuntimeException("Migration run was interrupted during an UNLOGGED load and must be reloaded");
+        }
+
+        Migration migration = migrationRepository.findById(run.getMigrationId())
+                .orElseThrow(() -> new RuntimeException("Migration not found"));
+        MigrationPlan plan = migrationPlanRepository.findById(run.getPlanId())
+                .orElseThrow(() -> new RuntimeException("Migration plan for run not found"));
+
+        run.setStatus("QUEUED");
+        migrationRunRepository.save(run);
+
+        int tasks = resolveMaxConcurrentTasks(migration);
+        Runnable start = () -> startResume(run, migration, plan);
+        if (runScheduler.admit(runId, tasks, tasks + 1, () -> startQueued(runId, start))) {
+            startAdmitted(runId, start);
+        }
+        return run;
+    }
+
+    /**
+     * Reconnects an admitted resumed run and dispatches its unfinished tables
+     */
+    private void startResume(MigrationRun run, Migration migration, MigrationPlan plan) {
+        UUID runId = run.getId();
+
+        // Index the run's plan and progress records by target table
+        Map<String, JsonNode> mappingsByTable = new HashMap<>();
+        JsonNode tableMappings = plan.getPlanJson().get("tableMappings");
+        if (tableMappings != null && tableMappings.isArray()) {
+            for (JsonNode mapping : tableMappings) {
+                mappingsByTable.put(mapping.get("targetTable").asText(), mapping);
+            }
+        }
+
+        List<MigrationProgress> progressRecords = migrationProgressRepository.findByRunId(runId);
+        Map<UUID, List<MigrationProgress>> partitionsByParent = progressRecords.stream()
+                .filter(p -> p.getParentId() != null)
+                .collect(Collectors.groupingBy(MigrationProgress::getParentId));
+
+        RunContext runContext = createRunContext(runId, migration, run.getLoadProfile());
+        activeRuns.put(runId, runContext);
+        MongoDatabase mongoDatabase = connectSource(migration, runContext);
+        JdbcTemplate targetJdbcTemplate = connectTarget(migration, runContext);
+        TargetCheckpointStore.ensureTable(targetJdbcTemplate);
+        DeadLetterStore.ensureTable(targetJdbcTemplate);
+
+        // Crash recovery empties UNLOGGED tables while the (logged) checkpoints survive
+        if (runContext.isUnlogged() && unloggedDataLost(targetJdbcTemplate, progressRecords)) {
+            run.setStatus("NEEDS_RELOAD");
+            migrationRunRepository.save(run);
+            throw new RuntimeException("Target tables of this UNLOGGED run were emptied by a PostgreSQL crash; "
+                    + "the run must be reloaded");
+        }
+
+        run.setStatus("RUNNING");
+        run.setEndedAt(null);
+        MigrationRun savedRun = migrationRunRepository.save(run);
+
+        // Replication continues from the last applied change, or from before the bulk copy.
+        // Built before any task is dispatched, since it validates the mappings.
+        ChangeStreamReplicator replicator = null;
+        if (Boolean.TRUE.equals(migration.getCdcEnabled())) {
+            if (savedRun.getResumeToken() != null) {
+                replicator = createReplicator(savedRun, mongoDatabase, targetJdbcTemplate, tableMappings);
+            } else {
+                System.err.println("❌ Run " + runId + " has no change-stream resume token; resuming without CDC");
+            }
+        }
+
+        List<TableWork> tables = new ArrayList<>();
+        for (MigrationProgress tableProgress : progressRecords) {
+            if (tableProgress.getParentId() != null || "COMPLETED".equals(tableProgress.getStatus())) {
+                continue;
+            }
+
+            JsonNode mapping = mappingsByTable.get(tableProgress.getTableName());
+            if (mapping == null) {
+                throw new RuntimeException("Plan has no mapping for table: " + tableProgress.getTableName());
+            }
+
+            List<MigrationProgress> partitions = new ArrayList<>(
+                    partitionsByParent.getOrDefault(tableProgress.getId(), List.of()));
+            partitions.sort(Comparator.comparing(MigrationProgress::getPartitionIndex));
+            String sourceCollection = mapping.get("sourceCollection").asText();
+            long estimatedRows = tableProgress.getRowsTotal() != null ? tableProgress.getRowsTotal() : 0;
+            tables.add(new TableWork(mapping, tableProgress, partitions,
+                    collectionSizeBytes(mongoDatabase, sourceCollection, estimatedRows)));
+        }
+        List<CompletableFuture<Boolean>> futures = dispatchTables(runContext, tables, plan.getPlanJson(),
+                mongoDatabase, targetJdbcTemplate, true);
+
+        System.out.println("🔁 Resuming run " + runId + " with " + futures.size() + " unfinished tables");
+        monitorRun(savedRun, runContext, futures, targetJdbcTemplate, plan.getPlanJson(), replicator);
+    }
+
+    /**
+     * Submits one task per unfinished partition of each table (or one for the whole table)
+     * in TableScheduler order, and returns one future per table that completes when the
+     * table is done
+     */
+    private List<CompletableFuture<Boolean>> dispatchTables(RunContext runContext, List<TableWork> tables,
+            JsonNode planJson, MongoDatabase mongoDatabase, JdbcTemplate targetJdbcTemplate, boolean resume) {
+        Map<UUID, TableMigrationTask> tasks = new HashMap<>();
+        List<TableScheduler.Unit> units = new ArrayList<>();
+        for (TableWork table : tables) {
+            List<MigrationProgress> tableUnits = table.units();
+            // One sizer per table: its partitions write rows of the same shape
+            AdaptiveBatchSizer batchSizer = new AdaptiveBatchSizer(
+                    initialBatchRows, minBatchRows, maxBatchRows, targetCommitMillis, maxBatchBytes);
+            // Compiled once per table and shared by its partitions
+            CompiledTableMapping columns = CompiledTableMapping.compile(table.mapping.get("columns"));
+            for (MigrationProgress unit : tableUnits) {
+                if ("COMPLETED".equals(unit.getStatus())) {
+                    continue;
+                }
+                tasks.put(unit.getId(), createTask(runContext, table.mapping, columns, unit, mongoDatabase,
+                        targetJdbcTemplate, batchSizer, resume));
+                units.add(new TableScheduler.Unit(unit.getTableName(), unit.getId(), unit.getPartitionIndex(),
+                        table.sizeBytes / tableUnits.size()));
+            }
+        }
+
+        // Submission order is start order: the pool queue and the run permits are both FIFO
+        Map<UUID, CompletableFuture<Boolean>> unitFutures = new HashMap<>();
+        for (TableScheduler.Unit unit : TableScheduler.order(units, TableScheduler.dependencies(planJson))) {
+            TableMigrationTask task = tasks.get(unit.getProgressId());
+            unitFutures.put(unit.getProgressId(), runContext.submit(() -> task.call()));
+        }
+
+        List<CompletableFuture<Boolean>> futures = new ArrayList<>();
+        for (TableWork table : tables) {
+            List<CompletableFuture<Boolean>> tableFutures = table.units().stream()
+                    .map(unit -> unitFutures.getOrDefault(unit.getId(), CompletableFuture.completedFuture(true)))
+                    .collect(Collectors.toList());
+            if (table.partitions.isEmpty()) {
+                futures.add(tableFutures.get(0));
+            } else {
+                List<UUID> partitionProgressIds = table.partitions.stream()
+                        .map(MigrationProgress::getId)
+                        .collect(Collectors.toList());
+                futures.add(rollUpPartitions(table.tableProgress.getId(), partitionProgressIds, tableFutures,
+                        runContext.getControl()));
+            }
+        }
+        return futures;
+    }
+
+    private TableMigrationTask createTask(RunContext runContext, JsonNode mapping, CompiledTableMapping columns,
+            MigrationProgress unit, MongoDatabase mongoDatabase, JdbcTemplate targetJdbcTemplate,
+            AdaptiveBatchSizer batchSizer, boolean resume) {
+        String sourceCollection = mapping.get("sourceCollection").asText();
+        String targetTable = mapping.get("targetTable").asText();
+        RowSink rowSink = selectRowSink(mapping, columns);
+
+        IdRange range = new IdRange(
+                IdRange.decodeBound(unit.getRangeStart()),
+                IdRange.decodeBound(unit.getRangeEnd()));
+
+        // Create Task
+        TableMigrationTask task = new TableMigrationTask(
+                sourceCollection,
+                targetTable,
+                columns,
+                mongoDatabase,
+                targetJdbcTemplate,
+                progressFlusherService.track(unit.getRunId(), unit.getId()),
+                unit.getRunId(),
+                unit.getId(),
+                objectMapper,
+                rowSink,
+                selectRowSink(mapping, columns),
+                range,
+                runMetricsService.register(unit.getRunId(), unit.getId(), targetTable, unit.getPartitionIndex()),
+                runContext.getStageExecutor(),
+                batchSizer,
+                runContext.getWriteLimiter(),
+                runContext.getSourceGovernor(),
+                runContext.getStagingRoot() != null
+                        ? new StagingStore(StagingStore.unitDirectory(runContext.getStagingRoot(), unit.getRunId(),
+                                unit.getId()), stagingSegmentBytes, runContext.isStagingCompressed())
+                        : null,
+                new RetryPolicy(retryMaxAttempts, retryBaseDelayMillis, retryMaxDelayMillis),
+                runContext.getControl(),
+                runContext.getMemoryBudget());
+        if (resume) {
+            task.resumeFrom(TargetCheckpointStore.find(targetJdbcTemplate, unit.getId()));
+        }
+        return task;
+    }
+
+    /**
+     * Predicts the dispatch order and timing of a migration's plan without running it.
+     * Sizes come from collection stats and the copy rate from migration.scheduler.estimated-bytes-per-second.
+     */
+    public Map<String, Object> previewSchedule(UUID migrationId) {
+        Migration migration = migrationRepository.findById(migrationId)
+                .orElseThrow(() -> new RuntimeException("Migration not found"));
+        MigrationPlan plan = migrationPlanRepository.findFirstByMigrationIdOrderByCreatedAtDesc(migrationId);
+        if (plan == null) {
+            throw new RuntimeException("No migration plan found");
+        }
+
+        int maxConcurrentTasks = resolveMaxConcurrentTasks(migration);
+        Map<String, Set<String>> dependsOn = TableScheduler.dependencies(plan.getPlanJson());
+        Map<String, Long> rowsByTable = new HashMap<>();
+        List<TableScheduler.Unit> units = new ArrayList<>();
 
-                // Submit to Executor
-                CompletableFuture<Boolean> future = CompletableFuture.supplyAsync(() -> task.call(), executorService);
-                futures.add(future);
+        try (MongoClientRegistry.Lease lease = mongoConnectionService.acquireClient(migration)) {
+            MongoDatabase mongoDatabase = lease.getClient().getDatabase(migration.getSourceDatabase());
+            JsonNode tableMappings = plan.getPlanJson().get("tableMappings");
+            if (tableMappings != null && tableMappings.isArray()) {
+                for (JsonNode mapping : tableMappings) {
+                    String sourceCollection = mapping.get("sourceCollection").asText();
+                    String targetTable = mapping.get("targetTable").asText();
+                    long estimatedRows = mongoDatabase.getCollection(sourceCollection).estimatedDocumentCount();
+                    long sizeBytes = collectionSizeBytes(mongoDatabase, sourceCollection, estimatedRows);
+                    int partitions = collectionPartitionerService.plannedPartitionCount(estimatedRows, maxConcurrentTasks);
+
+                    rowsByTable.put(targetTable, estimatedRows);
+                    for (int i = 0; i < partitions; i++) {
+                        units.add(new TableScheduler.Unit(targetTable, null, partitions > 1 ? i : null,
+                                sizeBytes / partitions));
+                    }
+                }
+            }
+        }
+
+        List<TableScheduler.Unit> ordered = TableScheduler.order(units, dependsOn);
+        double makespan = TableScheduler.simulate(ordered, maxConcurrentTasks, estimatedBytesPerSecond);
+
+        List<Map<String, Object>> schedule = new ArrayList<>();
+        for (int i = 0; i < ordered.size(); i++) {
+            TableScheduler.Unit unit = ordered.get(i);
+            Map<String, Object> entry = new LinkedHashMap<>();
+            entry.put("order", i + 1);
+            entry.put("tableName", unit.getTableName());
+            entry.put("partitionIndex", unit.getPartitionIndex());
+            entry.put("estimatedRows", rowsByTable.get(unit.getTableName()));
+            entry.put("estimatedBytes", unit.getEstimatedBytes());
+            entry.put("dependsOn", dependsOn.getOrDefault(unit.getTableName(), Set.of()));
+            entry.put("worker", unit.getPredictedWorker());
+            entry.put("predictedStartSeconds", Math.round(unit.getPredictedStartSeconds()));
+            entry.put("predictedEndSeconds", Math.round(unit.getPredictedEndSeconds()));
+            schedule.add(entry);
+        }
+
+        Map<String, Object> preview = new LinkedHashMap<>();
+        preview.put("migrationId", migrationId);
+        preview.put("maxConcurrentTasks", maxConcurrentTasks);
+        preview.put("assumedBytesPerSecond", (long) estimatedBytesPerSecond);
+        preview.put("predictedMakespanSeconds", Math.round(makespan));
+        preview.put("schedule", schedule);
+        return preview;
+    }
+
+    /**
+     * Uncompressed data size of a collection from collStats, or an estimate from its row count
+     */
+    private long collectionSizeBytes(MongoDatabase mongoDatabase, String collection, long estimatedRows) {
+        try {
+            Document stats = mongoDatabase.runCommand(new Document("collStats", collection));
+            Object size = stats.get("size");
+            if (size instanceof Number && ((Number) size).longValue() > 0) {
+                return ((Number) size).longValue();
             }
+        } catch (Exception e) {
+            System.err.println("⚠️ collStats failed for " + collection + ": " + e.getMessage());
+        }
+        return estimatedRows * 1024;
+    }
+
+    /**
+     * Loads the documents a run dead-lettered again, using the migration's latest plan so a
+     * corrected mapping applies. Documents go in batches of migration.batch.initial-rows and
+     * are bisected like during the load; those that still fail stay dead-lettered with the
+     * new error.
+     */
+    public Map<String, Object> replayDeadLetters(UUID runId) throws InterruptedException {
+        MigrationRun run = migrationRunRepository.findById(runId)
+                .orElseThrow(() -> new RuntimeException("Migration run not found"));
+        // A queued run would start loading the same tables while they are replayed
+        if (activeRuns.containsKey(runId) || runScheduler.getQueuePosition(runId) > 0) {
+            throw new RuntimeException("Migration run is still in progress");
         }
 
-        // 6. Monitor Global Status (Async)
+        Migration migration = migrationRepository.findById(run.getMigrationId())
+                .orElseThrow(() -> new RuntimeException("Migration not found"));
+        MigrationPlan plan = migrationPlanRepository.findFirstByMigrationIdOrderByCreatedAtDesc(run.getMigrationId());
+        if (plan == null) {
+            throw new RuntimeException("No migration plan found");
+        }
+        Map<String, JsonNode> mappingsByTable = new HashMap<>();
+        JsonNode tableMappings = plan.getPlanJson().get("tableMappings");
+        if (tableMappings != null && tableMappings.isArray()) {
+            for (JsonNode mapping : tableMappings) {
+                mappingsByTable.put(mapping.get("targetTable").asText(), mapping);
+            }
+        }
+
+        RunContext runContext = createRunContext(runId, migration, run.getLoadProfile());
+        Map<String, Object> result = new LinkedHashMap<>();
+        long replayed = 0;
+        long rejected = 0;
+        try {
+            JdbcTemplate targetJdbcTemplate = connectTarget(migration, runContext);
+            DeadLetterStore.ensureTable(targetJdbcTemplate);
+
+            for (String targetTable : DeadLetterStore.findPendingTables(targetJdbcTemplate, runId)) {
+                JsonNode mapping = mappingsByTable.get(targetTable);
+                if (mapping == null) {
+                    System.err.println("⚠️ Latest plan has no mapping for " + targetTable + ", skipping its dead letters");
+                    continue;
+                }
+                CompiledTableMapping columns = CompiledTableMapping.compile(mapping.get("columns"));
+                RowSink rowSink = selectRowSink(mapping, columns);
+
+                long afterId = 0;
+                List<DeadLetterStore.Entry> page;
+                while (!(page = DeadLetterStore.findPending(targetJdbcTemplate, runId, targetTable, afterId,
+                        initialBatchRows)).isEmpty()) {
+                    afterId = page.get(page.size() - 1).getId();
+
+                    // Bisection hands back the same document instances, so entries are found by identity
+                    Map<RawBsonDocument, DeadLetterStore.Entry> entries = new IdentityHashMap<>();
+                    for (DeadLetterStore.Entry entry : page) {
+                        entries.put(entry.getDocument(), entry);
+                    }
+                    List<RawBsonDocument> documents = page.stream()
+                            .map(DeadLetterStore.Entry::getDocument)
+                            .collect(Collectors.toList());
+                    int failed = DeadLetterStore.isolate(documents,
+                            chunk -> replayChunk(targetJdbcTemplate, targetTable, columns, rowSink, chunk, entries),
+                            (document, error) -> {
+                                DeadLetterStore.Entry entry = entries.get(document);
+                                targetJdbcTemplate.execute((ConnectionCallback<Void>) connection -> {
+                                    DeadLetterStore.save(connection, runId, entry.getProgressId(),
+                                            entry.getSourceCollection(), targetTable, document, error);
+                                    return null;
+                                });
+                            });
+                    rejected += failed;
+                    replayed += page.size() - failed;
+                }
+            }
+        } finally {
+            runContext.close();
+        }
+
+        System.out.println("🔁 Replayed " + replayed + " dead-lettered documents of run " + runId + ", "
+                + rejected + " still rejected");
+        result.put("runId", runId);
+        result.put("replayed", replayed);
+        result.put("rejected", rejected);
+        return result;
+    }
+
+    /**
+     * Writes replayed documents and marks their dead letters replayed in one transaction
+     */
+    private void replayChunk(JdbcTemplate targetJdbcTemplate, String targetTable, CompiledTableMapping columns,
+            RowSink rowSink, List<RawBsonDocument> chunk, Map<RawBsonDocument, DeadLetterStore.Entry> entries) {
+        RowBatch batch = rowSink.encode(columns, chunk);
+        List<Long> ids = chunk.stream().map(document -> entries.get(document).getId()).collect(Collectors.toList());
+        targetJdbcTemplate.execute((ConnectionCallback<Void>) connection -> {
+            boolean autoCommit = connection.getAutoCommit();
+            connection.setAutoCommit(false);
+            try {
+                rowSink.write(connection, targetTable, columns, batch);
+                DeadLetterStore.markReplayed(connection, ids);
+                connection.commit();
+                return null;
+            } catch (SQLException | RuntimeException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(autoCommit);
+            }
+        });
+    }
+
+    /**
+     * Status of a run executing on this node, or null if no local executor owns it
+     */
+    public String getActiveStatus(UUID runId) {
+        RunContext runContext = activeRuns.get(runId);
+        if (runContext == null) {
+            return null;
+        }
+        if (runContext.getControl().isStopping()) {
+            return runContext.getControl().isCancelled() ? "CANCELLING" : "PAUSING";
+        }
+        return runContext.getReplicator() != null ? "REPLICATING" : "RUNNING";
+    }
+
+    /**
+     * Pauses a run on this node: readers stop at the next document, batches already read are
+     * committed, and tasks that have not started stay pending. Waits up to
+     * migration.control.drain-timeout-seconds for the run to drain; the returned run is PAUSED,
+     * or still RUNNING if draining takes longer. Continue it with {@link #resumeRun}.
+     */
+    public MigrationRun pauseRun(UUID runId) throws InterruptedException {
+        RunContext runContext = activeRuns.get(runId);
+        if (runContext == null) {
+            throw new RuntimeException("Migration run is not running on this instance");
+        }
+        runContext.getControl().pause();
+        stopReplicator(runContext);
+        System.out.println("⏸️ Pausing run " + runId);
+        runContext.getControl().awaitDrained(drainTimeoutSeconds, TimeUnit.SECONDS);
+        return migrationRunRepository.findById(runId)
+                .orElseThrow(() -> new RuntimeException("Migration run not found"));
+    }
+
+    /**
+     * Cancels a run. A run executing here drains like a pause and ends CANCELLED, which closes
+     * its source client lease and target pool; if it does not drain within
+     * migration.control.drain-timeout-seconds its connections are closed under it. A run that
+     * is not executing (queued, paused or failed) is marked CANCELLED directly.
+     */
+    public MigrationRun cancelRun(UUID runId) throws InterruptedException {
+        RunContext runContext = activeRuns.get(runId);
+        if (runContext == null) {
+            MigrationRun run = migrationRunRepository.findById(runId)
+                    .orElseThrow(() -> new RuntimeException("Migration run not found"));
+            if ("COMPLETED".equals(run.getStatus()) || "CANCELLED".equals(run.getStatus())) {
+                throw new RuntimeException("Migration run already " + run.getStatus().toLowerCase());
+            }
+            // Drops the run from the admission queue if it was still waiting there
+            runScheduler.release(runId);
+            run.setStatus(RunControl.CANCELLED);
+            run.setEndedAt(java.time.LocalDateTime.now());
+            return migrationRunRepository.save(run);
+        }
+
+        runContext.getControl().cancel();
+        stopReplicator(runContext);
+        System.out.println("⏹️ Cancelling run " + runId);
+        if (runContext.getControl().awaitDrained(drainTimeoutSeconds, TimeUnit.SECONDS) == null) {
+            // Writers stuck on the target fail fast once the run's pool is closed. Readers notice
+            // the stop signal even while throttled; a cursor call already in flight on the shared
+            // source client still runs to its end.
+            System.err.println("⚠️ Run " + runId + " did not drain within " + drainTimeoutSeconds
+                    + "s, closing its connections");
+            runContext.close();
+            runContext.getControl().awaitDrained(drainTimeoutSeconds, TimeUnit.SECONDS);
+        }
+        return migrationRunRepository.findById(runId)
+                .orElseThrow(() -> new RuntimeException("Migration run not found"));
+    }
+
+    private void stopReplicator(RunContext runContext) {
+        ChangeStreamReplicator replicator = runContext.getReplicator();
+        if (replicator != null) {
+            replicator.stop();
+        }
+    }
+
+    /**
+     * Stops change-stream replication of a run; the run completes once the current batch is applied
+     */
+    public MigrationRun stopReplication(UUID runId) {
+        RunContext runContext = activeRuns.get(runId);
+        if (runContext == null || runContext.getReplicator() == null) {
+            throw new RuntimeException("Migration run is not replicating on this instance");
+        }
+        runContext.getReplicator().stop();
+        return migrationRunRepository.findById(runId)
+                .orElseThrow(() -> new RuntimeException("Migration run not found"));
+    }
+
+    /**
+     * Once every table future completes, builds the plan's keys, indexes and constraints,
+     * then marks the run finished and releases the run's source client lease and target pool.
+     * With a replicator, a successful load moves the run to REPLICATING instead and it
+     * finishes when replication stops.
+     */
+    private void monitorRun(MigrationRun savedRun, RunContext runContext, List<CompletableFuture<Boolean>> futures,
+            JdbcTemplate targetJdbcTemplate, JsonNode planJson, ChangeStreamReplicator replicator) {
         CompletableFuture.allOf(futures.toArray(new CompletableFuture[0]))
-                .thenAccept(v -> {
+                .thenAcceptAsync(v -> {
                     // All done
                     boolean allSuccess = futures.stream().allMatch(f -> {
                         try {
@@ -193,19 +888,358 @@ public class MigrationExecutorService {
                         }
                     });
 
-                    savedRun.setEndedAt(java.time.LocalDateTime.now());
-                    savedRun.setStatus(allSuccess ? "COMPLETED" : "COMPLETED_WITH_ERRORS");
-                    migrationRunRepository.save(savedRun);
+                    // A paused or cancelled run stops here; resuming it finishes the load
+                    if (runContext.getControl().isStopping()) {
+                        finishRun(savedRun, runContext, runContext.getControl().getStopStatus());
+                        return;
+                    }
+
+                    // Keys and indexes are only built over complete data; a resumed run retries them
+                    if (allSuccess) {
+                        List<String> errors = postLoadService.finalizeTables(runContext, targetJdbcTemplate, planJson);
+                        allSuccess = errors.isEmpty();
+                    }
+                    // UNLOGGED tables become crash-safe only once everything above succeeded
+                    if (allSuccess && runContext.isUnlogged()) {
+                        allSuccess = postLoadService.setLogged(runContext, targetJdbcTemplate, planJson).isEmpty();
+                    }
 
-                    // Cleanup
-                    mongoClient.close();
+                    if (allSuccess && replicator != null) {
+                        startReplication(savedRun, runContext, replicator);
+                        return;
+                    }
+                    finishRun(savedRun, runContext, allSuccess ? "COMPLETED" : "COMPLETED_WITH_ERRORS");
+                }, runContext.getStageExecutor());
+    }
+
+    private void finishRun(MigrationRun savedRun, RunContext runContext, String status) {
+        savedRun.setEndedAt(java.time.LocalDateTime.now());
+        savedRun.setStatus(status);
+        savedRun.setMetricsJson(runMetricsService.release(savedRun.getId()));
+        migrationRunRepository.save(savedRun);
+        activeRuns.remove(savedRun.getId());
+        runScheduler.release(savedRun.getId());
+        progressFlusherService.releaseRun(savedRun.getId());
+
+        // Staged batches are kept after a failure so a resumed run can replay them
+        if ("COMPLETED".equals(status) && runContext.getStagingRoot() != null) {
+            try {
+                StagingStore.deleteDirectory(runContext.getStagingRoot().resolve(savedRun.getId().toString()));
+            } catch (IOException e) {
+                System.err.println("⚠️ Could not delete staging files of run " + savedRun.getId() + ": " + e.getMessage());
+            }
+        }
+
+        // Cleanup
+        runContext.close();
+        runContext.getControl().markDrained(status);
+    }
+
+    /**
+     * Tails the change stream on a stage thread until the replicator is stopped or fails
+     */
+    private void startReplication(MigrationRun savedRun, RunContext runContext, ChangeStreamReplicator replicator) {
+        savedRun.setStatus("REPLICATING");
+        migrationRunRepository.save(savedRun);
+        runContext.setReplicator(replicator);
+        // A pause or cancel that arrived during the post-load steps
+        if (runContext.getControl().isStopping()) {
+            replicator.stop();
+        }
+
+        CompletableFuture.runAsync(replicator, runContext.getStageExecutor())
+                .whenComplete((v, error) -> {
+                    if (error != null) {
+                        System.err.println("❌ Change-stream replication failed for run " + savedRun.getId()
+                                + ": " + error.getMessage());
+                    }
+                    String stopStatus = runContext.getControl().getStopStatus();
+                    finishRun(savedRun, runContext, stopStatus != null ? stopStatus : error == null ? "COMPLETED" : "FAILED");
                 });
+    }
 
-        return savedRun;
+    /**
+     * Reads the current change-stream position of the source database without consuming events
+     */
+    private String captureResumeToken(MongoDatabase mongoDatabase) {
+        try (MongoChangeStreamCursor<ChangeStreamDocument<Document>> cursor = mongoDatabase.watch().cursor()) {
+            BsonDocument token = cursor.getResumeToken();
+            if (token == null) {
+                cursor.tryNext();
+                token = cursor.getResumeToken();
+            }
+            if (token == null) {
+                throw new RuntimeException("Source did not return a change-stream resume token");
+            }
+            return token.toJson();
+        } catch (MongoException e) {
+            throw new RuntimeException("Change streams are not available on the source database "
+                    + "(CDC requires a replica set or sharded cluster): " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Builds the replicator for every mapped collection; the resume token is saved on the run
+     * after each applied batch so a resumed run continues where replication stopped
+     */
+    private ChangeStreamReplicator createReplicator(MigrationRun run, MongoDatabase mongoDatabase,
+            JdbcTemplate targetJdbcTemplate, JsonNode tableMappings) {
+        List<JsonNode> mappings = new ArrayList<>();
+        if (tableMappings != null && tableMappings.isArray()) {
+            tableMappings.forEach(mappings::add);
+        }
+        return new ChangeStreamReplicator(
+                mongoDatabase,
+                targetJdbcTemplate,
+                mappings,
+                BsonDocument.parse(run.getResumeToken()),
+                token -> {
+                    run.setResumeToken(token.toJson());
+                    migrationRunRepository.save(run);
+                },
+                runMetricsService.registerReplication(run.getId()),
+                BsonJsonEncoder.parseMode(jsonExtendedMode));
     }
 
-    private void createTargetTable(JdbcTemplate targetJdbcTemplate, String tableName, JsonNode columns) {
-        StringBuilder sql = new StringBuilder("CREATE TABLE IF NOT EXISTS ");
+    /**
+     * Resolves the executor mode and concurrency limits for a run from its Migration,
+     * falling back to the node defaults
+     */
+    private RunContext createRunContext(UUID runId, Migration migration, String loadProfile) {
+        String mode = migration.getExecutorMode() != null ? migration.getExecutorMode() : defaultExecutorMode;
+        boolean virtual = "VIRTUAL".equalsIgnoreCase(mode);
+
+        int maxConcurrentTasks = resolveMaxConcurrentTasks(migration);
+        int maxTargetConnections = migration.getMaxTargetConnections() != null && migration.getMaxTargetConnections() > 0
+                ? migration.getMaxTargetConnections()
+                : defaultMaxTargetConnections;
+
+        // Runs sharing a target share its permits, limited by the lowest of their settings
+        String targetKey = migration.getTargetHost() + ":" + migration.getTargetPort() + "/" + migration.getTargetDatabase();
+        TargetPermits permits = targetPermits.computeIfAbsent(targetKey,
+                key -> new TargetPermits(defaultMaxTargetConnections));
+        permits.addLimit(runId, maxTargetConnections);
+
+        int writeFloor = migration.getMinWriteConcurrency() != null && migration.getMinWriteConcurrency() > 0
+                ? migration.getMinWriteConcurrency()
+                : defaultWriteConcurrencyFloor;
+        int writeCeiling = migration.getMaxWriteConcurrency() != null && migration.getMaxWriteConcurrency() > 0
+                ? migration.getMaxWriteConcurrency()
+                : defaultWriteConcurrencyCeiling;
+        // Runs sharing a target share its limiter, bounded by the tightest of their settings
+        AimdConcurrencyLimiter writeLimiter = writeLimiters.computeIfAbsent(targetKey,
+                key -> new AimdConcurrencyLimiter(defaultWriteConcurrencyFloor, defaultWriteConcurrencyCeiling));
+        writeLimiter.addBounds(runId, writeFloor, writeCeiling);
+
+        RunContext runContext = new RunContext(
+                runId,
+                virtual ? "VIRTUAL" : "PLATFORM",
+                loadProfile,
+                virtual ? virtualExecutorService : executorService,
+                virtual ? virtualExecutorService : stageExecutorService,
+                maxConcurrentTasks,
+                permits,
+                writeLimiter,
+                runScheduler,
+                migration.getUserId(),
+                migration.getSchedulingWeight() != null ? migration.getSchedulingWeight() : 1);
+        if (Boolean.TRUE.equals(migration.getStagingEnabled())) {
+            runContext.enableStaging(Paths.get(stagingDir), "LZ4".equalsIgnoreCase(migration.getStagingCompression()));
+        }
+        return runContext;
+    }
+
+    private int resolveMaxConcurrentTasks(Migration migration) {
+        return migration.getMaxConcurrentTasks() != null && migration.getMaxConcurrentTasks() > 0
+                ? migration.getMaxConcurrentTasks()
+                : defaultMaxConcurrentTasks;
+    }
+
+    /**
+     * Borrows the shared client for the run's source, sets up the run's read governor and
+     * returns the source database with the Migration's read preference applied
+     */
+    private MongoDatabase connectSource(Migration migration, RunContext runContext) {
+        runContext.setSourceClient(mongoConnectionService.acquireClient(migration));
+        MongoClient client = runContext.getSourceClient();
+
+        runContext.setSourceGovernor(new SourceReadGovernor(
+                migration.getSourceMaxDocsPerSecond() != null ? migration.getSourceMaxDocsPerSecond() : 0,
+                migration.getSourceMaxBytesPerSecond() != null ? migration.getSourceMaxBytesPerSecond() : 0,
+                migration.getSourceMaxReplicationLagSeconds() != null ? migration.getSourceMaxReplicationLagSeconds() : 0,
+                () -> sourceReplicationLagSeconds(client)));
+
+        MongoDatabase mongoDatabase = client.getDatabase(migration.getSourceDatabase());
+        String readPreference = migration.getSourceReadPreference();
+        if (readPreference != null && !readPreference.isBlank()) {
+            try {
+                mongoDatabase = mongoDatabase.withReadPreference(ReadPreference.valueOf(readPreference.trim()));
+            } catch (IllegalArgumentException e) {
+                runContext.close();
+                throw new RuntimeException("Unknown source read preference: " + readPreference);
+            }
+        }
+        return mongoDatabase;
+    }
+
+    /**
+     * How far the most lagged secondary is behind the primary, from replSetGetStatus.
+     * Returns -1 when it cannot be determined, e.g. for a standalone source or a user
+     * without the clusterMonitor role.
+     */
+    private long sourceReplicationLagSeconds(MongoClient client) {
+        try {
+            Document status = client.getDatabase("admin").runCommand(new Document("replSetGetStatus", 1));
+            Date primaryOptime = null;
+            Date oldestSecondaryOptime = null;
+            for (Document member : status.getList("members", Document.class, List.of())) {
+                Date optime = member.getDate("optimeDate");
+                if (optime == null) {
+                    continue;
+                }
+                String state = member.getString("stateStr");
+                if ("PRIMARY".equals(state)) {
+                    primaryOptime = optime;
+                } else if ("SECONDARY".equals(state)
+                        && (oldestSecondaryOptime == null || optime.before(oldestSecondaryOptime))) {
+                    oldestSecondaryOptime = optime;
+                }
+            }
+            if (primaryOptime == null || oldestSecondaryOptime == null) {
+                return -1;
+            }
+            return Math.max(0, (primaryOptime.getTime() - oldestSecondaryOptime.getTime()) / 1000);
+        } catch (Exception e) {
+            System.err.println("⚠️ Could not read source replication lag: " + e.getMessage());
+            return -1;
+        }
+    }
+
+    /**
+     * Opens a run-scoped connection pool to the target, sized to the run's worker count plus
+     * one connection for DDL and checkpoint lookups. The pool is closed when the run finishes.
+     */
+    private JdbcTemplate connectTarget(Migration migration, RunContext runContext) {
+        String targetJdbcUrl = String.format("jdbc:postgresql://%s:%d/%s",
+                migration.getTargetHost(),
+                migration.getTargetPort(),
+                migration.getTargetDatabase());
+
+        HikariConfig config = new HikariConfig();
+        config.setPoolName("migration-run-" + runContext.getRunId());
+        config.setDriverClassName("org.postgresql.Driver");
+        config.setJdbcUrl(targetJdbcUrl);
+        config.setUsername(migration.getTargetUsername());
+        config.setPassword(migration.getTargetPassword());
+        config.setMaximumPoolSize(runContext.getMaxConcurrentTasks() + 1);
+        config.setMinimumIdle(1);
+
+        // Switch to server-side prepared statements after a few executions and keep them cached
+        config.addDataSourceProperty("prepareThreshold", targetPrepareThreshold);
+        config.addDataSourceProperty("preparedStatementCacheQueries", 256);
+        // Lets the driver rewrite INSERT batches into multi-row INSERTs
+        config.addDataSourceProperty("reWriteBatchedInserts", true);
+        // Fast-load sessions do not wait for WAL flush; a crash already means a reload
+        if (runContext.isUnlogged()) {
+            config.setConnectionInitSql("SET synchronous_commit = off");
+        }
+
+        // Test target database connection
+        try {
+            HikariDataSource targetDataSource = new HikariDataSource(config);
+            runContext.setTargetDataSource(targetDataSource);
+
+            JdbcTemplate targetJdbcTemplate = new JdbcTemplate(targetDataSource);
+            targetJdbcTemplate.execute("SELECT 1");
+            System.out.println("✅ Successfully connected to target database: " + targetJdbcUrl);
+            return targetJdbcTemplate;
+        } catch (Exception e) {
+            runContext.close();
+            String errorMsg = String.format(
+                    "Failed to connect to target PostgreSQL database.\n" +
+                            "Host: %s\n" +
+                            "Port: %d\n" +
+                            "Database: %s\n" +
+                            "Username: %s\n" +
+                            "Error: %s",
+                    migration.getTargetHost(),
+                    migration.getTargetPort(),
+                    migration.getTargetDatabase(),
+                    migration.getTargetUsername(),
+                    e.getMessage());
+            System.err.println("❌ " + errorMsg);
+            throw new RuntimeException(errorMsg, e);
+        }
+    }
+
+    /**
+     * Completes a partitioned table once every partition has finished and rolls
+     * the partition counters up into the table-level progress record
+     */
+    private CompletableFuture<Boolean> rollUpPartitions(UUID tableProgressId, List<UUID> partitionProgressIds,
+            List<CompletableFuture<Boolean>> partitionFutures, RunControl control) {
+        return CompletableFuture.allOf(partitionFutures.toArray(new CompletableFuture[0]))
+                .thenApply(v -> {
+                    boolean allSuccess = partitionFutures.stream().allMatch(CompletableFuture::join);
+
+                    long rows = 0;
+                    long bytes = 0;
+                    for (MigrationProgress partition : migrationProgressRepository.findAllById(partitionProgressIds)) {
+                        rows += partition.getRowsProcessed() != null ? partition.getRowsProcessed() : 0;
+                        bytes += partition.getBytesWritten() != null ? partition.getBytesWritten() : 0;
+                    }
+
+                    MigrationProgress tableProgress = migrationProgressRepository.findById(tableProgressId).orElseThrow();
+                    tableProgress.setRowsProcessed(rows);
+                    tableProgress.setBytesWritten(bytes);
+                    tableProgress.setStatus(allSuccess ? "COMPLETED"
+                            : control.isStopping() ? control.getStopStatus() : "FAILED");
+                    tableProgress.setUpdatedAt(java.time.LocalDateTime.now());
+                    migrationProgressRepository.save(tableProgress);
+                    return allSuccess;
+                });
+    }
+
+    /**
+     * Whether a table of the run is empty although its checkpoints record committed rows
+     */
+    private boolean unloggedDataLost(JdbcTemplate targetJdbcTemplate, List<MigrationProgress> progressRecords) {
+        Map<String, Long> committedByTable = new HashMap<>();
+        for (MigrationProgress progress : progressRecords) {
+            TargetCheckpointStore.Checkpoint checkpoint = TargetCheckpointStore.find(targetJdbcTemplate, progress.getId());
+            if (checkpoint != null) {
+                committedByTable.merge(progress.getTableName(), checkpoint.getRowsCommitted(), Long::sum);
+            }
+        }
+        for (Map.Entry<String, Long> entry : committedByTable.entrySet()) {
+            Boolean hasRows = targetJdbcTemplate.queryForObject(
+                    "SELECT EXISTS (SELECT 1 FROM " + entry.getKey() + ")", Boolean.class);
+            if (entry.getValue() > 0 && !Boolean.TRUE.equals(hasRows)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Picks the load method for a table from its plan mapping, falling back to INSERT
+     * when a column type has no binary COPY encoder
+     */
+    private RowSink selectRowSink(JsonNode mapping, CompiledTableMapping columns) {
+        String loadMethod = mapping.has("loadMethod") ? mapping.get("loadMethod").asText() : "COPY";
+        if ("COPY".equalsIgnoreCase(loadMethod) && columns.supportsBinaryCopy()) {
+            return new BinaryCopySink(BsonJsonEncoder.parseMode(jsonExtendedMode));
+        }
+        return new BatchInsertSink(null, BsonJsonEncoder.parseMode(jsonExtendedMode));
+    }
+
+    /**
+     * Creates a bare table; primary keys, indexes and foreign keys are added by
+     * PostLoadService once the data is in
+     */
+    private void createTargetTable(JdbcTemplate targetJdbcTemplate, String tableName, JsonNode columns,
+            boolean unlogged) {
+        StringBuilder sql = new StringBuilder(unlogged ? "CREATE UNLOGGED TABLE IF NOT EXISTS " : "CREATE TABLE IF NOT EXISTS ");
         sql.append(tableName).append(" (");
 
         List<String> columnDefs = new ArrayList<>();
@@ -213,7 +1247,6 @@ public class MigrationExecutorService {
             String colName = col.get("targetColumn").asText();
             String dataType = col.get("dataType").asText();
             boolean nullable = col.has("nullable") && col.get("nullable").asBoolean();
-            boolean isPrimaryKey = col.has("isPrimaryKey") && col.get("isPrimaryKey").asBoolean();
 
             StringBuilder colDef = new StringBuilder();
             colDef.append(colName).append(" ").append(dataType);
@@ -222,10 +1255,6 @@ public class MigrationExecutorService {
                 colDef.append(" NOT NULL");
             }
 
-            if (isPrimaryKey) {
-                colDef.append(" PRIMARY KEY");
-            }
-
             columnDefs.add(colDef.toString());
         }
 
@@ -234,4 +1263,26 @@ public class MigrationExecutorService {
 
         targetJdbcTemplate.execute(sql.toString());
     }
+
+    /**
+     * A table of the run with its progress records and estimated source size
+     */
+    private static class TableWork {
+        private final JsonNode mapping;
+        private final MigrationProgress tableProgress;
+        private final List<MigrationProgress> partitions;
+        private final long sizeBytes;
+
+        private TableWork(JsonNode mapping, MigrationProgress tableProgress, List<MigrationProgress> partitions,
+                long sizeBytes) {
+            this.mapping = mapping;
+            this.tableProgress = tableProgress;
+            this.partitions = partitions;
+            this.sizeBytes = sizeBytes;
+        }
+
+        private List<MigrationProgress> units() {
+            return partitions.isEmpty() ? List.of(tableProgress) : partitions;
+        }
+    }
 }
@@ -114,6 +114,7 @@ public class MigrationPlanGeneratorService {
             ObjectNode tableMapping = objectMapper.createObjectNode();
             tableMapping.put("sourceCollection", collectionName);
             tableMapping.put("targetTable", collectionName); // Use same name by default
+            tableMapping.put("loadMethod", "COPY"); // Binary COPY unless a column type needs INSERT
 
             // Generate columns
             ArrayNode columns = objectMapper.createArrayNode();
@@ -0,0 +1,176 @@
+package com.sahil.backend.service;
+
+import com.mongodb.ConnectionString;
+import com.mongodb.MongoClientSettings;
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoClients;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+
+/**
+ * Shares one MongoClient (and its connection pool, monitor threads and TLS sessions) per
+ * source cluster. Clients are reference counted and closed after sitting unused for a while.
+ */
+@Service
+public class MongoClientRegistry {
+
+    @Value("${mongo.client.idle-eviction-seconds:300}")
+    private long idleEvictionSeconds;
+
+    private final Map<String, SharedClient> clients = new ConcurrentHashMap<>();
+
+    private final ScheduledExecutorService evictor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "mongo-client-evictor");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    @PostConstruct
+    public void startEviction() {
+        evictor.scheduleWithFixedDelay(this::evictIdleClients, 60, 60, TimeUnit.SECONDS);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        evictor.shutdownNow();
+        clients.values().forEach(shared -> shared.client.close());
+        clients.clear();
+    }
+
+    /**
+     * Borrows the shared client for a connection string, creating it on first use.
+     * Close the lease when done; the client itself stays open for other callers.
+     */
+    public Lease acquire(String connectionString) {
+        String key = normalize(connectionString);
+        SharedClient shared = clients.compute(key, (k, existing) -> {
+            SharedClient entry = existing;
+            if (entry == null) {
+                MongoClientSettings settings = MongoClientSettings.builder()
+                        .applyConnectionString(new ConnectionString(connectionString))
+                        .build();
+                entry = new SharedClient(MongoClients.create(settings));
+            }
+            entry.refCount++;
+            entry.lastUsedAt = System.currentTimeMillis();
+            return entry;
+        });
+        return new Lease(key, shared.client);
+    }
+
+    private void release(String key) {
+        clients.computeIfPresent(key, (k, entry) -> {
+            entry.refCount = Math.max(0, entry.refCount - 1);
+            entry.lastUsedAt = System.currentTimeMillis();
+            return entry;
+        });
+    }
+
+    private void evictIdleClients() {
+        long cutoff = System.currentTimeMillis() - TimeUnit.SECONDS.toMillis(idleEvictionSeconds);
+        for (String key : clients.keySet()) {
+            clients.computeIfPresent(key, (k, entry) -> {
+                if (entry.refCount == 0 && entry.lastUsedAt < cutoff) {
+                    entry.client.close();
+                    return null;
+                }
+                return entry;
+            });
+        }
+    }
+
+    /**
+     * Canonical form of a connection string so equivalent strings share a client:
+     * lowercased scheme and hosts, hosts and options sorted
+     */
+    static String normalize(String connectionString) {
+        String value = connectionString.trim();
+        int schemeEnd = value.indexOf("://");
+        String scheme = value.substring(0, schemeEnd).toLowerCase(Locale.ROOT);
+        String rest = value.substring(schemeEnd + 3);
+
+        String query = "";
+        int queryStart = rest.indexOf('?');
+        if (queryStart >= 0) {
+            query = rest.substring(queryStart + 1);
+            rest = rest.substring(0, queryStart);
+        }
+
+        String path = "";
+        int pathStart = rest.indexOf('/');
+        if (pathStart >= 0) {
+            path = rest.substring(pathStart + 1);
+            rest = rest.substring(0, pathStart);
+        }
+
+        String userInfo = "";
+        int at = rest.lastIndexOf('@');
+        if (at >= 0) {
+            userInfo = rest.substring(0, at + 1);
+            rest = rest.substring(at + 1);
+        }
+
+        String hosts = Arrays.stream(rest.split(","))
+                .map(host -> host.trim().toLowerCase(Locale.ROOT))
+                .sorted()
+                .collect(Collectors.joining(","));
+        String options = Arrays.stream(query.split("&"))
+                .filter(option -> !option.isEmpty())
+                .map(option -> {
+                    int eq = option.indexOf('=');
+                    return eq < 0 ? option.toLowerCase(Locale.ROOT)
+                            : option.substring(0, eq).toLowerCase(Locale.ROOT) + option.substring(eq);
+                })
+                .sorted()
+                .collect(Collectors.joining("&"));
+
+        return scheme + "://" + userInfo + hosts + "/" + path + (options.isEmpty() ? "" : "?" + options);
+    }
+
+    private static class SharedClient {
+        private final MongoClient client;
+        private int refCount = 0;
+        private long lastUsedAt;
+
+        private SharedClient(MongoClient client) {
+            this.client = client;
+        }
+    }
+
+    /**
+     * A borrowed reference to a shared client
+     */
+    public class Lease implements AutoCloseable {
+        private final String key;
+        private final MongoClient client;
+        private final AtomicBoolean released = new AtomicBoolean(false);
+
+        private Lease(String key, MongoClient client) {
+            this.key = key;
+            this.client = client;
+        }
+
+        public MongoClient getClient() {
+            return client;
+        }
+
+        @Override
+        public void close() {
+            if (released.compareAndSet(false, true)) {
+                release(key);
+            }
+        }
+    }
+}
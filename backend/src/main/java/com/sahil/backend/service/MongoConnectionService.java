@@ -1,12 +1,10 @@
 package com.sahil.backend.service;
 
-import com.mongodb.ConnectionString;
-import com.mongodb.MongoClientSettings;
-import com.mongodb.client.MongoClient;
-import com.mongodb.client.MongoClients;
 import com.mongodb.client.MongoDatabase;
 import com.mongodb.client.MongoIterable;
 import com.sahil.backend.model.DbConnection;
+import com.sahil.backend.model.Migration;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 import java.util.ArrayList;
@@ -15,25 +13,29 @@ import java.util.List;
 @Service
 public class MongoConnectionService {
 
+    @Autowired
+    private MongoClientRegistry mongoClientRegistry;
+
     /**
-     * Creates a MongoDB client from connection details
+     * Borrows the shared MongoDB client for the connection details; close the lease when done
      */
-    public MongoClient createMongoClient(DbConnection dbConnection) {
-        String connectionString = buildConnectionString(dbConnection);
-
-        MongoClientSettings settings = MongoClientSettings.builder()
-                .applyConnectionString(new ConnectionString(connectionString))
-                .build();
+    public MongoClientRegistry.Lease acquireClient(DbConnection dbConnection) {
+        return mongoClientRegistry.acquire(buildConnectionString(dbConnection));
+    }
 
-        return MongoClients.create(settings);
+    /**
+     * Borrows the shared MongoDB client for a migration's source database
+     */
+    public MongoClientRegistry.Lease acquireClient(Migration migration) {
+        return mongoClientRegistry.acquire(buildConnectionString(migration));
     }
 
     /**
      * Tests MongoDB connection and returns list of collections
      */
     public List<String> testConnection(DbConnection dbConnection) {
-        try (MongoClient mongoClient = createMongoClient(dbConnection)) {
-            MongoDatabase database = mongoClient.getDatabase(dbConnection.getDatabaseName());
+        try (MongoClientRegistry.Lease lease = acquireClient(dbConnection)) {
+            MongoDatabase database = lease.getClient().getDatabase(dbConnection.getDatabaseName());
 
             // Trigger connection by listing collections
             List<String> collections = new ArrayList<>();
@@ -52,8 +54,8 @@ public class MongoConnectionService {
      * Lists all collections in the database
      */
     public List<String> listCollections(DbConnection dbConnection) {
-        try (MongoClient mongoClient = createMongoClient(dbConnection)) {
-            MongoDatabase database = mongoClient.getDatabase(dbConnection.getDatabaseName());
+        try (MongoClientRegistry.Lease lease = acquireClient(dbConnection)) {
+            MongoDatabase database = lease.getClient().getDatabase(dbConnection.getDatabaseName());
 
             List<String> collections = new ArrayList<>();
             MongoIterable<String> collectionNames = database.listCollectionNames();
@@ -69,12 +71,42 @@ public class MongoConnectionService {
      * Gets collection statistics
      */
     public long getCollectionDocumentCount(DbConnection dbConnection, String collectionName) {
-        try (MongoClient mongoClient = createMongoClient(dbConnection)) {
-            MongoDatabase database = mongoClient.getDatabase(dbConnection.getDatabaseName());
+        try (MongoClientRegistry.Lease lease = acquireClient(dbConnection)) {
+            MongoDatabase database = lease.getClient().getDatabase(dbConnection.getDatabaseName());
             return database.getCollection(collectionName).countDocuments();
         }
     }
 
+    /**
+     * Builds connection string for a migration's source - supports both standard MongoDB and MongoDB Atlas
+     */
+    public String buildConnectionString(Migration migration) {
+        if (migration.getSourceUsername() != null && !migration.getSourceUsername().isEmpty()) {
+            // MongoDB Atlas or authenticated MongoDB
+            // Check if it's an Atlas cluster (contains mongodb.net)
+            if (migration.getSourceHost().contains("mongodb.net")) {
+                // MongoDB Atlas - use SRV connection string
+                return String.format("mongodb+srv://%s:%s@%s/%s",
+                        migration.getSourceUsername(),
+                        migration.getSourcePassword(),
+                        migration.getSourceHost(),
+                        migration.getSourceDatabase());
+            }
+            // Standard MongoDB with authentication
+            return String.format("mongodb://%s:%s@%s:%d/%s",
+                    migration.getSourceUsername(),
+                    migration.getSourcePassword(),
+                    migration.getSourceHost(),
+                    migration.getSourcePort(),
+                    migration.getSourceDatabase());
+        }
+
+        // No authentication
+        return String.format("mongodb://%s:%d",
+                migration.getSourceHost(),
+                migration.getSourcePort());
+    }
+
     /**
      * Builds connection string from DbConnection
      */
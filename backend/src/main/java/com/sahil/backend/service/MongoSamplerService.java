@@ -4,7 +4,6 @@ import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.node.ArrayNode;
 import com.fasterxml.jackson.databind.node.ObjectNode;
-import com.mongodb.client.MongoClient;
 import com.mongodb.client.MongoCollection;
 import com.mongodb.client.MongoDatabase;
 import com.sahil.backend.model.DbConnection;
@@ -29,8 +28,8 @@ public class MongoSamplerService {
      * Samples documents from a collection
      */
     public List<Document> sampleCollection(DbConnection dbConnection, String collectionName, int sampleSize) {
-        try (MongoClient mongoClient = mongoConnectionService.createMongoClient(dbConnection)) {
-            MongoDatabase database = mongoClient.getDatabase(dbConnection.getDatabaseName());
+        try (MongoClientRegistry.Lease lease = mongoConnectionService.acquireClient(dbConnection)) {
+            MongoDatabase database = lease.getClient().getDatabase(dbConnection.getDatabaseName());
             MongoCollection<Document> collection = database.getCollection(collectionName);
 
             long totalDocs = collection.countDocuments();
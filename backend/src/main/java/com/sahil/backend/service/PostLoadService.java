@@ -0,0 +1,278 @@
+package com.sahil.backend.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.sahil.backend.service.worker.TableScheduler;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Builds the constraints and indexes of a migration plan once the data is loaded,
+ * so rows are not indexed one at a time during COPY.
+ */
+@Service
+public class PostLoadService {
+
+    // Memory for each index build and constraint validation (SET LOCAL maintenance_work_mem)
+    @Value("${migration.postload.maintenance-work-mem:512MB}")
+    private String maintenanceWorkMem;
+
+    @Value("${migration.postload.max-parallel-index-builds:4}")
+    private int maxParallelIndexBuilds;
+
+    /**
+     * Runs the post-load phase for every table of the plan:
+     * 1. primary keys and plan indexes, built in parallel
+     * 2. foreign keys added NOT VALID, then validated in parallel
+     * 3. ANALYZE of each table
+     * Steps that already exist in the target are skipped, so the phase can be re-run on resume.
+     * Returns a description of every failed step; an empty list means the target is final.
+     */
+    public List<String> finalizeTables(RunContext runContext, JdbcTemplate targetJdbcTemplate, JsonNode planJson) {
+        List<String> errors = Collections.synchronizedList(new ArrayList<>());
+
+        Map<String, JsonNode> mappingsByCollection = new HashMap<>();
+        JsonNode tableMappings = planJson.get("tableMappings");
+        if (tableMappings != null && tableMappings.isArray()) {
+            for (JsonNode mapping : tableMappings) {
+                mappingsByCollection.put(mapping.get("sourceCollection").asText(), mapping);
+            }
+        }
+
+        // 1. Primary keys and indexes
+        List<Step> indexSteps = new ArrayList<>();
+        for (JsonNode mapping : mappingsByCollection.values()) {
+            String table = mapping.get("targetTable").asText();
+            String pkColumn = primaryKeyColumn(mapping);
+            if (pkColumn != null && !hasPrimaryKey(targetJdbcTemplate, table)) {
+                indexSteps.add(new Step("Primary key on " + table,
+                        "ALTER TABLE " + table + " ADD CONSTRAINT " + table + "_pkey PRIMARY KEY (" + pkColumn + ")",
+                        null));
+            }
+        }
+
+        JsonNode indexes = planJson.get("indexes");
+        if (indexes != null && indexes.isArray()) {
+            for (JsonNode index : indexes) {
+                JsonNode mapping = mappingsByCollection.get(index.get("tableName").asText());
+                if (mapping == null) {
+                    continue;
+                }
+                List<String> columns = new ArrayList<>();
+                for (JsonNode field : index.get("columns")) {
+                    String column = targetColumn(mapping, field.asText());
+                    if (column != null) {
+                        columns.add(column);
+                    }
+                }
+                if (columns.size() != index.get("columns").size()) {
+                    errors.add("Index " + index.get("indexName").asText() + ": column not in table mapping");
+                    continue;
+                }
+                String method = index.has("type") ? index.get("type").asText().toLowerCase() : "btree";
+                String table = mapping.get("targetTable").asText();
+                indexSteps.add(new Step("Index " + index.get("indexName").asText() + " on " + table,
+                        "CREATE INDEX IF NOT EXISTS " + index.get("indexName").asText() + " ON " + table
+                                + " USING " + method + " (" + String.join(", ", columns) + ")",
+                        null));
+            }
+        }
+        runParallel(runContext, targetJdbcTemplate, indexSteps, errors);
+
+        // 2. Foreign keys: adding NOT VALID only takes a brief lock, the scan happens in VALIDATE
+        List<Step> validateSteps = new ArrayList<>();
+        JsonNode foreignKeys = planJson.get("foreignKeys");
+        if (foreignKeys != null && foreignKeys.isArray()) {
+            for (JsonNode fk : foreignKeys) {
+                JsonNode sourceMapping = mappingsByCollection.get(fk.get("sourceTable").asText());
+                JsonNode targetMapping = mappingsByCollection.get(fk.get("targetTable").asText());
+                if (sourceMapping == null || targetMapping == null) {
+                    continue;
+                }
+
+                String name = fk.get("constraintName").asText();
+                String table = sourceMapping.get("targetTable").asText();
+                String column = targetColumn(sourceMapping, fk.get("sourceColumn").asText());
+                if (column == null) {
+                    errors.add("Foreign key " + name + ": column not in table mapping");
+                    continue;
+                }
+
+                Boolean validated = constraintValidated(targetJdbcTemplate, table, name);
+                if (validated == null) {
+                    String sql = "ALTER TABLE " + table + " ADD CONSTRAINT " + name
+                            + " FOREIGN KEY (" + column + ") REFERENCES " + targetMapping.get("targetTable").asText()
+                            + " (" + fk.get("targetColumn").asText() + ")"
+                            + (fk.has("onDelete") ? " ON DELETE " + fk.get("onDelete").asText() : "")
+                            + (fk.has("onUpdate") ? " ON UPDATE " + fk.get("onUpdate").asText() : "")
+                            + " NOT VALID";
+                    try {
+                        targetJdbcTemplate.execute(sql);
+                    } catch (Exception e) {
+                        System.err.println("❌ Foreign key " + name + " failed: " + e.getMessage());
+                        errors.add("Foreign key " + name + ": " + e.getMessage());
+                        continue;
+                    }
+                } else if (validated) {
+                    continue;
+                }
+
+                // A constraint that fails validation is dropped so it does not reject later writes
+                validateSteps.add(new Step("Validate " + name + " on " + table,
+                        "ALTER TABLE " + table + " VALIDATE CONSTRAINT " + name,
+                        "ALTER TABLE " + table + " DROP CONSTRAINT IF EXISTS " + name));
+            }
+        }
+        runParallel(runContext, targetJdbcTemplate, validateSteps, errors);
+
+        // 3. Planner statistics
+        List<Step> analyzeSteps = new ArrayList<>();
+        for (JsonNode mapping : mappingsByCollection.values()) {
+            String table = mapping.get("targetTable").asText();
+            analyzeSteps.add(new Step("Analyze " + table, "ANALYZE " + table, null));
+        }
+        runParallel(runContext, targetJdbcTemplate, analyzeSteps, errors);
+
+        return errors;
+    }
+
+    /**
+     * Converts the plan's tables from UNLOGGED to LOGGED. Each conversion rewrites the table
+     * through WAL, so they run in parallel like index builds. PostgreSQL refuses SET LOGGED on
+     * a table that references a table that is still unlogged, so tables are converted in
+     * foreign key order, parents first, and only the tables of one wave run in parallel.
+     * Returns the failed steps.
+     */
+    public List<String> setLogged(RunContext runContext, JdbcTemplate targetJdbcTemplate, JsonNode planJson) {
+        List<String> errors = Collections.synchronizedList(new ArrayList<>());
+        List<String> tables = new ArrayList<>();
+        JsonNode tableMappings = planJson.get("tableMappings");
+        if (tableMappings != null && tableMappings.isArray()) {
+            for (JsonNode mapping : tableMappings) {
+                tables.add(mapping.get("targetTable").asText());
+            }
+        }
+        for (List<String> wave : TableScheduler.waves(tables, TableScheduler.dependencies(planJson))) {
+            List<Step> steps = new ArrayList<>();
+            for (String table : wave) {
+                steps.add(new Step("Set logged " + table, "ALTER TABLE " + table + " SET LOGGED", null));
+            }
+            runParallel(runContext, targetJdbcTemplate, steps, errors);
+        }
+        return errors;
+    }
+
+    /**
+     * Runs the steps on the run's workers, at most maxParallelIndexBuilds at a time, and
+     * waits for all of them
+     */
+    private void runParallel(RunContext runContext, JdbcTemplate targetJdbcTemplate, List<Step> steps,
+            List<String> errors) {
+        Semaphore builds = new Semaphore(Math.max(1, maxParallelIndexBuilds));
+        List<CompletableFuture<Boolean>> futures = new ArrayList<>();
+
+        for (Step step : steps) {
+            futures.add(runContext.submit(() -> {
+                builds.acquireUninterruptibly();
+                try {
+                    long started = System.currentTimeMillis();
+                    executeWithMaintenanceMemory(targetJdbcTemplate, step.sql);
+                    System.out.println("✅ " + step.label + " (" + (System.currentTimeMillis() - started) + " ms)");
+                    return true;
+                } catch (Exception e) {
+                    System.err.println("❌ " + step.label + " failed: " + e.getMessage());
+                    errors.add(step.label + ": " + e.getMessage());
+                    if (step.undoSql != null) {
+                        try {
+                            targetJdbcTemplate.execute(step.undoSql);
+                        } catch (Exception undoError) {
+                            errors.add(step.label + " cleanup: " + undoError.getMessage());
+                        }
+                    }
+                    return false;
+                } finally {
+                    builds.release();
+                }
+            }));
+        }
+
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).join();
+    }
+
+    private void executeWithMaintenanceMemory(JdbcTemplate targetJdbcTemplate, String sql) {
+        targetJdbcTemplate.execute((ConnectionCallback<Void>) connection -> {
+            boolean autoCommit = connection.getAutoCommit();
+            connection.setAutoCommit(false);
+            try (Statement statement = connection.createStatement()) {
+                statement.execute("SET LOCAL maintenance_work_mem = '" + maintenanceWorkMem + "'");
+                statement.execute(sql);
+                connection.commit();
+            } catch (SQLException | RuntimeException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(autoCommit);
+            }
+            return null;
+        });
+    }
+
+    private boolean hasPrimaryKey(JdbcTemplate targetJdbcTemplate, String table) {
+        Integer count = targetJdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM pg_constraint WHERE conrelid = to_regclass(?) AND contype = 'p'",
+                Integer.class, table);
+        return count != null && count > 0;
+    }
+
+    /**
+     * Whether a constraint is validated, or null if the table has no constraint of that name
+     */
+    private Boolean constraintValidated(JdbcTemplate targetJdbcTemplate, String table, String name) {
+        List<Boolean> rows = targetJdbcTemplate.queryForList(
+                "SELECT convalidated FROM pg_constraint WHERE conrelid = to_regclass(?) AND conname = ?",
+                Boolean.class, table, name);
+        return rows.isEmpty() ? null : rows.get(0);
+    }
+
+    private String primaryKeyColumn(JsonNode mapping) {
+        for (JsonNode col : mapping.get("columns")) {
+            if ((col.has("primaryKey") && col.get("primaryKey").asBoolean())
+                    || (col.has("isPrimaryKey") && col.get("isPrimaryKey").asBoolean())) {
+                return col.get("targetColumn").asText();
+            }
+        }
+        return null;
+    }
+
+    private String targetColumn(JsonNode mapping, String sourceField) {
+        for (JsonNode col : mapping.get("columns")) {
+            if (sourceField.equals(col.get("sourceField").asText())) {
+                return col.get("targetColumn").asText();
+            }
+        }
+        return null;
+    }
+
+    private static class Step {
+        private final String label;
+        private final String sql;
+        private final String undoSql;
+
+        private Step(String label, String sql, String undoSql) {
+            this.label = label;
+            this.sql = sql;
+            this.undoSql = undoSql;
+        }
+    }
+}
@@ -0,0 +1,141 @@
+package com.sahil.backend.service;
+
+import com.sahil.backend.service.worker.ProgressCounter;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Persists live task progress to migration_progress. Changed rows are written in one JDBC
+ * batch every few seconds instead of a Hibernate load and save per batch of data.
+ */
+@Service
+public class ProgressFlusherService {
+
+    private static final String UPDATE_SQL = "UPDATE migration_progress "
+            + "SET rows_processed = ?, bytes_written = ?, last_id = COALESCE(?, last_id), "
+            + "status = COALESCE(?, status), updated_at = ? "
+            + "WHERE id = ?";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Value("${migration.progress.flush-interval-seconds:2}")
+    private long flushIntervalSeconds;
+
+    // Counters that still need flushing
+    private final Map<UUID, ProgressCounter> counters = new ConcurrentHashMap<>();
+
+    // runId -> progressId -> counter, kept after the final flush until the run is released
+    private final Map<UUID, Map<UUID, ProgressCounter>> countersByRun = new ConcurrentHashMap<>();
+
+    private final ScheduledExecutorService flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "migration-progress-flusher");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    @PostConstruct
+    public void startFlushing() {
+        flusher.scheduleWithFixedDelay(this::flushChanged, flushIntervalSeconds, flushIntervalSeconds, TimeUnit.SECONDS);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flusher.shutdown();
+        flushChanged();
+    }
+
+    /**
+     * Returns the live counter for a progress record of a run, creating it on first use
+     */
+    public ProgressCounter track(UUID runId, UUID progressId) {
+        ProgressCounter counter = countersByRun
+                .computeIfAbsent(runId, id -> new ConcurrentHashMap<>())
+                .computeIfAbsent(progressId, id -> new ProgressCounter(id, this::flushFinal));
+        counters.putIfAbsent(progressId, counter);
+        return counter;
+    }
+
+    /**
+     * Live counters of a run executing on this node, keyed by progress id
+     */
+    public Map<UUID, ProgressCounter> countersForRun(UUID runId) {
+        return countersByRun.getOrDefault(runId, Map.of());
+    }
+
+    /**
+     * Forgets the counters of a finished run; its tasks have already flushed them
+     */
+    public void releaseRun(UUID runId) {
+        countersByRun.remove(runId);
+    }
+
+    /**
+     * Writes every counter that changed since the last flush
+     */
+    public synchronized void flushChanged() {
+        List<ProgressCounter> changed = new ArrayList<>();
+        for (ProgressCounter counter : counters.values()) {
+            if (counter.takeDirty()) {
+                changed.add(counter);
+            }
+        }
+        write(changed);
+    }
+
+    /**
+     * Writes a finished task's counter right away and stops tracking it
+     */
+    private synchronized void flushFinal(ProgressCounter counter) {
+        counter.takeDirty();
+        // On failure the counter stays tracked and the periodic flush retries it
+        if (write(List.of(counter))) {
+            counters.remove(counter.getProgressId(), counter);
+        }
+    }
+
+    private boolean write(Collection<ProgressCounter> changed) {
+        if (changed.isEmpty()) {
+            return true;
+        }
+
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        List<Object[]> rows = new ArrayList<>(changed.size());
+        for (ProgressCounter counter : changed) {
+            rows.add(new Object[] {
+                    counter.getRowsProcessed(),
+                    counter.getBytesWritten(),
+                    counter.getLastId(),
+                    counter.getStatus(),
+                    now,
+                    counter.getProgressId()
+            });
+        }
+
+        try {
+            jdbcTemplate.batchUpdate(UPDATE_SQL, rows);
+            return true;
+        } catch (Exception e) {
+            // Keep the values for the next attempt
+            changed.forEach(ProgressCounter::markDirty);
+            System.err.println("❌ Failed to flush migration progress: " + e.getMessage());
+            return false;
+        }
+    }
+}
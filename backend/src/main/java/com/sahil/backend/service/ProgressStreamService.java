@@ -0,0 +1,291 @@
+package com.sahil.backend.service;
+
+import com.sahil.backend.model.MigrationProgress;
+import com.sahil.backend.model.MigrationRun;
+import com.sahil.backend.repository.MigrationProgressRepository;
+import com.sahil.backend.repository.MigrationRunRepository;
+import com.sahil.backend.service.worker.ProgressCounter;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Pushes run progress to browsers over Server-Sent Events. Each run has one producer,
+ * shared by all of its subscribers, that samples progress at a fixed rate and sends only
+ * the tables that changed. While a local executor owns the run, progress comes from its
+ * in-memory counters; the metadata database is read only for runs executing elsewhere.
+ */
+@Service
+public class ProgressStreamService {
+
+    // Weight of the newest sample in the smoothed rows/sec
+    private static final double RATE_SMOOTHING = 0.3;
+
+    // Statuses a run does not leave on its own; QUEUED, PAUSING and CANCELLING runs are still streamed
+    private static final Set<String> FINAL_STATUSES = Set.of("COMPLETED", "FAILED", "PAUSED", "CANCELLED", "NOT_FOUND");
+
+    @Autowired
+    private MigrationExecutorService migrationExecutorService;
+
+    @Autowired
+    private ProgressFlusherService progressFlusherService;
+
+    @Autowired
+    private MigrationRunRepository migrationRunRepository;
+
+    @Autowired
+    private MigrationProgressRepository migrationProgressRepository;
+
+    @Value("${migration.progress.stream-interval-millis:1000}")
+    private long streamIntervalMillis;
+
+    @Value("${migration.progress.stream-timeout-minutes:30}")
+    private long streamTimeoutMinutes;
+
+    private final Map<UUID, RunStream> streams = new ConcurrentHashMap<>();
+
+    private final ScheduledExecutorService scheduler = Executors.newScheduledThreadPool(2, runnable -> {
+        Thread thread = new Thread(runnable, "migration-progress-stream");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdownNow();
+        streams.values().forEach(stream -> stream.subscribers.forEach(SseEmitter::complete));
+        streams.clear();
+    }
+
+    /**
+     * Opens a progress stream for a run. The first event carries every table, later
+     * events only the tables that changed; a "complete" event ends the stream.
+     */
+    public SseEmitter subscribe(UUID runId) {
+        if (!migrationRunRepository.existsById(runId)) {
+            throw new RuntimeException("Migration run not found");
+        }
+
+        SseEmitter emitter = new SseEmitter(TimeUnit.MINUTES.toMillis(streamTimeoutMinutes));
+        RunStream stream = streams.compute(runId, (id, existing) -> {
+            RunStream entry = existing != null ? existing : new RunStream(runId);
+            entry.subscribers.add(emitter);
+            entry.needFullSnapshot.add(emitter);
+            if (existing == null) {
+                entry.start();
+            }
+            return entry;
+        });
+
+        emitter.onCompletion(() -> unsubscribe(stream, emitter));
+        emitter.onTimeout(() -> unsubscribe(stream, emitter));
+        emitter.onError(error -> unsubscribe(stream, emitter));
+        return emitter;
+    }
+
+    private void unsubscribe(RunStream stream, SseEmitter emitter) {
+        streams.computeIfPresent(stream.runId, (id, entry) -> {
+            entry.subscribers.remove(emitter);
+            entry.needFullSnapshot.remove(emitter);
+            if (entry.subscribers.isEmpty()) {
+                entry.stop();
+                return null;
+            }
+            return entry;
+        });
+    }
+
+    /**
+     * Producer for one run
+     */
+    private class RunStream {
+        private final UUID runId;
+        private final List<SseEmitter> subscribers = new CopyOnWriteArrayList<>();
+        private final Set<SseEmitter> needFullSnapshot = ConcurrentHashMap.newKeySet();
+
+        // Table and partition records of the run; only the counters change while it is live
+        private List<MigrationProgress> layout;
+        private final Map<UUID, TableRate> rates = new HashMap<>();
+        private final Map<UUID, Map<String, Object>> lastSent = new HashMap<>();
+        private ScheduledFuture<?> future;
+
+        private RunStream(UUID runId) {
+            this.runId = runId;
+        }
+
+        private void start() {
+            future = scheduler.scheduleAtFixedRate(this::tick, 0, streamIntervalMillis, TimeUnit.MILLISECONDS);
+        }
+
+        private void stop() {
+            if (future != null) {
+                future.cancel(false);
+            }
+        }
+
+        private void tick() {
+            try {
+                String runStatus = migrationExecutorService.getActiveStatus(runId);
+                Map<UUID, ProgressCounter> counters;
+
+                if (runStatus != null) {
+                    counters = progressFlusherService.countersForRun(runId);
+                    Set<UUID> known = layout == null ? Set.of()
+                            : layout.stream().map(MigrationProgress::getId).collect(Collectors.toSet());
+                    if (layout == null || !known.containsAll(counters.keySet())) {
+                        layout = migrationProgressRepository.findByRunId(runId);
+                    }
+                } else {
+                    MigrationRun run = migrationRunRepository.findById(runId).orElse(null);
+                    runStatus = run != null ? run.getStatus() : "NOT_FOUND";
+                    counters = Map.of();
+                    layout = migrationProgressRepository.findByRunId(runId);
+                }
+
+                List<Map<String, Object>> tables = buildTables(layout, counters);
+                boolean finished = FINAL_STATUSES.contains(runStatus);
+
+                List<Map<String, Object>> changed = new ArrayList<>();
+                for (Map<String, Object> table : tables) {
+                    UUID id = (UUID) table.get("id");
+                    if (!Objects.equals(lastSent.get(id), table)) {
+                        changed.add(table);
+                        lastSent.put(id, table);
+                    }
+                }
+
+                for (SseEmitter emitter : subscribers) {
+                    boolean full = needFullSnapshot.remove(emitter);
+                    if (finished) {
+                        send(emitter, "complete", payload(runStatus, tables, true));
+                        emitter.complete();
+                    } else if (full) {
+                        send(emitter, "progress", payload(runStatus, tables, true));
+                    } else if (!changed.isEmpty()) {
+                        send(emitter, "progress", payload(runStatus, changed, false));
+                    }
+                }
+            } catch (Exception e) {
+                System.err.println("❌ Progress stream for run " + runId + " failed: " + e.getMessage());
+            }
+        }
+
+        /**
+         * One entry per table; partition counters are summed into their table
+         */
+        private List<Map<String, Object>> buildTables(List<MigrationProgress> records,
+                Map<UUID, ProgressCounter> counters) {
+            Map<UUID, List<MigrationProgress>> partitionsByParent = records.stream()
+                    .filter(p -> p.getParentId() != null)
+                    .collect(Collectors.groupingBy(MigrationProgress::getParentId));
+
+            long now = System.currentTimeMillis();
+            List<Map<String, Object>> tables = new ArrayList<>();
+            for (MigrationProgress table : records) {
+                if (table.getParentId() != null) {
+                    continue;
+                }
+
+                List<MigrationProgress> units = partitionsByParent.getOrDefault(table.getId(), List.of(table));
+                long rows = 0;
+                List<String> statuses = new ArrayList<>();
+                for (MigrationProgress unit : units) {
+                    ProgressCounter counter = counters.get(unit.getId());
+                    if (counter != null) {
+                        rows += counter.getRowsProcessed();
+                        statuses.add(counter.getStatus() != null ? counter.getStatus() : unit.getStatus());
+                    } else {
+                        rows += unit.getRowsProcessed() != null ? unit.getRowsProcessed() : 0;
+                        statuses.add(unit.getStatus());
+                    }
+                }
+
+                String status = units.size() == 1 && units.get(0) == table ? statuses.get(0) : tableStatus(statuses);
+                long rowsTotal = table.getRowsTotal() != null ? table.getRowsTotal() : 0;
+                double rate = rates.computeIfAbsent(table.getId(), id -> new TableRate()).update(rows, now);
+
+                Map<String, Object> entry = new LinkedHashMap<>();
+                entry.put("id", table.getId());
+                entry.put("tableName", table.getTableName());
+                entry.put("rowsTotal", rowsTotal);
+                entry.put("rowsProcessed", rows);
+                entry.put("status", status);
+                entry.put("rowsPerSecond", Math.round(rate));
+                entry.put("etaSeconds", "RUNNING".equals(status) && rate > 0
+                        ? Math.max(0, Math.round((rowsTotal - rows) / rate))
+                        : null);
+                tables.add(entry);
+            }
+            return tables;
+        }
+
+        private Map<String, Object> payload(String runStatus, List<Map<String, Object>> tables, boolean full) {
+            Map<String, Object> payload = new LinkedHashMap<>();
+            payload.put("runId", runId);
+            payload.put("status", runStatus);
+            payload.put("full", full);
+            payload.put("tables", tables);
+            return payload;
+        }
+
+        private void send(SseEmitter emitter, String name, Object data) {
+            try {
+                emitter.send(SseEmitter.event().name(name).data(data, MediaType.APPLICATION_JSON));
+            } catch (Exception e) {
+                emitter.completeWithError(e);
+            }
+        }
+    }
+
+    /**
+     * Status of a partitioned table from the statuses of its partitions
+     */
+    private static String tableStatus(List<String> statuses) {
+        if (statuses.stream().allMatch("COMPLETED"::equals)) {
+            return "COMPLETED";
+        }
+        boolean unfinished = statuses.stream().anyMatch(s -> "RUNNING".equals(s) || "PENDING".equals(s));
+        if (!unfinished && statuses.contains("FAILED")) {
+            return "FAILED";
+        }
+        return statuses.contains("RUNNING") || statuses.contains("COMPLETED") ? "RUNNING" : "PENDING";
+    }
+
+    /**
+     * Smoothed rows/sec of one table between producer ticks
+     */
+    private static class TableRate {
+        private long lastRows = -1;
+        private long lastAt;
+        private double rate;
+
+        private double update(long rows, long now) {
+            if (lastRows >= 0 && now > lastAt) {
+                double sample = (rows - lastRows) * 1000.0 / (now - lastAt);
+                rate = RATE_SMOOTHING * sample + (1 - RATE_SMOOTHING) * rate;
+            }
+            lastRows = rows;
+            lastAt = now;
+            return rate;
+        }
+    }
+}
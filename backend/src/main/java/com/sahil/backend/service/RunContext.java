@@ -0,0 +1,195 @@
+package com.sahil.backend.service;
+
+import com.mongodb.client.MongoClient;
+import com.sahil.backend.service.worker.AimdConcurrencyLimiter;
+import com.sahil.backend.service.worker.ChangeStreamReplicator;
+import com.sahil.backend.service.worker.MemoryBudget;
+import com.sahil.backend.service.worker.RunControl;
+import com.sahil.backend.service.worker.SourceReadGovernor;
+import com.sahil.backend.service.worker.TargetPermits;
+import com.zaxxer.hikari.HikariDataSource;
+
+import java.nio.file.Path;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.function.Supplier;
+
+/**
+ * Execution state of one migration run on this node: where its tasks run and
+ * how many of them may run at once.
+ */
+public class RunContext {
+
+    private final UUID runId;
+    private final String executorMode;
+    private final String loadProfile;
+    private final ExecutorService taskExecutor;
+    private final ExecutorService stageExecutor;
+    private final int maxConcurrentTasks;
+    private final TargetPermits targetPermits;
+    private final RunScheduler scheduler;
+    private final UUID userId;
+    private final int weight;
+    private final AimdConcurrencyLimiter writeLimiter;
+    private final RunControl control = new RunControl();
+
+    private volatile HikariDataSource targetDataSource;
+    private volatile MongoClientRegistry.Lease sourceClient;
+    private volatile SourceReadGovernor sourceGovernor;
+    private volatile ChangeStreamReplicator replicator;
+    private volatile Path stagingRoot;
+    private volatile boolean stagingCompressed;
+
+    public RunContext(UUID runId, String executorMode, String loadProfile, ExecutorService taskExecutor,
+            ExecutorService stageExecutor, int maxConcurrentTasks, TargetPermits targetPermits,
+            AimdConcurrencyLimiter writeLimiter, RunScheduler scheduler, UUID userId, int weight) {
+        this.runId = runId;
+        this.executorMode = executorMode;
+        this.loadProfile = loadProfile;
+        this.taskExecutor = taskExecutor;
+        this.stageExecutor = stageExecutor;
+        this.maxConcurrentTasks = maxConcurrentTasks;
+        this.targetPermits = targetPermits;
+        this.writeLimiter = writeLimiter;
+        this.scheduler = scheduler;
+        this.userId = userId;
+        this.weight = Math.max(1, weight);
+    }
+
+    /**
+     * Runs a task once the node scheduler gives the run a worker slot, within the run's
+     * task limit and a free target slot
+     */
+    public CompletableFuture<Boolean> submit(Supplier<Boolean> task) {
+        return scheduler.submit(this, task);
+    }
+
+    public void setSourceClient(MongoClientRegistry.Lease sourceClient) {
+        this.sourceClient = sourceClient;
+    }
+
+    public MongoClient getSourceClient() {
+        return sourceClient.getClient();
+    }
+
+    public SourceReadGovernor getSourceGovernor() {
+        return sourceGovernor;
+    }
+
+    public void setSourceGovernor(SourceReadGovernor sourceGovernor) {
+        this.sourceGovernor = sourceGovernor;
+    }
+
+    /**
+     * Root directory of local staging files, or null when the run loads straight from the source
+     */
+    public Path getStagingRoot() {
+        return stagingRoot;
+    }
+
+    public boolean isStagingCompressed() {
+        return stagingCompressed;
+    }
+
+    public void enableStaging(Path stagingRoot, boolean compressed) {
+        this.stagingRoot = stagingRoot;
+        this.stagingCompressed = compressed;
+    }
+
+    public void setTargetDataSource(HikariDataSource targetDataSource) {
+        this.targetDataSource = targetDataSource;
+    }
+
+    public ChangeStreamReplicator getReplicator() {
+        return replicator;
+    }
+
+    public void setReplicator(ChangeStreamReplicator replicator) {
+        this.replicator = replicator;
+    }
+
+    /**
+     * Releases run-scoped resources; safe to call more than once
+     */
+    public void close() {
+        writeLimiter.removeBounds(runId);
+        targetPermits.removeLimit(runId);
+        ChangeStreamReplicator activeReplicator = replicator;
+        if (activeReplicator != null) {
+            activeReplicator.stop();
+        }
+        HikariDataSource dataSource = targetDataSource;
+        if (dataSource != null && !dataSource.isClosed()) {
+            dataSource.close();
+        }
+        MongoClientRegistry.Lease lease = sourceClient;
+        if (lease != null) {
+            lease.close();
+        }
+    }
+
+    public UUID getRunId() {
+        return runId;
+    }
+
+    public String getExecutorMode() {
+        return executorMode;
+    }
+
+    public String getLoadProfile() {
+        return loadProfile;
+    }
+
+    public boolean isUnlogged() {
+        return "UNLOGGED".equals(loadProfile);
+    }
+
+    public ExecutorService getStageExecutor() {
+        return stageExecutor;
+    }
+
+    /**
+     * Pause and cancel signal shared by the run's tasks
+     */
+    public RunControl getControl() {
+        return control;
+    }
+
+    /**
+     * Node-wide budget for source documents the run's pipelines hold in memory
+     */
+    public MemoryBudget getMemoryBudget() {
+        return scheduler.getMemoryBudget();
+    }
+
+    public AimdConcurrencyLimiter getWriteLimiter() {
+        return writeLimiter;
+    }
+
+    public int getMaxConcurrentTasks() {
+        return maxConcurrentTasks;
+    }
+
+    public ExecutorService getTaskExecutor() {
+        return taskExecutor;
+    }
+
+    public TargetPermits getTargetPermits() {
+        return targetPermits;
+    }
+
+    /**
+     * Owner of the run's migration, for the per-user worker cap
+     */
+    public UUID getUserId() {
+        return userId;
+    }
+
+    /**
+     * Share of the node's worker slots relative to other busy runs
+     */
+    public int getWeight() {
+        return weight;
+    }
+}
@@ -0,0 +1,76 @@
+package com.sahil.backend.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sahil.backend.service.worker.ReplicationMetrics;
+import com.sahil.backend.service.worker.TaskMetrics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+@Service
+public class RunMetricsService {
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    // runId -> progressId -> live task metrics
+    private final Map<UUID, Map<UUID, TaskMetrics>> metricsByRun = new ConcurrentHashMap<>();
+
+    // runId -> change-stream replication counters, for runs in CDC mode
+    private final Map<UUID, ReplicationMetrics> replicationByRun = new ConcurrentHashMap<>();
+
+    /**
+     * Creates (or returns) the metrics holder for one task of a run
+     */
+    public TaskMetrics register(UUID runId, UUID progressId, String tableName, Integer partitionIndex) {
+        return metricsByRun
+                .computeIfAbsent(runId, id -> new ConcurrentHashMap<>())
+                .computeIfAbsent(progressId, id -> new TaskMetrics(progressId, tableName, partitionIndex));
+    }
+
+    public ReplicationMetrics registerReplication(UUID runId) {
+        return replicationByRun.computeIfAbsent(runId, id -> new ReplicationMetrics());
+    }
+
+    public boolean isTracked(UUID runId) {
+        return metricsByRun.containsKey(runId) || replicationByRun.containsKey(runId);
+    }
+
+    /**
+     * Per-table replication lag of a run, or null if the run is not replicating here
+     */
+    public List<Map<String, Object>> replicationSnapshot(UUID runId) {
+        ReplicationMetrics metrics = replicationByRun.get(runId);
+        return metrics != null ? metrics.snapshot() : null;
+    }
+
+    /**
+     * Current per-task metrics of a run that executes in this JVM
+     */
+    public List<Map<String, Object>> snapshot(UUID runId) {
+        List<Map<String, Object>> tasks = new ArrayList<>();
+        Map<UUID, TaskMetrics> runMetrics = metricsByRun.get(runId);
+        if (runMetrics != null) {
+            for (TaskMetrics metrics : runMetrics.values()) {
+                tasks.add(metrics.snapshot());
+            }
+        }
+        return tasks;
+    }
+
+    /**
+     * Removes a finished run and returns its final metrics as JSON for persisting on the run
+     */
+    public JsonNode release(UUID runId) {
+        JsonNode finalMetrics = objectMapper.valueToTree(snapshot(runId));
+        metricsByRun.remove(runId);
+        replicationByRun.remove(runId);
+        return finalMetrics;
+    }
+}
@@ -0,0 +1,331 @@
+package com.sahil.backend.service;
+
+import com.sahil.backend.service.worker.MemoryBudget;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * Shares this node between migration runs. New runs are admitted in arrival order while the
+ * node's run, source-connection and target-connection budgets have room, and wait in a queue
+ * otherwise. Table tasks of admitted runs are handed the node's worker slots by weighted fair
+ * queuing across runs, within each run's task limit, a per-user cap and the target's permits,
+ * so a run with hundreds of tables cannot starve a small one. Source documents held in memory
+ * by all runs' pipelines share one byte budget, see {@link MemoryBudget}.
+ */
+@Service
+public class RunScheduler {
+
+    // Table tasks executing at once on this node, across all runs
+    @Value("${migration.node.max-workers:4}")
+    private int maxWorkers;
+
+    @Value("${migration.node.max-workers-per-user:4}")
+    private int maxWorkersPerUser;
+
+    @Value("${migration.node.max-active-runs:4}")
+    private int maxActiveRuns;
+
+    // Connections admitted runs may hold open: source cursors and target pool connections
+    @Value("${migration.node.max-source-connections:32}")
+    private int maxSourceConnections;
+
+    @Value("${migration.node.max-target-connections:40}")
+    private int maxTargetConnections;
+
+    // Source document bytes all pipelines on this node may hold in memory at once
+    @Value("${migration.node.max-inflight-bytes:268435456}")
+    private long maxInFlightBytes;
+
+    private MemoryBudget memoryBudget;
+
+    private final ReentrantLock lock = new ReentrantLock();
+
+    // Runs waiting for admission, in arrival order
+    private final LinkedHashMap<UUID, Admission> waiting = new LinkedHashMap<>();
+    private final Map<UUID, Admission> admitted = new HashMap<>();
+    private int sourceReserved;
+    private int targetReserved;
+
+    // Runs with queued or running tasks
+    private final Map<UUID, RunQueue> queues = new HashMap<>();
+    private final Map<UUID, Integer> workersByUser = new HashMap<>();
+    private int workersInUse;
+
+    // Start tag of the last dispatched task; a run that becomes busy starts from here
+    private double virtualTime;
+
+    @PostConstruct
+    public void init() {
+        memoryBudget = new MemoryBudget(maxInFlightBytes);
+    }
+
+    public MemoryBudget getMemoryBudget() {
+        return memoryBudget;
+    }
+
+    /**
+     * Admits a run if the node has room for it and no run is waiting ahead of it, and returns
+     * true; the caller then starts the run. Otherwise queues it and returns false, and
+     * onAdmitted runs on a background thread once the run's turn comes.
+     */
+    public boolean admit(UUID runId, int sourceConnections, int targetConnections, Runnable onAdmitted) {
+        Admission admission = new Admission(runId, sourceConnections, targetConnections, onAdmitted);
+        lock.lock();
+        try {
+            if (waiting.isEmpty() && fits(admission)) {
+                reserve(admission);
+                return true;
+            }
+            waiting.put(runId, admission);
+            System.out.println("⏳ Run " + runId + " queued for admission at position " + waiting.size());
+            return false;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns a finished, failed or cancelled run's share of the node, or drops it from the
+     * admission queue, and admits the runs waiting behind it
+     */
+    public void release(UUID runId) {
+        List<Admission> started;
+        lock.lock();
+        try {
+            Admission admission = admitted.remove(runId);
+            if (admission != null) {
+                sourceReserved -= admission.sourceConnections;
+                targetReserved -= admission.targetConnections;
+            } else {
+                waiting.remove(runId);
+            }
+            started = admitWaiting();
+        } finally {
+            lock.unlock();
+        }
+        memoryBudget.forget(runId);
+        for (Admission admission : started) {
+            CompletableFuture.runAsync(admission.onAdmitted);
+        }
+    }
+
+    /**
+     * 1-based position of a run in the admission queue, or 0 if it is not waiting
+     */
+    public int getQueuePosition(UUID runId) {
+        lock.lock();
+        try {
+            int position = 1;
+            for (UUID waitingRun : waiting.keySet()) {
+                if (waitingRun.equals(runId)) {
+                    return position;
+                }
+                position++;
+            }
+            return 0;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Queues a table task of an admitted run; it runs on the run's task executor once it is
+     * picked for a worker slot
+     */
+    public CompletableFuture<Boolean> submit(RunContext runContext, Supplier<Boolean> task) {
+        CompletableFuture<Boolean> future = new CompletableFuture<>();
+        lock.lock();
+        try {
+            RunQueue queue = queues.computeIfAbsent(runContext.getRunId(), id -> new RunQueue(runContext));
+            if (queue.tasks.isEmpty() && queue.running == 0) {
+                // An idle run gets no credit for the time it was idle
+                queue.virtualTime = Math.max(queue.virtualTime, virtualTime);
+            }
+            queue.tasks.add(new PendingTask(task, future));
+            dispatch();
+        } finally {
+            lock.unlock();
+        }
+        return future;
+    }
+
+    /**
+     * Node-wide view for monitoring: slots in use, admitted runs, the admission queue and memory
+     * held by pipelines
+     */
+    public Map<String, Object> snapshot() {
+        lock.lock();
+        try {
+            Map<String, Object> map = new LinkedHashMap<>();
+            map.put("workersInUse", workersInUse);
+            map.put("maxWorkers", maxWorkers);
+            map.put("sourceConnectionsReserved", sourceReserved);
+            map.put("targetConnectionsReserved", targetReserved);
+
+            List<Map<String, Object>> runs = new ArrayList<>();
+            for (RunQueue queue : queues.values()) {
+                Map<String, Object> run = new LinkedHashMap<>();
+                run.put("runId", queue.runContext.getRunId());
+                run.put("weight", queue.runContext.getWeight());
+                run.put("runningTasks", queue.running);
+                run.put("queuedTasks", queue.tasks.size());
+                runs.add(run);
+            }
+            map.put("activeRuns", runs);
+            map.put("waitingRuns", new ArrayList<>(waiting.keySet()));
+            map.put("memory", memoryBudget.snapshot());
+            return map;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Fills free worker slots, each time with the eligible run whose virtual time is lowest.
+     * A run's virtual time advances by 1/weight per dispatched task, so busy runs share the
+     * slots in proportion to their weights.
+     */
+    private void dispatch() {
+        while (workersInUse < maxWorkers) {
+            RunQueue next = null;
+            for (RunQueue queue : queues.values()) {
+                if (queue.tasks.isEmpty() || queue.running >= queue.runContext.getMaxConcurrentTasks()) {
+                    continue;
+                }
+                if (workersByUser.getOrDefault(queue.runContext.getUserId(), 0) >= maxWorkersPerUser) {
+                    continue;
+                }
+                // Negative while a run with a lower limit waits for permits held beyond it
+                if (queue.runContext.getTargetPermits().availablePermits() <= 0) {
+                    continue;
+                }
+                if (next == null || queue.virtualTime < next.virtualTime) {
+                    next = queue;
+                }
+            }
+            if (next == null) {
+                return;
+            }
+
+            // Only the scheduler takes target permits, and only under its lock
+            Semaphore targetPermits = next.runContext.getTargetPermits();
+            targetPermits.acquireUninterruptibly();
+            PendingTask task = next.tasks.poll();
+            virtualTime = next.virtualTime;
+            next.virtualTime += 1.0 / next.runContext.getWeight();
+            next.running++;
+            workersInUse++;
+            workersByUser.merge(next.runContext.getUserId(), 1, Integer::sum);
+
+            RunQueue queue = next;
+            queue.runContext.getTaskExecutor().execute(() -> run(queue, task));
+        }
+    }
+
+    private void run(RunQueue queue, PendingTask task) {
+        try {
+            task.future.complete(task.task.get());
+        } catch (Throwable e) {
+            task.future.completeExceptionally(e);
+        } finally {
+            lock.lock();
+            try {
+                queue.running--;
+                workersInUse--;
+                workersByUser.merge(queue.runContext.getUserId(), -1, Integer::sum);
+                queue.runContext.getTargetPermits().release();
+                if (queue.tasks.isEmpty() && queue.running == 0) {
+                    queues.remove(queue.runContext.getRunId());
+                }
+                dispatch();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Admits waiting runs in arrival order until the first one that does not fit
+     */
+    private List<Admission> admitWaiting() {
+        List<Admission> started = new ArrayList<>();
+        Iterator<Admission> iterator = waiting.values().iterator();
+        while (iterator.hasNext()) {
+            Admission admission = iterator.next();
+            if (!fits(admission)) {
+                break;
+            }
+            iterator.remove();
+            reserve(admission);
+            started.add(admission);
+        }
+        return started;
+    }
+
+    /**
+     * A run larger than the whole budget still runs once it has the node to itself
+     */
+    private boolean fits(Admission admission) {
+        if (admitted.isEmpty()) {
+            return true;
+        }
+        return admitted.size() < maxActiveRuns
+                && sourceReserved + admission.sourceConnections <= maxSourceConnections
+                && targetReserved + admission.targetConnections <= maxTargetConnections;
+    }
+
+    private void reserve(Admission admission) {
+        admitted.put(admission.runId, admission);
+        sourceReserved += admission.sourceConnections;
+        targetReserved += admission.targetConnections;
+    }
+
+    private static class Admission {
+        private final UUID runId;
+        private final int sourceConnections;
+        private final int targetConnections;
+        private final Runnable onAdmitted;
+
+        private Admission(UUID runId, int sourceConnections, int targetConnections, Runnable onAdmitted) {
+            this.runId = runId;
+            this.sourceConnections = sourceConnections;
+            this.targetConnections = targetConnections;
+            this.onAdmitted = onAdmitted;
+        }
+    }
+
+    private static class RunQueue {
+        private final RunContext runContext;
+        private final ArrayDeque<PendingTask> tasks = new ArrayDeque<>();
+        private int running;
+        private double virtualTime;
+
+        private RunQueue(RunContext runContext) {
+            this.runContext = runContext;
+        }
+    }
+
+    private static class PendingTask {
+        private final Supplier<Boolean> task;
+        private final CompletableFuture<Boolean> future;
+
+        private PendingTask(Supplier<Boolean> task, CompletableFuture<Boolean> future) {
+            this.task = task;
+            this.future = future;
+        }
+    }
+}
@@ -0,0 +1,140 @@
+package com.sahil.backend.service.worker;
+
+import java.sql.SQLException;
+import java.util.Set;
+
+/**
+ * Chooses how many documents go into each batch of a table so that one target commit takes
+ * about the target time. Sizes move toward the row count the observed per-row commit latency
+ * allows, capped by a byte budget derived from observed bytes per row, and are halved when
+ * the target reports lock or memory pressure. Shared by all partitions of a table.
+ * Readers cut batches by source bytes: the row count is turned into a byte target using the
+ * observed BSON size of the documents read, so a run of large documents makes smaller batches.
+ */
+public class AdaptiveBatchSizer {
+
+    // deadlock, lock timeout, serialization failure, statement timeout, out of memory, disk full
+    private static final Set<String> PRESSURE_STATES = Set.of("40P01", "55P03", "40001", "57014", "53200", "53100");
+
+    // Growth per adjustment is capped so one fast commit does not blow up the next batch
+    private static final double MAX_GROWTH = 2.0;
+
+    // Batches after a backoff during which the size may not grow again
+    private static final int COOLDOWN_BATCHES = 5;
+
+    // Assumed BSON size of a document before any have been read
+    private static final long DEFAULT_SOURCE_ROW_BYTES = 1024;
+
+    private final int minRows;
+    private final int maxRows;
+    private final long targetCommitMillis;
+    private final long maxBatchBytes;
+
+    private int batchSize;
+    private double bytesPerRow;
+    private double sourceBytesPerRow;
+    private int cooldown;
+    private long pressureEvents;
+
+    public AdaptiveBatchSizer(int initialRows, int minRows, int maxRows, long targetCommitMillis, long maxBatchBytes) {
+        this.minRows = minRows;
+        this.maxRows = maxRows;
+        this.targetCommitMillis = targetCommitMillis;
+        this.maxBatchBytes = maxBatchBytes;
+        this.batchSize = clamp(initialRows);
+    }
+
+    public synchronized int currentBatchSize() {
+        return batchSize;
+    }
+
+    /**
+     * Source bytes the next batch should hold: the current row count at the observed
+     * document size, within the byte cap
+     */
+    public synchronized long currentBatchBytes() {
+        double rowBytes = sourceBytesPerRow == 0 ? DEFAULT_SOURCE_ROW_BYTES : sourceBytesPerRow;
+        return Math.max(1, Math.min(maxBatchBytes, (long) (batchSize * rowBytes)));
+    }
+
+    /**
+     * Upper bound on rows per batch, however small the documents are
+     */
+    public int getMaxRows() {
+        return maxRows;
+    }
+
+    /**
+     * Feeds back the BSON size of one batch as read from the source
+     */
+    public synchronized void recordRead(int rows, long bytes) {
+        if (rows <= 0) {
+            return;
+        }
+        double rowBytes = (double) bytes / rows;
+        sourceBytesPerRow = sourceBytesPerRow == 0 ? rowBytes : 0.7 * sourceBytesPerRow + 0.3 * rowBytes;
+    }
+
+    /**
+     * Feeds back one committed batch
+     */
+    public synchronized void recordCommit(int rows, long bytes, long commitNanos) {
+        if (rows <= 0) {
+            return;
+        }
+
+        double rowBytes = (double) bytes / rows;
+        bytesPerRow = bytesPerRow == 0 ? rowBytes : 0.7 * bytesPerRow + 0.3 * rowBytes;
+
+        double millisPerRow = Math.max(commitNanos / 1_000_000.0 / rows, 0.0001);
+        double ideal = targetCommitMillis / millisPerRow;
+        if (bytesPerRow > 0) {
+            ideal = Math.min(ideal, maxBatchBytes / bytesPerRow);
+        }
+
+        // Move halfway toward the ideal size
+        double next = 0.5 * batchSize + 0.5 * ideal;
+        if (cooldown > 0) {
+            cooldown--;
+            next = Math.min(next, batchSize);
+        }
+        batchSize = clamp((int) Math.min(next, batchSize * MAX_GROWTH));
+    }
+
+    /**
+     * Halves the batch size if the error is a lock or memory pressure signal from the target
+     */
+    public synchronized boolean recordFailure(Throwable error) {
+        if (!isPressure(error)) {
+            return false;
+        }
+        pressureEvents++;
+        cooldown = COOLDOWN_BATCHES;
+        batchSize = clamp(batchSize / 2);
+        return true;
+    }
+
+    public synchronized long getPressureEvents() {
+        return pressureEvents;
+    }
+
+    public synchronized double getBytesPerRow() {
+        return bytesPerRow;
+    }
+
+    public static boolean isPressure(Throwable error) {
+        for (Throwable cause = error; cause != null; cause = cause.getCause()) {
+            if (cause instanceof SQLException) {
+                String state = ((SQLException) cause).getSQLState();
+                if (state != null && PRESSURE_STATES.contains(state)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private int clamp(int rows) {
+        return Math.max(minRows, Math.min(maxRows, rows));
+    }
+}
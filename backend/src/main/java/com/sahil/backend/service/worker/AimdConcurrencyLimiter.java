@@ -0,0 +1,206 @@
+package com.sahil.backend.service.worker;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Limits how many batch commits run at once against one target database, adjusting the
+ * limit additive-increase/multiplicative-decrease style. Every commit that completes without
+ * congestion adds 1/limit, so the limit grows by one per window of commits; a failed commit
+ * or one whose per-row latency is well above the observed baseline cuts the limit, at most
+ * once per window. The limiter is shared by every run writing to the target; while runs are
+ * registered, the limit stays within the tightest of their bounds (highest floor, lowest
+ * ceiling), otherwise within the node defaults.
+ */
+public class AimdConcurrencyLimiter {
+
+    private static final double DECREASE_FACTOR = 0.7;
+
+    // Per-row latency above baseline * tolerance counts as congestion
+    private static final double LATENCY_TOLERANCE = 2.0;
+
+    // How fast the baseline follows latencies above it
+    private static final double BASELINE_DRIFT = 0.01;
+
+    private final int defaultFloor;
+    private final int defaultCeiling;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition slotFreed = lock.newCondition();
+
+    // Bounds requested by each run using the target: {floor, ceiling}
+    private final Map<UUID, int[]> runBounds = new HashMap<>();
+    private int floor;
+    private int ceiling;
+
+    private double limit;
+    private int inFlight;
+    private double baselineNanosPerRow;
+    private int samplesSinceDecrease;
+    private long decreases;
+
+    public AimdConcurrencyLimiter(int defaultFloor, int defaultCeiling) {
+        this.defaultFloor = Math.max(1, defaultFloor);
+        this.defaultCeiling = Math.max(this.defaultFloor, defaultCeiling);
+        this.floor = this.defaultFloor;
+        this.ceiling = this.defaultCeiling;
+        this.limit = Math.max(this.floor, this.ceiling / 2.0);
+    }
+
+    /**
+     * Registers a run's bounds; they apply until the run is removed again
+     */
+    public void addBounds(UUID runId, int runFloor, int runCeiling) {
+        lock.lock();
+        try {
+            runBounds.put(runId, new int[] {Math.max(1, runFloor), Math.max(1, runCeiling)});
+            applyBounds();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void removeBounds(UUID runId) {
+        lock.lock();
+        try {
+            if (runBounds.remove(runId) != null) {
+                applyBounds();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Tightest bounds of the registered runs; a floor above the ceiling gives way to the ceiling
+     */
+    private void applyBounds() {
+        if (runBounds.isEmpty()) {
+            floor = defaultFloor;
+            ceiling = defaultCeiling;
+        } else {
+            floor = 1;
+            ceiling = Integer.MAX_VALUE;
+            for (int[] bounds : runBounds.values()) {
+                floor = Math.max(floor, bounds[0]);
+                ceiling = Math.min(ceiling, bounds[1]);
+            }
+            floor = Math.min(floor, ceiling);
+        }
+        limit = Math.max(floor, Math.min(ceiling, limit));
+        slotFreed.signalAll();
+    }
+
+    /**
+     * Waits for a commit slot
+     */
+    public void acquire() throws InterruptedException {
+        lock.lock();
+        try {
+            while (inFlight >= (int) limit) {
+                slotFreed.await();
+            }
+            inFlight++;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns a slot and feeds back the outcome of the commit that held it
+     */
+    public void release(int rows, long nanos, boolean failed) {
+        lock.lock();
+        try {
+            inFlight--;
+            samplesSinceDecrease++;
+
+            boolean congested = failed;
+            if (!failed && rows > 0) {
+                double nanosPerRow = (double) nanos / rows;
+                if (baselineNanosPerRow == 0 || nanosPerRow < baselineNanosPerRow) {
+                    baselineNanosPerRow = nanosPerRow;
+                } else {
+                    baselineNanosPerRow += (nanosPerRow - baselineNanosPerRow) * BASELINE_DRIFT;
+                }
+                congested = nanosPerRow > baselineNanosPerRow * LATENCY_TOLERANCE;
+            }
+
+            if (congested) {
+                // One cut per window, so a burst of slow commits from the same moment counts once
+                if (samplesSinceDecrease >= (int) limit) {
+                    limit = Math.max(floor, limit * DECREASE_FACTOR);
+                    samplesSinceDecrease = 0;
+                    decreases++;
+                }
+            } else {
+                limit = Math.min(ceiling, limit + 1.0 / limit);
+            }
+            slotFreed.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns a slot without feedback, for a commit the target rejected because of its rows
+     * rather than its load
+     */
+    public void releaseIgnored() {
+        lock.lock();
+        try {
+            inFlight--;
+            slotFreed.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getFloor() {
+        lock.lock();
+        try {
+            return floor;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getCeiling() {
+        lock.lock();
+        try {
+            return ceiling;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getLimit() {
+        lock.lock();
+        try {
+            return (int) limit;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getInFlight() {
+        lock.lock();
+        try {
+            return inFlight;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long getDecreases() {
+        lock.lock();
+        try {
+            return decreases;
+        } finally {
+            lock.unlock();
+        }
+    }
+}
@@ -0,0 +1,157 @@
+package com.sahil.backend.service.worker;
+
+import org.bson.BsonDocument;
+import org.bson.BsonInvalidOperationException;
+import org.bson.BsonValue;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.time.DateTimeException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Writes rows with batched INSERT statements, used for types the COPY encoder does not cover.
+ */
+public class BatchInsertSink implements RowSink {
+
+    // When set, rows that already exist are updated in place (INSERT ... ON CONFLICT DO UPDATE)
+    private final String conflictColumn;
+
+    // Not thread-safe; each sink instance is used by a single stage
+    private final BsonJsonEncoder jsonEncoder;
+
+    public BatchInsertSink(String conflictColumn, BsonJsonEncoder.Mode jsonMode) {
+        this.conflictColumn = conflictColumn;
+        this.jsonEncoder = new BsonJsonEncoder(jsonMode);
+    }
+
+    @Override
+    public String getName() {
+        return "INSERT";
+    }
+
+    @Override
+    public RowBatch encode(CompiledTableMapping mapping, List<? extends BsonDocument> documents) {
+        CompiledTableMapping.Column[] columns = mapping.getColumns();
+        RowValueConverter.ColumnKind[] kinds = new RowValueConverter.ColumnKind[columns.length];
+        for (int c = 0; c < columns.length; c++) {
+            kinds[c] = columns[c].getKind();
+        }
+
+        RowColumns values = new RowColumns(kinds, documents.size());
+        for (int r = 0; r < documents.size(); r++) {
+            BsonDocument doc = documents.get(r);
+            for (int c = 0; c < columns.length; c++) {
+                try {
+                    convert(values, c, r, columns[c].read(doc));
+                } catch (IllegalArgumentException | DateTimeException | BsonInvalidOperationException
+                        | RowConversionException e) {
+                    throw new RowConversionException("Cannot convert " + columns[c].getSourceField() + " to "
+                            + columns[c].getDataType() + ": " + e.getMessage(), e);
+                }
+            }
+        }
+        return RowBatch.values(RowValueConverter.toJava(documents.get(documents.size() - 1).get("_id")), values);
+    }
+
+    @Override
+    public long write(Connection connection, String targetTable, CompiledTableMapping mapping, RowBatch batch)
+            throws SQLException {
+        CompiledTableMapping.Column[] columns = mapping.getColumns();
+        List<String> placeholders = new ArrayList<>(columns.length);
+        for (CompiledTableMapping.Column column : columns) {
+            placeholders.add(column.isJsonb() ? "?::jsonb" : "?");
+        }
+
+        String sql = "INSERT INTO " + targetTable + " (" + mapping.getColumnList() + ") VALUES ("
+                + String.join(", ", placeholders) + ")";
+        if (conflictColumn != null) {
+            List<String> updates = new ArrayList<>();
+            for (CompiledTableMapping.Column column : columns) {
+                String columnName = column.getTargetColumn();
+                if (!columnName.equals(conflictColumn)) {
+                    updates.add(columnName + " = EXCLUDED." + columnName);
+                }
+            }
+            sql += updates.isEmpty()
+                    ? " ON CONFLICT (" + conflictColumn + ") DO NOTHING"
+                    : " ON CONFLICT (" + conflictColumn + ") DO UPDATE SET " + String.join(", ", updates);
+        }
+
+        RowColumns values = batch.getValues();
+        long bytes = 0;
+        try (PreparedStatement ps = connection.prepareStatement(sql)) {
+            for (int r = 0; r < values.getRowCount(); r++) {
+                for (int c = 0; c < columns.length; c++) {
+                    bind(ps, columns[c], values, c, r);
+                    bytes += values.estimateSize(c, r);
+                }
+                ps.addBatch();
+            }
+            ps.executeBatch();
+        }
+        return bytes;
+    }
+
+    /**
+     * Converts one field into its column; numbers and booleans go straight into the
+     * column's primitive array
+     */
+    private void convert(RowColumns values, int column, int row, BsonValue value) {
+        if (value == null || value.isNull()) {
+            values.setNull(column, row);
+            return;
+        }
+        RowValueConverter.ColumnKind kind = values.getKind(column);
+        switch (kind) {
+            case INT4:
+                values.setInt(column, row, RowValueConverter.toInt(value));
+                break;
+            case INT8:
+                values.setLong(column, row, RowValueConverter.toLong(value));
+                break;
+            case FLOAT8:
+                values.setDouble(column, row, RowValueConverter.toDouble(value));
+                break;
+            case BOOLEAN:
+                values.setBoolean(column, row, RowValueConverter.toBoolean(value));
+                break;
+            case JSON:
+                jsonEncoder.encode(value);
+                values.setObject(column, row, jsonEncoder.asString());
+                break;
+            default:
+                values.setObject(column, row, RowValueConverter.convert(value, kind));
+        }
+    }
+
+    /**
+     * Binds a converted value with the setter for its column kind; numbers are bound as primitives
+     */
+    private static void bind(PreparedStatement ps, CompiledTableMapping.Column column, RowColumns values,
+            int c, int row) throws SQLException {
+        int index = c + 1;
+        if (values.isNull(c, row)) {
+            ps.setNull(index, column.getSqlType());
+            return;
+        }
+        switch (column.getKind()) {
+            case INT4:
+                ps.setInt(index, values.getInt(c, row));
+                break;
+            case INT8:
+                ps.setLong(index, values.getLong(c, row));
+                break;
+            case FLOAT8:
+                ps.setDouble(index, values.getDouble(c, row));
+                break;
+            case BOOLEAN:
+                ps.setBoolean(index, values.getBoolean(c, row));
+                break;
+            default:
+                ps.setObject(index, values.getObject(c, row));
+        }
+    }
+}
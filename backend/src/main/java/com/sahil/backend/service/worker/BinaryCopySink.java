@@ -0,0 +1,166 @@
+package com.sahil.backend.service.worker;
+
+import org.bson.BsonDocument;
+import org.bson.BsonInvalidOperationException;
+import org.bson.BsonValue;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.PGCopyOutputStream;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.DateTimeException;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Streams rows into PostgreSQL with COPY ... FROM STDIN (FORMAT binary).
+ */
+public class BinaryCopySink implements RowSink {
+
+    private static final int COPY_BUFFER_SIZE = 64 * 1024;
+
+    // PGCOPY\n\377\r\n\0 followed by flags and header extension length
+    private static final byte[] HEADER = {
+            'P', 'G', 'C', 'O', 'P', 'Y', '\n', (byte) 0xFF, '\r', '\n', 0,
+            0, 0, 0, 0,
+            0, 0, 0, 0
+    };
+
+    private static final LocalDateTime PG_EPOCH = LocalDateTime.of(2000, 1, 1, 0, 0);
+
+    // PostgreSQL timestamps count microseconds from 2000-01-01
+    private static final long PG_EPOCH_MICROS = ChronoUnit.MICROS.between(
+            LocalDateTime.of(1970, 1, 1, 0, 0), PG_EPOCH);
+
+    // Not thread-safe; each sink instance is used by a single stage
+    private final BsonJsonEncoder jsonEncoder;
+
+    public BinaryCopySink(BsonJsonEncoder.Mode jsonMode) {
+        this.jsonEncoder = new BsonJsonEncoder(jsonMode);
+    }
+
+    @Override
+    public String getName() {
+        return "COPY";
+    }
+
+    /**
+     * Encodes the batch into binary COPY tuples, without the file header and trailer
+     */
+    @Override
+    public RowBatch encode(CompiledTableMapping mapping, List<? extends BsonDocument> documents) {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream(documents.size() * 128);
+        DataOutputStream out = new DataOutputStream(buffer);
+        CompiledTableMapping.Column[] columns = mapping.getColumns();
+
+        try {
+            for (BsonDocument doc : documents) {
+                out.writeShort(columns.length);
+                for (CompiledTableMapping.Column column : columns) {
+                    try {
+                        writeField(out, column.read(doc), column.getKind());
+                    } catch (IllegalArgumentException | DateTimeException | BsonInvalidOperationException
+                            | RowConversionException e) {
+                        throw new RowConversionException("Cannot convert " + column.getSourceField() + " to "
+                                + column.getDataType() + ": " + e.getMessage(), e);
+                    }
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        Object lastId = RowValueConverter.toJava(documents.get(documents.size() - 1).get("_id"));
+        return RowBatch.encoded(documents.size(), lastId, buffer.toByteArray());
+    }
+
+    @Override
+    public long write(Connection connection, String targetTable, CompiledTableMapping mapping, RowBatch batch)
+            throws SQLException {
+        String sql = "COPY " + targetTable + " (" + mapping.getColumnList() + ") FROM STDIN (FORMAT binary)";
+
+        PGCopyOutputStream copyStream = new PGCopyOutputStream(
+                connection.unwrap(PGConnection.class), sql, COPY_BUFFER_SIZE);
+
+        try {
+            byte[] rows = batch.getEncodedRows();
+            copyStream.write(HEADER);
+            copyStream.write(rows);
+            // File trailer
+            copyStream.write(new byte[] {(byte) 0xFF, (byte) 0xFF});
+            copyStream.endCopy();
+            return HEADER.length + rows.length + 2L;
+        } catch (IOException | RuntimeException e) {
+            if (copyStream.isActive()) {
+                copyStream.cancelCopy();
+            }
+            throw new SQLException("COPY into " + targetTable + " failed: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Writes one raw BSON value as a length-prefixed field in PostgreSQL binary format.
+     * Numbers and dates go straight from the BSON value to the stream without boxing, and
+     * JSONB values are encoded from their BSON bytes into the reusable JSON buffer.
+     */
+    private void writeField(DataOutputStream out, BsonValue value, RowValueConverter.ColumnKind kind)
+            throws IOException {
+        if (value == null || value.isNull()) {
+            out.writeInt(-1);
+            return;
+        }
+
+        switch (kind) {
+            case UUID:
+                UUID uuid = RowValueConverter.toUuid(value);
+                out.writeInt(16);
+                out.writeLong(uuid.getMostSignificantBits());
+                out.writeLong(uuid.getLeastSignificantBits());
+                break;
+            case INT4:
+                out.writeInt(4);
+                out.writeInt(RowValueConverter.toInt(value));
+                break;
+            case INT8:
+                out.writeInt(8);
+                out.writeLong(RowValueConverter.toLong(value));
+                break;
+            case FLOAT8:
+                out.writeInt(8);
+                out.writeDouble(RowValueConverter.toDouble(value));
+                break;
+            case BOOLEAN:
+                out.writeInt(1);
+                out.writeByte(RowValueConverter.toBoolean(value) ? 1 : 0);
+                break;
+            case TIMESTAMP:
+                out.writeInt(8);
+                if (value.isDateTime()) {
+                    out.writeLong(value.asDateTime().getValue() * 1000 - PG_EPOCH_MICROS);
+                } else {
+                    out.writeLong(ChronoUnit.MICROS.between(PG_EPOCH.toInstant(ZoneOffset.UTC),
+                            LocalDateTime.parse(RowValueConverter.toText(value)).toInstant(ZoneOffset.UTC)));
+                }
+                break;
+            case JSON:
+                // jsonb binary format is a version byte followed by the JSON text
+                jsonEncoder.encode(value);
+                out.writeInt(jsonEncoder.length() + 1);
+                out.writeByte(1);
+                out.write(jsonEncoder.buffer(), 0, jsonEncoder.length());
+                break;
+            default:
+                byte[] text = RowValueConverter.toText(value).getBytes(StandardCharsets.UTF_8);
+                out.writeInt(text.length);
+                out.write(text);
+        }
+    }
+}
@@ -0,0 +1,313 @@
+package com.sahil.backend.service.worker;
+
+import org.bson.BsonBinary;
+import org.bson.BsonBinaryReader;
+import org.bson.BsonDocument;
+import org.bson.BsonDocumentReader;
+import org.bson.BsonReader;
+import org.bson.BsonRegularExpression;
+import org.bson.BsonTimestamp;
+import org.bson.BsonType;
+import org.bson.BsonValue;
+import org.bson.RawBsonDocument;
+import org.bson.codecs.BsonValueCodec;
+import org.bson.codecs.DecoderContext;
+import org.bson.io.ByteBufferBsonInput;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Base64;
+
+/**
+ * Writes BSON values as UTF-8 JSON into a reusable byte buffer, reading raw documents
+ * straight from their bytes instead of decoding them into maps or building a String.
+ * Extended types use MongoDB Extended JSON in RELAXED or CANONICAL form. Not thread safe:
+ * each row sink owns one encoder and reuses its buffer for every value.
+ */
+public class BsonJsonEncoder {
+
+    public enum Mode {
+        RELAXED, CANONICAL
+    }
+
+    private static final byte[] HEX = "0123456789abcdef".getBytes(StandardCharsets.US_ASCII);
+
+    // Largest date RELAXED mode writes as an ISO-8601 string (9999-12-31T23:59:59.999Z)
+    private static final long MAX_ISO_DATE_MILLIS = 253402300799999L;
+
+    private static final BsonValueCodec VALUE_CODEC = new BsonValueCodec();
+
+    private final Mode mode;
+    private byte[] buffer = new byte[8 * 1024];
+    private int length;
+
+    public BsonJsonEncoder(Mode mode) {
+        this.mode = mode != null ? mode : Mode.RELAXED;
+    }
+
+    /**
+     * Parses a configured mode name, defaulting to RELAXED
+     */
+    public static Mode parseMode(String name) {
+        return "CANONICAL".equalsIgnoreCase(name) ? Mode.CANONICAL : Mode.RELAXED;
+    }
+
+    /**
+     * Replaces the buffer contents with the JSON of one value; read it back with
+     * {@link #buffer()} and {@link #length()} before the next call
+     */
+    public void encode(BsonValue value) {
+        length = 0;
+        if (value == null || value.isNull()) {
+            appendAscii("null");
+        } else if (value instanceof RawBsonDocument) {
+            try (BsonBinaryReader reader = new BsonBinaryReader(
+                    new ByteBufferBsonInput(((RawBsonDocument) value).getByteBuffer()))) {
+                writeValue(reader, BsonType.DOCUMENT);
+            }
+        } else if (value.isDocument()) {
+            writeValue(new BsonDocumentReader(value.asDocument()), BsonType.DOCUMENT);
+        } else {
+            // Arrays and scalars are read through a one-field wrapper document
+            BsonDocumentReader reader = new BsonDocumentReader(new BsonDocument("v", value));
+            reader.readStartDocument();
+            reader.readBsonType();
+            reader.readName();
+            writeValue(reader, reader.getCurrentBsonType());
+        }
+    }
+
+    public byte[] buffer() {
+        return buffer;
+    }
+
+    public int length() {
+        return length;
+    }
+
+    /**
+     * The last encoded value as a String, for drivers that bind JSON as text
+     */
+    public String asString() {
+        return new String(buffer, 0, length, StandardCharsets.UTF_8);
+    }
+
+    private void writeValue(BsonReader reader, BsonType type) {
+        switch (type) {
+            case DOCUMENT:
+                reader.readStartDocument();
+                append('{');
+                boolean firstField = true;
+                while (reader.readBsonType() != BsonType.END_OF_DOCUMENT) {
+                    if (!firstField) {
+                        append(',');
+                    }
+                    writeString(reader.readName());
+                    append(':');
+                    writeValue(reader, reader.getCurrentBsonType());
+                    firstField = false;
+                }
+                reader.readEndDocument();
+                append('}');
+                break;
+            case ARRAY:
+                reader.readStartArray();
+                append('[');
+                boolean firstElement = true;
+                while (reader.readBsonType() != BsonType.END_OF_DOCUMENT) {
+                    if (!firstElement) {
+                        append(',');
+                    }
+                    writeValue(reader, reader.getCurrentBsonType());
+                    firstElement = false;
+                }
+                reader.readEndArray();
+                append(']');
+                break;
+            case STRING:
+                writeString(reader.readString());
+                break;
+            case INT32:
+                int intValue = reader.readInt32();
+                if (mode == Mode.CANONICAL) {
+                    writeWrapped("$numberInt", Integer.toString(intValue));
+                } else {
+                    appendAscii(Integer.toString(intValue));
+                }
+                break;
+            case INT64:
+                long longValue = reader.readInt64();
+                if (mode == Mode.CANONICAL) {
+                    writeWrapped("$numberLong", Long.toString(longValue));
+                } else {
+                    appendAscii(Long.toString(longValue));
+                }
+                break;
+            case DOUBLE:
+                writeDouble(reader.readDouble());
+                break;
+            case DECIMAL128:
+                writeWrapped("$numberDecimal", reader.readDecimal128().toString());
+                break;
+            case BOOLEAN:
+                appendAscii(reader.readBoolean() ? "true" : "false");
+                break;
+            case NULL:
+                reader.readNull();
+                appendAscii("null");
+                break;
+            case OBJECT_ID:
+                appendAscii("{\"$oid\":\"");
+                appendHex(reader.readObjectId().toByteArray());
+                appendAscii("\"}");
+                break;
+            case DATE_TIME:
+                writeDate(reader.readDateTime());
+                break;
+            case BINARY_DATA:
+                BsonBinary binary = reader.readBinaryData();
+                appendAscii("{\"$binary\":{\"base64\":\"");
+                appendAscii(Base64.getEncoder().encodeToString(binary.getData()));
+                appendAscii("\",\"subType\":\"");
+                appendHex(new byte[] {binary.getType()});
+                appendAscii("\"}}");
+                break;
+            case TIMESTAMP:
+                BsonTimestamp timestamp = reader.readTimestamp();
+                appendAscii("{\"$timestamp\":{\"t\":" + Integer.toUnsignedString(timestamp.getTime())
+                        + ",\"i\":" + Integer.toUnsignedString(timestamp.getInc()) + "}}");
+                break;
+            case REGULAR_EXPRESSION:
+                BsonRegularExpression regex = reader.readRegularExpression();
+                appendAscii("{\"$regularExpression\":{\"pattern\":");
+                writeString(regex.getPattern());
+                appendAscii(",\"options\":");
+                writeString(regex.getOptions());
+                appendAscii("}}");
+                break;
+            default:
+                // Deprecated and rare types go through the driver's JSON writer
+                BsonValue value = VALUE_CODEC.decode(reader, DecoderContext.builder().build());
+                String json = RowValueConverter.toJson(value);
+                appendUtf8(json, 0, json.length());
+        }
+    }
+
+    private void writeDouble(double value) {
+        if (Double.isNaN(value) || Double.isInfinite(value)) {
+            String special = Double.isNaN(value) ? "NaN" : value > 0 ? "Infinity" : "-Infinity";
+            writeWrapped("$numberDouble", special);
+        } else if (mode == Mode.CANONICAL) {
+            writeWrapped("$numberDouble", Double.toString(value));
+        } else {
+            appendAscii(Double.toString(value));
+        }
+    }
+
+    private void writeDate(long millis) {
+        if (mode == Mode.RELAXED && millis >= 0 && millis <= MAX_ISO_DATE_MILLIS) {
+            appendAscii("{\"$date\":\"" + Instant.ofEpochMilli(millis) + "\"}");
+        } else {
+            appendAscii("{\"$date\":{\"$numberLong\":\"" + millis + "\"}}");
+        }
+    }
+
+    private void writeWrapped(String key, String text) {
+        appendAscii("{\"" + key + "\":\"" + text + "\"}");
+    }
+
+    /**
+     * Quoted JSON string; control characters, quotes and backslashes are escaped
+     */
+    private void writeString(String value) {
+        append('"');
+        int runStart = 0;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c >= 0x20 && c != '"' && c != '\\') {
+                continue;
+            }
+            appendUtf8(value, runStart, i);
+            switch (c) {
+                case '"':
+                    appendAscii("\\\"");
+                    break;
+                case '\\':
+                    appendAscii("\\\\");
+                    break;
+                case '\n':
+                    appendAscii("\\n");
+                    break;
+                case '\r':
+                    appendAscii("\\r");
+                    break;
+                case '\t':
+                    appendAscii("\\t");
+                    break;
+                default:
+                    appendAscii(String.format("\\u%04x", (int) c));
+            }
+            runStart = i + 1;
+        }
+        appendUtf8(value, runStart, value.length());
+        append('"');
+    }
+
+    private void appendHex(byte[] bytes) {
+        ensureCapacity(bytes.length * 2);
+        for (byte b : bytes) {
+            buffer[length++] = HEX[(b >> 4) & 0xF];
+            buffer[length++] = HEX[b & 0xF];
+        }
+    }
+
+    private void appendAscii(String text) {
+        ensureCapacity(text.length());
+        for (int i = 0; i < text.length(); i++) {
+            buffer[length++] = (byte) text.charAt(i);
+        }
+    }
+
+    /**
+     * UTF-8 encodes text[start, end) into the buffer without an intermediate byte array;
+     * unpaired surrogates become '?' as in String.getBytes
+     */
+    private void appendUtf8(String text, int start, int end) {
+        ensureCapacity((end - start) * 3);
+        for (int i = start; i < end; i++) {
+            char c = text.charAt(i);
+            if (c < 0x80) {
+                buffer[length++] = (byte) c;
+            } else if (c < 0x800) {
+                buffer[length++] = (byte) (0xC0 | (c >> 6));
+                buffer[length++] = (byte) (0x80 | (c & 0x3F));
+            } else if (Character.isSurrogate(c)) {
+                if (Character.isHighSurrogate(c) && i + 1 < end && Character.isLowSurrogate(text.charAt(i + 1))) {
+                    int codePoint = Character.toCodePoint(c, text.charAt(++i));
+                    buffer[length++] = (byte) (0xF0 | (codePoint >> 18));
+                    buffer[length++] = (byte) (0x80 | ((codePoint >> 12) & 0x3F));
+                    buffer[length++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+                    buffer[length++] = (byte) (0x80 | (codePoint & 0x3F));
+                } else {
+                    buffer[length++] = '?';
+                }
+            } else {
+                buffer[length++] = (byte) (0xE0 | (c >> 12));
+                buffer[length++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                buffer[length++] = (byte) (0x80 | (c & 0x3F));
+            }
+        }
+    }
+
+    private void append(char c) {
+        ensureCapacity(1);
+        buffer[length++] = (byte) c;
+    }
+
+    private void ensureCapacity(int extra) {
+        if (length + extra > buffer.length) {
+            buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, length + extra));
+        }
+    }
+}
@@ -0,0 +1,243 @@
+package com.sahil.backend.service.worker;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.mongodb.client.ChangeStreamIterable;
+import com.mongodb.client.MongoChangeStreamCursor;
+import com.mongodb.client.MongoDatabase;
+import com.mongodb.client.model.Aggregates;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.changestream.ChangeStreamDocument;
+import com.mongodb.client.model.changestream.FullDocument;
+import com.mongodb.client.model.changestream.OperationType;
+import org.bson.BsonDocument;
+import org.bson.BsonDocumentReader;
+import org.bson.Document;
+import org.bson.RawBsonDocument;
+import org.bson.codecs.DecoderContext;
+import org.bson.codecs.DocumentCodec;
+import org.bson.conversions.Bson;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Array;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Tails a change stream on the source database after the bulk load and applies inserts,
+ * updates and deletes of the migrated collections to their target tables.
+ * Events are collapsed to the latest state per _id and flushed as one transaction of
+ * batched upserts and deletes; the resume token is handed out after every commit, so a
+ * restart replays at most one batch, which the upserts make harmless.
+ */
+public class ChangeStreamReplicator implements Runnable {
+
+    private static final int BATCH_SIZE = 1000;
+    private static final long FLUSH_INTERVAL_MILLIS = 1000;
+
+    private static final DocumentCodec DOCUMENT_CODEC = new DocumentCodec();
+
+    private final MongoDatabase mongoDatabase;
+    private final JdbcTemplate targetJdbcTemplate;
+    private final Map<String, TableMapping> mappingsByCollection = new HashMap<>();
+    private final BsonDocument startAfterToken;
+    private final Consumer<BsonDocument> resumeTokenSink;
+    private final ReplicationMetrics metrics;
+
+    private volatile boolean stopped = false;
+
+    public ChangeStreamReplicator(MongoDatabase mongoDatabase, JdbcTemplate targetJdbcTemplate,
+            List<JsonNode> tableMappings, BsonDocument startAfterToken, Consumer<BsonDocument> resumeTokenSink,
+            ReplicationMetrics metrics, BsonJsonEncoder.Mode jsonMode) {
+        this.mongoDatabase = mongoDatabase;
+        this.targetJdbcTemplate = targetJdbcTemplate;
+        this.startAfterToken = startAfterToken;
+        this.resumeTokenSink = resumeTokenSink;
+        this.metrics = metrics;
+
+        for (JsonNode mapping : tableMappings) {
+            TableMapping tableMapping = new TableMapping(mapping, jsonMode);
+            mappingsByCollection.put(mapping.get("sourceCollection").asText(), tableMapping);
+            metrics.registerTable(tableMapping.targetTable);
+        }
+    }
+
+    /**
+     * Asks the replicator to finish its current batch and return
+     */
+    public void stop() {
+        stopped = true;
+    }
+
+    @Override
+    public void run() {
+        List<Bson> pipeline = List.of(Aggregates.match(Filters.and(
+                Filters.in("ns.coll", new ArrayList<>(mappingsByCollection.keySet())),
+                Filters.in("operationType", "insert", "update", "replace", "delete"))));
+
+        ChangeStreamIterable<Document> stream = mongoDatabase.watch(pipeline)
+                .fullDocument(FullDocument.UPDATE_LOOKUP)
+                .batchSize(BATCH_SIZE)
+                .maxAwaitTime(FLUSH_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+        if (startAfterToken != null) {
+            stream = stream.resumeAfter(startAfterToken);
+        }
+
+        System.out.println("🔄 Change-stream replication started for " + mappingsByCollection.keySet());
+
+        try (MongoChangeStreamCursor<ChangeStreamDocument<Document>> cursor = stream.cursor()) {
+            Map<TableMapping, PendingChanges> pending = new LinkedHashMap<>();
+            int pendingEvents = 0;
+            long batchStartedAt = System.currentTimeMillis();
+
+            while (!stopped) {
+                ChangeStreamDocument<Document> event = cursor.tryNext();
+                if (event != null) {
+                    TableMapping mapping = mappingsByCollection.get(event.getNamespace().getCollectionName());
+                    if (mapping != null) {
+                        if (pendingEvents == 0) {
+                            batchStartedAt = System.currentTimeMillis();
+                        }
+                        pending.computeIfAbsent(mapping, m -> new PendingChanges()).add(event);
+                        pendingEvents++;
+                    }
+                }
+
+                boolean due = event == null || pendingEvents >= BATCH_SIZE
+                        || System.currentTimeMillis() - batchStartedAt >= FLUSH_INTERVAL_MILLIS;
+                if (pendingEvents > 0 && due) {
+                    flush(pending);
+                    pending.clear();
+                    pendingEvents = 0;
+                    resumeTokenSink.accept(cursor.getResumeToken());
+                }
+                if (event == null) {
+                    metrics.markCaughtUp();
+                }
+            }
+
+            // Apply what was read before the stop request
+            if (pendingEvents > 0) {
+                flush(pending);
+                resumeTokenSink.accept(cursor.getResumeToken());
+            }
+        }
+
+        System.out.println("✅ Change-stream replication stopped");
+    }
+
+    /**
+     * Applies the collapsed changes of every table in one target transaction
+     */
+    private void flush(Map<TableMapping, PendingChanges> pending) {
+        targetJdbcTemplate.execute((ConnectionCallback<Void>) connection -> {
+            boolean autoCommit = connection.getAutoCommit();
+            connection.setAutoCommit(false);
+            try {
+                // The resume token is saved after this commit, so it must be durable even on
+                // pools that load with synchronous_commit off
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute("SET LOCAL synchronous_commit = on");
+                }
+                for (Map.Entry<TableMapping, PendingChanges> entry : pending.entrySet()) {
+                    TableMapping mapping = entry.getKey();
+                    PendingChanges changes = entry.getValue();
+
+                    List<RawBsonDocument> upserts = new ArrayList<>();
+                    List<Object> deletedKeys = new ArrayList<>();
+                    for (Map.Entry<Object, Document> change : changes.latestById.entrySet()) {
+                        if (change.getValue() != null) {
+                            upserts.add(new RawBsonDocument(change.getValue(), DOCUMENT_CODEC));
+                        } else {
+                            deletedKeys.add(RowValueConverter.convert(change.getKey(), mapping.keyColumn.getKind()));
+                        }
+                    }
+
+                    if (!upserts.isEmpty()) {
+                        mapping.upsertSink.write(connection, mapping.targetTable, mapping.columns,
+                                mapping.upsertSink.encode(mapping.columns, upserts));
+                    }
+                    if (!deletedKeys.isEmpty()) {
+                        String sql = "DELETE FROM " + mapping.targetTable + " WHERE "
+                                + mapping.keyColumn.getTargetColumn() + " = ANY(?)";
+                        try (PreparedStatement ps = connection.prepareStatement(sql)) {
+                            Array keys = connection.createArrayOf(
+                                    RowValueConverter.baseType(mapping.keyColumn.getDataType()).toLowerCase(),
+                                    deletedKeys.toArray());
+                            ps.setArray(1, keys);
+                            ps.executeUpdate();
+                        }
+                    }
+                }
+                connection.commit();
+            } catch (SQLException | RuntimeException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(autoCommit);
+            }
+            return null;
+        });
+
+        pending.forEach((mapping, changes) -> metrics.recordApplied(
+                mapping.targetTable, changes.upsertCount(), changes.deleteCount(), changes.newestEventMillis));
+    }
+
+    private static class TableMapping {
+        private final String targetTable;
+        private final CompiledTableMapping columns;
+        private final CompiledTableMapping.Column keyColumn;
+        private final BatchInsertSink upsertSink;
+
+        private TableMapping(JsonNode mapping, BsonJsonEncoder.Mode jsonMode) {
+            this.targetTable = mapping.get("targetTable").asText();
+            this.columns = CompiledTableMapping.compile(mapping.get("columns"));
+            this.keyColumn = columns.findBySourceField("_id");
+            if (keyColumn == null) {
+                throw new RuntimeException("Table " + targetTable + " has no column mapped from _id; "
+                        + "change-stream replication needs it to match rows");
+            }
+            this.upsertSink = new BatchInsertSink(keyColumn.getTargetColumn(), jsonMode);
+        }
+    }
+
+    /**
+     * Latest state per _id within one batch; a null document means the row is deleted
+     */
+    private static class PendingChanges {
+        private final Map<Object, Document> latestById = new LinkedHashMap<>();
+        private long newestEventMillis;
+
+        private void add(ChangeStreamDocument<Document> event) {
+            Document key = DOCUMENT_CODEC.decode(
+                    new BsonDocumentReader(event.getDocumentKey()), DecoderContext.builder().build());
+            Object id = key.get("_id");
+
+            // An update whose document was deleted before the lookup has no full document
+            Document fullDocument = event.getOperationType() == OperationType.DELETE ? null : event.getFullDocument();
+            latestById.remove(id);
+            latestById.put(id, fullDocument);
+
+            if (event.getClusterTime() != null) {
+                newestEventMillis = Math.max(newestEventMillis,
+                        TimeUnit.SECONDS.toMillis(event.getClusterTime().getTime()));
+            }
+        }
+
+        private long upsertCount() {
+            return latestById.values().stream().filter(doc -> doc != null).count();
+        }
+
+        private long deleteCount() {
+            return latestById.size() - upsertCount();
+        }
+    }
+}
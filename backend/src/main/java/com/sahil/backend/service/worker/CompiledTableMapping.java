@@ -0,0 +1,195 @@
+package com.sahil.backend.service.worker;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import org.bson.BsonDocument;
+import org.bson.BsonValue;
+
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * A table's column mapping compiled once from the plan JSON. Columns are kept in target
+ * column order, so encoders bind values by position, and each column's conversion is
+ * resolved up front. Nothing in the plan tree is read again per document.
+ */
+public final class CompiledTableMapping {
+
+    // Base types the binary COPY encoder can write
+    private static final Set<String> BINARY_COPY_TYPES = Set.of(
+            "UUID", "VARCHAR", "TEXT", "CHAR", "INTEGER", "INT", "INT4", "BIGINT", "INT8",
+            "DOUBLE PRECISION", "FLOAT8", "BOOLEAN", "TIMESTAMP", "JSONB");
+
+    private final Column[] columns;
+    private final String columnList;
+    private final boolean binaryCopySupported;
+
+    private CompiledTableMapping(Column[] columns) {
+        this.columns = columns;
+
+        List<String> names = new ArrayList<>(columns.length);
+        boolean binary = true;
+        for (Column column : columns) {
+            names.add(column.targetColumn);
+            binary &= BINARY_COPY_TYPES.contains(column.baseType);
+        }
+        this.columnList = String.join(", ", names);
+        this.binaryCopySupported = binary;
+    }
+
+    /**
+     * Compiles the "columns" array of a plan table mapping
+     */
+    public static CompiledTableMapping compile(JsonNode columns) {
+        Column[] compiled = new Column[columns.size()];
+        int index = 0;
+        for (JsonNode col : columns) {
+            compiled[index++] = new Column(
+                    col.get("sourceField").asText(),
+                    col.get("targetColumn").asText(),
+                    col.get("dataType").asText());
+        }
+        return new CompiledTableMapping(compiled);
+    }
+
+    public Column[] getColumns() {
+        return columns;
+    }
+
+    public int size() {
+        return columns.length;
+    }
+
+    /**
+     * Target column names, comma separated, in binding order
+     */
+    public String getColumnList() {
+        return columnList;
+    }
+
+    public boolean supportsBinaryCopy() {
+        return binaryCopySupported;
+    }
+
+    /**
+     * Source fields to request from MongoDB. _id is always returned, and a field nested under
+     * another requested field is left out because MongoDB rejects overlapping paths.
+     */
+    public List<String> getProjectionFields() {
+        Set<String> fields = new LinkedHashSet<>();
+        for (Column column : columns) {
+            fields.add(column.sourceField);
+        }
+
+        List<String> projection = new ArrayList<>(fields.size());
+        for (String field : fields) {
+            boolean covered = false;
+            for (String other : fields) {
+                if (field.startsWith(other + ".")) {
+                    covered = true;
+                    break;
+                }
+            }
+            if (!covered) {
+                projection.add(field);
+            }
+        }
+        return projection;
+    }
+
+    /**
+     * The column mapped from a source field, or null if no column is
+     */
+    public Column findBySourceField(String sourceField) {
+        for (Column column : columns) {
+            if (column.sourceField.equals(sourceField)) {
+                return column;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * One target column: where its value comes from and what it is converted to
+     */
+    public static final class Column {
+        private final String sourceField;
+        private final String targetColumn;
+        private final String dataType;
+        private final String baseType;
+        private final RowValueConverter.ColumnKind kind;
+        private final int sqlType;
+        private final boolean jsonb;
+
+        private Column(String sourceField, String targetColumn, String dataType) {
+            this.sourceField = sourceField;
+            this.targetColumn = targetColumn;
+            this.dataType = dataType;
+            this.baseType = RowValueConverter.baseType(dataType);
+            this.kind = RowValueConverter.kindOf(dataType);
+            this.sqlType = sqlTypeOf(kind);
+            this.jsonb = "JSONB".equals(baseType);
+        }
+
+        /**
+         * Raw field value of a document, before conversion. On a RawBsonDocument this scans
+         * the document's bytes and returns nested documents and arrays still undecoded.
+         */
+        public BsonValue read(BsonDocument document) {
+            return document.get(sourceField);
+        }
+
+        /**
+         * Field value of a document converted to this column's Java type
+         */
+        public Object convert(BsonDocument document) {
+            return RowValueConverter.convert(document.get(sourceField), kind);
+        }
+
+        public String getSourceField() {
+            return sourceField;
+        }
+
+        public String getTargetColumn() {
+            return targetColumn;
+        }
+
+        public String getDataType() {
+            return dataType;
+        }
+
+        public RowValueConverter.ColumnKind getKind() {
+            return kind;
+        }
+
+        /**
+         * java.sql.Types code used to bind a NULL for this column
+         */
+        public int getSqlType() {
+            return sqlType;
+        }
+
+        public boolean isJsonb() {
+            return jsonb;
+        }
+
+        private static int sqlTypeOf(RowValueConverter.ColumnKind kind) {
+            switch (kind) {
+                case INT4:
+                    return Types.INTEGER;
+                case INT8:
+                    return Types.BIGINT;
+                case FLOAT8:
+                    return Types.DOUBLE;
+                case BOOLEAN:
+                    return Types.BOOLEAN;
+                case TIMESTAMP:
+                    return Types.TIMESTAMP;
+                default:
+                    return Types.OTHER;
+            }
+        }
+    }
+}
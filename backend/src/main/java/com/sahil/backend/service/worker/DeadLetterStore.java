@@ -0,0 +1,212 @@
+package com.sahil.backend.service.worker;
+
+import org.bson.RawBsonDocument;
+import org.bson.json.JsonMode;
+import org.bson.json.JsonWriterSettings;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Keeps source documents the target rejected, with the error, in a dead-letter table in the
+ * target database. Rows are isolated by bisecting the failed batch, so the rest of the batch
+ * still commits in large chunks and only the bad documents end up here.
+ */
+public final class DeadLetterStore {
+
+    public static final String TABLE_NAME = "_migration_dead_letters";
+
+    // Canonical extended JSON keeps every BSON type, so a replay converts exactly what was read
+    private static final JsonWriterSettings DOCUMENT_JSON = JsonWriterSettings.builder()
+            .outputMode(JsonMode.EXTENDED)
+            .build();
+
+    private DeadLetterStore() {
+    }
+
+    public static void ensureTable(JdbcTemplate targetJdbcTemplate) {
+        targetJdbcTemplate.execute("CREATE TABLE IF NOT EXISTS " + TABLE_NAME + " ("
+                + "id BIGSERIAL PRIMARY KEY, "
+                + "run_id UUID NOT NULL, "
+                + "progress_id UUID NOT NULL, "
+                + "source_collection TEXT NOT NULL, "
+                + "target_table TEXT NOT NULL, "
+                + "document_id TEXT NOT NULL, "
+                + "document TEXT NOT NULL, "
+                + "error_state TEXT, "
+                + "error TEXT, "
+                + "attempts INT NOT NULL DEFAULT 1, "
+                + "created_at TIMESTAMP NOT NULL DEFAULT now(), "
+                + "replayed_at TIMESTAMP, "
+                + "UNIQUE (progress_id, document_id))");
+        targetJdbcTemplate.execute("CREATE INDEX IF NOT EXISTS " + TABLE_NAME + "_run_idx ON "
+                + TABLE_NAME + " (run_id, target_table) WHERE replayed_at IS NULL");
+    }
+
+    /**
+     * Records a rejected document on the caller's connection; the caller owns the transaction.
+     * A document rejected again, e.g. after a resume, keeps one row with the latest error.
+     */
+    public static void save(Connection connection, UUID runId, UUID progressId, String sourceCollection,
+            String targetTable, RawBsonDocument document, Throwable error) throws SQLException {
+        String sql = "INSERT INTO " + TABLE_NAME + " (run_id, progress_id, source_collection, target_table, "
+                + "document_id, document, error_state, error) VALUES (?, ?, ?, ?, ?, ?, ?, ?) "
+                + "ON CONFLICT (progress_id, document_id) DO UPDATE SET document = EXCLUDED.document, "
+                + "error_state = EXCLUDED.error_state, error = EXCLUDED.error, "
+                + "attempts = " + TABLE_NAME + ".attempts + 1, replayed_at = NULL";
+        try (PreparedStatement ps = connection.prepareStatement(sql)) {
+            ps.setObject(1, runId);
+            ps.setObject(2, progressId);
+            ps.setString(3, sourceCollection);
+            ps.setString(4, targetTable);
+            ps.setString(5, IdRange.encodeBound(RowValueConverter.toJava(document.get("_id"))));
+            ps.setString(6, document.toJson(DOCUMENT_JSON));
+            ps.setString(7, errorState(error));
+            ps.setString(8, String.valueOf(rootCause(error).getMessage()));
+            ps.executeUpdate();
+        }
+    }
+
+    /**
+     * Unreplayed dead letters of a run's table, oldest first, starting after the given id
+     */
+    public static List<Entry> findPending(JdbcTemplate targetJdbcTemplate, UUID runId, String targetTable,
+            long afterId, int limit) {
+        return targetJdbcTemplate.query(
+                "SELECT id, progress_id, source_collection, document FROM " + TABLE_NAME
+                        + " WHERE run_id = ? AND target_table = ? AND replayed_at IS NULL AND id > ?"
+                        + " ORDER BY id LIMIT ?",
+                (rs, i) -> new Entry(rs.getLong("id"), rs.getObject("progress_id", UUID.class),
+                        rs.getString("source_collection"), RawBsonDocument.parse(rs.getString("document"))),
+                runId, targetTable, afterId, limit);
+    }
+
+    /**
+     * Target tables with unreplayed dead letters for a run
+     */
+    public static List<String> findPendingTables(JdbcTemplate targetJdbcTemplate, UUID runId) {
+        return targetJdbcTemplate.queryForList("SELECT DISTINCT target_table FROM " + TABLE_NAME
+                + " WHERE run_id = ? AND replayed_at IS NULL ORDER BY target_table", String.class, runId);
+    }
+
+    public static void markReplayed(Connection connection, List<Long> ids) throws SQLException {
+        try (PreparedStatement ps = connection.prepareStatement(
+                "UPDATE " + TABLE_NAME + " SET replayed_at = now() WHERE id = ANY (?)")) {
+            ps.setArray(1, connection.createArrayOf("bigint", ids.toArray()));
+            ps.executeUpdate();
+        }
+    }
+
+    /**
+     * Whether a failure was caused by the rows themselves, so that bisecting the batch isolates
+     * it: a data exception (SQLSTATE class 22), a constraint violation (class 23), or a
+     * {@link RowConversionException} for a value that could not be converted before it reached
+     * the database. Connection and server failures, and anything else such as a bug in the
+     * pipeline, are not row errors.
+     */
+    public static boolean isRowError(Throwable error) {
+        for (Throwable cause = error; cause != null; cause = cause.getCause()) {
+            if (cause instanceof RowConversionException) {
+                return true;
+            }
+            if (cause instanceof SQLException) {
+                String state = ((SQLException) cause).getSQLState();
+                if (state != null && (state.startsWith("22") || state.startsWith("23"))) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Commits documents in as few chunks as possible: a chunk that fails with a row error is
+     * split in half until the failing documents stand alone and are handed to the rejecter.
+     * Chunks are committed in order. Returns the number of rejected documents.
+     */
+    public static int isolate(List<RawBsonDocument> documents, ChunkCommitter committer, Rejecter rejecter)
+            throws InterruptedException {
+        try {
+            committer.commit(documents);
+            return 0;
+        } catch (RuntimeException e) {
+            if (!isRowError(e)) {
+                throw e;
+            }
+            if (documents.size() == 1) {
+                rejecter.reject(documents.get(0), e);
+                return 1;
+            }
+            int middle = documents.size() / 2;
+            return isolate(documents.subList(0, middle), committer, rejecter)
+                    + isolate(documents.subList(middle, documents.size()), committer, rejecter);
+        }
+    }
+
+    private static String errorState(Throwable error) {
+        for (Throwable cause = error; cause != null; cause = cause.getCause()) {
+            if (cause instanceof SQLException && ((SQLException) cause).getSQLState() != null) {
+                return ((SQLException) cause).getSQLState();
+            }
+        }
+        return rootCause(error).getClass().getSimpleName();
+    }
+
+    private static Throwable rootCause(Throwable error) {
+        Throwable root = error;
+        while (root.getCause() != null && root.getCause() != root) {
+            root = root.getCause();
+        }
+        return root;
+    }
+
+    /**
+     * Converts and commits one chunk of documents; throws if the chunk is rejected
+     */
+    @FunctionalInterface
+    public interface ChunkCommitter {
+        void commit(List<RawBsonDocument> documents) throws InterruptedException;
+    }
+
+    /**
+     * Records a single document the target rejected
+     */
+    @FunctionalInterface
+    public interface Rejecter {
+        void reject(RawBsonDocument document, RuntimeException error);
+    }
+
+    public static class Entry {
+        private final long id;
+        private final UUID progressId;
+        private final String sourceCollection;
+        private final RawBsonDocument document;
+
+        public Entry(long id, UUID progressId, String sourceCollection, RawBsonDocument document) {
+            this.id = id;
+            this.progressId = progressId;
+            this.sourceCollection = sourceCollection;
+            this.document = document;
+        }
+
+        public long getId() {
+            return id;
+        }
+
+        public UUID getProgressId() {
+            return progressId;
+        }
+
+        public String getSourceCollection() {
+            return sourceCollection;
+        }
+
+        public RawBsonDocument getDocument() {
+            return document;
+        }
+    }
+}
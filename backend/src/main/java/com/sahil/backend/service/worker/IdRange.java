@@ -0,0 +1,393 @@
+package com.sahil.backend.service.worker;
+
+import com.mongodb.client.model.Filters;
+import org.bson.BsonBinarySubType;
+import org.bson.BsonRegularExpression;
+import org.bson.BsonTimestamp;
+import org.bson.Document;
+import org.bson.conversions.Bson;
+import org.bson.json.JsonMode;
+import org.bson.json.JsonWriterSettings;
+import org.bson.types.Binary;
+import org.bson.types.Decimal128;
+import org.bson.types.MaxKey;
+import org.bson.types.MinKey;
+import org.bson.types.ObjectId;
+import org.bson.types.Symbol;
+
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.regex.Pattern;
+
+/**
+ * A half-open range [lower, upper) over a collection's _id, used to split one collection into partitions.
+ * A null bound means the range is open on that side.
+ */
+public class IdRange {
+
+    private static final JsonWriterSettings BOUND_SETTINGS = JsonWriterSettings.builder()
+            .outputMode(JsonMode.EXTENDED)
+            .build();
+
+    // BSON comparison order; each entry holds the $type aliases that compare with each other
+    private static final List<List<String>> TYPE_SORT_ORDER = List.of(
+            List.of("minKey"),
+            List.of("null", "undefined"),
+            List.of("number"),
+            List.of("string", "symbol"),
+            List.of("object"),
+            List.of("array"),
+            List.of("binData"),
+            List.of("objectId"),
+            List.of("bool"),
+            List.of("date"),
+            List.of("timestamp"),
+            List.of("regex"),
+            List.of("maxKey"));
+
+    private final Object lower;
+    private final Object upper;
+
+    public IdRange(Object lower, Object upper) {
+        this.lower = lower;
+        this.upper = upper;
+    }
+
+    /**
+     * The range covering the whole collection
+     */
+    public static IdRange all() {
+        return new IdRange(null, null);
+    }
+
+    public Object getLower() {
+        return lower;
+    }
+
+    public Object getUpper() {
+        return upper;
+    }
+
+    public boolean isUnbounded() {
+        return lower == null && upper == null;
+    }
+
+    /**
+     * Builds the find() filter for this range.
+     * MongoDB range operators only match values of the bound's BSON type, so each bound also
+     * matches whole types by their place in the BSON sort order: types that sort after the
+     * lower bound's type and before the upper bound's type. _id types outside the known sort
+     * order go to the first range, which keeps the ranges exhaustive without overlapping.
+     */
+    public Bson toFilter() {
+        if ((lower != null && !isOrderable(lower)) || (upper != null && !isOrderable(upper))) {
+            throw new IllegalArgumentException("Unsupported _id bound in range " + this);
+        }
+        List<Bson> conditions = new ArrayList<>();
+        if (lower != null) {
+            conditions.add(after(lower, true));
+        }
+        if (upper != null) {
+            int position = sortPosition(upper);
+            Bson below = Filters.lt("_id", upper);
+            if (lower == null) {
+                // Everything not of the upper bound's type or a later one, including unknown types
+                below = Filters.or(below, Filters.not(new Document("_id",
+                        new Document("$type", aliases(position, TYPE_SORT_ORDER.size())))));
+            } else if (position > 0) {
+                below = Filters.or(below, new Document("_id", new Document("$type", aliases(0, position))));
+            }
+            conditions.add(below);
+        }
+
+        if (conditions.isEmpty()) {
+            return new Document();
+        }
+        return conditions.size() == 1 ? conditions.get(0) : Filters.and(conditions);
+    }
+
+    /**
+     * Matches every _id that sorts after the watermark in an ascending _id scan,
+     * including values of BSON types that sort after the watermark's type
+     */
+    public static Bson after(Object watermark) {
+        return after(watermark, false);
+    }
+
+    /**
+     * Matches every _id up to and including the bound in an ascending _id scan, including
+     * values of BSON types that sort before the bound's type
+     */
+    public static Bson upTo(Object bound) {
+        Bson sameType = Filters.lte("_id", bound);
+        int position = sortPosition(bound);
+        if (position <= 0) {
+            return sameType;
+        }
+        return Filters.or(sameType, new Document("_id", new Document("$type", aliases(0, position))));
+    }
+
+    private static Bson after(Object bound, boolean inclusive) {
+        Bson sameType = inclusive ? Filters.gte("_id", bound) : Filters.gt("_id", bound);
+        int position = sortPosition(bound);
+        if (position < 0 || position == TYPE_SORT_ORDER.size() - 1) {
+            return sameType;
+        }
+        List<String> laterTypes = aliases(position + 1, TYPE_SORT_ORDER.size());
+        return Filters.or(sameType, new Document("_id", new Document("$type", laterTypes)));
+    }
+
+    /**
+     * Orders two _id values as an ascending _id scan does: by the place of their BSON type in
+     * the sort order, then by value. Values of types outside the sort order compare equal.
+     */
+    public static int compare(Object a, Object b) {
+        int byType = Integer.compare(sortPosition(a), sortPosition(b));
+        if (byType != 0 || sortPosition(a) < 0) {
+            return byType;
+        }
+        switch (typeAlias(a)) {
+            case "number":
+                return compareNumbers(a, b);
+            case "string":
+                return Arrays.compareUnsigned(utf8(a), utf8(b));
+            case "object":
+                return compareDocuments((Map<?, ?>) a, (Map<?, ?>) b);
+            case "array":
+                return compareArrays((List<?>) a, (List<?>) b);
+            case "binData":
+                return compareBinary(binary(a), binary(b));
+            case "objectId":
+                return ((ObjectId) a).compareTo((ObjectId) b);
+            case "bool":
+                return Boolean.compare((Boolean) a, (Boolean) b);
+            case "date":
+                return ((Date) a).compareTo((Date) b);
+            case "timestamp":
+                return ((BsonTimestamp) a).compareTo((BsonTimestamp) b);
+            case "regex":
+                return regex(a).compareTo(regex(b));
+            default:
+                // minKey and maxKey
+                return 0;
+        }
+    }
+
+    /**
+     * Whether a value can bound a range, i.e. its BSON type has a known place in the sort order
+     */
+    public static boolean isOrderable(Object value) {
+        return value != null && sortPosition(value) >= 0;
+    }
+
+    /**
+     * Serializes a bound to extended JSON so it keeps its BSON type when stored
+     */
+    public static String encodeBound(Object bound) {
+        if (bound == null) {
+            return null;
+        }
+        return new Document("v", bound).toJson(BOUND_SETTINGS);
+    }
+
+    public static Object decodeBound(String json) {
+        if (json == null || json.isEmpty()) {
+            return null;
+        }
+        return Document.parse(json).get("v");
+    }
+
+    private static int compareNumbers(Object a, Object b) {
+        double x = doubleValue(a);
+        double y = doubleValue(b);
+        if (Double.isNaN(x) || Double.isNaN(y)) {
+            // NaN sorts before every other number
+            return Boolean.compare(!Double.isNaN(x), !Double.isNaN(y));
+        }
+        if (Double.isInfinite(x) || Double.isInfinite(y)) {
+            return Double.compare(x, y);
+        }
+        return decimalValue(a).compareTo(decimalValue(b));
+    }
+
+    private static double doubleValue(Object number) {
+        if (number instanceof Decimal128) {
+            Decimal128 decimal = (Decimal128) number;
+            if (decimal.isNaN()) {
+                return Double.NaN;
+            }
+            if (decimal.isInfinite()) {
+                return decimal.isNegative() ? Double.NEGATIVE_INFINITY : Double.POSITIVE_INFINITY;
+            }
+            return decimalValue(decimal).doubleValue();
+        }
+        return ((Number) number).doubleValue();
+    }
+
+    private static BigDecimal decimalValue(Object number) {
+        if (number instanceof Decimal128) {
+            try {
+                return ((Decimal128) number).bigDecimalValue();
+            } catch (ArithmeticException e) {
+                // Negative zero has no BigDecimal form
+                return BigDecimal.ZERO;
+            }
+        }
+        if (number instanceof Double || number instanceof Float) {
+            return BigDecimal.valueOf(((Number) number).doubleValue());
+        }
+        return BigDecimal.valueOf(((Number) number).longValue());
+    }
+
+    private static byte[] utf8(Object value) {
+        String text = value instanceof Symbol ? ((Symbol) value).getSymbol() : (String) value;
+        return text.getBytes(StandardCharsets.UTF_8);
+    }
+
+    // Field by field: value type, then name, then value; a prefix sorts first
+    private static int compareDocuments(Map<?, ?> a, Map<?, ?> b) {
+        Iterator<? extends Map.Entry<?, ?>> left = a.entrySet().iterator();
+        Iterator<? extends Map.Entry<?, ?>> right = b.entrySet().iterator();
+        while (left.hasNext() && right.hasNext()) {
+            Map.Entry<?, ?> x = left.next();
+            Map.Entry<?, ?> y = right.next();
+            int byType = Integer.compare(sortPosition(x.getValue()), sortPosition(y.getValue()));
+            if (byType != 0) {
+                return byType;
+            }
+            int byName = Arrays.compareUnsigned(utf8(String.valueOf(x.getKey())), utf8(String.valueOf(y.getKey())));
+            if (byName != 0) {
+                return byName;
+            }
+            int byValue = compare(x.getValue(), y.getValue());
+            if (byValue != 0) {
+                return byValue;
+            }
+        }
+        return Boolean.compare(left.hasNext(), right.hasNext());
+    }
+
+    private static int compareArrays(List<?> a, List<?> b) {
+        for (int i = 0; i < Math.min(a.size(), b.size()); i++) {
+            int byElement = compare(a.get(i), b.get(i));
+            if (byElement != 0) {
+                return byElement;
+            }
+        }
+        return Integer.compare(a.size(), b.size());
+    }
+
+    // Length first, then subtype, then bytes, as the server orders binData
+    private static int compareBinary(Binary a, Binary b) {
+        int byLength = Integer.compare(a.getData().length, b.getData().length);
+        if (byLength != 0) {
+            return byLength;
+        }
+        int bySubtype = Integer.compare(a.getType() & 0xff, b.getType() & 0xff);
+        if (bySubtype != 0) {
+            return bySubtype;
+        }
+        return Arrays.compareUnsigned(a.getData(), b.getData());
+    }
+
+    private static Binary binary(Object value) {
+        if (value instanceof Binary) {
+            return (Binary) value;
+        }
+        if (value instanceof byte[]) {
+            return new Binary((byte[]) value);
+        }
+        UUID uuid = (UUID) value;
+        byte[] bytes = ByteBuffer.allocate(16)
+                .putLong(uuid.getMostSignificantBits())
+                .putLong(uuid.getLeastSignificantBits())
+                .array();
+        return new Binary(BsonBinarySubType.UUID_STANDARD, bytes);
+    }
+
+    private static String regex(Object value) {
+        if (value instanceof BsonRegularExpression) {
+            BsonRegularExpression regex = (BsonRegularExpression) value;
+            return regex.getPattern() + "/" + regex.getOptions();
+        }
+        return ((Pattern) value).pattern() + "/";
+    }
+
+    private static List<String> aliases(int from, int to) {
+        List<String> aliases = new ArrayList<>();
+        for (List<String> bracket : TYPE_SORT_ORDER.subList(from, to)) {
+            aliases.addAll(bracket);
+        }
+        return aliases;
+    }
+
+    /**
+     * Index of the value's type in TYPE_SORT_ORDER, or -1 if it has none
+     */
+    private static int sortPosition(Object value) {
+        String alias = typeAlias(value);
+        for (int i = 0; alias != null && i < TYPE_SORT_ORDER.size(); i++) {
+            if (TYPE_SORT_ORDER.get(i).contains(alias)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * $type alias of a bound as decoded by the driver's Document codec; all numeric types,
+     * Decimal128 included, compare together. Null for types without a place in the sort order.
+     */
+    private static String typeAlias(Object value) {
+        if (value instanceof MinKey) {
+            return "minKey";
+        }
+        if (value instanceof Number || value instanceof Decimal128) {
+            return "number";
+        }
+        if (value instanceof String || value instanceof Symbol) {
+            return "string";
+        }
+        if (value instanceof Map) {
+            return "object";
+        }
+        if (value instanceof List) {
+            return "array";
+        }
+        if (value instanceof Binary || value instanceof UUID || value instanceof byte[]) {
+            return "binData";
+        }
+        if (value instanceof ObjectId) {
+            return "objectId";
+        }
+        if (value instanceof Boolean) {
+            return "bool";
+        }
+        if (value instanceof Date) {
+            return "date";
+        }
+        if (value instanceof BsonTimestamp) {
+            return "timestamp";
+        }
+        if (value instanceof Pattern || value instanceof BsonRegularExpression) {
+            return "regex";
+        }
+        if (value instanceof MaxKey) {
+            return "maxKey";
+        }
+        return null;
+    }
+
+    @Override
+    public String toString() {
+        return "[" + (lower != null ? lower : "-inf") + ", " + (upper != null ? upper : "+inf") + ")";
+    }
+}
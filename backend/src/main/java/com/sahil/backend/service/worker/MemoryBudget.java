@@ -0,0 +1,179 @@
+package com.sahil.backend.service.worker;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Node-wide budget for source documents held in memory by migration pipelines, measured by
+ * their BSON size. A reader reserves the bytes of its next batch before fetching it and waits
+ * while the node is over budget; the bytes are returned once the batch is committed or
+ * staged. The node never stalls completely: a reservation is granted whenever nothing else
+ * is held, even if it is larger than the budget. Usage and waits are tracked per run.
+ */
+public class MemoryBudget {
+
+    // How often a waiting reader rechecks its stop signal
+    private static final long STOP_CHECK_MILLIS = 200;
+
+    private final long limitBytes;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition released = lock.newCondition();
+
+    private long usedBytes;
+    private final Map<UUID, RunUsage> runs = new HashMap<>();
+
+    public MemoryBudget(long limitBytes) {
+        this.limitBytes = Math.max(1, limitBytes);
+    }
+
+    /**
+     * Reserves bytes for a run, waiting while they do not fit. Returns the bytes granted,
+     * at most the whole budget, or 0 if the stop signal was raised while waiting.
+     */
+    public long acquire(UUID runId, long bytes, BooleanSupplier stopSignal) throws InterruptedException {
+        long wanted = Math.max(1, Math.min(bytes, limitBytes));
+        lock.lock();
+        try {
+            RunUsage run = runs.computeIfAbsent(runId, id -> new RunUsage());
+            if (usedBytes > 0 && usedBytes + wanted > limitBytes) {
+                long start = System.nanoTime();
+                run.waiting++;
+                try {
+                    while (usedBytes > 0 && usedBytes + wanted > limitBytes) {
+                        if (stopSignal.getAsBoolean()) {
+                            return 0;
+                        }
+                        released.await(STOP_CHECK_MILLIS, TimeUnit.MILLISECONDS);
+                    }
+                } finally {
+                    run.waiting--;
+                    run.waitNanos += System.nanoTime() - start;
+                }
+            }
+            usedBytes += wanted;
+            run.bytes += wanted;
+            return wanted;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Charges bytes without waiting, for a batch whose last document overran its reservation
+     */
+    public void grow(UUID runId, long bytes) {
+        if (bytes <= 0) {
+            return;
+        }
+        lock.lock();
+        try {
+            usedBytes += bytes;
+            runs.computeIfAbsent(runId, id -> new RunUsage()).bytes += bytes;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void release(UUID runId, long bytes) {
+        if (bytes <= 0) {
+            return;
+        }
+        lock.lock();
+        try {
+            usedBytes -= bytes;
+            RunUsage run = runs.get(runId);
+            if (run != null) {
+                run.bytes -= bytes;
+            }
+            released.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Drops a finished run's statistics
+     */
+    public void forget(UUID runId) {
+        lock.lock();
+        try {
+            RunUsage run = runs.get(runId);
+            if (run != null && run.bytes <= 0 && run.waiting == 0) {
+                runs.remove(runId);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long getLimitBytes() {
+        return limitBytes;
+    }
+
+    public long getUsedBytes() {
+        lock.lock();
+        try {
+            return usedBytes;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * One run's share of the budget: bytes held, readers waiting and total wait time
+     */
+    public Map<String, Object> snapshot(UUID runId) {
+        lock.lock();
+        try {
+            RunUsage run = runs.get(runId);
+            Map<String, Object> map = new LinkedHashMap<>();
+            map.put("runInFlightBytes", run == null ? 0 : run.bytes);
+            map.put("runReadersWaitingForMemory", run == null ? 0 : run.waiting);
+            map.put("runMemoryWaitMillis", run == null ? 0 : run.waitNanos / 1_000_000);
+            map.put("nodeInFlightBytes", usedBytes);
+            map.put("nodeInFlightLimitBytes", limitBytes);
+            return map;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Node-wide view: total usage and each run's share
+     */
+    public Map<String, Object> snapshot() {
+        lock.lock();
+        try {
+            Map<String, Object> map = new LinkedHashMap<>();
+            map.put("inFlightBytes", usedBytes);
+            map.put("inFlightLimitBytes", limitBytes);
+            List<Map<String, Object>> usage = new ArrayList<>();
+            for (Map.Entry<UUID, RunUsage> entry : runs.entrySet()) {
+                Map<String, Object> run = new LinkedHashMap<>();
+                run.put("runId", entry.getKey());
+                run.put("inFlightBytes", entry.getValue().bytes);
+                run.put("readersWaiting", entry.getValue().waiting);
+                run.put("waitMillis", entry.getValue().waitNanos / 1_000_000);
+                usage.add(run);
+            }
+            map.put("runs", usage);
+            return map;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private static class RunUsage {
+        private long bytes;
+        private int waiting;
+        private long waitNanos;
+    }
+}
@@ -0,0 +1,89 @@
+package com.sahil.backend.service.worker;
+
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * Live progress of one migration task. Tasks update it without touching the metadata
+ * database; a background flusher persists it when it has changed.
+ */
+public class ProgressCounter {
+
+    private final UUID progressId;
+    private final Consumer<ProgressCounter> finalFlush;
+
+    private final LongAdder rowsProcessed = new LongAdder();
+    private final LongAdder bytesWritten = new LongAdder();
+    private final AtomicBoolean dirty = new AtomicBoolean(false);
+
+    private volatile String lastId;
+    private volatile String status;
+
+    public ProgressCounter(UUID progressId, Consumer<ProgressCounter> finalFlush) {
+        this.progressId = progressId;
+        this.finalFlush = finalFlush;
+    }
+
+    /**
+     * Starts the counters at a resumed checkpoint
+     */
+    public void restore(long rows, long bytes, String lastId) {
+        rowsProcessed.add(rows);
+        bytesWritten.add(bytes);
+        this.lastId = lastId;
+        dirty.set(true);
+    }
+
+    public void recordBatch(long rows, long bytes, String lastId) {
+        rowsProcessed.add(rows);
+        bytesWritten.add(bytes);
+        this.lastId = lastId;
+        dirty.set(true);
+    }
+
+    public void setStatus(String status) {
+        this.status = status;
+        dirty.set(true);
+    }
+
+    /**
+     * Sets the final status and writes it out immediately
+     */
+    public void finish(String status) {
+        setStatus(status);
+        finalFlush.accept(this);
+    }
+
+    /**
+     * Clears the changed flag; returns whether there was anything to persist
+     */
+    public boolean takeDirty() {
+        return dirty.getAndSet(false);
+    }
+
+    public void markDirty() {
+        dirty.set(true);
+    }
+
+    public UUID getProgressId() {
+        return progressId;
+    }
+
+    public long getRowsProcessed() {
+        return rowsProcessed.sum();
+    }
+
+    public long getBytesWritten() {
+        return bytesWritten.sum();
+    }
+
+    public String getLastId() {
+        return lastId;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+}
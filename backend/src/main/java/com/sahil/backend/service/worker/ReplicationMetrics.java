@@ -0,0 +1,68 @@
+package com.sahil.backend.service.worker;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Per-table counters and replication lag of a run's change-stream replicator.
+ */
+public class ReplicationMetrics {
+
+    private final Map<String, TableLag> tables = new ConcurrentHashMap<>();
+
+    private volatile long lastPolledAt;
+
+    /**
+     * Records a flushed batch for a table. Lag is the time between the source commit of
+     * the newest applied event and the moment the batch was committed in the target.
+     */
+    public void recordApplied(String tableName, long upserts, long deletes, long newestEventMillis) {
+        TableLag table = tables.computeIfAbsent(tableName, name -> new TableLag());
+        long now = System.currentTimeMillis();
+        table.upserts.add(upserts);
+        table.deletes.add(deletes);
+        table.lastAppliedAt = now;
+        table.lastEventAt = newestEventMillis;
+        table.lagMillis = Math.max(0, now - newestEventMillis);
+    }
+
+    /**
+     * Called when the change stream has no more events waiting, i.e. every table is caught up
+     */
+    public void markCaughtUp() {
+        lastPolledAt = System.currentTimeMillis();
+        tables.values().forEach(table -> table.lagMillis = 0);
+    }
+
+    public void registerTable(String tableName) {
+        tables.computeIfAbsent(tableName, name -> new TableLag());
+    }
+
+    public List<Map<String, Object>> snapshot() {
+        List<Map<String, Object>> result = new ArrayList<>();
+        tables.forEach((tableName, table) -> {
+            Map<String, Object> map = new LinkedHashMap<>();
+            map.put("tableName", tableName);
+            map.put("upserts", table.upserts.sum());
+            map.put("deletes", table.deletes.sum());
+            map.put("lagMillis", table.lagMillis);
+            map.put("lastEventAt", table.lastEventAt);
+            map.put("lastAppliedAt", table.lastAppliedAt);
+            map.put("lastPolledAt", lastPolledAt);
+            result.add(map);
+        });
+        return result;
+    }
+
+    private static class TableLag {
+        private final LongAdder upserts = new LongAdder();
+        private final LongAdder deletes = new LongAdder();
+        private volatile long lagMillis;
+        private volatile long lastEventAt;
+        private volatile long lastAppliedAt;
+    }
+}
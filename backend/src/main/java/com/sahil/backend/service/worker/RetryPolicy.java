@@ -0,0 +1,63 @@
+package com.sahil.backend.service.worker;
+
+import java.sql.SQLRecoverableException;
+import java.sql.SQLException;
+import java.sql.SQLTransientException;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Decides whether a failed target write is worth retrying and how long to wait first.
+ * Transient failures are lost connections (SQLSTATE class 08), serialization failures and
+ * deadlocks, server shutdowns and restarts, and writes that landed on a read-only node
+ * during a failover. Waits grow exponentially with full jitter, so tasks that failed at
+ * the same moment do not reconnect at the same moment.
+ */
+public class RetryPolicy {
+
+    // serialization failure, deadlock, admin/crash shutdown, cannot connect now,
+    // too many connections, read-only transaction (failover to a standby)
+    private static final Set<String> TRANSIENT_STATES = Set.of(
+            "40001", "40P01", "57P01", "57P02", "57P03", "53300", "25006");
+
+    private final int maxAttempts;
+    private final long baseDelayMillis;
+    private final long maxDelayMillis;
+
+    public RetryPolicy(int maxAttempts, long baseDelayMillis, long maxDelayMillis) {
+        this.maxAttempts = Math.max(0, maxAttempts);
+        this.baseDelayMillis = Math.max(1, baseDelayMillis);
+        this.maxDelayMillis = Math.max(this.baseDelayMillis, maxDelayMillis);
+    }
+
+    /**
+     * Retries allowed for one batch
+     */
+    public int getMaxAttempts() {
+        return maxAttempts;
+    }
+
+    /**
+     * Wait before the given retry (0-based): uniform in [0, min(max, base * 2^retry)]
+     */
+    public long backoffMillis(int retry) {
+        long ceiling = baseDelayMillis << Math.min(retry, 20);
+        ceiling = Math.min(maxDelayMillis, ceiling);
+        return ThreadLocalRandom.current().nextLong(ceiling + 1);
+    }
+
+    public static boolean isTransient(Throwable error) {
+        for (Throwable cause = error; cause != null; cause = cause.getCause()) {
+            if (cause instanceof SQLTransientException || cause instanceof SQLRecoverableException) {
+                return true;
+            }
+            if (cause instanceof SQLException) {
+                String state = ((SQLException) cause).getSQLState();
+                if (state != null && (state.startsWith("08") || TRANSIENT_STATES.contains(state))) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,82 @@
+package com.sahil.backend.service.worker;
+
+import org.bson.RawBsonDocument;
+
+import java.util.List;
+
+/**
+ * A batch of documents after the transform stage, ready for a {@link RowSink} to write.
+ * COPY batches carry pre-encoded binary tuples; INSERT batches carry converted column values,
+ * held column by column in {@link RowColumns}.
+ * A batch that failed to convert carries only its source documents, so the writer can
+ * isolate the bad ones.
+ */
+public class RowBatch {
+
+    private final int rowCount;
+    private final Object lastId;
+    private final byte[] encodedRows;
+    private final RowColumns values;
+    private final List<RawBsonDocument> documents;
+
+    private RowBatch(int rowCount, Object lastId, byte[] encodedRows, RowColumns values,
+            List<RawBsonDocument> documents) {
+        this.rowCount = rowCount;
+        this.lastId = lastId;
+        this.encodedRows = encodedRows;
+        this.values = values;
+        this.documents = documents;
+    }
+
+    public static RowBatch encoded(int rowCount, Object lastId, byte[] encodedRows) {
+        return new RowBatch(rowCount, lastId, encodedRows, null, null);
+    }
+
+    public static RowBatch values(Object lastId, RowColumns values) {
+        return new RowBatch(values.getRowCount(), lastId, null, values, null);
+    }
+
+    /**
+     * A batch whose documents could not all be converted
+     */
+    public static RowBatch unconverted(Object lastId, List<RawBsonDocument> documents) {
+        return new RowBatch(documents.size(), lastId, null, null, documents);
+    }
+
+    /**
+     * The same batch holding on to its source documents, for isolating rows the target rejects
+     */
+    public RowBatch withDocuments(List<RawBsonDocument> documents) {
+        return new RowBatch(rowCount, lastId, encodedRows, values, documents);
+    }
+
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    /**
+     * _id of the last document in the batch, the resume position once it is committed
+     */
+    public Object getLastId() {
+        return lastId;
+    }
+
+    public byte[] getEncodedRows() {
+        return encodedRows;
+    }
+
+    public RowColumns getValues() {
+        return values;
+    }
+
+    /**
+     * Source documents of the batch, or null when they were not kept
+     */
+    public List<RawBsonDocument> getDocuments() {
+        return documents;
+    }
+
+    public boolean isUnconverted() {
+        return encodedRows == null && values == null;
+    }
+}
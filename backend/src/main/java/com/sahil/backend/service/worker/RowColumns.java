@@ -0,0 +1,138 @@
+package com.sahil.backend.service.worker;
+
+/**
+ * Converted INSERT rows of one batch, stored column by column. INT4, INT8, FLOAT8 and
+ * BOOLEAN columns live in primitive arrays with a null mask, so their values are converted
+ * and bound without allocating a box each; other kinds hold their converted objects.
+ */
+public final class RowColumns {
+
+    private final RowValueConverter.ColumnKind[] kinds;
+    private final int rowCount;
+    private final boolean[][] nulls;
+    private final int[][] ints;
+    private final long[][] longs;
+    private final double[][] doubles;
+    private final boolean[][] booleans;
+    private final Object[][] objects;
+
+    public RowColumns(RowValueConverter.ColumnKind[] kinds, int rowCount) {
+        this.kinds = kinds;
+        this.rowCount = rowCount;
+        this.nulls = new boolean[kinds.length][];
+        this.ints = new int[kinds.length][];
+        this.longs = new long[kinds.length][];
+        this.doubles = new double[kinds.length][];
+        this.booleans = new boolean[kinds.length][];
+        this.objects = new Object[kinds.length][];
+        for (int c = 0; c < kinds.length; c++) {
+            nulls[c] = new boolean[rowCount];
+            switch (kinds[c]) {
+                case INT4:
+                    ints[c] = new int[rowCount];
+                    break;
+                case INT8:
+                    longs[c] = new long[rowCount];
+                    break;
+                case FLOAT8:
+                    doubles[c] = new double[rowCount];
+                    break;
+                case BOOLEAN:
+                    booleans[c] = new boolean[rowCount];
+                    break;
+                default:
+                    objects[c] = new Object[rowCount];
+            }
+        }
+    }
+
+    public int getColumnCount() {
+        return kinds.length;
+    }
+
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    public RowValueConverter.ColumnKind getKind(int column) {
+        return kinds[column];
+    }
+
+    public boolean isNull(int column, int row) {
+        return nulls[column][row];
+    }
+
+    public void setNull(int column, int row) {
+        nulls[column][row] = true;
+    }
+
+    public int getInt(int column, int row) {
+        return ints[column][row];
+    }
+
+    public void setInt(int column, int row, int value) {
+        ints[column][row] = value;
+    }
+
+    public long getLong(int column, int row) {
+        return longs[column][row];
+    }
+
+    public void setLong(int column, int row, long value) {
+        longs[column][row] = value;
+    }
+
+    public double getDouble(int column, int row) {
+        return doubles[column][row];
+    }
+
+    public void setDouble(int column, int row, double value) {
+        doubles[column][row] = value;
+    }
+
+    public boolean getBoolean(int column, int row) {
+        return booleans[column][row];
+    }
+
+    public void setBoolean(int column, int row, boolean value) {
+        booleans[column][row] = value;
+    }
+
+    /**
+     * Value of a UUID, TIMESTAMP, JSON or TEXT column
+     */
+    public Object getObject(int column, int row) {
+        return objects[column][row];
+    }
+
+    /**
+     * Sets a UUID, TIMESTAMP, JSON or TEXT value; a null value marks the cell null
+     */
+    public void setObject(int column, int row, Object value) {
+        if (value == null) {
+            nulls[column][row] = true;
+        } else {
+            objects[column][row] = value;
+        }
+    }
+
+    /**
+     * Rough size of one value on the wire, used for progress reporting
+     */
+    public long estimateSize(int column, int row) {
+        if (nulls[column][row]) {
+            return 0;
+        }
+        switch (kinds[column]) {
+            case INT4:
+                return 4;
+            case INT8:
+            case FLOAT8:
+                return 8;
+            case BOOLEAN:
+                return 1;
+            default:
+                return RowValueConverter.estimateSize(objects[column][row]);
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package com.sahil.backend.service.worker;
+
+/**
+ * A document value that cannot be converted to its column's type, such as a malformed number
+ * or timestamp. The fault is in the row, so the batch holding it is bisected and the document
+ * dead-lettered instead of failing the task.
+ */
+public class RowConversionException extends RuntimeException {
+
+    public RowConversionException(String message) {
+        super(message);
+    }
+
+    public RowConversionException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,30 @@
+package com.sahil.backend.service.worker;
+
+import org.bson.BsonDocument;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.List;
+
+/**
+ * Writes batches of converted MongoDB documents into a target PostgreSQL table.
+ * Encoding runs on the pipeline's transform stage and writing on its writer stage.
+ */
+public interface RowSink {
+
+    /**
+     * Short name of the load method, as used in the plan's "loadMethod" field
+     */
+    String getName();
+
+    /**
+     * Converts a batch of documents into the form this sink sends to PostgreSQL
+     */
+    RowBatch encode(CompiledTableMapping mapping, List<? extends BsonDocument> documents);
+
+    /**
+     * Writes one encoded batch on the given connection and returns the number of bytes sent
+     */
+    long write(Connection connection, String targetTable, CompiledTableMapping mapping, RowBatch batch)
+            throws SQLException;
+}
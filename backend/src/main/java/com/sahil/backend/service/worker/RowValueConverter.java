@@ -0,0 +1,442 @@
+package com.sahil.backend.service.worker;
+
+import org.bson.BsonDocument;
+import org.bson.BsonDocumentReader;
+import org.bson.BsonInvalidOperationException;
+import org.bson.BsonValue;
+import org.bson.Document;
+import org.bson.codecs.DecoderContext;
+import org.bson.codecs.DocumentCodec;
+import org.bson.json.JsonMode;
+import org.bson.json.JsonWriterSettings;
+import org.bson.types.Decimal128;
+import org.bson.types.ObjectId;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.DateTimeException;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Converts MongoDB field values into Java values matching the plan's SQL data types.
+ */
+public final class RowValueConverter {
+
+    private static final JsonWriterSettings JSON_SETTINGS = JsonWriterSettings.builder()
+            .outputMode(JsonMode.RELAXED)
+            .build();
+
+    private static final DocumentCodec DOCUMENT_CODEC = new DocumentCodec();
+
+    /**
+     * Conversion target of a column, resolved once from its plan data type
+     */
+    public enum ColumnKind {
+        UUID, INT4, INT8, FLOAT8, BOOLEAN, TIMESTAMP, JSON, TEXT
+    }
+
+    private RowValueConverter() {
+    }
+
+    /**
+     * Normalizes a plan data type, e.g. "VARCHAR(255)" becomes "VARCHAR"
+     */
+    public static String baseType(String dataType) {
+        if (dataType == null) {
+            return "TEXT";
+        }
+        int paren = dataType.indexOf('(');
+        String base = paren >= 0 ? dataType.substring(0, paren) : dataType;
+        return base.trim().toUpperCase();
+    }
+
+    /**
+     * Maps a plan data type to its conversion target; unknown types are converted to text
+     */
+    public static ColumnKind kindOf(String dataType) {
+        switch (baseType(dataType)) {
+            case "UUID":
+                return ColumnKind.UUID;
+            case "INTEGER":
+            case "INT":
+            case "INT4":
+                return ColumnKind.INT4;
+            case "BIGINT":
+            case "INT8":
+                return ColumnKind.INT8;
+            case "DOUBLE PRECISION":
+            case "FLOAT8":
+                return ColumnKind.FLOAT8;
+            case "BOOLEAN":
+                return ColumnKind.BOOLEAN;
+            case "TIMESTAMP":
+                return ColumnKind.TIMESTAMP;
+            case "JSONB":
+            case "JSON":
+                return ColumnKind.JSON;
+            default:
+                return ColumnKind.TEXT;
+        }
+    }
+
+    /**
+     * Converts a document value to the Java type expected for the given SQL data type
+     */
+    public static Object convert(Object value, String dataType) {
+        return convert(value, kindOf(dataType));
+    }
+
+    /**
+     * Converts a document value to the Java type of a column kind. Values that already
+     * have that type are returned as they are, so no new box is allocated for them.
+     * A value that does not parse as the column's type throws {@link RowConversionException}.
+     */
+    public static Object convert(Object value, ColumnKind kind) {
+        if (value == null) {
+            return null;
+        }
+        try {
+            return convertValue(value, kind);
+        } catch (IllegalArgumentException | DateTimeException e) {
+            throw new RowConversionException("Cannot convert " + value.getClass().getSimpleName() + " value to "
+                    + kind + ": " + e.getMessage(), e);
+        }
+    }
+
+    private static Object convertValue(Object value, ColumnKind kind) {
+        switch (kind) {
+            case UUID:
+                return toUuid(value);
+            case INT4:
+                return value instanceof Integer ? value : toInt(value);
+            case INT8:
+                return value instanceof Long ? value : toLong(value);
+            case FLOAT8:
+                return value instanceof Double ? value : toDouble(value);
+            case BOOLEAN:
+                return value instanceof Boolean ? value : Boolean.parseBoolean(value.toString());
+            case TIMESTAMP:
+                if (value instanceof Date) {
+                    return LocalDateTime.ofInstant(((Date) value).toInstant(), ZoneOffset.UTC);
+                }
+                return LocalDateTime.parse(value.toString());
+            case JSON:
+                return toJson(value);
+            default:
+                if (value instanceof ObjectId) {
+                    return ((ObjectId) value).toHexString();
+                }
+                if (value instanceof Document || value instanceof List) {
+                    return toJson(value);
+                }
+                return value.toString();
+        }
+    }
+
+    /**
+     * Narrows a number to an INTEGER value. Fractions and values out of range throw
+     * {@link RowConversionException} instead of being truncated or wrapped.
+     */
+    public static int toInt(Object value) {
+        if (value instanceof Integer) {
+            return (Integer) value;
+        }
+        if (value instanceof Number) {
+            return toIntExact(toLong(value));
+        }
+        return Integer.parseInt(value.toString());
+    }
+
+    /**
+     * Narrows a number to a BIGINT value. Fractions and values out of range throw
+     * {@link RowConversionException} instead of being truncated or wrapped.
+     */
+    public static long toLong(Object value) {
+        if (value instanceof Decimal128) {
+            return toLongExact((Decimal128) value);
+        }
+        if (value instanceof Double || value instanceof Float) {
+            return toLongExact(((Number) value).doubleValue());
+        }
+        if (value instanceof Number) {
+            return ((Number) value).longValue();
+        }
+        return Long.parseLong(value.toString());
+    }
+
+    public static double toDouble(Object value) {
+        if (value instanceof Decimal128) {
+            return ((Decimal128) value).doubleValue();
+        }
+        return value instanceof Number ? ((Number) value).doubleValue() : Double.parseDouble(value.toString());
+    }
+
+    /**
+     * Maps a MongoDB _id to a stable UUID so repeated runs produce the same key
+     */
+    public static UUID toUuid(Object value) {
+        if (value instanceof UUID) {
+            return (UUID) value;
+        }
+        if (value instanceof ObjectId) {
+            return UUID.nameUUIDFromBytes(((ObjectId) value).toByteArray());
+        }
+        String text = value.toString();
+        try {
+            return UUID.fromString(text);
+        } catch (IllegalArgumentException e) {
+            return UUID.nameUUIDFromBytes(text.getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    /**
+     * Serializes nested documents, arrays and scalars to JSON text
+     */
+    public static String toJson(Object value) {
+        if (value == null) {
+            return "null";
+        }
+        if (value instanceof Document) {
+            return ((Document) value).toJson(JSON_SETTINGS);
+        }
+        if (value instanceof List) {
+            StringBuilder sb = new StringBuilder("[");
+            List<?> list = (List<?>) value;
+            for (int i = 0; i < list.size(); i++) {
+                if (i > 0) {
+                    sb.append(",");
+                }
+                sb.append(toJson(list.get(i)));
+            }
+            return sb.append("]").toString();
+        }
+
+        // Wrap scalars so the BSON JSON writer handles extended types
+        String wrapped = new Document("v", value).toJson(JSON_SETTINGS);
+        return wrapped.substring(wrapped.indexOf(':') + 1, wrapped.length() - 1).trim();
+    }
+
+    /**
+     * Converts a raw BSON field value to the Java type of a column kind. Numbers, booleans,
+     * dates, strings and ObjectIds are read off the BSON value directly and nested documents
+     * are written to JSON from their BSON bytes; only other types are decoded as a Document
+     * value first.
+     */
+    public static Object convert(BsonValue value, ColumnKind kind) {
+        if (value == null || value.isNull()) {
+            return null;
+        }
+        try {
+            return convertValue(value, kind);
+        } catch (IllegalArgumentException | DateTimeException | BsonInvalidOperationException e) {
+            throw new RowConversionException("Cannot convert " + value.getBsonType() + " value to "
+                    + kind + ": " + e.getMessage(), e);
+        }
+    }
+
+    private static Object convertValue(BsonValue value, ColumnKind kind) {
+        switch (kind) {
+            case UUID:
+                return toUuid(value);
+            case INT4:
+                return toInt(value);
+            case INT8:
+                return toLong(value);
+            case FLOAT8:
+                return toDouble(value);
+            case BOOLEAN:
+                return toBoolean(value);
+            case TIMESTAMP:
+                if (value.isDateTime()) {
+                    return LocalDateTime.ofInstant(Instant.ofEpochMilli(value.asDateTime().getValue()), ZoneOffset.UTC);
+                }
+                return LocalDateTime.parse(toText(value));
+            case JSON:
+                return toJson(value);
+            default:
+                return toText(value);
+        }
+    }
+
+    /**
+     * Narrows a BSON number to an INTEGER value, rejecting fractions and values out of range
+     */
+    public static int toInt(BsonValue value) {
+        if (value.isInt32()) {
+            return value.asInt32().getValue();
+        }
+        if (value.isInt64() || value.isDouble() || value.isDecimal128()) {
+            return toIntExact(toLong(value));
+        }
+        return Integer.parseInt(toText(value));
+    }
+
+    /**
+     * Narrows a BSON number to a BIGINT value, rejecting fractions and values out of range
+     */
+    public static long toLong(BsonValue value) {
+        if (value.isInt64()) {
+            return value.asInt64().getValue();
+        }
+        if (value.isInt32()) {
+            return value.asInt32().getValue();
+        }
+        if (value.isDouble()) {
+            return toLongExact(value.asDouble().getValue());
+        }
+        if (value.isDecimal128()) {
+            return toLongExact(value.asDecimal128().getValue());
+        }
+        return Long.parseLong(toText(value));
+    }
+
+    public static double toDouble(BsonValue value) {
+        if (value.isDouble()) {
+            return value.asDouble().getValue();
+        }
+        if (value.isInt32() || value.isInt64()) {
+            return value.asNumber().doubleValue();
+        }
+        if (value.isDecimal128()) {
+            return value.asDecimal128().getValue().doubleValue();
+        }
+        return Double.parseDouble(toText(value));
+    }
+
+    private static int toIntExact(long value) {
+        try {
+            return Math.toIntExact(value);
+        } catch (ArithmeticException e) {
+            throw new RowConversionException(value + " is out of range for INTEGER", e);
+        }
+    }
+
+    private static long toLongExact(double value) {
+        // 2^63 itself is out of range, so the upper bound is exclusive
+        if (value != Math.rint(value) || value < -0x1p63 || value >= 0x1p63) {
+            throw new RowConversionException(value + " is not a whole number in the range of BIGINT");
+        }
+        return (long) value;
+    }
+
+    private static long toLongExact(Decimal128 value) {
+        if (value.isNaN() || value.isInfinite()) {
+            throw new RowConversionException(value + " is not a whole number in the range of BIGINT");
+        }
+        BigDecimal decimal;
+        try {
+            decimal = value.bigDecimalValue();
+        } catch (ArithmeticException e) {
+            // Negative zero has no BigDecimal form
+            return 0;
+        }
+        try {
+            return decimal.longValueExact();
+        } catch (ArithmeticException e) {
+            throw new RowConversionException(value + " is not a whole number in the range of BIGINT", e);
+        }
+    }
+
+    public static boolean toBoolean(BsonValue value) {
+        return value.isBoolean() ? value.asBoolean().getValue() : Boolean.parseBoolean(toText(value));
+    }
+
+    public static UUID toUuid(BsonValue value) {
+        if (value.isObjectId()) {
+            return UUID.nameUUIDFromBytes(value.asObjectId().getValue().toByteArray());
+        }
+        return toUuid(value.isString() ? value.asString().getValue() : toJava(value));
+    }
+
+    /**
+     * Text form of a BSON value, matching what the Document path produces
+     */
+    public static String toText(BsonValue value) {
+        switch (value.getBsonType()) {
+            case STRING:
+                return value.asString().getValue();
+            case OBJECT_ID:
+                return value.asObjectId().getValue().toHexString();
+            case INT32:
+                return Integer.toString(value.asInt32().getValue());
+            case INT64:
+                return Long.toString(value.asInt64().getValue());
+            case DOUBLE:
+                return Double.toString(value.asDouble().getValue());
+            case BOOLEAN:
+                return Boolean.toString(value.asBoolean().getValue());
+            case DOCUMENT:
+            case ARRAY:
+                return toJson(value);
+            default:
+                return convert(toJava(value), ColumnKind.TEXT).toString();
+        }
+    }
+
+    /**
+     * Serializes a BSON value to JSON text. Raw nested documents are piped from their bytes
+     * into the JSON writer without being decoded into maps.
+     */
+    public static String toJson(BsonValue value) {
+        if (value == null || value.isNull()) {
+            return "null";
+        }
+        if (value.isDocument()) {
+            return value.asDocument().toJson(JSON_SETTINGS);
+        }
+        if (value.isArray()) {
+            StringBuilder sb = new StringBuilder("[");
+            boolean first = true;
+            for (BsonValue element : value.asArray()) {
+                if (!first) {
+                    sb.append(",");
+                }
+                sb.append(toJson(element));
+                first = false;
+            }
+            return sb.append("]").toString();
+        }
+
+        String wrapped = new BsonDocument("v", value).toJson(JSON_SETTINGS);
+        return wrapped.substring(wrapped.indexOf(':') + 1, wrapped.length() - 1).trim();
+    }
+
+    /**
+     * Decodes a BSON value into the Java value a Document would hold for it
+     */
+    public static Object toJava(BsonValue value) {
+        if (value == null) {
+            return null;
+        }
+        Document holder = DOCUMENT_CODEC.decode(
+                new BsonDocumentReader(new BsonDocument("v", value)), DecoderContext.builder().build());
+        return holder.get("v");
+    }
+
+    /**
+     * Rough size of a converted value on the wire, used for progress reporting
+     */
+    public static long estimateSize(Object value) {
+        if (value == null) {
+            return 0;
+        }
+        if (value instanceof String) {
+            return ((String) value).length();
+        }
+        if (value instanceof UUID) {
+            return 16;
+        }
+        if (value instanceof Integer) {
+            return 4;
+        }
+        if (value instanceof Boolean) {
+            return 1;
+        }
+        return 8;
+    }
+}
@@ -0,0 +1,73 @@
+package com.sahil.backend.service.worker;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Stop signal of one run, checked by its tasks at batch boundaries. A pause or cancel makes
+ * readers stop at the next batch, lets the batches already read commit, and keeps tasks that
+ * have not started from starting. The run then ends as PAUSED or CANCELLED; a paused run is
+ * continued from its checkpoints by resuming it.
+ */
+public class RunControl {
+
+    public static final String PAUSED = "PAUSED";
+    public static final String CANCELLED = "CANCELLED";
+
+    private final CompletableFuture<String> drained = new CompletableFuture<>();
+
+    private volatile String stopStatus;
+
+    public void pause() {
+        stop(PAUSED);
+    }
+
+    /**
+     * Cancelling also overrides a pause that is still draining
+     */
+    public synchronized void cancel() {
+        stopStatus = CANCELLED;
+    }
+
+    private synchronized void stop(String status) {
+        if (stopStatus == null) {
+            stopStatus = status;
+        }
+    }
+
+    public boolean isStopping() {
+        return stopStatus != null;
+    }
+
+    public boolean isCancelled() {
+        return CANCELLED.equals(stopStatus);
+    }
+
+    /**
+     * PAUSED or CANCELLED once a stop was requested, otherwise null
+     */
+    public String getStopStatus() {
+        return stopStatus;
+    }
+
+    /**
+     * Called once the run has finished, with its final status
+     */
+    public void markDrained(String finalStatus) {
+        drained.complete(finalStatus);
+    }
+
+    /**
+     * Waits up to the timeout for the run to finish; returns its final status, or null if it
+     * is still draining
+     */
+    public String awaitDrained(long timeout, TimeUnit unit) throws InterruptedException {
+        try {
+            return drained.get(timeout, unit);
+        } catch (TimeoutException | ExecutionException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,205 @@
+package com.sahil.backend.service.worker;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BooleanSupplier;
+import java.util.function.LongSupplier;
+
+/**
+ * Caps how hard one run reads from its source cluster. All reader tasks of the run draw from
+ * shared documents/sec and bytes/sec token buckets, and reads stop while the source's
+ * replication lag is above a threshold. A budget or threshold of 0 means no limit.
+ */
+public class SourceReadGovernor {
+
+    // Bucket capacity in seconds of budget: how far readers may burst after being idle
+    private static final double BURST_SECONDS = 1.0;
+
+    private static final long LAG_CHECK_INTERVAL_MILLIS = 10_000;
+    private static final long PAUSE_POLL_MILLIS = 5_000;
+
+    // How often a waiting reader rechecks its stop signal
+    private static final long STOP_CHECK_MILLIS = 200;
+
+    private final long docsPerSecond;
+    private final long bytesPerSecond;
+    private final long maxLagSeconds;
+
+    // Seconds the most lagged secondary is behind the primary, or -1 when unknown
+    private final LongSupplier lagProbe;
+
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private double docTokens;
+    private double byteTokens;
+    private long refilledAt = System.nanoTime();
+    private long lagCheckedAt;
+    private long lagSeconds = -1;
+    private boolean paused;
+    private long pauses;
+    private long throttledNanos;
+
+    public SourceReadGovernor(long docsPerSecond, long bytesPerSecond, long maxLagSeconds, LongSupplier lagProbe) {
+        this.docsPerSecond = Math.max(0, docsPerSecond);
+        this.bytesPerSecond = Math.max(0, bytesPerSecond);
+        this.maxLagSeconds = Math.max(0, maxLagSeconds);
+        this.lagProbe = lagProbe;
+        this.docTokens = this.docsPerSecond * BURST_SECONDS;
+        this.byteTokens = this.bytesPerSecond * BURST_SECONDS;
+    }
+
+    /**
+     * Takes budget for documents a reader just pulled off its cursor, waiting while the
+     * source is lagging and for as long as the run is over budget. Tokens are reserved
+     * before the wait, so concurrent readers queue up behind each other instead of racing.
+     * Returns false if the stop signal was raised while waiting.
+     */
+    public boolean acquire(int docs, long bytes, BooleanSupplier stopSignal) throws InterruptedException {
+        if (!awaitReplication(stopSignal)) {
+            return false;
+        }
+        if (docsPerSecond == 0 && bytesPerSecond == 0) {
+            return true;
+        }
+
+        long waitNanos;
+        lock.lock();
+        try {
+            refill();
+            docTokens -= docs;
+            byteTokens -= bytes;
+            waitNanos = Math.max(deficitNanos(docTokens, docsPerSecond), deficitNanos(byteTokens, bytesPerSecond));
+            throttledNanos += waitNanos;
+        } finally {
+            lock.unlock();
+        }
+        return sleep(waitNanos, stopSignal);
+    }
+
+    /**
+     * Cursor batch size that keeps one server round trip within a second of the document budget
+     */
+    public int cursorBatchSize(int requested) {
+        if (docsPerSecond == 0) {
+            return requested;
+        }
+        return (int) Math.max(1, Math.min(requested, docsPerSecond));
+    }
+
+    private boolean awaitReplication(BooleanSupplier stopSignal) throws InterruptedException {
+        if (maxLagSeconds == 0 || lagProbe == null) {
+            return true;
+        }
+        while (true) {
+            lock.lock();
+            boolean wait;
+            try {
+                checkLag();
+                wait = paused;
+            } finally {
+                lock.unlock();
+            }
+            if (!wait) {
+                return true;
+            }
+            if (!sleep(TimeUnit.MILLISECONDS.toNanos(PAUSE_POLL_MILLIS), stopSignal)) {
+                return false;
+            }
+        }
+    }
+
+    /**
+     * Sleeps in short steps so a stop signal is noticed; returns false if it was raised
+     */
+    private static boolean sleep(long nanos, BooleanSupplier stopSignal) throws InterruptedException {
+        long deadline = System.nanoTime() + nanos;
+        while (true) {
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) {
+                return true;
+            }
+            if (stopSignal.getAsBoolean()) {
+                return false;
+            }
+            TimeUnit.NANOSECONDS.sleep(Math.min(remaining, TimeUnit.MILLISECONDS.toNanos(STOP_CHECK_MILLIS)));
+        }
+    }
+
+    /**
+     * Pauses above the threshold and resumes once the lag is back under half of it,
+     * so reads do not flap around the limit
+     */
+    private void checkLag() {
+        long now = System.currentTimeMillis();
+        long interval = paused ? PAUSE_POLL_MILLIS : LAG_CHECK_INTERVAL_MILLIS;
+        if (now - lagCheckedAt < interval) {
+            return;
+        }
+        lagCheckedAt = now;
+        lagSeconds = lagProbe.getAsLong();
+
+        if (lagSeconds < 0) {
+            // Unknown lag (standalone source or no clusterMonitor role) never blocks reads
+            paused = false;
+        } else if (!paused && lagSeconds > maxLagSeconds) {
+            paused = true;
+            pauses++;
+            System.err.println("⏸️ Source replication lag " + lagSeconds + "s is above " + maxLagSeconds
+                    + "s, pausing source reads");
+        } else if (paused && lagSeconds <= maxLagSeconds / 2) {
+            paused = false;
+            System.out.println("▶️ Source replication lag back to " + lagSeconds + "s, resuming source reads");
+        }
+    }
+
+    private void refill() {
+        long now = System.nanoTime();
+        double seconds = (now - refilledAt) / 1_000_000_000.0;
+        refilledAt = now;
+        docTokens = Math.min(docsPerSecond * BURST_SECONDS, docTokens + seconds * docsPerSecond);
+        byteTokens = Math.min(bytesPerSecond * BURST_SECONDS, byteTokens + seconds * bytesPerSecond);
+    }
+
+    private static long deficitNanos(double tokens, long ratePerSecond) {
+        if (ratePerSecond == 0 || tokens >= 0) {
+            return 0;
+        }
+        return (long) (-tokens / ratePerSecond * 1_000_000_000L);
+    }
+
+    public boolean isPaused() {
+        lock.lock();
+        try {
+            return paused;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long getLagSeconds() {
+        lock.lock();
+        try {
+            return lagSeconds;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long getPauses() {
+        lock.lock();
+        try {
+            return pauses;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long getThrottledMillis() {
+        lock.lock();
+        try {
+            return throttledNanos / 1_000_000;
+        } finally {
+            lock.unlock();
+        }
+    }
+}
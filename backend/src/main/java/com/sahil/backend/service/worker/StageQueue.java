@@ -0,0 +1,112 @@
+package com.sahil.backend.service.worker;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded hand-off between two pipeline stages. A full queue blocks the producer, which is the
+ * backpressure; time spent blocked on either side is recorded so a slow stage can be identified.
+ */
+public class StageQueue<T> {
+
+    private static final Object END = new Object();
+    private static final long POLL_MILLIS = 50;
+
+    private final ArrayBlockingQueue<Object> queue;
+    private final LongAdder producerBlockedNanos = new LongAdder();
+    private final LongAdder consumerWaitNanos = new LongAdder();
+
+    private volatile boolean aborted = false;
+    private volatile Throwable failure;
+
+    public StageQueue(int capacity) {
+        this.queue = new ArrayBlockingQueue<>(capacity);
+    }
+
+    /**
+     * Blocks while the queue is full; throws CancellationException once the pipeline is aborted
+     */
+    public void put(T item) throws InterruptedException {
+        offer(item);
+    }
+
+    /**
+     * Signals that the producer has no more items
+     */
+    public void close() throws InterruptedException {
+        offer(END);
+    }
+
+    /**
+     * Passes an upstream failure to the consumer
+     */
+    public void fail(Throwable error) {
+        this.failure = error;
+    }
+
+    /**
+     * Stops both sides and drops anything still queued
+     */
+    public void abort() {
+        aborted = true;
+        queue.clear();
+    }
+
+    /**
+     * Returns the next item, or null when the producer has closed the queue
+     */
+    @SuppressWarnings("unchecked")
+    public T take() throws Exception {
+        long start = System.nanoTime();
+        try {
+            while (true) {
+                Object item = queue.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+                if (item == END) {
+                    return null;
+                }
+                if (item != null) {
+                    return (T) item;
+                }
+                if (failure != null) {
+                    throw new RuntimeException("Upstream stage failed: " + failure.getMessage(), failure);
+                }
+                if (aborted) {
+                    throw new CancellationException("Pipeline aborted");
+                }
+            }
+        } finally {
+            consumerWaitNanos.add(System.nanoTime() - start);
+        }
+    }
+
+    private void offer(Object item) throws InterruptedException {
+        long start = System.nanoTime();
+        try {
+            while (!queue.offer(item, POLL_MILLIS, TimeUnit.MILLISECONDS)) {
+                if (aborted) {
+                    throw new CancellationException("Pipeline aborted");
+                }
+            }
+        } finally {
+            producerBlockedNanos.add(System.nanoTime() - start);
+        }
+    }
+
+    public int size() {
+        return queue.size();
+    }
+
+    public int capacity() {
+        return queue.size() + queue.remainingCapacity();
+    }
+
+    public long getProducerBlockedNanos() {
+        return producerBlockedNanos.sum();
+    }
+
+    public long getConsumerWaitNanos() {
+        return consumerWaitNanos.sum();
+    }
+}
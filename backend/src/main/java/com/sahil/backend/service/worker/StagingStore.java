@@ -0,0 +1,735 @@
+package com.sahil.backend.service.worker;
+
+import net.jpountz.lz4.LZ4Compressor;
+import net.jpountz.lz4.LZ4Factory;
+import net.jpountz.lz4.LZ4FastDecompressor;
+import org.bson.ByteBuf;
+import org.bson.RawBsonDocument;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BooleanSupplier;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Local staging area for one task unit. The transform stage appends encoded row batches to
+ * memory-mapped segment files and the writer stage loads them from there, so extraction is
+ * not held back by the target, and a restarted load replays staged batches instead of
+ * reading the source again. A segment is deleted once every batch in it is committed.
+ *
+ * Record layout: magic, flags, row count, raw length, stored length, CRC32 of the stored
+ * bytes, last _id (length-prefixed UTF-8), then the stored payload. A zero int ends a segment.
+ */
+public class StagingStore {
+
+    private static final int MAGIC = 0x53544731;
+    private static final int FLAG_LZ4 = 1;
+    private static final int FLAG_VALUES = 2;
+    private static final int FLAG_DOCUMENTS = 4;
+    private static final int HEADER_BYTES = 4 + 1 + 4 + 4 + 4 + 4 + 2;
+
+    // Written once extraction has staged every batch of the unit
+    private static final String SEALED_MARKER = "sealed";
+
+    private static final long POLL_MILLIS = 50;
+
+    // Column kind tags of the INSERT row format
+    private static final byte TAG_INT = 1;
+    private static final byte TAG_LONG = 2;
+    private static final byte TAG_DOUBLE = 3;
+    private static final byte TAG_BOOLEAN = 4;
+    private static final byte TAG_STRING = 5;
+    private static final byte TAG_UUID = 6;
+    private static final byte TAG_TIMESTAMP = 7;
+    private static final byte TAG_JSON = 8;
+
+    private static final LZ4Factory LZ4 = LZ4Factory.fastestInstance();
+
+    private final Path directory;
+    private final long segmentBytes;
+    private final boolean compress;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition recordAdded = lock.newCondition();
+
+    private final List<Segment> segments = new ArrayList<>();
+    private final ArrayDeque<Record> pending = new ArrayDeque<>();
+    private final ArrayDeque<Record> inFlight = new ArrayDeque<>();
+    private Segment writeSegment;
+    private boolean sealed;
+    private String lastStagedId;
+    private long pendingBytes;
+
+    private volatile Throwable failure;
+    private volatile boolean aborted;
+
+    public StagingStore(Path directory, long segmentBytes, boolean compress) {
+        this.directory = directory;
+        this.segmentBytes = segmentBytes;
+        this.compress = compress;
+    }
+
+    /**
+     * Opens the unit's staging directory, recovering the batches a previous attempt staged.
+     * Batches up to and including the committed checkpoint are dropped; a torn record at the
+     * end of the last segment is cut off.
+     */
+    public void open(String committedLastId) throws IOException {
+        Files.createDirectories(directory);
+        List<Path> files;
+        try (Stream<Path> listing = Files.list(directory)) {
+            files = listing.filter(path -> path.getFileName().toString().startsWith("seg-"))
+                    .sorted(Comparator.comparing(path -> path.getFileName().toString()))
+                    .toList();
+        }
+
+        sealed = Files.exists(directory.resolve(SEALED_MARKER));
+        List<Record> recovered = new ArrayList<>();
+        boolean torn = false;
+        for (Path file : files) {
+            if (torn) {
+                Files.deleteIfExists(file);
+                continue;
+            }
+            Segment segment = Segment.map(file, Files.size(file));
+            segments.add(segment);
+            torn = !scan(segment, recovered);
+        }
+        if (torn && sealed) {
+            Files.deleteIfExists(directory.resolve(SEALED_MARKER));
+            sealed = false;
+        }
+
+        int firstUncommitted = 0;
+        Object committed = IdRange.decodeBound(committedLastId);
+        for (int i = 0; i < recovered.size(); i++) {
+            String lastId = recovered.get(i).lastId;
+            if (lastId.equals(committedLastId) || (IdRange.isOrderable(committed)
+                    && IdRange.compare(IdRange.decodeBound(lastId), committed) <= 0)) {
+                firstUncommitted = i + 1;
+            }
+        }
+        if (!recovered.isEmpty()) {
+            lastStagedId = recovered.get(recovered.size() - 1).lastId;
+        }
+
+        for (Segment segment : segments) {
+            segment.full = true;
+        }
+        for (int i = firstUncommitted; i < recovered.size(); i++) {
+            Record record = recovered.get(i);
+            record.segment.liveRecords++;
+            pending.add(record);
+            pendingBytes += record.length;
+        }
+        for (Segment segment : new ArrayList<>(segments)) {
+            if (segment.liveRecords == 0) {
+                dropSegment(segment);
+            }
+        }
+        if (!sealed && !segments.isEmpty()) {
+            writeSegment = segments.get(segments.size() - 1);
+            writeSegment.full = false;
+        }
+    }
+
+    /**
+     * Reads the records of a segment; returns false if it ends in a torn record
+     */
+    private boolean scan(Segment segment, List<Record> into) {
+        MappedByteBuffer buffer = segment.buffer;
+        int position = 0;
+        while (position + 4 <= buffer.capacity()) {
+            int magic = buffer.getInt(position);
+            if (magic == 0) {
+                segment.writePosition = position;
+                return true;
+            }
+            Record record = magic == MAGIC ? readHeader(segment, position) : null;
+            if (record == null || !checksumMatches(record)) {
+                buffer.putInt(position, 0);
+                segment.writePosition = position;
+                return false;
+            }
+            into.add(record);
+            position += record.length;
+        }
+        segment.writePosition = position;
+        return true;
+    }
+
+    /**
+     * The _id of the last staged batch, where extraction continues after a restart
+     */
+    public String getLastStagedId() {
+        return lastStagedId;
+    }
+
+    /**
+     * Whether extraction already staged every batch, so the source need not be read again
+     */
+    public boolean isSealed() {
+        lock.lock();
+        try {
+            return sealed;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Transform stage: stages one encoded batch
+     */
+    public void append(RowBatch batch) throws IOException {
+        byte[] raw;
+        int flags;
+        if (batch.isUnconverted()) {
+            // Kept as raw BSON so the writer can isolate the documents that fail to convert
+            raw = concatDocuments(batch.getDocuments());
+            flags = FLAG_DOCUMENTS;
+        } else if (batch.getEncodedRows() == null) {
+            raw = encodeValues(batch.getValues());
+            flags = FLAG_VALUES;
+        } else {
+            raw = batch.getEncodedRows();
+            flags = 0;
+        }
+        byte[] stored = raw;
+        if (compress) {
+            LZ4Compressor compressor = LZ4.fastCompressor();
+            byte[] compressed = new byte[compressor.maxCompressedLength(raw.length)];
+            int compressedLength = compressor.compress(raw, 0, raw.length, compressed, 0, compressed.length);
+            stored = Arrays.copyOf(compressed, compressedLength);
+            flags |= FLAG_LZ4;
+        }
+
+        String lastId = IdRange.encodeBound(batch.getLastId());
+        byte[] id = lastId.getBytes(StandardCharsets.UTF_8);
+        int length = HEADER_BYTES + id.length + stored.length;
+        CRC32 crc = new CRC32();
+        crc.update(stored);
+
+        // Room for the record plus the zero int that ends the segment
+        Segment segment = writeSegment;
+        if (segment == null || segment.writePosition + length + 4 > segment.buffer.capacity()) {
+            segment = rollSegment(length + 4);
+        }
+
+        MappedByteBuffer buffer = segment.buffer;
+        int position = segment.writePosition;
+        buffer.putInt(position + 4 + 1 + 4 + 4 + 4, (int) crc.getValue());
+        buffer.put(position + 4, (byte) flags);
+        buffer.putInt(position + 4 + 1, batch.getRowCount());
+        buffer.putInt(position + 4 + 1 + 4, raw.length);
+        buffer.putInt(position + 4 + 1 + 4 + 4, stored.length);
+        buffer.putShort(position + HEADER_BYTES - 2, (short) id.length);
+        buffer.put(position + HEADER_BYTES, id, 0, id.length);
+        buffer.put(position + HEADER_BYTES + id.length, stored, 0, stored.length);
+        // The zero int after the record ends the segment until the next record overwrites it
+        buffer.putInt(position + length, 0);
+        // Magic last, so a crash mid-record leaves either nothing or a checksummed record
+        buffer.putInt(position, MAGIC);
+
+        Record record = new Record(segment, position, length, lastId, batch.getRowCount());
+        lock.lock();
+        try {
+            segment.writePosition = position + length;
+            segment.liveRecords++;
+            pending.add(record);
+            pendingBytes += length;
+            lastStagedId = lastId;
+            recordAdded.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Transform stage: marks extraction complete
+     */
+    public void seal() throws IOException {
+        if (writeSegment != null) {
+            writeSegment.buffer.force();
+        }
+        Files.createFile(directory.resolve(SEALED_MARKER));
+        lock.lock();
+        try {
+            sealed = true;
+            recordAdded.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Passes an extraction failure to the loader
+     */
+    public void fail(Throwable error) {
+        this.failure = error;
+    }
+
+    public void abort() {
+        aborted = true;
+    }
+
+    /**
+     * Writer stage: the next staged batch, or null once extraction is sealed and everything
+     * has been handed out, or once the stop signal is raised; remaining batches then stay
+     * staged for a later attempt. Call {@link #markCommitted()} after each batch is committed.
+     */
+    public RowBatch take(BooleanSupplier stopSignal) throws Exception {
+        Record record;
+        lock.lock();
+        try {
+            while (true) {
+                if (stopSignal.getAsBoolean()) {
+                    return null;
+                }
+                if (!pending.isEmpty()) {
+                    break;
+                }
+                if (sealed) {
+                    return null;
+                }
+                if (failure != null) {
+                    throw new RuntimeException("Upstream stage failed: " + failure.getMessage(), failure);
+                }
+                if (aborted) {
+                    throw new CancellationException("Pipeline aborted");
+                }
+                recordAdded.await(POLL_MILLIS, TimeUnit.MILLISECONDS);
+            }
+            record = pending.poll();
+            inFlight.add(record);
+        } finally {
+            lock.unlock();
+        }
+        return read(record);
+    }
+
+    /**
+     * Writer stage: the oldest batch handed out is committed; deletes its segment if that
+     * was the segment's last live batch
+     */
+    public void markCommitted() throws IOException {
+        lock.lock();
+        try {
+            Record record = inFlight.poll();
+            if (record == null) {
+                return;
+            }
+            pendingBytes -= record.length;
+            Segment segment = record.segment;
+            segment.liveRecords--;
+            if (segment.liveRecords == 0 && (segment.full || sealed)) {
+                dropSegment(segment);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Removes the unit's staging directory after it has been loaded completely
+     */
+    public void deleteAll() throws IOException {
+        lock.lock();
+        try {
+            for (Segment segment : segments) {
+                segment.close();
+            }
+            segments.clear();
+            writeSegment = null;
+        } finally {
+            lock.unlock();
+        }
+        deleteDirectory(directory);
+    }
+
+    /**
+     * Releases file handles and keeps the staged data for a later attempt
+     */
+    public void close() {
+        lock.lock();
+        try {
+            for (Segment segment : segments) {
+                segment.close();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Whether every staged batch of a sealed unit has been committed
+     */
+    public boolean isDrained() {
+        lock.lock();
+        try {
+            return sealed && pending.isEmpty() && inFlight.isEmpty();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getPendingBatches() {
+        lock.lock();
+        try {
+            return pending.size() + inFlight.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long getPendingBytes() {
+        lock.lock();
+        try {
+            return pendingBytes;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Staging directory of one task unit of a run
+     */
+    public static Path unitDirectory(Path root, UUID runId, UUID progressId) {
+        return root.resolve(runId.toString()).resolve(progressId.toString());
+    }
+
+    public static void deleteDirectory(Path path) throws IOException {
+        if (!Files.exists(path)) {
+            return;
+        }
+        try (Stream<Path> walk = Files.walk(path)) {
+            for (Path entry : walk.sorted(Comparator.reverseOrder()).toList()) {
+                Files.deleteIfExists(entry);
+            }
+        }
+    }
+
+    private Segment rollSegment(int minimumBytes) throws IOException {
+        lock.lock();
+        try {
+            if (writeSegment != null) {
+                writeSegment.buffer.force();
+                writeSegment.full = true;
+                if (writeSegment.liveRecords == 0) {
+                    dropSegment(writeSegment);
+                }
+            }
+            int index = segments.isEmpty() ? 1 : segments.get(segments.size() - 1).index + 1;
+            Path file = directory.resolve(String.format("seg-%06d.bin", index));
+            Segment segment = Segment.map(file, Math.max(segmentBytes, minimumBytes));
+            segments.add(segment);
+            writeSegment = segment;
+            return segment;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void dropSegment(Segment segment) throws IOException {
+        segment.close();
+        segments.remove(segment);
+        Files.deleteIfExists(segment.path);
+    }
+
+    private Record readHeader(Segment segment, int position) {
+        MappedByteBuffer buffer = segment.buffer;
+        if (position + HEADER_BYTES > buffer.capacity()) {
+            return null;
+        }
+        int storedLength = buffer.getInt(position + 4 + 1 + 4 + 4);
+        int idLength = Short.toUnsignedInt(buffer.getShort(position + HEADER_BYTES - 2));
+        long length = (long) HEADER_BYTES + idLength + storedLength;
+        if (storedLength < 0 || position + length > buffer.capacity()) {
+            return null;
+        }
+        byte[] id = new byte[idLength];
+        buffer.get(position + HEADER_BYTES, id, 0, idLength);
+        return new Record(segment, position, (int) length, new String(id, StandardCharsets.UTF_8),
+                buffer.getInt(position + 4 + 1));
+    }
+
+    private boolean checksumMatches(Record record) {
+        byte[] stored = storedBytes(record);
+        CRC32 crc = new CRC32();
+        crc.update(stored);
+        return (int) crc.getValue() == record.segment.buffer.getInt(record.offset + 4 + 1 + 4 + 4 + 4);
+    }
+
+    private byte[] storedBytes(Record record) {
+        MappedByteBuffer buffer = record.segment.buffer;
+        int idLength = Short.toUnsignedInt(buffer.getShort(record.offset + HEADER_BYTES - 2));
+        byte[] stored = new byte[buffer.getInt(record.offset + 4 + 1 + 4 + 4)];
+        buffer.get(record.offset + HEADER_BYTES + idLength, stored, 0, stored.length);
+        return stored;
+    }
+
+    private RowBatch read(Record record) throws IOException {
+        MappedByteBuffer buffer = record.segment.buffer;
+        int flags = buffer.get(record.offset + 4);
+        int rawLength = buffer.getInt(record.offset + 4 + 1 + 4);
+        byte[] stored = storedBytes(record);
+
+        byte[] raw = stored;
+        if ((flags & FLAG_LZ4) != 0) {
+            LZ4FastDecompressor decompressor = LZ4.fastDecompressor();
+            raw = new byte[rawLength];
+            decompressor.decompress(stored, 0, raw, 0, rawLength);
+        }
+
+        Object lastId = IdRange.decodeBound(record.lastId);
+        if ((flags & FLAG_DOCUMENTS) != 0) {
+            return RowBatch.unconverted(lastId, splitDocuments(raw, record.rowCount));
+        }
+        if ((flags & FLAG_VALUES) != 0) {
+            return RowBatch.values(lastId, decodeValues(raw, record.rowCount));
+        }
+        return RowBatch.encoded(record.rowCount, lastId, raw);
+    }
+
+    /**
+     * Compact binary form of converted INSERT rows, column by column: the column count and
+     * each column's kind, then per column a presence byte and value for every row
+     */
+    private static byte[] encodeValues(RowColumns values) {
+        int rowCount = values.getRowCount();
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream(rowCount * 64);
+        DataOutputStream out = new DataOutputStream(buffer);
+        try {
+            out.writeShort(values.getColumnCount());
+            for (int c = 0; c < values.getColumnCount(); c++) {
+                out.writeByte(kindTag(values.getKind(c)));
+            }
+            for (int c = 0; c < values.getColumnCount(); c++) {
+                RowValueConverter.ColumnKind kind = values.getKind(c);
+                for (int r = 0; r < rowCount; r++) {
+                    boolean present = !values.isNull(c, r);
+                    out.writeBoolean(present);
+                    if (!present) {
+                        continue;
+                    }
+                    switch (kind) {
+                        case INT4:
+                            out.writeInt(values.getInt(c, r));
+                            break;
+                        case INT8:
+                            out.writeLong(values.getLong(c, r));
+                            break;
+                        case FLOAT8:
+                            out.writeDouble(values.getDouble(c, r));
+                            break;
+                        case BOOLEAN:
+                            out.writeBoolean(values.getBoolean(c, r));
+                            break;
+                        case UUID:
+                            UUID uuid = (UUID) values.getObject(c, r);
+                            out.writeLong(uuid.getMostSignificantBits());
+                            out.writeLong(uuid.getLeastSignificantBits());
+                            break;
+                        case TIMESTAMP:
+                            LocalDateTime timestamp = (LocalDateTime) values.getObject(c, r);
+                            out.writeLong(timestamp.toEpochSecond(ZoneOffset.UTC));
+                            out.writeInt(timestamp.getNano());
+                            break;
+                        default:
+                            byte[] text = values.getObject(c, r).toString().getBytes(StandardCharsets.UTF_8);
+                            out.writeInt(text.length);
+                            out.write(text);
+                    }
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return buffer.toByteArray();
+    }
+
+    private static byte[] concatDocuments(List<RawBsonDocument> documents) {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        for (RawBsonDocument document : documents) {
+            ByteBuf bytes = document.getByteBuffer();
+            byte[] copy = new byte[bytes.remaining()];
+            bytes.get(copy);
+            buffer.write(copy, 0, copy.length);
+        }
+        return buffer.toByteArray();
+    }
+
+    /**
+     * Splits concatenated BSON documents; each starts with its own little-endian length
+     */
+    private static List<RawBsonDocument> splitDocuments(byte[] raw, int count) {
+        List<RawBsonDocument> documents = new ArrayList<>(count);
+        ByteBuffer buffer = ByteBuffer.wrap(raw).order(ByteOrder.LITTLE_ENDIAN);
+        int position = 0;
+        while (position < raw.length) {
+            int length = buffer.getInt(position);
+            documents.add(new RawBsonDocument(raw, position, length));
+            position += length;
+        }
+        return documents;
+    }
+
+    private static RowColumns decodeValues(byte[] raw, int rowCount) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(raw));
+        RowValueConverter.ColumnKind[] kinds = new RowValueConverter.ColumnKind[in.readShort()];
+        for (int c = 0; c < kinds.length; c++) {
+            kinds[c] = kindOfTag(in.readByte());
+        }
+
+        RowColumns values = new RowColumns(kinds, rowCount);
+        for (int c = 0; c < kinds.length; c++) {
+            for (int r = 0; r < rowCount; r++) {
+                if (!in.readBoolean()) {
+                    values.setNull(c, r);
+                    continue;
+                }
+                switch (kinds[c]) {
+                    case INT4:
+                        values.setInt(c, r, in.readInt());
+                        break;
+                    case INT8:
+                        values.setLong(c, r, in.readLong());
+                        break;
+                    case FLOAT8:
+                        values.setDouble(c, r, in.readDouble());
+                        break;
+                    case BOOLEAN:
+                        values.setBoolean(c, r, in.readBoolean());
+                        break;
+                    case UUID:
+                        values.setObject(c, r, new UUID(in.readLong(), in.readLong()));
+                        break;
+                    case TIMESTAMP:
+                        values.setObject(c, r, LocalDateTime.ofEpochSecond(in.readLong(), in.readInt(), ZoneOffset.UTC));
+                        break;
+                    default:
+                        byte[] text = new byte[in.readInt()];
+                        in.readFully(text);
+                        values.setObject(c, r, new String(text, StandardCharsets.UTF_8));
+                }
+            }
+        }
+        return values;
+    }
+
+    private static byte kindTag(RowValueConverter.ColumnKind kind) {
+        switch (kind) {
+            case INT4:
+                return TAG_INT;
+            case INT8:
+                return TAG_LONG;
+            case FLOAT8:
+                return TAG_DOUBLE;
+            case BOOLEAN:
+                return TAG_BOOLEAN;
+            case UUID:
+                return TAG_UUID;
+            case TIMESTAMP:
+                return TAG_TIMESTAMP;
+            case JSON:
+                return TAG_JSON;
+            default:
+                return TAG_STRING;
+        }
+    }
+
+    private static RowValueConverter.ColumnKind kindOfTag(byte tag) throws IOException {
+        switch (tag) {
+            case TAG_INT:
+                return RowValueConverter.ColumnKind.INT4;
+            case TAG_LONG:
+                return RowValueConverter.ColumnKind.INT8;
+            case TAG_DOUBLE:
+                return RowValueConverter.ColumnKind.FLOAT8;
+            case TAG_BOOLEAN:
+                return RowValueConverter.ColumnKind.BOOLEAN;
+            case TAG_UUID:
+                return RowValueConverter.ColumnKind.UUID;
+            case TAG_TIMESTAMP:
+                return RowValueConverter.ColumnKind.TIMESTAMP;
+            case TAG_JSON:
+                return RowValueConverter.ColumnKind.JSON;
+            case TAG_STRING:
+                return RowValueConverter.ColumnKind.TEXT;
+            default:
+                throw new IOException("Unknown column tag " + tag + " in staged batch");
+        }
+    }
+
+    private static class Segment {
+        private final Path path;
+        private final FileChannel channel;
+        private final MappedByteBuffer buffer;
+        private final int index;
+        private int writePosition;
+        private int liveRecords;
+        private boolean full;
+
+        private Segment(Path path, FileChannel channel, MappedByteBuffer buffer) {
+            this.path = path;
+            this.channel = channel;
+            this.buffer = buffer;
+            String name = path.getFileName().toString();
+            this.index = Integer.parseInt(name.substring(4, name.indexOf('.')));
+        }
+
+        private static Segment map(Path path, long size) throws IOException {
+            FileChannel channel = FileChannel.open(path,
+                    StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            return new Segment(path, channel, channel.map(FileChannel.MapMode.READ_WRITE, 0, size));
+        }
+
+        private void close() {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                // The mapping stays valid until it is garbage collected
+            }
+        }
+    }
+
+    private static class Record {
+        private final Segment segment;
+        private final int offset;
+        private final int length;
+        private final String lastId;
+        private final int rowCount;
+
+        private Record(Segment segment, int offset, int length, String lastId, int rowCount) {
+            this.segment = segment;
+            this.offset = offset;
+            this.length = length;
+            this.lastId = lastId;
+            this.rowCount = rowCount;
+        }
+    }
+}
@@ -0,0 +1,627 @@
+package com.sahil.backend.service.worker;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.MongoCursor;
+import com.mongodb.client.MongoDatabase;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.Projections;
+import com.mongodb.client.model.Sorts;
+import org.bson.RawBsonDocument;
+import org.bson.conversions.Bson;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.SQLException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * Copies one MongoDB collection, or one _id range of it, into a PostgreSQL table batch by batch.
+ * Runs as a reader -> transform -> writer pipeline connected by bounded queues; the writer
+ * stage runs on the calling thread.
+ */
+public class TableMigrationTask implements Callable<Boolean> {
+
+    // Attempts for a batch the target rejected under lock or memory pressure
+    private static final int MAX_PRESSURE_ATTEMPTS = 4;
+    private static final long PRESSURE_BACKOFF_MILLIS = 500;
+
+    // Batches buffered between stages; a full queue blocks the stage in front of it
+    private static final int QUEUE_CAPACITY = 4;
+
+    // Documents read between draws on the source read budget
+    private static final int READ_CHARGE_DOCS = 100;
+
+    private final String sourceCollection;
+    private final String targetTable;
+    private final CompiledTableMapping mapping;
+    private final MongoDatabase mongoDatabase;
+    private final JdbcTemplate targetJdbcTemplate;
+    private final ProgressCounter progress;
+    private final UUID runId;
+    private final UUID progressId;
+    private final ObjectMapper objectMapper;
+    private final RowSink rowSink;
+    // Re-encodes rejected rows on the writer stage; sinks are not thread-safe, so it is not rowSink
+    private final RowSink isolationSink;
+    private final IdRange range;
+    private final TaskMetrics metrics;
+    private final ExecutorService stageExecutor;
+    private final AdaptiveBatchSizer batchSizer;
+    private final AimdConcurrencyLimiter writeLimiter;
+    private final SourceReadGovernor readGovernor;
+    private final StagingStore staging;
+    private final RetryPolicy retryPolicy;
+    private final RunControl control;
+    private final MemoryBudget memoryBudget;
+
+    // Memory reserved by each batch between the reader and the stage that lets go of it, oldest first
+    private final ArrayDeque<Long> batchMemory = new ArrayDeque<>();
+    private volatile boolean memoryReturned;
+
+    private long rowsProcessed = 0;
+    private long bytesCommitted = 0;
+    private Object resumeAfterId;
+    private String committedLastId;
+    private Object lastCommittedId;
+    private long rowsDeadLettered = 0;
+
+    // Set by the reader when a pause or cancel stopped it before the end of the range
+    private volatile boolean readStoppedEarly;
+
+    public TableMigrationTask(String sourceCollection,
+            String targetTable,
+            CompiledTableMapping mapping,
+            MongoDatabase mongoDatabase,
+            JdbcTemplate targetJdbcTemplate,
+            ProgressCounter progress,
+            UUID runId,
+            UUID progressId,
+            ObjectMapper objectMapper,
+            RowSink rowSink,
+            RowSink isolationSink,
+            IdRange range,
+            TaskMetrics metrics,
+            ExecutorService stageExecutor,
+            AdaptiveBatchSizer batchSizer,
+            AimdConcurrencyLimiter writeLimiter,
+            SourceReadGovernor readGovernor,
+            StagingStore staging,
+            RetryPolicy retryPolicy,
+            RunControl control,
+            MemoryBudget memoryBudget) {
+        this.sourceCollection = sourceCollection;
+        this.targetTable = targetTable;
+        this.mapping = mapping;
+        this.mongoDatabase = mongoDatabase;
+        this.targetJdbcTemplate = targetJdbcTemplate;
+        this.progress = progress;
+        this.runId = runId;
+        this.progressId = progressId;
+        this.objectMapper = objectMapper;
+        this.rowSink = rowSink;
+        this.isolationSink = isolationSink;
+        this.range = range;
+        this.metrics = metrics;
+        this.stageExecutor = stageExecutor;
+        this.batchSizer = batchSizer;
+        this.writeLimiter = writeLimiter;
+        this.readGovernor = readGovernor;
+        this.staging = staging;
+        this.retryPolicy = retryPolicy;
+        this.control = control;
+        this.memoryBudget = memoryBudget;
+    }
+
+    /**
+     * Continues after a committed checkpoint instead of starting at the beginning of the range
+     */
+    public void resumeFrom(TargetCheckpointStore.Checkpoint checkpoint) {
+        if (checkpoint == null) {
+            return;
+        }
+        this.resumeAfterId = IdRange.decodeBound(checkpoint.getLastId());
+        this.committedLastId = checkpoint.getLastId();
+        this.lastCommittedId = resumeAfterId;
+        this.rowsProcessed = checkpoint.getRowsCommitted();
+        this.bytesCommitted = checkpoint.getBytesCommitted();
+        progress.restore(checkpoint.getRowsCommitted(), checkpoint.getBytesCommitted(), checkpoint.getLastId());
+    }
+
+    @Override
+    public Boolean call() {
+        StageQueue<List<RawBsonDocument>> decodeQueue = new StageQueue<>(QUEUE_CAPACITY);
+        StageQueue<RowBatch> writeQueue = new StageQueue<>(QUEUE_CAPACITY);
+        metrics.attachQueues(decodeQueue, writeQueue);
+        metrics.attachWriteLimiter(writeLimiter);
+        metrics.attachReadGovernor(readGovernor);
+        metrics.attachStaging(staging);
+        metrics.attachMemoryBudget(memoryBudget, runId);
+
+        // A run paused or cancelled before this task got a slot leaves it for a resume
+        if (control.isStopping()) {
+            return false;
+        }
+
+        try {
+            MongoCollection<RawBsonDocument> collection = mongoDatabase.getCollection(sourceCollection,
+                    RawBsonDocument.class);
+            progress.setStatus("RUNNING");
+
+            Object readAfterId = resumeAfterId;
+            boolean extract = true;
+            if (staging != null) {
+                staging.open(committedLastId);
+                if (staging.isSealed()) {
+                    // Everything was staged by an earlier attempt: load it without reading the source
+                    extract = false;
+                    System.out.println("♻️ Replaying staged batches of " + sourceCollection + " -> " + targetTable);
+                } else if (staging.getLastStagedId() != null) {
+                    // Extraction continues after the staged batches, unless the checkpoint is further along
+                    Object stagedId = IdRange.decodeBound(staging.getLastStagedId());
+                    if (readAfterId == null || IdRange.compare(stagedId, readAfterId) > 0) {
+                        readAfterId = stagedId;
+                    }
+                }
+            }
+
+            Bson filter = range.toFilter();
+            if (readAfterId != null) {
+                filter = Filters.and(filter, IdRange.after(readAfterId));
+            }
+            Bson readFilter = filter;
+
+            // Reader and transform run on their own threads so that fetching and decoding
+            // the next batch overlaps with writing the current one
+            Future<?> reader = null;
+            Future<?> transformer = null;
+            if (extract) {
+                reader = stageExecutor.submit(() -> {
+                    runReader(collection, readFilter, decodeQueue);
+                    return null;
+                });
+                transformer = stageExecutor.submit(() -> {
+                    runTransform(decodeQueue, writeQueue);
+                    return null;
+                });
+            }
+
+            if (staging != null) {
+                RowBatch batch;
+                while ((batch = staging.take(control::isStopping)) != null) {
+                    writeBatch(batch);
+                    staging.markCommitted();
+                }
+            } else {
+                RowBatch batch;
+                while ((batch = writeQueue.take()) != null) {
+                    writeBatch(batch);
+                    releaseBatchMemory();
+                }
+            }
+            if (extract) {
+                reader.get();
+                transformer.get();
+            }
+
+            // Stopped by a pause or cancel: everything read so far is committed
+            boolean complete = !readStoppedEarly && (staging == null || staging.isDrained());
+            if (!complete) {
+                if (staging != null) {
+                    staging.close();
+                }
+                progress.finish(control.getStopStatus());
+                System.out.println("⏸️ Stopped " + sourceCollection + " -> " + targetTable + " after " + rowsProcessed
+                        + " rows (" + control.getStopStatus() + ")");
+                return false;
+            }
+            if (staging != null) {
+                staging.deleteAll();
+            }
+
+            progress.finish("COMPLETED");
+            System.out.println("✅ Migrated " + rowsProcessed + " rows (" + progress.getBytesWritten() + " bytes via "
+                    + rowSink.getName() + ") into " + targetTable + " for _id range " + range);
+            if (rowsDeadLettered > 0) {
+                System.err.println("⚠️ " + rowsDeadLettered + " documents of " + sourceCollection
+                        + " were rejected and written to " + DeadLetterStore.TABLE_NAME);
+            }
+            return true;
+        } catch (Exception e) {
+            decodeQueue.abort();
+            writeQueue.abort();
+            if (staging != null) {
+                // Staged batches stay on disk for the next attempt
+                staging.abort();
+                staging.close();
+            }
+            System.err.println("❌ Migration of " + sourceCollection + " -> " + targetTable + " failed: "
+                    + e.getMessage());
+            progress.finish("FAILED");
+            return false;
+        } finally {
+            releaseAllMemory();
+        }
+    }
+
+    /**
+     * Reader stage: pulls documents off the cursor in ascending _id order, which makes the
+     * last _id of each batch a valid resume position. Each batch holds the source bytes the
+     * batch sizer currently recommends, reserved from the node's memory budget before the
+     * batch is fetched. Only the mapped fields are fetched, and documents stay raw BSON until
+     * the transform stage reads the fields it needs. Documents are paid for out of the run's
+     * source read budget by their BSON size. A pause or cancel stops the reader before the
+     * next document, also while it waits on the read budget or for the source to catch up;
+     * what it has read so far is still passed on.
+     */
+    private void runReader(MongoCollection<RawBsonDocument> collection, Bson filter,
+            StageQueue<List<RawBsonDocument>> decodeQueue) throws InterruptedException {
+        long reserved = 0;
+        try (MongoCursor<RawBsonDocument> cursor = collection.find(filter)
+                .projection(Projections.include(mapping.getProjectionFields()))
+                .sort(Sorts.ascending("_id"))
+                .batchSize(readGovernor.cursorBatchSize(batchSizer.currentBatchSize()))
+                .iterator()) {
+            List<RawBsonDocument> batch = new ArrayList<>();
+            long batchBytes = 0;
+            int uncharged = 0;
+            long unchargedBytes = 0;
+            while (true) {
+                if (control.isStopping()) {
+                    readStoppedEarly = true;
+                    break;
+                }
+                if (reserved == 0) {
+                    reserved = reserveMemory(batchSizer.currentBatchBytes());
+                    if (reserved == 0) {
+                        readStoppedEarly = true;
+                        break;
+                    }
+                }
+                if (!cursor.hasNext()) {
+                    break;
+                }
+                RawBsonDocument document = cursor.next();
+                long documentBytes = document.getByteBuffer().remaining();
+                batch.add(document);
+                batchBytes += documentBytes;
+                unchargedBytes += documentBytes;
+                if (++uncharged >= READ_CHARGE_DOCS) {
+                    if (!readGovernor.acquire(uncharged, unchargedBytes, control::isStopping)) {
+                        readStoppedEarly = true;
+                        break;
+                    }
+                    uncharged = 0;
+                    unchargedBytes = 0;
+                }
+                if (batchBytes >= reserved || batch.size() >= batchSizer.getMaxRows()) {
+                    long batchReserved = reserved;
+                    reserved = 0;
+                    handOff(batch, batchBytes, batchReserved, decodeQueue);
+                    batch = new ArrayList<>();
+                    batchBytes = 0;
+                }
+            }
+            if (uncharged > 0 && !readGovernor.acquire(uncharged, unchargedBytes, control::isStopping)) {
+                readStoppedEarly = true;
+            }
+            if (!batch.isEmpty()) {
+                long batchReserved = reserved;
+                reserved = 0;
+                handOff(batch, batchBytes, batchReserved, decodeQueue);
+            }
+            decodeQueue.close();
+        } catch (RuntimeException e) {
+            decodeQueue.fail(e);
+            throw e;
+        } finally {
+            // A reservation no batch was read into
+            memoryBudget.release(runId, reserved);
+        }
+    }
+
+    /**
+     * Waits for the node's memory budget to cover the next batch; returns the bytes reserved,
+     * or 0 if the run is stopping or the task has ended
+     */
+    private long reserveMemory(long bytes) throws InterruptedException {
+        long start = System.nanoTime();
+        long reserved = memoryBudget.acquire(runId, bytes, () -> memoryReturned || control.isStopping());
+        metrics.recordMemoryWait(System.nanoTime() - start);
+        return reserved;
+    }
+
+    /**
+     * Trues the batch's reservation up to the bytes actually read and passes it to the
+     * transform stage. From here on the reservation is returned once the batch is committed
+     * or staged.
+     */
+    private void handOff(List<RawBsonDocument> batch, long batchBytes, long reserved,
+            StageQueue<List<RawBsonDocument>> decodeQueue) throws InterruptedException {
+        if (batchBytes > reserved) {
+            memoryBudget.grow(runId, batchBytes - reserved);
+        } else {
+            memoryBudget.release(runId, reserved - batchBytes);
+        }
+        holdBatchMemory(batchBytes);
+        batchSizer.recordRead(batch.size(), batchBytes);
+        metrics.recordBatchRead();
+        decodeQueue.put(batch);
+    }
+
+    private synchronized void holdBatchMemory(long bytes) {
+        if (memoryReturned) {
+            // The task already ended; the batch will not get past the aborted queue
+            memoryBudget.release(runId, bytes);
+            return;
+        }
+        batchMemory.add(bytes);
+        metrics.addInFlightBytes(bytes);
+    }
+
+    /**
+     * Returns the reservation of the oldest batch still held; batches leave the pipeline in
+     * the order they were read
+     */
+    private synchronized void releaseBatchMemory() {
+        Long bytes = batchMemory.poll();
+        if (bytes != null) {
+            memoryBudget.release(runId, bytes);
+            metrics.addInFlightBytes(-bytes);
+        }
+    }
+
+    private synchronized void releaseAllMemory() {
+        memoryReturned = true;
+        while (!batchMemory.isEmpty()) {
+            releaseBatchMemory();
+        }
+    }
+
+    /**
+     * Transform stage: converts documents into the sink's wire form. With staging enabled the
+     * batches go to the local staging files instead of straight to the writer. A batch with a
+     * document that fails to convert is passed on unconverted for the writer to bisect.
+     */
+    private void runTransform(StageQueue<List<RawBsonDocument>> decodeQueue, StageQueue<RowBatch> writeQueue)
+            throws Exception {
+        try {
+            List<RawBsonDocument> documents;
+            while ((documents = decodeQueue.take()) != null) {
+                RowBatch batch;
+                try {
+                    batch = rowSink.encode(mapping, documents);
+                } catch (RuntimeException e) {
+                    if (!DeadLetterStore.isRowError(e)) {
+                        throw e;
+                    }
+                    Object lastId = RowValueConverter.toJava(documents.get(documents.size() - 1).get("_id"));
+                    batch = RowBatch.unconverted(lastId, documents);
+                }
+                if (staging != null) {
+                    staging.append(batch);
+                    // Staged batches wait on disk, not in memory
+                    releaseBatchMemory();
+                } else {
+                    writeQueue.put(batch.withDocuments(documents));
+                }
+            }
+            if (staging != null && !readStoppedEarly) {
+                staging.seal();
+            }
+            writeQueue.close();
+        } catch (Exception e) {
+            writeQueue.fail(e);
+            if (staging != null) {
+                staging.fail(e);
+            }
+            decodeQueue.abort();
+            throw e;
+        }
+    }
+
+    /**
+     * Sends one batch through the sink and commits it together with its checkpoint,
+     * so a resumed task never re-copies rows that are already in the target.
+     * A batch rejected because of its rows is bisected instead, see {@link #isolateRows}.
+     */
+    private void writeBatch(RowBatch batch) throws InterruptedException {
+        if (batch.isUnconverted()) {
+            isolateRows(batch);
+            return;
+        }
+        try {
+            commitWithRetries(batch, true);
+        } catch (RuntimeException e) {
+            if (!DeadLetterStore.isRowError(e)) {
+                throw e;
+            }
+            isolateRows(batch);
+        }
+    }
+
+    /**
+     * Commits a batch, or a chunk of one being isolated, on the target's write path. Each commit
+     * holds a slot of the target's concurrency limiter and reports its latency. Lock or memory
+     * pressure retries the commit after a pause. After a transient failure (lost connection,
+     * failover, serialization failure) it is replayed on a fresh pooled connection after a
+     * jittered backoff; see {@link #retryTransient}. A rejection for the rows is thrown to the
+     * caller. Only full batches feed the batch sizer: isolation chunks are small by design,
+     * and their latencies and pressure would shrink the batches that follow.
+     */
+    private void commitWithRetries(RowBatch batch, boolean adaptive) throws InterruptedException {
+        int pressureAttempts = 0;
+        int transientRetries = 0;
+        while (true) {
+            writeLimiter.acquire();
+            long start = System.nanoTime();
+            try {
+                commitBatch(batch, adaptive);
+                writeLimiter.release(batch.getRowCount(), System.nanoTime() - start, false);
+                return;
+            } catch (RuntimeException e) {
+                // A batch rejected for its rows says nothing about the target's load
+                boolean rowError = DeadLetterStore.isRowError(e);
+                if (rowError) {
+                    writeLimiter.releaseIgnored();
+                } else {
+                    writeLimiter.release(batch.getRowCount(), System.nanoTime() - start, true);
+                }
+                boolean pressure = adaptive ? batchSizer.recordFailure(e) : AdaptiveBatchSizer.isPressure(e);
+                if (pressure && ++pressureAttempts < MAX_PRESSURE_ATTEMPTS) {
+                    metrics.recordPressureBackoff();
+                    System.err.println("⚠️ Target under pressure while writing " + targetTable
+                            + (adaptive ? ", batch size now " + batchSizer.currentBatchSize() : "")
+                            + ": " + e.getMessage());
+                    Thread.sleep(PRESSURE_BACKOFF_MILLIS << (pressureAttempts - 1));
+                    continue;
+                }
+                if (!pressure && rowError) {
+                    throw e;
+                }
+                if (!RetryPolicy.isTransient(e) || transientRetries >= retryPolicy.getMaxAttempts()
+                        || control.isCancelled()) {
+                    throw e;
+                }
+                if (retryTransient(batch, e, transientRetries++, start)) {
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Waits out a transient failure and reports whether the batch turned out to be committed
+     * after all. The connection can drop after COMMIT reached the server, so before a replay
+     * the checkpoint is read back: it is written in the same transaction as the rows and
+     * carries the batch's last _id, which makes the replay idempotent. Broken connections are
+     * evicted by the pool, so the replay runs on a new one.
+     */
+    private boolean retryTransient(RowBatch batch, RuntimeException error, int retry, long failedAttemptStart)
+            throws InterruptedException {
+        long delay = retryPolicy.backoffMillis(retry);
+        System.err.println("⚠️ Transient failure writing " + targetTable + " (retry " + (retry + 1) + "/"
+                + retryPolicy.getMaxAttempts() + " in " + delay + " ms): " + error.getMessage());
+        Thread.sleep(delay);
+        metrics.recordTransientRetry(System.nanoTime() - failedAttemptStart);
+
+        String batchLastId = IdRange.encodeBound(batch.getLastId());
+        TargetCheckpointStore.Checkpoint checkpoint;
+        try {
+            checkpoint = TargetCheckpointStore.find(targetJdbcTemplate, progressId);
+        } catch (RuntimeException e) {
+            // Still unreachable; the replay attempt will fail and back off again
+            return false;
+        }
+        if (checkpoint == null || !batchLastId.equals(checkpoint.getLastId())) {
+            return false;
+        }
+        System.out.println("✅ Batch ending at _id " + batchLastId + " of " + targetTable
+                + " was committed before the connection dropped, not replaying it");
+        recordCommitted(batch, Math.max(0, checkpoint.getBytesCommitted() - bytesCommitted), 0);
+        return true;
+    }
+
+    /**
+     * Commits the documents of a rejected batch in halves, recursively, so the good rows still
+     * go in as large chunks and each bad document is dead-lettered on its own. Chunks take the
+     * same write path as batches, limiter and retries included. Batches loaded from staging
+     * files do not keep their documents; those are read again from the source.
+     */
+    private void isolateRows(RowBatch batch) throws InterruptedException {
+        List<RawBsonDocument> documents = batch.getDocuments() != null ? batch.getDocuments() : rereadBatch(batch);
+        System.err.println("⚠️ Batch ending at _id " + IdRange.encodeBound(batch.getLastId()) + " of "
+                + sourceCollection + " was rejected, isolating the failing documents");
+        DeadLetterStore.isolate(documents,
+                chunk -> commitWithRetries(isolationSink.encode(mapping, chunk), false),
+                this::deadLetter);
+    }
+
+    private List<RawBsonDocument> rereadBatch(RowBatch batch) {
+        Bson filter = Filters.and(range.toFilter(), IdRange.upTo(batch.getLastId()));
+        if (lastCommittedId != null) {
+            filter = Filters.and(filter, IdRange.after(lastCommittedId));
+        }
+        return mongoDatabase.getCollection(sourceCollection, RawBsonDocument.class)
+                .find(filter)
+                .projection(Projections.include(mapping.getProjectionFields()))
+                .sort(Sorts.ascending("_id"))
+                .into(new ArrayList<>());
+    }
+
+    /**
+     * Writes a rejected document to the dead-letter table and moves the checkpoint past it
+     * in the same transaction, so a resumed task does not try it again
+     */
+    private void deadLetter(RawBsonDocument document, RuntimeException error) {
+        Object id = RowValueConverter.toJava(document.get("_id"));
+        String lastId = IdRange.encodeBound(id);
+        targetJdbcTemplate.execute((ConnectionCallback<Void>) connection -> {
+            boolean autoCommit = connection.getAutoCommit();
+            connection.setAutoCommit(false);
+            try {
+                DeadLetterStore.save(connection, runId, progressId, sourceCollection, targetTable, document, error);
+                TargetCheckpointStore.save(connection, progressId, lastId, rowsProcessed, bytesCommitted);
+                connection.commit();
+                return null;
+            } catch (SQLException | RuntimeException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(autoCommit);
+            }
+        });
+
+        lastCommittedId = id;
+        rowsDeadLettered++;
+        metrics.recordDeadLetter();
+        progress.recordBatch(0, 0, lastId);
+        System.err.println("⚠️ Dead-lettered document " + lastId + " of " + sourceCollection + ": "
+                + error.getMessage());
+    }
+
+    private void commitBatch(RowBatch batch, boolean adaptive) {
+        String batchLastId = IdRange.encodeBound(batch.getLastId());
+        long committedRows = rowsProcessed + batch.getRowCount();
+        long start = System.nanoTime();
+
+        Long bytes = targetJdbcTemplate.execute((ConnectionCallback<Long>) connection -> {
+            boolean autoCommit = connection.getAutoCommit();
+            connection.setAutoCommit(false);
+            try {
+                long written = rowSink.write(connection, targetTable, mapping, batch);
+                TargetCheckpointStore.save(connection, progressId, batchLastId, committedRows,
+                        bytesCommitted + written);
+                connection.commit();
+                return written;
+            } catch (SQLException | RuntimeException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(autoCommit);
+            }
+        });
+
+        long elapsed = System.nanoTime() - start;
+        long written = bytes != null ? bytes : 0;
+        if (adaptive) {
+            batchSizer.recordCommit(batch.getRowCount(), written, elapsed);
+        }
+        recordCommitted(batch, written, elapsed);
+    }
+
+    private void recordCommitted(RowBatch batch, long written, long elapsed) {
+        metrics.recordBatchWritten(elapsed);
+        metrics.recordBatchSize(batch.getRowCount());
+        rowsProcessed += batch.getRowCount();
+        bytesCommitted += written;
+        lastCommittedId = batch.getLastId();
+        progress.recordBatch(batch.getRowCount(), written, IdRange.encodeBound(batch.getLastId()));
+    }
+}
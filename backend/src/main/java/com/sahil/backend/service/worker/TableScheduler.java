@@ -0,0 +1,219 @@
+package com.sahil.backend.service.worker;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Orders a run's task units (tables or table partitions) for dispatch.
+ * A table's units become ready once every table it references through a plan foreign key
+ * has been dispatched; among ready units the largest estimated size goes first
+ * (longest-processing-time-first), so big collections are not left for the end of the run.
+ */
+public final class TableScheduler {
+
+    private TableScheduler() {
+    }
+
+    /**
+     * Target tables each target table references, from the plan's foreignKeys
+     */
+    public static Map<String, Set<String>> dependencies(JsonNode planJson) {
+        Map<String, String> tablesByCollection = new HashMap<>();
+        JsonNode tableMappings = planJson.get("tableMappings");
+        if (tableMappings != null && tableMappings.isArray()) {
+            for (JsonNode mapping : tableMappings) {
+                tablesByCollection.put(mapping.get("sourceCollection").asText(), mapping.get("targetTable").asText());
+            }
+        }
+
+        Map<String, Set<String>> dependsOn = new HashMap<>();
+        JsonNode foreignKeys = planJson.get("foreignKeys");
+        if (foreignKeys != null && foreignKeys.isArray()) {
+            for (JsonNode fk : foreignKeys) {
+                String child = tablesByCollection.get(fk.get("sourceTable").asText());
+                String parent = tablesByCollection.get(fk.get("targetTable").asText());
+                // Self references do not constrain the order
+                if (child != null && parent != null && !child.equals(parent)) {
+                    dependsOn.computeIfAbsent(child, t -> new HashSet<>()).add(parent);
+                }
+            }
+        }
+        return dependsOn;
+    }
+
+    /**
+     * Returns the units in dispatch order. Dependency cycles are broken by releasing the
+     * largest remaining table.
+     */
+    public static List<Unit> order(List<Unit> units, Map<String, Set<String>> dependsOn) {
+        Map<String, List<Unit>> unitsByTable = new LinkedHashMap<>();
+        Map<String, Long> tableWeights = new HashMap<>();
+        for (Unit unit : units) {
+            unitsByTable.computeIfAbsent(unit.tableName, t -> new ArrayList<>()).add(unit);
+            tableWeights.merge(unit.tableName, unit.estimatedBytes, Long::sum);
+        }
+
+        // Only tables with work left in this run take part in the ordering
+        Map<String, Set<String>> waitingOn = new HashMap<>();
+        Map<String, List<String>> children = new HashMap<>();
+        for (String table : unitsByTable.keySet()) {
+            Set<String> parents = new HashSet<>(dependsOn.getOrDefault(table, Set.of()));
+            parents.retainAll(unitsByTable.keySet());
+            waitingOn.put(table, parents);
+            for (String parent : parents) {
+                children.computeIfAbsent(parent, p -> new ArrayList<>()).add(table);
+            }
+        }
+
+        PriorityQueue<Unit> ready = new PriorityQueue<>(
+                Comparator.comparingLong((Unit u) -> u.estimatedBytes).reversed()
+                        .thenComparing(u -> u.tableName)
+                        .thenComparing(u -> u.partitionIndex != null ? u.partitionIndex : 0));
+        Set<String> released = new HashSet<>();
+        Map<String, Integer> undispatched = new HashMap<>();
+        unitsByTable.forEach((table, tableUnits) -> undispatched.put(table, tableUnits.size()));
+
+        for (Map.Entry<String, Set<String>> entry : waitingOn.entrySet()) {
+            if (entry.getValue().isEmpty()) {
+                released.add(entry.getKey());
+                ready.addAll(unitsByTable.get(entry.getKey()));
+            }
+        }
+
+        List<Unit> ordered = new ArrayList<>(units.size());
+        while (ordered.size() < units.size()) {
+            if (ready.isEmpty()) {
+                String largest = unitsByTable.keySet().stream()
+                        .filter(table -> !released.contains(table))
+                        .max(Comparator.comparingLong(tableWeights::get))
+                        .orElseThrow();
+                released.add(largest);
+                ready.addAll(unitsByTable.get(largest));
+            }
+
+            Unit next = ready.poll();
+            ordered.add(next);
+
+            if (undispatched.merge(next.tableName, -1, Integer::sum) == 0) {
+                for (String child : children.getOrDefault(next.tableName, List.of())) {
+                    Set<String> parents = waitingOn.get(child);
+                    parents.remove(next.tableName);
+                    if (parents.isEmpty() && released.add(child)) {
+                        ready.addAll(unitsByTable.get(child));
+                    }
+                }
+            }
+        }
+        return ordered;
+    }
+
+    /**
+     * Groups tables into waves where every table comes after all the tables it references,
+     * for steps that must run parents first but may run the tables of one wave in parallel.
+     * Tables left in a dependency cycle form the last wave.
+     */
+    public static List<List<String>> waves(Collection<String> tables, Map<String, Set<String>> dependsOn) {
+        Set<String> remaining = new LinkedHashSet<>(tables);
+        List<List<String>> waves = new ArrayList<>();
+        while (!remaining.isEmpty()) {
+            List<String> wave = new ArrayList<>();
+            for (String table : remaining) {
+                Set<String> parents = new HashSet<>(dependsOn.getOrDefault(table, Set.of()));
+                parents.retainAll(remaining);
+                if (parents.isEmpty()) {
+                    wave.add(table);
+                }
+            }
+            if (wave.isEmpty()) {
+                wave.addAll(remaining);
+            }
+            wave.forEach(remaining::remove);
+            waves.add(wave);
+        }
+        return waves;
+    }
+
+    /**
+     * Predicts start and end times by placing each unit, in order, on the worker that frees
+     * up first. Returns the predicted makespan in seconds.
+     */
+    public static double simulate(List<Unit> ordered, int workers, double bytesPerSecond) {
+        PriorityQueue<double[]> free = new PriorityQueue<>(Comparator.comparingDouble((double[] w) -> w[0])
+                .thenComparingDouble(w -> w[1]));
+        for (int i = 0; i < Math.max(1, workers); i++) {
+            free.add(new double[] {0, i});
+        }
+
+        double makespan = 0;
+        for (Unit unit : ordered) {
+            double[] worker = free.poll();
+            unit.predictedStartSeconds = worker[0];
+            unit.predictedEndSeconds = worker[0] + unit.estimatedBytes / bytesPerSecond;
+            unit.predictedWorker = (int) worker[1];
+            makespan = Math.max(makespan, unit.predictedEndSeconds);
+            free.add(new double[] {unit.predictedEndSeconds, worker[1]});
+        }
+        return makespan;
+    }
+
+    /**
+     * One dispatchable piece of work; progressId is null in previews
+     */
+    public static class Unit {
+        private final String tableName;
+        private final UUID progressId;
+        private final Integer partitionIndex;
+        private final long estimatedBytes;
+
+        private double predictedStartSeconds;
+        private double predictedEndSeconds;
+        private int predictedWorker;
+
+        public Unit(String tableName, UUID progressId, Integer partitionIndex, long estimatedBytes) {
+            this.tableName = tableName;
+            this.progressId = progressId;
+            this.partitionIndex = partitionIndex;
+            this.estimatedBytes = estimatedBytes;
+        }
+
+        public String getTableName() {
+            return tableName;
+        }
+
+        public UUID getProgressId() {
+            return progressId;
+        }
+
+        public Integer getPartitionIndex() {
+            return partitionIndex;
+        }
+
+        public long getEstimatedBytes() {
+            return estimatedBytes;
+        }
+
+        public double getPredictedStartSeconds() {
+            return predictedStartSeconds;
+        }
+
+        public double getPredictedEndSeconds() {
+            return predictedEndSeconds;
+        }
+
+        public int getPredictedWorker() {
+            return predictedWorker;
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package com.sahil.backend.service.worker;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Keeps per-task _id high-watermarks in the target database itself, so a watermark is
+ * committed in the same transaction as the rows it covers.
+ */
+public final class TargetCheckpointStore {
+
+    public static final String TABLE_NAME = "_migration_checkpoints";
+
+    private TargetCheckpointStore() {
+    }
+
+    public static void ensureTable(JdbcTemplate targetJdbcTemplate) {
+        targetJdbcTemplate.execute("CREATE TABLE IF NOT EXISTS " + TABLE_NAME + " ("
+                + "progress_id UUID PRIMARY KEY, "
+                + "last_id TEXT NOT NULL, "
+                + "rows_committed BIGINT NOT NULL, "
+                + "bytes_committed BIGINT NOT NULL DEFAULT 0, "
+                + "updated_at TIMESTAMP NOT NULL DEFAULT now())");
+        // Checkpoint tables created before bytes were tracked
+        targetJdbcTemplate.execute("ALTER TABLE " + TABLE_NAME
+                + " ADD COLUMN IF NOT EXISTS bytes_committed BIGINT NOT NULL DEFAULT 0");
+    }
+
+    /**
+     * Records the watermark on the caller's connection; the caller owns the transaction
+     */
+    public static void save(Connection connection, UUID progressId, String lastId, long rowsCommitted,
+            long bytesCommitted) throws SQLException {
+        String sql = "INSERT INTO " + TABLE_NAME + " (progress_id, last_id, rows_committed, bytes_committed, "
+                + "updated_at) VALUES (?, ?, ?, ?, now()) "
+                + "ON CONFLICT (progress_id) DO UPDATE SET last_id = EXCLUDED.last_id, "
+                + "rows_committed = EXCLUDED.rows_committed, bytes_committed = EXCLUDED.bytes_committed, "
+                + "updated_at = EXCLUDED.updated_at";
+        try (PreparedStatement ps = connection.prepareStatement(sql)) {
+            ps.setObject(1, progressId);
+            ps.setString(2, lastId);
+            ps.setLong(3, rowsCommitted);
+            ps.setLong(4, bytesCommitted);
+            ps.executeUpdate();
+        }
+    }
+
+    /**
+     * Returns the last committed checkpoint for a task, or null if nothing was committed yet
+     */
+    public static Checkpoint find(JdbcTemplate targetJdbcTemplate, UUID progressId) {
+        List<Checkpoint> rows = targetJdbcTemplate.query(
+                "SELECT last_id, rows_committed, bytes_committed FROM " + TABLE_NAME + " WHERE progress_id = ?",
+                (rs, i) -> new Checkpoint(rs.getString("last_id"), rs.getLong("rows_committed"),
+                        rs.getLong("bytes_committed")),
+                progressId);
+        return rows.isEmpty() ? null : rows.get(0);
+    }
+
+    public static class Checkpoint {
+        private final String lastId;
+        private final long rowsCommitted;
+        private final long bytesCommitted;
+
+        public Checkpoint(String lastId, long rowsCommitted, long bytesCommitted) {
+            this.lastId = lastId;
+            this.rowsCommitted = rowsCommitted;
+            this.bytesCommitted = bytesCommitted;
+        }
+
+        public String getLastId() {
+            return lastId;
+        }
+
+        public long getRowsCommitted() {
+            return rowsCommitted;
+        }
+
+        /**
+         * Bytes the sink reported for the committed rows; 0 for checkpoints saved before bytes were tracked
+         */
+        public long getBytesCommitted() {
+            return bytesCommitted;
+        }
+    }
+}
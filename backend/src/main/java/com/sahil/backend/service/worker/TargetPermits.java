@@ -0,0 +1,59 @@
+package com.sahil.backend.service.worker;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Concurrent tasks allowed against one target database, shared by every run writing to it.
+ * While runs are registered, the number of permits is the lowest of their limits, otherwise
+ * the node default. Shrinking below the permits in use drives the available count negative,
+ * so no new task starts until enough running ones have returned theirs.
+ */
+public class TargetPermits extends Semaphore {
+
+    private final int defaultLimit;
+
+    // Limit requested by each run using the target
+    private final Map<UUID, Integer> runLimits = new HashMap<>();
+    private int limit;
+
+    public TargetPermits(int defaultLimit) {
+        super(Math.max(1, defaultLimit), true);
+        this.defaultLimit = Math.max(1, defaultLimit);
+        this.limit = this.defaultLimit;
+    }
+
+    /**
+     * Registers a run's limit; it applies until the run is removed again
+     */
+    public synchronized void addLimit(UUID runId, int runLimit) {
+        runLimits.put(runId, Math.max(1, runLimit));
+        applyLimit();
+    }
+
+    public synchronized void removeLimit(UUID runId) {
+        if (runLimits.remove(runId) != null) {
+            applyLimit();
+        }
+    }
+
+    public synchronized int getLimit() {
+        return limit;
+    }
+
+    /**
+     * Tightest limit of the registered runs
+     */
+    private void applyLimit() {
+        int target = runLimits.isEmpty() ? defaultLimit
+                : runLimits.values().stream().mapToInt(Integer::intValue).min().getAsInt();
+        if (target > limit) {
+            release(target - limit);
+        } else if (target < limit) {
+            reducePermits(limit - target);
+        }
+        limit = target;
+    }
+}
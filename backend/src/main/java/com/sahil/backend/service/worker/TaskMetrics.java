@@ -0,0 +1,186 @@
+package com.sahil.backend.service.worker;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Live counters for one migration task, read by the run metrics endpoint while the task runs.
+ */
+public class TaskMetrics {
+
+    private final UUID progressId;
+    private final String tableName;
+    private final Integer partitionIndex;
+
+    private final LongAdder batchesRead = new LongAdder();
+    private final LongAdder batchesWritten = new LongAdder();
+    private final LongAdder writeNanos = new LongAdder();
+    private final LongAdder pressureBackoffs = new LongAdder();
+    private final LongAdder deadLetters = new LongAdder();
+    private final LongAdder transientRetries = new LongAdder();
+    private final LongAdder retryNanosLost = new LongAdder();
+    private final LongAdder memoryWaitNanos = new LongAdder();
+    private final LongAdder inFlightBytes = new LongAdder();
+
+    // Batch sizes chosen by the adaptive batch sizer
+    private volatile int lastBatchSize;
+    private volatile int minBatchSize = Integer.MAX_VALUE;
+    private volatile int maxBatchSize;
+
+    private volatile StageQueue<?> decodeQueue;
+    private volatile StageQueue<?> writeQueue;
+    private volatile AimdConcurrencyLimiter writeLimiter;
+    private volatile SourceReadGovernor readGovernor;
+    private volatile StagingStore staging;
+    private volatile MemoryBudget memoryBudget;
+    private volatile UUID runId;
+
+    public TaskMetrics(UUID progressId, String tableName, Integer partitionIndex) {
+        this.progressId = progressId;
+        this.tableName = tableName;
+        this.partitionIndex = partitionIndex;
+    }
+
+    public void attachQueues(StageQueue<?> decodeQueue, StageQueue<?> writeQueue) {
+        this.decodeQueue = decodeQueue;
+        this.writeQueue = writeQueue;
+    }
+
+    public void recordBatchRead() {
+        batchesRead.increment();
+    }
+
+    public void recordBatchWritten(long nanos) {
+        batchesWritten.increment();
+        writeNanos.add(nanos);
+    }
+
+    /**
+     * Only the task's writer calls this, so plain volatile updates are enough
+     */
+    public void recordBatchSize(int rows) {
+        lastBatchSize = rows;
+        minBatchSize = Math.min(minBatchSize, rows);
+        maxBatchSize = Math.max(maxBatchSize, rows);
+    }
+
+    public void attachWriteLimiter(AimdConcurrencyLimiter writeLimiter) {
+        this.writeLimiter = writeLimiter;
+    }
+
+    public void attachReadGovernor(SourceReadGovernor readGovernor) {
+        this.readGovernor = readGovernor;
+    }
+
+    public void attachStaging(StagingStore staging) {
+        this.staging = staging;
+    }
+
+    public void attachMemoryBudget(MemoryBudget memoryBudget, UUID runId) {
+        this.runId = runId;
+        this.memoryBudget = memoryBudget;
+    }
+
+    /**
+     * Time the reader waited for the node's memory budget before fetching a batch
+     */
+    public void recordMemoryWait(long nanos) {
+        memoryWaitNanos.add(nanos);
+    }
+
+    /**
+     * Source bytes this task holds in memory, adjusted as batches are read and committed
+     */
+    public void addInFlightBytes(long bytes) {
+        inFlightBytes.add(bytes);
+    }
+
+    public void recordDeadLetter() {
+        deadLetters.increment();
+    }
+
+    /**
+     * A batch replay after a transient failure; nanos covers the failed attempt and the backoff
+     */
+    public void recordTransientRetry(long nanos) {
+        transientRetries.increment();
+        retryNanosLost.add(nanos);
+    }
+
+    public void recordPressureBackoff() {
+        pressureBackoffs.increment();
+    }
+
+    public UUID getProgressId() {
+        return progressId;
+    }
+
+    /**
+     * Snapshot of stage occupancy and stall times in milliseconds.
+     * A reader that is often blocked means the writer is the bottleneck; a writer that is
+     * often waiting for input means the source side is. A reader waiting for memory means the
+     * node's in-flight budget is held by batches not yet committed, here or in other runs.
+     */
+    public Map<String, Object> snapshot() {
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("progressId", progressId);
+        map.put("tableName", tableName);
+        map.put("partitionIndex", partitionIndex);
+        map.put("batchesRead", batchesRead.sum());
+        map.put("batchesWritten", batchesWritten.sum());
+        map.put("writeMillis", writeNanos.sum() / 1_000_000);
+        map.put("batchSize", lastBatchSize);
+        map.put("minBatchSize", maxBatchSize == 0 ? 0 : minBatchSize);
+        map.put("maxBatchSize", maxBatchSize);
+        map.put("pressureBackoffs", pressureBackoffs.sum());
+        map.put("rowsDeadLettered", deadLetters.sum());
+        map.put("transientRetries", transientRetries.sum());
+        map.put("retryMillisLost", retryNanosLost.sum() / 1_000_000);
+        map.put("inFlightBytes", inFlightBytes.sum());
+        map.put("memoryWaitMillis", memoryWaitNanos.sum() / 1_000_000);
+
+        MemoryBudget budget = memoryBudget;
+        if (budget != null) {
+            map.putAll(budget.snapshot(runId));
+        }
+
+        AimdConcurrencyLimiter limiter = writeLimiter;
+        if (limiter != null) {
+            map.put("targetWriteLimit", limiter.getLimit());
+            map.put("targetWriteLimitFloor", limiter.getFloor());
+            map.put("targetWriteLimitCeiling", limiter.getCeiling());
+            map.put("targetWritesInFlight", limiter.getInFlight());
+            map.put("targetWriteLimitDecreases", limiter.getDecreases());
+        }
+
+        SourceReadGovernor governor = readGovernor;
+        if (governor != null) {
+            map.put("sourceThrottledMillis", governor.getThrottledMillis());
+            map.put("sourceReadsPaused", governor.isPaused());
+            map.put("sourceLagSeconds", governor.getLagSeconds());
+            map.put("sourceLagPauses", governor.getPauses());
+        }
+
+        StagingStore store = staging;
+        if (store != null) {
+            map.put("stagedBatchesPending", store.getPendingBatches());
+            map.put("stagedBytesPending", store.getPendingBytes());
+        }
+
+        StageQueue<?> decode = decodeQueue;
+        StageQueue<?> write = writeQueue;
+        if (decode != null && write != null) {
+            map.put("decodeQueueSize", decode.size());
+            map.put("decodeQueueCapacity", decode.capacity());
+            map.put("writeQueueSize", write.size());
+            map.put("writeQueueCapacity", write.capacity());
+            map.put("readerBlockedMillis", decode.getProducerBlockedNanos() / 1_000_000);
+            map.put("transformWaitMillis", decode.getConsumerWaitNanos() / 1_000_000);
+            map.put("transformBlockedMillis", write.getProducerBlockedNanos() / 1_000_000);
+            map.put("writerWaitMillis", write.getConsumerWaitNanos() / 1_000_000);
+        }
+        return map;
+    }
+}
@@ -0,0 +1,220 @@
+package com.sahil.backend.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.UncategorizedSQLException;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class PostLoadServiceTest {
+
+    private static final String ADD_FOREIGN_KEY = "ALTER TABLE orders ADD CONSTRAINT fk_orders_customer "
+            + "FOREIGN KEY (customer_id) REFERENCES customers (id) ON DELETE CASCADE NOT VALID";
+    private static final String VALIDATE_FOREIGN_KEY = "ALTER TABLE orders VALIDATE CONSTRAINT fk_orders_customer";
+
+    private final PostLoadService service = new PostLoadService();
+    private final RunContext runContext = mock(RunContext.class);
+    private final FakeTarget target = new FakeTarget();
+    private JsonNode plan;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() throws Exception {
+        ReflectionTestUtils.setField(service, "maintenanceWorkMem", "64MB");
+        ReflectionTestUtils.setField(service, "maxParallelIndexBuilds", 2);
+        when(runContext.submit(any())).thenAnswer(invocation ->
+                CompletableFuture.completedFuture(((Supplier<Boolean>) invocation.getArgument(0)).get()));
+
+        plan = new ObjectMapper().readTree("{"
+                + "\"tableMappings\":["
+                + "{\"sourceCollection\":\"orders\",\"targetTable\":\"orders\",\"columns\":["
+                + "{\"sourceField\":\"_id\",\"targetColumn\":\"id\",\"primaryKey\":true},"
+                + "{\"sourceField\":\"customerId\",\"targetColumn\":\"customer_id\"}]},"
+                + "{\"sourceCollection\":\"customers\",\"targetTable\":\"customers\",\"columns\":["
+                + "{\"sourceField\":\"_id\",\"targetColumn\":\"id\",\"isPrimaryKey\":true}]}],"
+                + "\"indexes\":[{\"indexName\":\"idx_orders_customer\",\"tableName\":\"orders\","
+                + "\"columns\":[\"customerId\"],\"type\":\"HASH\"}],"
+                + "\"foreignKeys\":[{\"constraintName\":\"fk_orders_customer\",\"sourceTable\":\"orders\","
+                + "\"sourceColumn\":\"customerId\",\"targetTable\":\"customers\",\"targetColumn\":\"id\","
+                + "\"onDelete\":\"CASCADE\"}]}");
+    }
+
+    @Test
+    void keysAndIndexesComeBeforeForeignKeysAndStatistics() {
+        List<String> errors = service.finalizeTables(runContext, target, plan);
+
+        assertTrue(errors.isEmpty(), errors.toString());
+        List<String> executed = target.executed;
+        int ordersKey = executed.indexOf("ALTER TABLE orders ADD CONSTRAINT orders_pkey PRIMARY KEY (id)");
+        int customersKey = executed.indexOf("ALTER TABLE customers ADD CONSTRAINT customers_pkey PRIMARY KEY (id)");
+        int index = executed.indexOf(
+                "CREATE INDEX IF NOT EXISTS idx_orders_customer ON orders USING hash (customer_id)");
+        int addForeignKey = executed.indexOf(ADD_FOREIGN_KEY);
+        int validate = executed.indexOf(VALIDATE_FOREIGN_KEY);
+        int analyze = Math.min(executed.indexOf("ANALYZE orders"), executed.indexOf("ANALYZE customers"));
+
+        assertTrue(ordersKey >= 0 && customersKey >= 0 && index >= 0 && analyze >= 0, executed.toString());
+        assertTrue(Math.max(Math.max(ordersKey, customersKey), index) < addForeignKey);
+        assertTrue(addForeignKey < validate);
+        assertTrue(validate < analyze);
+    }
+
+    @Test
+    void buildsRunWithTheirOwnMaintenanceMemory() {
+        service.finalizeTables(runContext, target, plan);
+
+        // Each step is preceded by its SET LOCAL in the same transaction
+        List<String> executed = target.executed;
+        int ordersKey = executed.indexOf("ALTER TABLE orders ADD CONSTRAINT orders_pkey PRIMARY KEY (id)");
+        assertEquals("SET LOCAL maintenance_work_mem = '64MB'", executed.get(ordersKey - 1));
+        assertEquals("SET LOCAL maintenance_work_mem = '64MB'",
+                executed.get(executed.indexOf(VALIDATE_FOREIGN_KEY) - 1));
+    }
+
+    @Test
+    void stepsThatAlreadyExistAreSkippedOnRerun() {
+        target.tablesWithPrimaryKey.addAll(Set.of("orders", "customers"));
+        target.constraints.put("fk_orders_customer", true);
+
+        List<String> errors = service.finalizeTables(runContext, target, plan);
+
+        assertTrue(errors.isEmpty(), errors.toString());
+        assertFalse(target.executed.stream().anyMatch(sql -> sql.contains("PRIMARY KEY")));
+        assertFalse(target.executed.contains(ADD_FOREIGN_KEY));
+        assertFalse(target.executed.contains(VALIDATE_FOREIGN_KEY));
+        // IF NOT EXISTS makes the index build a no-op
+        assertTrue(target.executed.stream().anyMatch(sql -> sql.startsWith("CREATE INDEX IF NOT EXISTS")));
+    }
+
+    @Test
+    void foreignKeyAddedButNotValidatedIsValidatedAgain() {
+        target.constraints.put("fk_orders_customer", false);
+
+        service.finalizeTables(runContext, target, plan);
+
+        assertFalse(target.executed.contains(ADD_FOREIGN_KEY));
+        assertTrue(target.executed.contains(VALIDATE_FOREIGN_KEY));
+    }
+
+    @Test
+    void foreignKeyThatFailsValidationIsDropped() {
+        target.failing.add(VALIDATE_FOREIGN_KEY);
+
+        List<String> errors = service.finalizeTables(runContext, target, plan);
+
+        assertEquals(1, errors.size());
+        assertTrue(errors.get(0).startsWith("Validate fk_orders_customer on orders"), errors.get(0));
+        assertTrue(target.executed.contains("ALTER TABLE orders DROP CONSTRAINT IF EXISTS fk_orders_customer"));
+        // The remaining steps still run
+        assertTrue(target.executed.contains("ANALYZE orders"));
+    }
+
+    @Test
+    void indexOnAnUnmappedFieldIsReported() {
+        ((ArrayNode) plan.get("indexes").get(0).get("columns")).add("missing");
+
+        List<String> errors = service.finalizeTables(runContext, target, plan);
+
+        assertEquals(List.of("Index idx_orders_customer: column not in table mapping"), errors);
+        assertFalse(target.executed.stream().anyMatch(sql -> sql.contains("idx_orders_customer")));
+    }
+
+    @Test
+    void tablesAreSetLoggedParentsFirst() {
+        List<String> errors = service.setLogged(runContext, target, plan);
+
+        assertTrue(errors.isEmpty(), errors.toString());
+        int customers = target.executed.indexOf("ALTER TABLE customers SET LOGGED");
+        int orders = target.executed.indexOf("ALTER TABLE orders SET LOGGED");
+        assertTrue(customers >= 0 && customers < orders, target.executed.toString());
+    }
+
+    /**
+     * Records the statements run against the target and answers the catalog lookups
+     */
+    private static class FakeTarget extends JdbcTemplate {
+        final List<String> executed = Collections.synchronizedList(new ArrayList<>());
+        final Set<String> tablesWithPrimaryKey = new HashSet<>();
+        final Map<String, Boolean> constraints = new HashMap<>();
+        final Set<String> failing = new HashSet<>();
+
+        @Override
+        public void execute(String sql) {
+            run(sql);
+        }
+
+        @Override
+        public <T> T execute(ConnectionCallback<T> action) {
+            Statement statement = (Statement) Proxy.newProxyInstance(getClass().getClassLoader(),
+                    new Class<?>[] {Statement.class}, (proxy, method, args) -> {
+                        if (method.getName().equals("execute")) {
+                            run((String) args[0]);
+                            return false;
+                        }
+                        return null;
+                    });
+            Connection connection = (Connection) Proxy.newProxyInstance(getClass().getClassLoader(),
+                    new Class<?>[] {Connection.class}, (proxy, method, args) -> {
+                        switch (method.getName()) {
+                            case "getAutoCommit":
+                                return true;
+                            case "createStatement":
+                                return statement;
+                            default:
+                                return null;
+                        }
+                    });
+            try {
+                return action.doInConnection(connection);
+            } catch (SQLException e) {
+                throw new UncategorizedSQLException("execute", null, e);
+            }
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public <T> T queryForObject(String sql, Class<T> requiredType, Object... args) {
+            return (T) Integer.valueOf(tablesWithPrimaryKey.contains((String) args[0]) ? 1 : 0);
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public <T> List<T> queryForList(String sql, Class<T> elementType, Object... args) {
+            Boolean validated = constraints.get((String) args[1]);
+            return validated == null ? List.of() : (List<T>) List.of(validated);
+        }
+
+        private void run(String sql) {
+            executed.add(sql);
+            if (failing.contains(sql)) {
+                throw new UncategorizedSQLException("execute", sql,
+                        new SQLException("insert or update violates foreign key constraint", "23503"));
+            }
+        }
+    }
+}
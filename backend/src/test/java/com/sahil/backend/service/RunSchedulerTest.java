@@ -0,0 +1,197 @@
+package com.sahil.backend.service;
+
+import com.sahil.backend.service.worker.TargetPermits;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RunSchedulerTest {
+
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+    private final List<String> order = Collections.synchronizedList(new ArrayList<>());
+    private final CountDownLatch gate = new CountDownLatch(1);
+
+    @AfterEach
+    void shutdown() {
+        gate.countDown();
+        executor.shutdownNow();
+    }
+
+    @Test
+    void runsAreAdmittedInArrivalOrderUpToTheRunLimit() throws Exception {
+        RunScheduler scheduler = scheduler(1, 4, 2, 100);
+        UUID first = UUID.randomUUID();
+        UUID second = UUID.randomUUID();
+        UUID third = UUID.randomUUID();
+        CountDownLatch thirdAdmitted = new CountDownLatch(1);
+
+        assertTrue(scheduler.admit(first, 1, 1, () -> { }));
+        assertTrue(scheduler.admit(second, 1, 1, () -> { }));
+        assertFalse(scheduler.admit(third, 1, 1, thirdAdmitted::countDown));
+        assertEquals(1, scheduler.getQueuePosition(third));
+
+        scheduler.release(first);
+
+        assertTrue(thirdAdmitted.await(5, TimeUnit.SECONDS));
+        assertEquals(0, scheduler.getQueuePosition(third));
+    }
+
+    @Test
+    void waitingRunsKeepTheirPlaceEvenWhenALaterOneWouldFit() throws Exception {
+        RunScheduler scheduler = scheduler(1, 4, 4, 10);
+        UUID running = UUID.randomUUID();
+        UUID large = UUID.randomUUID();
+        UUID small = UUID.randomUUID();
+        CountDownLatch bothAdmitted = new CountDownLatch(2);
+
+        assertTrue(scheduler.admit(running, 6, 1, () -> { }));
+        assertFalse(scheduler.admit(large, 6, 1, bothAdmitted::countDown));
+        assertFalse(scheduler.admit(small, 1, 1, bothAdmitted::countDown));
+        assertEquals(2, scheduler.getQueuePosition(small));
+
+        scheduler.release(running);
+
+        assertTrue(bothAdmitted.await(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void runLargerThanTheNodeIsAdmittedWhenAlone() {
+        RunScheduler scheduler = scheduler(1, 4, 4, 10);
+
+        assertTrue(scheduler.admit(UUID.randomUUID(), 50, 50, () -> { }));
+    }
+
+    @Test
+    void releasingAWaitingRunDropsItFromTheQueue() {
+        RunScheduler scheduler = scheduler(1, 4, 1, 10);
+        UUID running = UUID.randomUUID();
+        UUID dropped = UUID.randomUUID();
+        UUID behind = UUID.randomUUID();
+        scheduler.admit(running, 1, 1, () -> { });
+        scheduler.admit(dropped, 1, 1, () -> { });
+        scheduler.admit(behind, 1, 1, () -> { });
+
+        scheduler.release(dropped);
+
+        assertEquals(0, scheduler.getQueuePosition(dropped));
+        assertEquals(1, scheduler.getQueuePosition(behind));
+    }
+
+    @Test
+    void smallRunIsNotStarvedByALargeOne() throws Exception {
+        RunScheduler scheduler = scheduler(1, 4, 4, 100);
+        RunContext large = context(scheduler, UUID.randomUUID(), 1);
+        RunContext small = context(scheduler, UUID.randomUUID(), 1);
+
+        List<CompletableFuture<Boolean>> futures = new ArrayList<>();
+        futures.add(scheduler.submit(large, blocker("large")));
+        for (int i = 0; i < 10; i++) {
+            futures.add(scheduler.submit(large, task("large")));
+        }
+        futures.add(scheduler.submit(small, task("small")));
+        gate.countDown();
+        awaitAll(futures);
+
+        assertEquals("small", order.get(1));
+    }
+
+    @Test
+    void busyRunsShareWorkersByWeight() throws Exception {
+        RunScheduler scheduler = scheduler(1, 4, 4, 100);
+        RunContext light = context(scheduler, UUID.randomUUID(), 1);
+        RunContext heavy = context(scheduler, UUID.randomUUID(), 3);
+
+        List<CompletableFuture<Boolean>> futures = new ArrayList<>();
+        futures.add(scheduler.submit(light, blocker("light")));
+        for (int i = 0; i < 12; i++) {
+            futures.add(scheduler.submit(light, task("light")));
+            futures.add(scheduler.submit(heavy, task("heavy")));
+        }
+        gate.countDown();
+        awaitAll(futures);
+
+        // After the blocker, the heavy run gets about three of every four slots
+        List<String> firstEight = order.subList(1, 9);
+        long heavyTasks = firstEight.stream().filter("heavy"::equals).count();
+        assertTrue(heavyTasks >= 6 && heavyTasks <= 7, "heavy tasks in the first eight: " + heavyTasks);
+    }
+
+    @Test
+    void perUserCapLeavesSlotsForOtherUsers() throws Exception {
+        RunScheduler scheduler = scheduler(2, 1, 4, 100);
+        UUID user = UUID.randomUUID();
+        RunContext first = context(scheduler, user, 1);
+        RunContext second = context(scheduler, user, 1);
+        RunContext other = context(scheduler, UUID.randomUUID(), 1);
+
+        List<CompletableFuture<Boolean>> futures = new ArrayList<>();
+        futures.add(scheduler.submit(first, blocker("first")));
+        futures.add(scheduler.submit(second, task("second")));
+        CompletableFuture<Boolean> otherTask = scheduler.submit(other, task("other"));
+        futures.add(otherTask);
+
+        // The second run of the same user waits for the blocker; the other user's task does not
+        otherTask.get(5, TimeUnit.SECONDS);
+        assertTrue(order.contains("other"));
+        assertFalse(order.contains("second"));
+        gate.countDown();
+        awaitAll(futures);
+        assertEquals("second", order.get(2));
+    }
+
+    private RunScheduler scheduler(int maxWorkers, int maxWorkersPerUser, int maxActiveRuns, int maxSourceConnections) {
+        RunScheduler scheduler = new RunScheduler();
+        ReflectionTestUtils.setField(scheduler, "maxWorkers", maxWorkers);
+        ReflectionTestUtils.setField(scheduler, "maxWorkersPerUser", maxWorkersPerUser);
+        ReflectionTestUtils.setField(scheduler, "maxActiveRuns", maxActiveRuns);
+        ReflectionTestUtils.setField(scheduler, "maxSourceConnections", maxSourceConnections);
+        ReflectionTestUtils.setField(scheduler, "maxTargetConnections", 100);
+        ReflectionTestUtils.setField(scheduler, "maxInFlightBytes", 1L << 20);
+        scheduler.init();
+        return scheduler;
+    }
+
+    private RunContext context(RunScheduler scheduler, UUID userId, int weight) {
+        return new RunContext(UUID.randomUUID(), "THREAD_POOL", "BALANCED", executor, executor, 8,
+                new TargetPermits(8), null, scheduler, userId, weight);
+    }
+
+    private Supplier<Boolean> task(String name) {
+        return () -> {
+            order.add(name);
+            return true;
+        };
+    }
+
+    // Holds its worker slot until the test opens the gate
+    private Supplier<Boolean> blocker(String name) {
+        return () -> {
+            order.add(name);
+            try {
+                return gate.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        };
+    }
+
+    private static void awaitAll(List<CompletableFuture<Boolean>> futures) throws Exception {
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).get(5, TimeUnit.SECONDS);
+    }
+}
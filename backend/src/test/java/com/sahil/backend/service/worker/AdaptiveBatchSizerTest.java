@@ -0,0 +1,96 @@
+package com.sahil.backend.service.worker;
+
+import org.junit.jupiter.api.Test;
+
+import java.sql.SQLException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AdaptiveBatchSizerTest {
+
+    private static final long MILLIS = 1_000_000;
+
+    @Test
+    void initialSizeIsClampedToTheBounds() {
+        assertEquals(100, new AdaptiveBatchSizer(10, 100, 1000, 500, Long.MAX_VALUE).currentBatchSize());
+        assertEquals(1000, new AdaptiveBatchSizer(5000, 100, 1000, 500, Long.MAX_VALUE).currentBatchSize());
+    }
+
+    @Test
+    void fastCommitsGrowTheBatchAtMostTwofoldPerCommit() {
+        AdaptiveBatchSizer sizer = new AdaptiveBatchSizer(1000, 10, 100_000, 500, Long.MAX_VALUE);
+
+        // 1000 rows in 10ms: the ideal is 50,000 rows, but growth is capped at 2x
+        sizer.recordCommit(1000, 1000, 10 * MILLIS);
+        assertEquals(2000, sizer.currentBatchSize());
+
+        for (int i = 0; i < 50; i++) {
+            sizer.recordCommit(sizer.currentBatchSize(), 1000, 10 * MILLIS * sizer.currentBatchSize() / 1000);
+        }
+        assertEquals(50_000, sizer.currentBatchSize(), 50);
+    }
+
+    @Test
+    void slowCommitsMoveHalfwayTowardTheTargetTime() {
+        AdaptiveBatchSizer sizer = new AdaptiveBatchSizer(1000, 10, 100_000, 500, Long.MAX_VALUE);
+
+        // 1000 rows in 2s: 2ms per row, so 250 rows fit in 500ms
+        sizer.recordCommit(1000, 1000, 2000 * MILLIS);
+
+        assertEquals(625, sizer.currentBatchSize());
+    }
+
+    @Test
+    void byteBudgetCapsRowsOfWideTables() {
+        AdaptiveBatchSizer sizer = new AdaptiveBatchSizer(1000, 10, 100_000, 500, 1_000_000);
+
+        // 10 KB per row: at most 100 rows fit in 1 MB, however fast the commit was
+        sizer.recordCommit(1000, 10_000_000, MILLIS);
+
+        assertEquals(550, sizer.currentBatchSize());
+        assertEquals(10_000, sizer.getBytesPerRow(), 1e-9);
+    }
+
+    @Test
+    void pressureHalvesTheBatchAndHoldsItDuringTheCooldown() {
+        AdaptiveBatchSizer sizer = new AdaptiveBatchSizer(1000, 10, 100_000, 500, Long.MAX_VALUE);
+
+        assertTrue(sizer.recordFailure(new RuntimeException(new SQLException("deadlock", "40P01"))));
+        assertEquals(500, sizer.currentBatchSize());
+        assertEquals(1, sizer.getPressureEvents());
+
+        for (int i = 0; i < 5; i++) {
+            sizer.recordCommit(500, 500, MILLIS);
+            assertEquals(500, sizer.currentBatchSize());
+        }
+        sizer.recordCommit(500, 500, MILLIS);
+        assertEquals(1000, sizer.currentBatchSize());
+    }
+
+    @Test
+    void otherFailuresLeaveTheSizeAlone() {
+        AdaptiveBatchSizer sizer = new AdaptiveBatchSizer(1000, 10, 100_000, 500, Long.MAX_VALUE);
+
+        assertFalse(sizer.recordFailure(new SQLException("duplicate key", "23505")));
+        assertFalse(sizer.recordFailure(new IllegalStateException()));
+
+        assertEquals(1000, sizer.currentBatchSize());
+        assertEquals(0, sizer.getPressureEvents());
+    }
+
+    @Test
+    void batchBytesFollowTheObservedDocumentSize() {
+        AdaptiveBatchSizer sizer = new AdaptiveBatchSizer(1000, 10, 100_000, 500, 4_000_000);
+
+        // 1 KB per document until something has been read
+        assertEquals(1_024_000, sizer.currentBatchBytes());
+
+        sizer.recordRead(100, 200_000);
+        assertEquals(2_000_000, sizer.currentBatchBytes());
+
+        sizer.recordRead(100, 1_000_000);
+        assertEquals(4_000_000, sizer.currentBatchBytes());
+    }
+}
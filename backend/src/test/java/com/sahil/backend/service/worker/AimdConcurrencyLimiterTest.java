@@ -0,0 +1,163 @@
+package com.sahil.backend.service.worker;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AimdConcurrencyLimiterTest {
+
+    private static final int ROWS = 100;
+    private static final long NANOS = 100_000;
+
+    @Test
+    void startsHalfwayToTheCeiling() {
+        assertEquals(8, new AimdConcurrencyLimiter(1, 16).getLimit());
+        assertEquals(3, new AimdConcurrencyLimiter(3, 4).getLimit());
+    }
+
+    @Test
+    void successfulCommitsGrowTheLimitByOnePerWindowUpToTheCeiling() throws Exception {
+        AimdConcurrencyLimiter limiter = new AimdConcurrencyLimiter(1, 16);
+
+        // One window at limit 8 is eight commits
+        for (int i = 0; i < 8; i++) {
+            commit(limiter, NANOS, false);
+        }
+        assertEquals(8, limiter.getLimit());
+        commit(limiter, NANOS, false);
+        assertEquals(9, limiter.getLimit());
+
+        for (int i = 0; i < 1000; i++) {
+            commit(limiter, NANOS, false);
+        }
+        assertEquals(16, limiter.getLimit());
+        assertEquals(0, limiter.getDecreases());
+    }
+
+    @Test
+    void failureCutsTheLimitOncePerWindow() throws Exception {
+        AimdConcurrencyLimiter limiter = new AimdConcurrencyLimiter(1, 16);
+        for (int i = 0; i < 7; i++) {
+            commit(limiter, NANOS, false);
+        }
+
+        commit(limiter, NANOS, true);
+        int afterCut = limiter.getLimit();
+        assertEquals(6, afterCut);
+        assertEquals(1, limiter.getDecreases());
+
+        // A second failure from the same burst does not cut again
+        commit(limiter, NANOS, true);
+        assertEquals(afterCut, limiter.getLimit());
+        assertEquals(1, limiter.getDecreases());
+    }
+
+    @Test
+    void slowCommitsCountAsCongestion() throws Exception {
+        AimdConcurrencyLimiter limiter = new AimdConcurrencyLimiter(1, 16);
+        for (int i = 0; i < 8; i++) {
+            commit(limiter, NANOS, false);
+        }
+        int before = limiter.getLimit();
+
+        commit(limiter, NANOS * 5, false);
+
+        assertTrue(limiter.getLimit() < before);
+        assertEquals(1, limiter.getDecreases());
+    }
+
+    @Test
+    void limitNeverDropsBelowTheFloor() throws Exception {
+        AimdConcurrencyLimiter limiter = new AimdConcurrencyLimiter(2, 16);
+        for (int i = 0; i < 200; i++) {
+            commit(limiter, NANOS, true);
+        }
+        assertEquals(2, limiter.getLimit());
+    }
+
+    @Test
+    void ignoredReleaseFreesTheSlotWithoutFeedback() throws Exception {
+        AimdConcurrencyLimiter limiter = new AimdConcurrencyLimiter(1, 16);
+        for (int i = 0; i < 8; i++) {
+            commit(limiter, NANOS, false);
+        }
+        int before = limiter.getLimit();
+
+        for (int i = 0; i < 50; i++) {
+            limiter.acquire();
+            limiter.releaseIgnored();
+        }
+
+        assertEquals(before, limiter.getLimit());
+        assertEquals(0, limiter.getDecreases());
+        assertEquals(0, limiter.getInFlight());
+    }
+
+    @Test
+    void registeredRunsApplyTheTightestBounds() {
+        AimdConcurrencyLimiter limiter = new AimdConcurrencyLimiter(1, 16);
+        UUID small = UUID.randomUUID();
+        UUID large = UUID.randomUUID();
+
+        limiter.addBounds(small, 2, 4);
+        assertEquals(2, limiter.getFloor());
+        assertEquals(4, limiter.getCeiling());
+        assertEquals(4, limiter.getLimit());
+
+        limiter.addBounds(large, 3, 12);
+        assertEquals(3, limiter.getFloor());
+        assertEquals(4, limiter.getCeiling());
+
+        limiter.removeBounds(small);
+        assertEquals(3, limiter.getFloor());
+        assertEquals(12, limiter.getCeiling());
+
+        limiter.removeBounds(large);
+        assertEquals(1, limiter.getFloor());
+        assertEquals(16, limiter.getCeiling());
+    }
+
+    @Test
+    void floorAboveAnotherRunsCeilingGivesWay() {
+        AimdConcurrencyLimiter limiter = new AimdConcurrencyLimiter(1, 16);
+        limiter.addBounds(UUID.randomUUID(), 8, 16);
+        limiter.addBounds(UUID.randomUUID(), 1, 4);
+
+        assertEquals(4, limiter.getFloor());
+        assertEquals(4, limiter.getCeiling());
+        assertEquals(4, limiter.getLimit());
+    }
+
+    @Test
+    void acquireWaitsForAFreeSlot() throws Exception {
+        AimdConcurrencyLimiter limiter = new AimdConcurrencyLimiter(1, 2);
+        limiter.acquire();
+
+        CountDownLatch acquired = new CountDownLatch(1);
+        Thread waiter = new Thread(() -> {
+            try {
+                limiter.acquire();
+                acquired.countDown();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        waiter.start();
+
+        assertFalse(acquired.await(100, TimeUnit.MILLISECONDS));
+        limiter.release(ROWS, NANOS, false);
+        assertTrue(acquired.await(5, TimeUnit.SECONDS));
+        waiter.join();
+    }
+
+    private static void commit(AimdConcurrencyLimiter limiter, long nanos, boolean failed) throws Exception {
+        limiter.acquire();
+        limiter.release(ROWS, nanos, failed);
+    }
+}
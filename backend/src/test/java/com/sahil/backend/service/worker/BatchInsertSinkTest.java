@@ -0,0 +1,120 @@
+package com.sahil.backend.service.worker;
+
+import org.bson.BsonBoolean;
+import org.bson.BsonDocument;
+import org.bson.BsonDouble;
+import org.bson.BsonInt32;
+import org.bson.BsonInt64;
+import org.bson.BsonNull;
+import org.bson.BsonString;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.Types;
+import java.util.List;
+
+import static com.sahil.backend.service.worker.BinaryCopySinkTest.mapping;
+import static com.sahil.backend.service.worker.BinaryCopySinkTest.raw;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class BatchInsertSinkTest {
+
+    private final CompiledTableMapping mapping = mapping(
+            "count", "INTEGER", "total", "BIGINT", "ratio", "DOUBLE PRECISION", "active", "BOOLEAN",
+            "name", "TEXT", "meta", "JSONB");
+
+    @Test
+    void valuesAreConvertedIntoTypedColumns() {
+        BatchInsertSink sink = new BatchInsertSink(null, BsonJsonEncoder.Mode.RELAXED);
+
+        RowBatch batch = sink.encode(mapping, List.of(raw(full(1)), raw(empty(2))));
+        RowColumns values = batch.getValues();
+
+        assertEquals(2, batch.getRowCount());
+        assertEquals(2, batch.getLastId());
+        assertEquals(-7, values.getInt(0, 0));
+        assertEquals(1L << 40, values.getLong(1, 0));
+        assertEquals(0.5, values.getDouble(2, 0), 0);
+        assertTrue(values.getBoolean(3, 0));
+        assertEquals("x", values.getObject(4, 0));
+        assertEquals("{\"a\":1}", values.getObject(5, 0));
+        for (int c = 0; c < mapping.size(); c++) {
+            assertFalse(values.isNull(c, 0));
+            assertTrue(values.isNull(c, 1));
+        }
+    }
+
+    @Test
+    void rowsAreBoundWithPrimitiveSettersAndTypedNulls() throws Exception {
+        BatchInsertSink sink = new BatchInsertSink(null, BsonJsonEncoder.Mode.RELAXED);
+        RowBatch batch = sink.encode(mapping, List.of(raw(full(1)), raw(empty(2))));
+        Connection connection = mock(Connection.class);
+        PreparedStatement statement = mock(PreparedStatement.class);
+        when(connection.prepareStatement(anyString())).thenReturn(statement);
+
+        sink.write(connection, "orders", mapping, batch);
+
+        verify(connection).prepareStatement("INSERT INTO orders (count, total, ratio, active, name, meta) "
+                + "VALUES (?, ?, ?, ?, ?, ?::jsonb)");
+        verify(statement).setInt(1, -7);
+        verify(statement).setLong(2, 1L << 40);
+        verify(statement).setDouble(3, 0.5);
+        verify(statement).setBoolean(4, true);
+        verify(statement).setObject(5, "x");
+        verify(statement).setObject(6, "{\"a\":1}");
+        verify(statement).setNull(1, Types.INTEGER);
+        verify(statement).setNull(2, Types.BIGINT);
+        verify(statement).setNull(6, Types.OTHER);
+        verify(statement, times(2)).addBatch();
+        verify(statement).executeBatch();
+    }
+
+    @Test
+    void conflictColumnTurnsTheInsertIntoAnUpsert() throws Exception {
+        BatchInsertSink sink = new BatchInsertSink("count", BsonJsonEncoder.Mode.RELAXED);
+        CompiledTableMapping pair = mapping("count", "INTEGER", "name", "TEXT");
+        RowBatch batch = sink.encode(pair, List.of(raw(full(1))));
+        Connection connection = mock(Connection.class);
+        when(connection.prepareStatement(anyString())).thenReturn(mock(PreparedStatement.class));
+
+        sink.write(connection, "orders", pair, batch);
+
+        verify(connection).prepareStatement("INSERT INTO orders (count, name) VALUES (?, ?)"
+                + " ON CONFLICT (count) DO UPDATE SET name = EXCLUDED.name");
+    }
+
+    @Test
+    void numberThatDoesNotFitIsARowError() {
+        BatchInsertSink sink = new BatchInsertSink(null, BsonJsonEncoder.Mode.RELAXED);
+        BsonDocument document = new BsonDocument("_id", new BsonInt32(1)).append("count", new BsonDouble(3.7));
+
+        RowConversionException error = assertThrows(RowConversionException.class,
+                () -> sink.encode(mapping, List.of(raw(document))));
+
+        assertTrue(error.getMessage().startsWith("Cannot convert count to INTEGER"));
+    }
+
+    private static BsonDocument full(int id) {
+        return new BsonDocument("_id", new BsonInt32(id))
+                .append("count", new BsonInt32(-7))
+                .append("total", new BsonInt64(1L << 40))
+                .append("ratio", new BsonDouble(0.5))
+                .append("active", BsonBoolean.TRUE)
+                .append("name", new BsonString("x"))
+                .append("meta", new BsonDocument("a", new BsonInt32(1)));
+    }
+
+    // Every mapped field missing or null
+    private static BsonDocument empty(int id) {
+        return new BsonDocument("_id", new BsonInt32(id)).append("count", BsonNull.VALUE);
+    }
+}
@@ -0,0 +1,164 @@
+package com.sahil.backend.service.worker;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import org.bson.BsonBoolean;
+import org.bson.BsonDateTime;
+import org.bson.BsonDocument;
+import org.bson.BsonDouble;
+import org.bson.BsonInt32;
+import org.bson.BsonInt64;
+import org.bson.BsonNull;
+import org.bson.BsonString;
+import org.bson.RawBsonDocument;
+import org.bson.codecs.BsonDocumentCodec;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BinaryCopySinkTest {
+
+    // 2000-01-01T00:00:00Z, the PostgreSQL timestamp epoch
+    private static final long PG_EPOCH_MILLIS = 946_684_800_000L;
+
+    private final BinaryCopySink sink = new BinaryCopySink(BsonJsonEncoder.Mode.RELAXED);
+
+    @Test
+    void fieldsAreWrittenInPostgresBinaryFormat() throws IOException {
+        UUID uuid = UUID.fromString("10000000-0000-4000-8000-000000000001");
+        CompiledTableMapping mapping = mapping(
+                "id", "UUID", "count", "INTEGER", "total", "BIGINT", "ratio", "DOUBLE PRECISION",
+                "active", "BOOLEAN", "createdAt", "TIMESTAMP", "name", "VARCHAR(255)", "meta", "JSONB");
+        BsonDocument document = new BsonDocument("_id", new BsonInt32(1))
+                .append("id", new BsonString(uuid.toString()))
+                .append("count", new BsonInt32(-7))
+                .append("total", new BsonInt64(1L << 40))
+                .append("ratio", new BsonDouble(0.25))
+                .append("active", BsonBoolean.TRUE)
+                .append("createdAt", new BsonDateTime(PG_EPOCH_MILLIS + 1_500))
+                .append("name", new BsonString("é"))
+                .append("meta", new BsonDocument("a", new BsonInt32(1)));
+
+        DataInputStream in = tuples(sink.encode(mapping, List.of(raw(document))));
+
+        assertEquals(8, in.readShort());
+        assertEquals(16, in.readInt());
+        assertEquals(uuid.getMostSignificantBits(), in.readLong());
+        assertEquals(uuid.getLeastSignificantBits(), in.readLong());
+        assertEquals(4, in.readInt());
+        assertEquals(-7, in.readInt());
+        assertEquals(8, in.readInt());
+        assertEquals(1L << 40, in.readLong());
+        assertEquals(8, in.readInt());
+        assertEquals(0.25, in.readDouble(), 0);
+        assertEquals(1, in.readInt());
+        assertEquals(1, in.readByte());
+        assertEquals(8, in.readInt());
+        assertEquals(1_500_000, in.readLong());
+        assertArrayEquals("é".getBytes(StandardCharsets.UTF_8), field(in));
+        byte[] jsonb = field(in);
+        assertEquals(1, jsonb[0]);
+        assertEquals("{\"a\":1}", new String(jsonb, 1, jsonb.length - 1, StandardCharsets.UTF_8));
+        assertEquals(0, in.available());
+    }
+
+    @Test
+    void nullAndMissingFieldsHaveLengthMinusOne() throws IOException {
+        CompiledTableMapping mapping = mapping("count", "INTEGER", "name", "TEXT");
+        BsonDocument document = new BsonDocument("_id", new BsonInt32(1)).append("count", BsonNull.VALUE);
+
+        DataInputStream in = tuples(sink.encode(mapping, List.of(raw(document))));
+
+        assertEquals(2, in.readShort());
+        assertEquals(-1, in.readInt());
+        assertEquals(-1, in.readInt());
+        assertEquals(0, in.available());
+    }
+
+    @Test
+    void timestampsBeforeThePostgresEpochAreNegative() throws IOException {
+        CompiledTableMapping mapping = mapping("at", "TIMESTAMP");
+        BsonDocument document = new BsonDocument("_id", new BsonInt32(1))
+                .append("at", new BsonDateTime(PG_EPOCH_MILLIS - 1));
+
+        DataInputStream in = tuples(sink.encode(mapping, List.of(raw(document))));
+
+        in.readShort();
+        assertEquals(8, in.readInt());
+        assertEquals(-1_000, in.readLong());
+    }
+
+    @Test
+    void batchCarriesItsRowCountAndLastId() {
+        CompiledTableMapping mapping = mapping("count", "INTEGER");
+        List<RawBsonDocument> documents = List.of(
+                raw(new BsonDocument("_id", new BsonInt32(3)).append("count", new BsonInt32(1))),
+                raw(new BsonDocument("_id", new BsonInt32(9)).append("count", new BsonInt32(2))));
+
+        RowBatch batch = sink.encode(mapping, documents);
+
+        assertEquals(2, batch.getRowCount());
+        assertEquals(9, batch.getLastId());
+        // Two tuples of a column count and one int4 field
+        assertEquals(2 * (2 + 4 + 4), batch.getEncodedRows().length);
+    }
+
+    @Test
+    void valueThatDoesNotFitIsARowErrorNamingItsField() {
+        CompiledTableMapping mapping = mapping("count", "INTEGER");
+        BsonDocument document = new BsonDocument("_id", new BsonInt32(1)).append("count", new BsonInt64(1L << 31));
+
+        RowConversionException error = assertThrows(RowConversionException.class,
+                () -> sink.encode(mapping, List.of(raw(document))));
+
+        assertTrue(error.getMessage().startsWith("Cannot convert count to INTEGER"));
+        assertTrue(DeadLetterStore.isRowError(error));
+    }
+
+    @Test
+    void fractionalNumberInABigintColumnIsRejected() {
+        CompiledTableMapping mapping = mapping("total", "BIGINT");
+        BsonDocument document = new BsonDocument("_id", new BsonInt32(1)).append("total", new BsonDouble(3.7));
+
+        assertThrows(RowConversionException.class, () -> sink.encode(mapping, List.of(raw(document))));
+    }
+
+    /**
+     * Compiles a mapping from alternating source field and data type pairs; each column is
+     * named after its field
+     */
+    static CompiledTableMapping mapping(String... fieldsAndTypes) {
+        ArrayNode columns = new ObjectMapper().createArrayNode();
+        for (int i = 0; i < fieldsAndTypes.length; i += 2) {
+            columns.addObject()
+                    .put("sourceField", fieldsAndTypes[i])
+                    .put("targetColumn", fieldsAndTypes[i].toLowerCase())
+                    .put("dataType", fieldsAndTypes[i + 1]);
+        }
+        return CompiledTableMapping.compile(columns);
+    }
+
+    static RawBsonDocument raw(BsonDocument document) {
+        return new RawBsonDocument(document, new BsonDocumentCodec());
+    }
+
+    private static DataInputStream tuples(RowBatch batch) {
+        return new DataInputStream(new ByteArrayInputStream(batch.getEncodedRows()));
+    }
+
+    private static byte[] field(DataInputStream in) throws IOException {
+        byte[] bytes = new byte[in.readInt()];
+        in.readFully(bytes);
+        return bytes;
+    }
+}
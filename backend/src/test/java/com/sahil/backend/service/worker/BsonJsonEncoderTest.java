@@ -0,0 +1,150 @@
+package com.sahil.backend.service.worker;
+
+import org.bson.BsonArray;
+import org.bson.BsonBinary;
+import org.bson.BsonBoolean;
+import org.bson.BsonDateTime;
+import org.bson.BsonDecimal128;
+import org.bson.BsonDocument;
+import org.bson.BsonDouble;
+import org.bson.BsonInt32;
+import org.bson.BsonInt64;
+import org.bson.BsonNull;
+import org.bson.BsonObjectId;
+import org.bson.BsonRegularExpression;
+import org.bson.BsonString;
+import org.bson.BsonTimestamp;
+import org.bson.BsonValue;
+import org.bson.RawBsonDocument;
+import org.bson.UuidRepresentation;
+import org.bson.codecs.BsonDocumentCodec;
+import org.bson.json.JsonMode;
+import org.bson.json.JsonWriterSettings;
+import org.bson.types.Decimal128;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class BsonJsonEncoderTest {
+
+    @Test
+    void escapesQuotesBackslashesAndControlCharacters() {
+        assertEquals("\"a\\\"b\\\\c\\nd\\re\\tf\\u0001\"",
+                encode(BsonJsonEncoder.Mode.RELAXED, new BsonString("a\"b\\c\nd\re\tf\u0001")));
+    }
+
+    @Test
+    void writesNonAsciiTextAsUtf8() {
+        BsonJsonEncoder encoder = new BsonJsonEncoder(BsonJsonEncoder.Mode.RELAXED);
+        encoder.encode(new BsonString("é€😀"));
+
+        assertArrayEquals("\"é€😀\"".getBytes(StandardCharsets.UTF_8),
+                Arrays.copyOf(encoder.buffer(), encoder.length()));
+    }
+
+    @Test
+    void replacesUnpairedSurrogates() {
+        assertEquals("\"a?b\"", encode(BsonJsonEncoder.Mode.RELAXED, new BsonString("a\uD800b")));
+    }
+
+    @Test
+    void relaxedModeWritesPlainNumbersAndIsoDates() {
+        assertEquals("42", encode(BsonJsonEncoder.Mode.RELAXED, new BsonInt32(42)));
+        assertEquals("42", encode(BsonJsonEncoder.Mode.RELAXED, new BsonInt64(42)));
+        assertEquals("2.5", encode(BsonJsonEncoder.Mode.RELAXED, new BsonDouble(2.5)));
+        assertEquals("{\"$date\":\"1970-01-01T00:00:01Z\"}",
+                encode(BsonJsonEncoder.Mode.RELAXED, new BsonDateTime(1_000)));
+        // Dates before 1970 have no ISO form in relaxed mode
+        assertEquals("{\"$date\":{\"$numberLong\":\"-1\"}}",
+                encode(BsonJsonEncoder.Mode.RELAXED, new BsonDateTime(-1)));
+    }
+
+    @Test
+    void canonicalModeWrapsNumbersAndDates() {
+        assertEquals("{\"$numberInt\":\"42\"}", encode(BsonJsonEncoder.Mode.CANONICAL, new BsonInt32(42)));
+        assertEquals("{\"$numberLong\":\"42\"}", encode(BsonJsonEncoder.Mode.CANONICAL, new BsonInt64(42)));
+        assertEquals("{\"$numberDouble\":\"2.5\"}", encode(BsonJsonEncoder.Mode.CANONICAL, new BsonDouble(2.5)));
+        assertEquals("{\"$date\":{\"$numberLong\":\"1000\"}}",
+                encode(BsonJsonEncoder.Mode.CANONICAL, new BsonDateTime(1_000)));
+    }
+
+    @Test
+    void nonFiniteDoublesAreWrappedInBothModes() {
+        assertEquals("{\"$numberDouble\":\"NaN\"}", encode(BsonJsonEncoder.Mode.RELAXED, new BsonDouble(Double.NaN)));
+        assertEquals("{\"$numberDouble\":\"-Infinity\"}",
+                encode(BsonJsonEncoder.Mode.CANONICAL, new BsonDouble(Double.NEGATIVE_INFINITY)));
+    }
+
+    @Test
+    void nullAndMissingValuesAreJsonNull() {
+        assertEquals("null", encode(BsonJsonEncoder.Mode.RELAXED, BsonNull.VALUE));
+        assertEquals("null", encode(BsonJsonEncoder.Mode.RELAXED, null));
+    }
+
+    @Test
+    void canonicalOutputRoundTripsThroughTheDriverParser() {
+        BsonDocument document = sample();
+
+        assertEquals(document, BsonDocument.parse(encode(BsonJsonEncoder.Mode.CANONICAL, document)));
+    }
+
+    @Test
+    void relaxedOutputMatchesTheDriver() {
+        BsonDocument document = sample();
+        String driver = document.toJson(JsonWriterSettings.builder().outputMode(JsonMode.RELAXED).build());
+
+        assertEquals(BsonDocument.parse(driver), BsonDocument.parse(encode(BsonJsonEncoder.Mode.RELAXED, document)));
+    }
+
+    @Test
+    void rawDocumentsEncodeLikeDecodedOnes() {
+        BsonDocument document = sample();
+        RawBsonDocument raw = new RawBsonDocument(document, new BsonDocumentCodec());
+
+        for (BsonJsonEncoder.Mode mode : BsonJsonEncoder.Mode.values()) {
+            assertEquals(encode(mode, document), encode(mode, raw));
+        }
+    }
+
+    @Test
+    void bufferIsReusedForEachValue() {
+        BsonJsonEncoder encoder = new BsonJsonEncoder(BsonJsonEncoder.Mode.RELAXED);
+        encoder.encode(new BsonString("x".repeat(20_000)));
+        assertEquals(20_002, encoder.length());
+
+        encoder.encode(new BsonInt32(7));
+        assertEquals("7", encoder.asString());
+    }
+
+    private static String encode(BsonJsonEncoder.Mode mode, BsonValue value) {
+        BsonJsonEncoder encoder = new BsonJsonEncoder(mode);
+        encoder.encode(value);
+        return encoder.asString();
+    }
+
+    private static BsonDocument sample() {
+        return new BsonDocument("text", new BsonString("line\n\"quoted\" é"))
+                .append("int", new BsonInt32(-7))
+                .append("long", new BsonInt64(1L << 40))
+                .append("double", new BsonDouble(0.1))
+                .append("decimal", new BsonDecimal128(new Decimal128(new BigDecimal("1.10"))))
+                .append("flag", BsonBoolean.TRUE)
+                .append("nothing", BsonNull.VALUE)
+                .append("oid", new BsonObjectId(new ObjectId("5f1d7a2b9c8e4a0012345678")))
+                .append("date", new BsonDateTime(1_600_000_000_123L))
+                .append("uuid", new BsonBinary(UUID.fromString("10000000-0000-4000-8000-000000000000"),
+                        UuidRepresentation.STANDARD))
+                .append("ts", new BsonTimestamp(1_600_000_000, 3))
+                .append("regex", new BsonRegularExpression("^a.*", "i"))
+                .append("nested", new BsonDocument("k", new BsonArray(List.of(
+                        new BsonInt32(1), new BsonString("x"), new BsonDocument("y", BsonNull.VALUE)))));
+    }
+}
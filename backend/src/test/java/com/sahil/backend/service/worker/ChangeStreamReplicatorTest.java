@@ -0,0 +1,184 @@
+package com.sahil.backend.service.worker;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mongodb.MongoNamespace;
+import com.mongodb.client.ChangeStreamIterable;
+import com.mongodb.client.MongoChangeStreamCursor;
+import com.mongodb.client.MongoDatabase;
+import com.mongodb.client.model.changestream.ChangeStreamDocument;
+import com.mongodb.client.model.changestream.OperationType;
+import org.bson.BsonDocument;
+import org.bson.BsonInt32;
+import org.bson.BsonString;
+import org.bson.Document;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+import org.springframework.jdbc.UncategorizedSQLException;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Array;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.RETURNS_SELF;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ChangeStreamReplicatorTest {
+
+    private static final BsonDocument TOKEN = new BsonDocument("_data", new BsonString("8263"));
+
+    private final Queue<ChangeStreamDocument<Document>> events = new ArrayDeque<>();
+    private final List<BsonDocument> savedTokens = new ArrayList<>();
+    private final ReplicationMetrics metrics = new ReplicationMetrics();
+    private final Connection connection = mock(Connection.class);
+    private final Statement statement = mock(Statement.class);
+    private final PreparedStatement upsert = mock(PreparedStatement.class);
+    private final PreparedStatement delete = mock(PreparedStatement.class);
+    private final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+    private ChangeStreamReplicator replicator;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() throws Exception {
+        when(connection.getAutoCommit()).thenReturn(true);
+        when(connection.createStatement()).thenReturn(statement);
+        when(connection.prepareStatement(anyString()))
+                .thenAnswer(invocation -> ((String) invocation.getArgument(0)).startsWith("DELETE") ? delete : upsert);
+        when(connection.createArrayOf(anyString(), any())).thenReturn(mock(Array.class));
+        when(jdbcTemplate.execute(any(ConnectionCallback.class))).thenAnswer(invocation -> {
+            try {
+                return ((ConnectionCallback<?>) invocation.getArgument(0)).doInConnection(connection);
+            } catch (SQLException e) {
+                throw new UncategorizedSQLException("flush", null, e);
+            }
+        });
+
+        // The stream ends the test once it has nothing more to return
+        MongoChangeStreamCursor<ChangeStreamDocument<Document>> cursor = mock(MongoChangeStreamCursor.class);
+        when(cursor.tryNext()).thenAnswer(invocation -> {
+            ChangeStreamDocument<Document> event = events.poll();
+            if (event == null) {
+                replicator.stop();
+            }
+            return event;
+        });
+        when(cursor.getResumeToken()).thenReturn(TOKEN);
+        ChangeStreamIterable<Document> stream = mock(ChangeStreamIterable.class, RETURNS_SELF);
+        when(stream.cursor()).thenReturn(cursor);
+        MongoDatabase database = mock(MongoDatabase.class);
+        when(database.watch(anyList())).thenReturn(stream);
+
+        replicator = new ChangeStreamReplicator(database, jdbcTemplate, List.of(mapping()), null,
+                savedTokens::add, metrics, BsonJsonEncoder.Mode.RELAXED);
+    }
+
+    @Test
+    void eventsAreCollapsedToTheLatestStatePerId() throws Exception {
+        events.add(event("orders", OperationType.INSERT, 1, "a"));
+        events.add(event("orders", OperationType.INSERT, 2, "old"));
+        events.add(event("orders", OperationType.UPDATE, 2, "b"));
+        events.add(event("orders", OperationType.INSERT, 3, "c"));
+        events.add(event("orders", OperationType.DELETE, 3, null));
+        events.add(event("orders", OperationType.DELETE, 4, null));
+
+        replicator.run();
+
+        verify(connection).prepareStatement(
+                "INSERT INTO orders (id, name) VALUES (?, ?) ON CONFLICT (id) DO UPDATE SET name = EXCLUDED.name");
+        verify(upsert).setInt(1, 1);
+        verify(upsert).setObject(2, "a");
+        verify(upsert).setInt(1, 2);
+        verify(upsert).setObject(2, "b");
+        verify(upsert, never()).setObject(2, "old");
+        verify(upsert, times(2)).addBatch();
+        verify(connection).prepareStatement("DELETE FROM orders WHERE id = ANY(?)");
+        verify(connection).createArrayOf("integer", new Object[] {3, 4});
+        verify(delete).executeUpdate();
+
+        Map<String, Object> table = metrics.snapshot().get(0);
+        assertEquals(2L, table.get("upserts"));
+        assertEquals(2L, table.get("deletes"));
+    }
+
+    @Test
+    void resumeTokenIsSavedOnlyAfterTheBatchCommits() throws Exception {
+        events.add(event("orders", OperationType.INSERT, 1, "a"));
+
+        replicator.run();
+
+        InOrder order = inOrder(statement, connection);
+        order.verify(statement).execute("SET LOCAL synchronous_commit = on");
+        order.verify(connection).commit();
+        assertEquals(List.of(TOKEN), savedTokens);
+    }
+
+    @Test
+    void failedBatchIsRolledBackAndKeepsTheOldResumeToken() throws Exception {
+        events.add(event("orders", OperationType.INSERT, 1, "a"));
+        when(upsert.executeBatch()).thenThrow(new SQLException("connection lost", "08006"));
+
+        assertThrows(UncategorizedSQLException.class, () -> replicator.run());
+
+        verify(connection).rollback();
+        verify(connection, never()).commit();
+        assertTrue(savedTokens.isEmpty());
+    }
+
+    @Test
+    void eventsOfUnmappedCollectionsAreIgnored() {
+        events.add(event("audit", OperationType.INSERT, 1, "a"));
+
+        replicator.run();
+
+        verify(jdbcTemplate, never()).execute(any(ConnectionCallback.class));
+        assertTrue(savedTokens.isEmpty());
+    }
+
+    @Test
+    void tableWithoutAnIdColumnIsRejected() throws Exception {
+        JsonNode mapping = new ObjectMapper().readTree("{\"sourceCollection\":\"orders\",\"targetTable\":\"orders\","
+                + "\"columns\":[{\"sourceField\":\"name\",\"targetColumn\":\"name\",\"dataType\":\"TEXT\"}]}");
+
+        assertThrows(RuntimeException.class, () -> new ChangeStreamReplicator(mock(MongoDatabase.class),
+                jdbcTemplate, List.of(mapping), null, token -> { }, metrics, BsonJsonEncoder.Mode.RELAXED));
+    }
+
+    private static JsonNode mapping() throws Exception {
+        return new ObjectMapper().readTree("{\"sourceCollection\":\"orders\",\"targetTable\":\"orders\",\"columns\":["
+                + "{\"sourceField\":\"_id\",\"targetColumn\":\"id\",\"dataType\":\"INTEGER\"},"
+                + "{\"sourceField\":\"name\",\"targetColumn\":\"name\",\"dataType\":\"TEXT\"}]}");
+    }
+
+    @SuppressWarnings("unchecked")
+    private static ChangeStreamDocument<Document> event(String collection, OperationType type, int id, String name) {
+        ChangeStreamDocument<Document> event = mock(ChangeStreamDocument.class);
+        when(event.getNamespace()).thenReturn(new MongoNamespace("shop", collection));
+        when(event.getOperationType()).thenReturn(type);
+        when(event.getDocumentKey()).thenReturn(new BsonDocument("_id", new BsonInt32(id)));
+        if (type != OperationType.DELETE) {
+            when(event.getFullDocument()).thenReturn(new Document("_id", id).append("name", name));
+        }
+        return event;
+    }
+}
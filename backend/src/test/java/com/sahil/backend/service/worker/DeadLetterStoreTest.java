@@ -0,0 +1,107 @@
+package com.sahil.backend.service.worker;
+
+import org.bson.BsonDocument;
+import org.bson.BsonInt32;
+import org.bson.RawBsonDocument;
+import org.bson.codecs.BsonDocumentCodec;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataIntegrityViolationException;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DeadLetterStoreTest {
+
+    @Test
+    void rowErrorsAreConversionFailuresAndDataOrConstraintStates() {
+        assertTrue(DeadLetterStore.isRowError(new RowConversionException("bad number", new NumberFormatException())));
+        assertTrue(DeadLetterStore.isRowError(new RuntimeException(new SQLException("duplicate key", "23505"))));
+        assertTrue(DeadLetterStore.isRowError(
+                new DataIntegrityViolationException("invalid text", new SQLException("invalid input", "22P02"))));
+    }
+
+    @Test
+    void connectionFailuresAndBugsAreNotRowErrors() {
+        assertFalse(DeadLetterStore.isRowError(new SQLException("connection lost", "08006")));
+        assertFalse(DeadLetterStore.isRowError(new SQLException("no state")));
+        assertFalse(DeadLetterStore.isRowError(new NullPointerException()));
+        assertFalse(DeadLetterStore.isRowError(new IllegalStateException("pipeline bug")));
+    }
+
+    @Test
+    void cleanBatchIsCommittedInOneChunk() throws Exception {
+        List<List<Integer>> commits = new ArrayList<>();
+
+        int rejected = DeadLetterStore.isolate(documents(8), committer(Set.of(), commits), (document, error) -> {
+            throw new AssertionError("nothing should be rejected");
+        });
+
+        assertEquals(0, rejected);
+        assertEquals(List.of(List.of(0, 1, 2, 3, 4, 5, 6, 7)), commits);
+    }
+
+    @Test
+    void badDocumentsAreRejectedAloneAndTheRestCommittedInOrder() throws Exception {
+        List<List<Integer>> commits = new ArrayList<>();
+        List<Integer> rejectedIds = new ArrayList<>();
+
+        int rejected = DeadLetterStore.isolate(documents(8), committer(Set.of(2, 7), commits),
+                (document, error) -> {
+                    assertTrue(DeadLetterStore.isRowError(error));
+                    rejectedIds.add(id(document));
+                });
+
+        assertEquals(2, rejected);
+        assertEquals(List.of(2, 7), rejectedIds);
+        assertEquals(List.of(List.of(0, 1), List.of(3), List.of(4, 5), List.of(6)), commits);
+    }
+
+    @Test
+    void otherFailuresStopIsolation() {
+        RuntimeException outage = new RuntimeException(new SQLException("connection lost", "08006"));
+        List<Integer> rejectedIds = new ArrayList<>();
+
+        RuntimeException thrown = assertThrows(RuntimeException.class, () -> DeadLetterStore.isolate(documents(4),
+                chunk -> {
+                    throw outage;
+                },
+                (document, error) -> rejectedIds.add(id(document))));
+
+        assertSame(outage, thrown);
+        assertTrue(rejectedIds.isEmpty());
+    }
+
+    /**
+     * Commits a chunk unless it holds one of the bad _ids, recording the _ids of each commit
+     */
+    private static DeadLetterStore.ChunkCommitter committer(Set<Integer> bad, List<List<Integer>> commits) {
+        return chunk -> {
+            List<Integer> ids = chunk.stream().map(DeadLetterStoreTest::id).collect(Collectors.toList());
+            if (ids.stream().anyMatch(bad::contains)) {
+                throw new RowConversionException("bad row", new NumberFormatException());
+            }
+            commits.add(ids);
+        };
+    }
+
+    private static List<RawBsonDocument> documents(int count) {
+        List<RawBsonDocument> documents = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            documents.add(new RawBsonDocument(new BsonDocument("_id", new BsonInt32(i)), new BsonDocumentCodec()));
+        }
+        return documents;
+    }
+
+    private static int id(RawBsonDocument document) {
+        return document.getInt32("_id").getValue();
+    }
+}
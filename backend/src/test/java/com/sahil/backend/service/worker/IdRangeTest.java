@@ -0,0 +1,408 @@
+package com.sahil.backend.service.worker;
+
+import org.bson.BsonBinary;
+import org.bson.BsonBinarySubType;
+import org.bson.BsonBoolean;
+import org.bson.BsonDateTime;
+import org.bson.BsonDecimal128;
+import org.bson.BsonDocument;
+import org.bson.BsonDouble;
+import org.bson.BsonInt32;
+import org.bson.BsonInt64;
+import org.bson.BsonJavaScript;
+import org.bson.BsonMaxKey;
+import org.bson.BsonMinKey;
+import org.bson.BsonObjectId;
+import org.bson.BsonString;
+import org.bson.BsonTimestamp;
+import org.bson.BsonValue;
+import org.bson.Document;
+import org.bson.UuidRepresentation;
+import org.bson.types.Binary;
+import org.bson.types.Decimal128;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Evaluates the generated filters against _ids of every BSON type with a small matcher that
+ * follows MongoDB's comparison rules, so no server is needed.
+ */
+class IdRangeTest {
+
+    private static final UUID UUID_LOW = UUID.fromString("10000000-0000-4000-8000-000000000000");
+    private static final UUID UUID_MID = UUID.fromString("80000000-0000-4000-8000-000000000000");
+    private static final UUID UUID_HIGH = UUID.fromString("f0000000-0000-4000-8000-000000000000");
+
+    private static final ObjectId OID_LOW = new ObjectId("100000000000000000000000");
+    private static final ObjectId OID_MID = new ObjectId("500000000000000000000000");
+    private static final ObjectId OID_HIGH = new ObjectId("900000000000000000000000");
+
+    // In BSON sort order; the JavaScript _id has no place in it
+    static final List<BsonValue> IDS = List.of(
+            new BsonMinKey(),
+            new BsonInt32(-5),
+            new BsonDouble(2.5),
+            new BsonInt64(10),
+            new BsonDecimal128(new Decimal128(new BigDecimal("42.5"))),
+            new BsonString("a"),
+            new BsonString("m"),
+            new BsonString("z"),
+            new BsonDocument("k", new BsonInt32(1)),
+            uuid(UUID_LOW),
+            uuid(UUID_MID),
+            uuid(UUID_HIGH),
+            new BsonObjectId(OID_LOW),
+            new BsonObjectId(OID_MID),
+            new BsonObjectId(OID_HIGH),
+            BsonBoolean.FALSE,
+            BsonBoolean.TRUE,
+            new BsonDateTime(1_000),
+            new BsonDateTime(5_000),
+            new BsonTimestamp(7, 1),
+            new BsonMaxKey());
+
+    private static final BsonValue JAVASCRIPT_ID = new BsonJavaScript("function () {}");
+
+    @Test
+    void uuidSplitPointsCoverEveryIdOnce() {
+        assertPartitionsExact(Arrays.asList(binary(UUID_LOW), binary(UUID_MID)));
+    }
+
+    @Test
+    void uuidUpperBoundDoesNotPullBinDataIntoFirstRange() {
+        IdRange first = new IdRange(null, binary(UUID_MID));
+
+        assertTrue(matches(first, uuid(UUID_LOW)));
+        assertFalse(matches(first, uuid(UUID_MID)));
+        assertFalse(matches(first, uuid(UUID_HIGH)));
+        // Types that sort before binData still belong to the first range
+        assertTrue(matches(first, new BsonString("z")));
+        assertFalse(matches(first, new BsonObjectId(OID_LOW)));
+    }
+
+    @Test
+    void mixedTypeSplitPointsCoverEveryIdOnce() {
+        assertPartitionsExact(Arrays.asList(5, "m", binary(UUID_MID), OID_MID, new Date(2_000)));
+    }
+
+    @Test
+    void numericSplitPointsOfDifferentWidthsCoverEveryIdOnce() {
+        assertPartitionsExact(Arrays.asList(0, 3L, new Decimal128(new BigDecimal("20"))));
+    }
+
+    @Test
+    void unknownTypesOnlyMatchTheFirstRange() {
+        List<IdRange> ranges = toRanges(Arrays.asList(10, OID_MID));
+
+        assertTrue(matches(ranges.get(0), JAVASCRIPT_ID));
+        assertFalse(matches(ranges.get(1), JAVASCRIPT_ID));
+        assertFalse(matches(ranges.get(2), JAVASCRIPT_ID));
+    }
+
+    @Test
+    void unorderableBoundsAreRejected() {
+        assertFalse(IdRange.isOrderable(null));
+        assertFalse(IdRange.isOrderable(new org.bson.types.Code("x")));
+        assertTrue(IdRange.isOrderable(binary(UUID_LOW)));
+        assertTrue(IdRange.isOrderable(new Decimal128(1)));
+        assertThrows(IllegalArgumentException.class,
+                () -> new IdRange(new org.bson.types.Code("x"), null).toFilter());
+    }
+
+    @Test
+    void afterMatchesExactlyTheIdsThatSortLater() {
+        for (BsonValue watermark : IDS) {
+            if (watermark.isDocument()) {
+                continue;
+            }
+            BsonDocument filter = IdRange.after(RowValueConverter.toJava(watermark)).toBsonDocument();
+            for (BsonValue id : IDS) {
+                assertEquals(FilterMatcher.compareTotal(id, watermark) > 0, FilterMatcher.matches(filter, id),
+                        "_id " + id + " after watermark " + watermark);
+            }
+        }
+    }
+
+    @Test
+    void resumeAfterBinDataWatermarkSkipsCommittedBinData() {
+        BsonDocument filter = IdRange.after(binary(UUID_MID)).toBsonDocument();
+
+        assertFalse(FilterMatcher.matches(filter, uuid(UUID_LOW)));
+        assertFalse(FilterMatcher.matches(filter, uuid(UUID_MID)));
+        assertTrue(FilterMatcher.matches(filter, uuid(UUID_HIGH)));
+        assertTrue(FilterMatcher.matches(filter, new BsonObjectId(OID_LOW)));
+    }
+
+    @Test
+    void upToMatchesExactlyTheIdsThatSortAtOrBefore() {
+        for (BsonValue bound : IDS) {
+            if (bound.isDocument()) {
+                continue;
+            }
+            BsonDocument filter = IdRange.upTo(RowValueConverter.toJava(bound)).toBsonDocument();
+            for (BsonValue id : IDS) {
+                assertEquals(FilterMatcher.compareTotal(id, bound) <= 0, FilterMatcher.matches(filter, id),
+                        "_id " + id + " up to " + bound);
+            }
+        }
+    }
+
+    @Test
+    void compareFollowsTheBsonSortOrder() {
+        for (BsonValue a : IDS) {
+            for (BsonValue b : IDS) {
+                if (a.isDocument() && b.isDocument()) {
+                    continue;
+                }
+                assertEquals(Integer.signum(FilterMatcher.compareTotal(a, b)),
+                        Integer.signum(IdRange.compare(RowValueConverter.toJava(a), RowValueConverter.toJava(b))),
+                        a + " compared to " + b);
+            }
+        }
+        assertEquals(0, IdRange.compare(binary(UUID_MID), UUID_MID));
+    }
+
+    @Test
+    void compareOrdersDocumentsFieldByField() {
+        assertTrue(IdRange.compare(new Document("a", 1), new Document("a", 2)) < 0);
+        assertTrue(IdRange.compare(new Document("a", 9), new Document("b", 0)) < 0);
+        assertTrue(IdRange.compare(new Document("a", 1), new Document("a", 1).append("b", 0)) < 0);
+        assertTrue(IdRange.compare(new Document("a", 5), new Document("a", "x")) < 0);
+        assertEquals(0, IdRange.compare(new Document("a", 1L), new Document("a", 1.0)));
+    }
+
+    private static void assertPartitionsExact(List<Object> splitPoints) {
+        List<IdRange> ranges = toRanges(splitPoints);
+        for (BsonValue id : IDS) {
+            int matched = 0;
+            for (IdRange range : ranges) {
+                if (matches(range, id)) {
+                    matched++;
+                }
+            }
+            assertEquals(1, matched, "ranges matching _id " + id);
+        }
+    }
+
+    private static List<IdRange> toRanges(List<Object> splitPoints) {
+        List<IdRange> ranges = new ArrayList<>();
+        Object lower = null;
+        for (Object point : splitPoints) {
+            ranges.add(new IdRange(lower, point));
+            lower = point;
+        }
+        ranges.add(new IdRange(lower, null));
+        return ranges;
+    }
+
+    private static boolean matches(IdRange range, BsonValue id) {
+        return FilterMatcher.matches(range.toFilter().toBsonDocument(), id);
+    }
+
+    static BsonBinary uuid(UUID value) {
+        return new BsonBinary(value, UuidRepresentation.STANDARD);
+    }
+
+    /**
+     * A UUID bound as the driver decodes it with the default codec
+     */
+    static Binary binary(UUID value) {
+        return new Binary(BsonBinarySubType.UUID_STANDARD, uuid(value).getData());
+    }
+
+    /**
+     * Just enough of MongoDB's query semantics to evaluate _id filters: $and, $or, $not,
+     * $gt, $gte, $lt, $lte and $type, with range operators matching only within a type bracket
+     */
+    static final class FilterMatcher {
+
+        private static final List<List<String>> BRACKETS = List.of(
+                List.of("minKey"), List.of("null"), List.of("number"), List.of("string"), List.of("object"),
+                List.of("array"), List.of("binData"), List.of("objectId"), List.of("bool"), List.of("date"),
+                List.of("timestamp"), List.of("regex"), List.of("maxKey"));
+
+        private FilterMatcher() {
+        }
+
+        static boolean matches(BsonDocument filter, BsonValue id) {
+            for (Map.Entry<String, BsonValue> entry : filter.entrySet()) {
+                boolean matched;
+                switch (entry.getKey()) {
+                    case "$and":
+                        matched = entry.getValue().asArray().stream()
+                                .allMatch(part -> matches(part.asDocument(), id));
+                        break;
+                    case "$or":
+                        matched = entry.getValue().asArray().stream()
+                                .anyMatch(part -> matches(part.asDocument(), id));
+                        break;
+                    case "_id":
+                        matched = matchesField(entry.getValue().asDocument(), id);
+                        break;
+                    default:
+                        throw new IllegalArgumentException("Unsupported filter key " + entry.getKey());
+                }
+                if (!matched) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private static boolean matchesField(BsonDocument condition, BsonValue id) {
+            for (Map.Entry<String, BsonValue> entry : condition.entrySet()) {
+                BsonValue operand = entry.getValue();
+                boolean matched;
+                switch (entry.getKey()) {
+                    case "$gt":
+                        matched = sameBracket(id, operand) && compare(id, operand) > 0;
+                        break;
+                    case "$gte":
+                        matched = sameBracket(id, operand) && compare(id, operand) >= 0;
+                        break;
+                    case "$lt":
+                        matched = sameBracket(id, operand) && compare(id, operand) < 0;
+                        break;
+                    case "$lte":
+                        matched = sameBracket(id, operand) && compare(id, operand) <= 0;
+                        break;
+                    case "$type":
+                        List<BsonValue> aliases = operand.isArray() ? operand.asArray().getValues() : List.of(operand);
+                        matched = aliases.stream().anyMatch(alias -> alias.asString().getValue().equals(alias(id)));
+                        break;
+                    case "$not":
+                        matched = !matchesField(operand.asDocument(), id);
+                        break;
+                    default:
+                        throw new IllegalArgumentException("Unsupported operator " + entry.getKey());
+                }
+                if (!matched) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /**
+         * Position of a value's type in the BSON sort order, or -1 for types outside it
+         */
+        static int bracket(BsonValue value) {
+            for (int i = 0; i < BRACKETS.size(); i++) {
+                if (BRACKETS.get(i).contains(alias(value))) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        /**
+         * Total BSON order across the types in IDS
+         */
+        static int compareTotal(BsonValue a, BsonValue b) {
+            int byType = Integer.compare(bracket(a), bracket(b));
+            return byType != 0 ? byType : compare(a, b);
+        }
+
+        private static boolean sameBracket(BsonValue a, BsonValue b) {
+            return bracket(a) >= 0 && bracket(a) == bracket(b);
+        }
+
+        private static int compare(BsonValue a, BsonValue b) {
+            switch (alias(a)) {
+                case "minKey":
+                case "maxKey":
+                    return 0;
+                case "number":
+                    return number(a).compareTo(number(b));
+                case "string":
+                    return a.asString().getValue().compareTo(b.asString().getValue());
+                case "binData":
+                    return compareBinary(a.asBinary(), b.asBinary());
+                case "objectId":
+                    return a.asObjectId().getValue().compareTo(b.asObjectId().getValue());
+                case "bool":
+                    return Boolean.compare(a.asBoolean().getValue(), b.asBoolean().getValue());
+                case "date":
+                    return Long.compare(a.asDateTime().getValue(), b.asDateTime().getValue());
+                case "timestamp":
+                    return a.asTimestamp().compareTo(b.asTimestamp());
+                default:
+                    throw new IllegalArgumentException("Cannot compare " + a + " and " + b);
+            }
+        }
+
+        // Length first, then subtype, then bytes, as the server orders binData
+        private static int compareBinary(BsonBinary a, BsonBinary b) {
+            int byLength = Integer.compare(a.getData().length, b.getData().length);
+            if (byLength != 0) {
+                return byLength;
+            }
+            int bySubtype = Integer.compare(a.getType() & 0xff, b.getType() & 0xff);
+            if (bySubtype != 0) {
+                return bySubtype;
+            }
+            return Arrays.compareUnsigned(a.getData(), b.getData());
+        }
+
+        private static BigDecimal number(BsonValue value) {
+            if (value.isDecimal128()) {
+                return value.asDecimal128().getValue().bigDecimalValue();
+            }
+            if (value.isDouble()) {
+                return BigDecimal.valueOf(value.asDouble().getValue());
+            }
+            return BigDecimal.valueOf(value.asNumber().longValue());
+        }
+
+        private static String alias(BsonValue value) {
+            switch (value.getBsonType()) {
+                case MIN_KEY:
+                    return "minKey";
+                case NULL:
+                    return "null";
+                case INT32:
+                case INT64:
+                case DOUBLE:
+                case DECIMAL128:
+                    return "number";
+                case STRING:
+                    return "string";
+                case DOCUMENT:
+                    return "object";
+                case ARRAY:
+                    return "array";
+                case BINARY:
+                    return "binData";
+                case OBJECT_ID:
+                    return "objectId";
+                case BOOLEAN:
+                    return "bool";
+                case DATE_TIME:
+                    return "date";
+                case TIMESTAMP:
+                    return "timestamp";
+                case REGULAR_EXPRESSION:
+                    return "regex";
+                case MAX_KEY:
+                    return "maxKey";
+                case JAVASCRIPT:
+                    return "javascript";
+                default:
+                    throw new IllegalArgumentException("Unexpected type " + value.getBsonType());
+            }
+        }
+    }
+}
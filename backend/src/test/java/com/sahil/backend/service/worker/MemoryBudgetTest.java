@@ -0,0 +1,119 @@
+package com.sahil.backend.service.worker;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MemoryBudgetTest {
+
+    private static final UUID RUN = UUID.randomUUID();
+    private static final UUID OTHER_RUN = UUID.randomUUID();
+
+    @Test
+    void reservationsWithinTheBudgetAreGrantedAtOnce() throws Exception {
+        MemoryBudget budget = new MemoryBudget(1000);
+
+        assertEquals(400, budget.acquire(RUN, 400, () -> false));
+        assertEquals(600, budget.acquire(OTHER_RUN, 600, () -> false));
+        assertEquals(1000, budget.getUsedBytes());
+
+        budget.release(RUN, 400);
+        budget.release(OTHER_RUN, 600);
+        assertEquals(0, budget.getUsedBytes());
+    }
+
+    @Test
+    void oversizedReservationIsCappedAndGrantedWhenNothingElseIsHeld() throws Exception {
+        MemoryBudget budget = new MemoryBudget(1000);
+
+        assertEquals(1000, budget.acquire(RUN, 5000, () -> false));
+        assertEquals(1000, budget.getUsedBytes());
+    }
+
+    @Test
+    void readerWaitsUntilEnoughIsReleased() throws Exception {
+        MemoryBudget budget = new MemoryBudget(1000);
+        budget.acquire(RUN, 800, () -> false);
+
+        CountDownLatch granted = new CountDownLatch(1);
+        AtomicLong bytes = new AtomicLong();
+        Thread reader = new Thread(() -> {
+            try {
+                bytes.set(budget.acquire(OTHER_RUN, 500, () -> false));
+                granted.countDown();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        reader.start();
+
+        assertFalse(granted.await(100, TimeUnit.MILLISECONDS));
+        assertEquals(1, budget.snapshot(OTHER_RUN).get("runReadersWaitingForMemory"));
+
+        budget.release(RUN, 800);
+        assertTrue(granted.await(5, TimeUnit.SECONDS));
+        reader.join();
+        assertEquals(500, bytes.get());
+        assertEquals(0, budget.snapshot(OTHER_RUN).get("runReadersWaitingForMemory"));
+    }
+
+    @Test
+    void stopSignalEndsTheWaitWithoutAGrant() throws Exception {
+        MemoryBudget budget = new MemoryBudget(1000);
+        budget.acquire(RUN, 1000, () -> false);
+
+        AtomicBoolean stop = new AtomicBoolean();
+        AtomicLong bytes = new AtomicLong(-1);
+        Thread reader = new Thread(() -> {
+            try {
+                bytes.set(budget.acquire(OTHER_RUN, 100, stop::get));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        reader.start();
+        Thread.sleep(50);
+        stop.set(true);
+        reader.join(5000);
+
+        assertFalse(reader.isAlive());
+        assertEquals(0, bytes.get());
+        assertEquals(1000, budget.getUsedBytes());
+    }
+
+    @Test
+    void growChargesWithoutWaiting() throws Exception {
+        MemoryBudget budget = new MemoryBudget(1000);
+        budget.acquire(RUN, 1000, () -> false);
+
+        budget.grow(RUN, 300);
+
+        assertEquals(1300, budget.getUsedBytes());
+        assertEquals(1300L, budget.snapshot(RUN).get("runInFlightBytes"));
+    }
+
+    @Test
+    void forgetDropsOnlyIdleRuns() throws Exception {
+        MemoryBudget budget = new MemoryBudget(1000);
+        budget.acquire(RUN, 100, () -> false);
+
+        budget.forget(RUN);
+        assertEquals(100L, budget.snapshot(RUN).get("runInFlightBytes"));
+
+        budget.release(RUN, 100);
+        budget.forget(RUN);
+        Map<String, Object> snapshot = budget.snapshot(RUN);
+        assertEquals(0L, snapshot.get("runInFlightBytes"));
+        assertTrue(((List<?>) budget.snapshot().get("runs")).isEmpty());
+    }
+}
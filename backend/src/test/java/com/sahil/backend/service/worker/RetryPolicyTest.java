@@ -0,0 +1,64 @@
+package com.sahil.backend.service.worker;
+
+import org.junit.jupiter.api.Test;
+
+import java.sql.SQLException;
+import java.sql.SQLRecoverableException;
+import java.sql.SQLTransientConnectionException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RetryPolicyTest {
+
+    @Test
+    void connectionFailuresAndFailoverStatesAreTransient() {
+        assertTrue(RetryPolicy.isTransient(new SQLException("connection refused", "08001")));
+        assertTrue(RetryPolicy.isTransient(new SQLException("serialization failure", "40001")));
+        assertTrue(RetryPolicy.isTransient(new SQLException("read-only transaction", "25006")));
+        assertTrue(RetryPolicy.isTransient(new SQLTransientConnectionException("pool timeout")));
+        assertTrue(RetryPolicy.isTransient(new SQLRecoverableException("socket closed")));
+        assertTrue(RetryPolicy.isTransient(new RuntimeException(new SQLException("admin shutdown", "57P01"))));
+    }
+
+    @Test
+    void rowAndProgrammingErrorsAreNotTransient() {
+        assertFalse(RetryPolicy.isTransient(new SQLException("duplicate key", "23505")));
+        assertFalse(RetryPolicy.isTransient(new SQLException("no state")));
+        assertFalse(RetryPolicy.isTransient(new NullPointerException()));
+    }
+
+    @Test
+    void backoffStaysWithinTheExponentialCeiling() {
+        RetryPolicy policy = new RetryPolicy(5, 100, 1000);
+        for (int i = 0; i < 1000; i++) {
+            assertTrue(policy.backoffMillis(0) <= 100);
+            assertTrue(policy.backoffMillis(2) <= 400);
+            assertTrue(policy.backoffMillis(30) <= 1000);
+            assertTrue(policy.backoffMillis(30) >= 0);
+        }
+    }
+
+    @Test
+    void backoffIsJittered() {
+        RetryPolicy policy = new RetryPolicy(5, 1000, 1000);
+        long first = policy.backoffMillis(0);
+        boolean varied = false;
+        for (int i = 0; i < 100 && !varied; i++) {
+            varied = policy.backoffMillis(0) != first;
+        }
+        assertTrue(varied);
+    }
+
+    @Test
+    void settingsAreKeptSane() {
+        assertEquals(0, new RetryPolicy(-3, 100, 1000).getMaxAttempts());
+
+        // A maximum below the base delay is raised to it
+        RetryPolicy policy = new RetryPolicy(1, 500, 10);
+        for (int i = 0; i < 100; i++) {
+            assertTrue(policy.backoffMillis(3) <= 500);
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package com.sahil.backend.service.worker;
+
+import org.bson.BsonDecimal128;
+import org.bson.BsonDouble;
+import org.bson.BsonInt32;
+import org.bson.BsonInt64;
+import org.bson.BsonString;
+import org.bson.types.Decimal128;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RowValueConverterTest {
+
+    @Test
+    void wholeNumbersOfAnyBsonTypeFitIntegerColumns() {
+        assertEquals(-7, RowValueConverter.toInt(new BsonInt32(-7)));
+        assertEquals(Integer.MAX_VALUE, RowValueConverter.toInt(new BsonInt64(Integer.MAX_VALUE)));
+        assertEquals(3, RowValueConverter.toInt(new BsonDouble(3.0)));
+        assertEquals(42, RowValueConverter.toInt(new BsonDecimal128(Decimal128.parse("42.00"))));
+        assertEquals(0, RowValueConverter.toInt(new BsonDecimal128(Decimal128.NEGATIVE_ZERO)));
+        assertEquals(12, RowValueConverter.toInt(new BsonString("12")));
+    }
+
+    @Test
+    void int64AboveTheIntegerRangeIsRejected() {
+        RowConversionException error = assertThrows(RowConversionException.class,
+                () -> RowValueConverter.toInt(new BsonInt64(1L << 31)));
+
+        assertTrue(DeadLetterStore.isRowError(error));
+        assertThrows(RowConversionException.class, () -> RowValueConverter.toInt(new BsonInt64(Long.MIN_VALUE)));
+    }
+
+    @Test
+    void fractionalDoublesAreRejected() {
+        assertThrows(RowConversionException.class, () -> RowValueConverter.toInt(new BsonDouble(3.7)));
+        assertThrows(RowConversionException.class, () -> RowValueConverter.toLong(new BsonDouble(-0.5)));
+        assertThrows(RowConversionException.class, () -> RowValueConverter.toLong(new BsonDouble(Double.NaN)));
+        assertThrows(RowConversionException.class,
+                () -> RowValueConverter.toLong(new BsonDouble(Double.POSITIVE_INFINITY)));
+    }
+
+    @Test
+    void doublesOutsideTheBigintRangeAreRejected() {
+        assertEquals(Long.MIN_VALUE, RowValueConverter.toLong(new BsonDouble(-0x1p63)));
+        assertThrows(RowConversionException.class, () -> RowValueConverter.toLong(new BsonDouble(0x1p63)));
+        assertThrows(RowConversionException.class, () -> RowValueConverter.toInt(new BsonDouble(0x1p31)));
+    }
+
+    @Test
+    void oversizedOrFractionalDecimalsAreRejected() {
+        Decimal128 oversized = new Decimal128(new BigDecimal("9223372036854775808"));
+
+        assertThrows(RowConversionException.class, () -> RowValueConverter.toLong(new BsonDecimal128(oversized)));
+        assertThrows(RowConversionException.class,
+                () -> RowValueConverter.toInt(new BsonDecimal128(Decimal128.parse("2147483648"))));
+        assertThrows(RowConversionException.class,
+                () -> RowValueConverter.toLong(new BsonDecimal128(Decimal128.parse("1.5"))));
+        assertThrows(RowConversionException.class,
+                () -> RowValueConverter.toLong(new BsonDecimal128(Decimal128.NaN)));
+    }
+
+    @Test
+    void documentValuesAreNarrowedTheSameWay() {
+        assertEquals(5, RowValueConverter.convert(5L, RowValueConverter.ColumnKind.INT4));
+        assertEquals(5L, RowValueConverter.convert(5.0, RowValueConverter.ColumnKind.INT8));
+        assertThrows(RowConversionException.class,
+                () -> RowValueConverter.convert(1L << 40, RowValueConverter.ColumnKind.INT4));
+        assertThrows(RowConversionException.class,
+                () -> RowValueConverter.convert(3.7, RowValueConverter.ColumnKind.INT8));
+        assertThrows(RowConversionException.class,
+                () -> RowValueConverter.convert(Decimal128.parse("1E+30"), RowValueConverter.ColumnKind.INT8));
+    }
+
+    @Test
+    void bsonValuesAreNarrowedThroughConvert() {
+        assertEquals(9L, RowValueConverter.convert(new BsonInt32(9), RowValueConverter.ColumnKind.INT8));
+        assertThrows(RowConversionException.class,
+                () -> RowValueConverter.convert(new BsonInt64(1L << 40), RowValueConverter.ColumnKind.INT4));
+    }
+}
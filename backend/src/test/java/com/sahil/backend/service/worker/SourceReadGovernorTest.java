@@ -0,0 +1,80 @@
+package com.sahil.backend.service.worker;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SourceReadGovernorTest {
+
+    @Test
+    void unlimitedGovernorNeverWaits() throws Exception {
+        SourceReadGovernor governor = new SourceReadGovernor(0, 0, 0, null);
+
+        assertTrue(governor.acquire(1_000_000, 1L << 40, () -> true));
+        assertEquals(0, governor.getThrottledMillis());
+    }
+
+    @Test
+    void readsWithinTheBurstDoNotWait() throws Exception {
+        SourceReadGovernor governor = new SourceReadGovernor(100, 0, 0, null);
+
+        long start = System.nanoTime();
+        assertTrue(governor.acquire(50, 0, () -> false));
+        assertTrue(System.nanoTime() - start < TimeUnit.MILLISECONDS.toNanos(100));
+    }
+
+    @Test
+    void stopSignalEndsAThrottledWait() throws Exception {
+        SourceReadGovernor governor = new SourceReadGovernor(10, 0, 0, null);
+        AtomicBoolean stopping = new AtomicBoolean();
+
+        // 1000 documents at 10/sec would wait about 100 seconds
+        long start = System.nanoTime();
+        Thread stopper = stopAfter(stopping, 300);
+        assertFalse(governor.acquire(1_000, 0, stopping::get));
+        stopper.join();
+
+        assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(5));
+    }
+
+    @Test
+    void stopSignalEndsAWaitForReplication() throws Exception {
+        SourceReadGovernor governor = new SourceReadGovernor(0, 0, 10, () -> 60);
+        AtomicBoolean stopping = new AtomicBoolean();
+
+        long start = System.nanoTime();
+        Thread stopper = stopAfter(stopping, 300);
+        assertFalse(governor.acquire(1, 0, stopping::get));
+        stopper.join();
+
+        assertTrue(governor.isPaused());
+        assertEquals(1, governor.getPauses());
+        assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(2));
+    }
+
+    @Test
+    void unknownLagNeverBlocksReads() throws Exception {
+        SourceReadGovernor governor = new SourceReadGovernor(0, 0, 10, () -> -1);
+
+        assertTrue(governor.acquire(1, 0, () -> false));
+        assertFalse(governor.isPaused());
+    }
+
+    private static Thread stopAfter(AtomicBoolean stopping, long millis) {
+        Thread thread = new Thread(() -> {
+            try {
+                Thread.sleep(millis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            stopping.set(true);
+        });
+        thread.start();
+        return thread;
+    }
+}
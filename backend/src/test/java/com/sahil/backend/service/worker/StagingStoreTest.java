@@ -0,0 +1,240 @@
+package com.sahil.backend.service.worker;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class StagingStoreTest {
+
+    private static final long SEGMENT_BYTES = 64 * 1024;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void encodedBatchesComeBackInOrder() throws Exception {
+        StagingStore store = open(null, true);
+        store.append(batch(1, 10));
+        store.append(batch(2, 20));
+        store.seal();
+
+        assertBatch(store.take(() -> false), 1, 10);
+        store.markCommitted();
+        assertBatch(store.take(() -> false), 2, 20);
+        store.markCommitted();
+        assertNull(store.take(() -> false));
+        assertTrue(store.isDrained());
+        store.close();
+    }
+
+    @Test
+    void valueBatchesKeepTypesAndNulls() throws Exception {
+        RowValueConverter.ColumnKind[] kinds = {
+                RowValueConverter.ColumnKind.INT4, RowValueConverter.ColumnKind.INT8,
+                RowValueConverter.ColumnKind.FLOAT8, RowValueConverter.ColumnKind.BOOLEAN,
+                RowValueConverter.ColumnKind.UUID, RowValueConverter.ColumnKind.TIMESTAMP,
+                RowValueConverter.ColumnKind.JSON, RowValueConverter.ColumnKind.TEXT};
+        UUID uuid = UUID.randomUUID();
+        LocalDateTime timestamp = LocalDateTime.of(2024, 5, 1, 12, 30, 15, 123_000_000);
+        RowColumns values = new RowColumns(kinds, 2);
+        values.setInt(0, 0, -5);
+        values.setLong(1, 0, 1L << 40);
+        values.setDouble(2, 0, 2.5);
+        values.setBoolean(3, 0, true);
+        values.setObject(4, 0, uuid);
+        values.setObject(5, 0, timestamp);
+        values.setObject(6, 0, "{\"a\":1}");
+        values.setObject(7, 0, "é");
+        for (int c = 0; c < kinds.length; c++) {
+            values.setNull(c, 1);
+        }
+
+        StagingStore store = open(null, true);
+        store.append(RowBatch.values(9, values));
+        RowColumns read = store.take(() -> false).getValues();
+
+        assertEquals(2, read.getRowCount());
+        assertEquals(-5, read.getInt(0, 0));
+        assertEquals(1L << 40, read.getLong(1, 0));
+        assertEquals(2.5, read.getDouble(2, 0), 0);
+        assertTrue(read.getBoolean(3, 0));
+        assertEquals(uuid, read.getObject(4, 0));
+        assertEquals(timestamp, read.getObject(5, 0));
+        assertEquals("{\"a\":1}", read.getObject(6, 0));
+        assertEquals("é", read.getObject(7, 0));
+        for (int c = 0; c < kinds.length; c++) {
+            assertEquals(kinds[c], read.getKind(c));
+            assertFalse(read.isNull(c, 0));
+            assertTrue(read.isNull(c, 1));
+        }
+        store.close();
+    }
+
+    @Test
+    void reopeningDropsBatchesUpToTheCheckpoint() throws Exception {
+        StagingStore store = open(null, false);
+        for (int i = 1; i <= 3; i++) {
+            store.append(batch(i, i));
+        }
+        store.close();
+
+        StagingStore reopened = open(IdRange.encodeBound(1), false);
+        assertEquals(2, reopened.getPendingBatches());
+        assertEquals(IdRange.encodeBound(3), reopened.getLastStagedId());
+        assertBatch(reopened.take(() -> false), 2, 2);
+        reopened.close();
+    }
+
+    @Test
+    void checkpointWithADifferentEncodingStillDropsCommittedBatches() throws Exception {
+        StagingStore store = open(null, false);
+        for (int i = 1; i <= 3; i++) {
+            store.append(batch(i, i));
+        }
+        store.close();
+
+        // 2L is written as $numberLong, the staged _id 2 as a plain int
+        StagingStore reopened = open(IdRange.encodeBound(2L), false);
+        assertEquals(1, reopened.getPendingBatches());
+        assertBatch(reopened.take(() -> false), 3, 3);
+        reopened.close();
+    }
+
+    @Test
+    void recordWithABadChecksumIsCutOffWithEverythingAfterIt() throws Exception {
+        StagingStore store = open(null, false);
+        for (int i = 1; i <= 3; i++) {
+            store.append(batch(i, i));
+        }
+        store.seal();
+        store.close();
+
+        Path segment = onlySegment();
+        byte[] bytes = Files.readAllBytes(segment);
+        int payload = indexOf(bytes, payload(2));
+        bytes[payload] ^= 0x7f;
+        Files.write(segment, bytes);
+
+        StagingStore reopened = open(null, false);
+        assertEquals(1, reopened.getPendingBatches());
+        assertEquals(IdRange.encodeBound(1), reopened.getLastStagedId());
+        // A torn unit is extracted again from the last good batch
+        assertFalse(reopened.isSealed());
+        reopened.close();
+    }
+
+    @Test
+    void recordWithoutItsMagicEndsTheSegmentCleanly() throws Exception {
+        StagingStore store = open(null, false);
+        store.append(batch(1, 1));
+        store.append(batch(2, 2));
+        store.close();
+
+        // A crash before the magic is written leaves the record invisible
+        Path segment = onlySegment();
+        byte[] bytes = Files.readAllBytes(segment);
+        int second = indexOf(bytes, payload(2));
+        int magic = lastIndexOfMagic(bytes, second);
+        Arrays.fill(bytes, magic, magic + 4, (byte) 0);
+        Files.write(segment, bytes);
+
+        StagingStore reopened = open(null, false);
+        assertEquals(1, reopened.getPendingBatches());
+        assertEquals(IdRange.encodeBound(1), reopened.getLastStagedId());
+        reopened.close();
+    }
+
+    @Test
+    void shorterRecordOverATornOneIsTerminated() throws Exception {
+        StagingStore store = open(null, false);
+        store.append(batch(1, 1));
+        store.append(batch(2, 200));
+        store.close();
+
+        Path segment = onlySegment();
+        byte[] bytes = Files.readAllBytes(segment);
+        bytes[indexOf(bytes, payload(200))] ^= 0x7f;
+        Files.write(segment, bytes);
+
+        // The torn record is cut and a shorter one takes its place, over its stale bytes
+        StagingStore reopened = open(null, false);
+        reopened.append(batch(3, 3));
+        reopened.seal();
+        reopened.close();
+
+        StagingStore recovered = open(null, false);
+        assertEquals(2, recovered.getPendingBatches());
+        assertTrue(recovered.isSealed());
+        assertBatch(recovered.take(() -> false), 1, 1);
+        recovered.markCommitted();
+        assertBatch(recovered.take(() -> false), 3, 3);
+        recovered.close();
+    }
+
+    private StagingStore open(String committedLastId, boolean compress) throws Exception {
+        StagingStore store = new StagingStore(directory, SEGMENT_BYTES, compress);
+        store.open(committedLastId);
+        return store;
+    }
+
+    private Path onlySegment() throws Exception {
+        List<Path> segments = new ArrayList<>();
+        try (Stream<Path> listing = Files.list(directory)) {
+            listing.filter(path -> path.getFileName().toString().startsWith("seg-")).forEach(segments::add);
+        }
+        assertEquals(1, segments.size());
+        return segments.get(0);
+    }
+
+    private static RowBatch batch(int lastId, int rows) {
+        return RowBatch.encoded(rows, lastId, payload(rows));
+    }
+
+    // Recognisable bytes, so a test can find a record's payload in the segment file
+    private static byte[] payload(int rows) {
+        byte[] bytes = new byte[16 + rows];
+        Arrays.fill(bytes, (byte) 0x5a);
+        ByteBuffer.wrap(bytes).putInt(rows);
+        return bytes;
+    }
+
+    private static void assertBatch(RowBatch batch, int lastId, int rows) {
+        assertEquals(lastId, batch.getLastId());
+        assertEquals(rows, batch.getRowCount());
+        assertArrayEquals(payload(rows), batch.getEncodedRows());
+    }
+
+    private static int indexOf(byte[] bytes, byte[] pattern) {
+        for (int i = 0; i + pattern.length <= bytes.length; i++) {
+            if (Arrays.equals(bytes, i, i + pattern.length, pattern, 0, pattern.length)) {
+                return i;
+            }
+        }
+        throw new AssertionError("pattern not found");
+    }
+
+    private static int lastIndexOfMagic(byte[] bytes, int before) {
+        byte[] magic = ByteBuffer.allocate(4).putInt(0x53544731).array();
+        for (int i = before - 4; i >= 0; i--) {
+            if (Arrays.equals(bytes, i, i + 4, magic, 0, 4)) {
+                return i;
+            }
+        }
+        throw new AssertionError("magic not found");
+    }
+}
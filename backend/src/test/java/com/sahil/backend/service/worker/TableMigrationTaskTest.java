@@ -0,0 +1,354 @@
+package com.sahil.backend.service.worker;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mongodb.client.FindIterable;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.MongoCursor;
+import com.mongodb.client.MongoDatabase;
+import org.bson.BsonDocument;
+import org.bson.BsonInt32;
+import org.bson.RawBsonDocument;
+import org.bson.conversions.Bson;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.UncategorizedSQLException;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+
+import java.lang.reflect.Proxy;
+import java.nio.ByteBuffer;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.RETURNS_SELF;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class TableMigrationTaskTest {
+
+    private static final int MAX_ROWS = 8;
+
+    private final ExecutorService stageExecutor = Executors.newCachedThreadPool();
+    private final FakeTarget target = new FakeTarget();
+    private final UUID runId = UUID.randomUUID();
+    private final UUID progressId = UUID.randomUUID();
+    private final ProgressCounter progress = new ProgressCounter(progressId, counter -> { });
+    private final RunControl control = new RunControl();
+    // A target of 0 ms would halve the batch size on every commit it is told about
+    private final AdaptiveBatchSizer batchSizer = new AdaptiveBatchSizer(MAX_ROWS, 1, MAX_ROWS, 0, 1L << 20);
+    private MongoDatabase database;
+
+    @AfterEach
+    void shutdown() {
+        stageExecutor.shutdownNow();
+    }
+
+    @Test
+    void everyBatchIsCommittedWithItsCheckpoint() {
+        source(ids(0, 20));
+
+        assertTrue(task().call());
+
+        assertEquals(ids(0, 20), target.rows);
+        assertEquals(IdRange.encodeBound(19), target.checkpoint);
+        assertEquals(20, target.rowsCommitted);
+        assertEquals(target.batches.size(), target.checkpoints.size());
+        // Each batch's checkpoint carries its own last _id
+        for (int i = 0; i < target.batches.size(); i++) {
+            List<Integer> batch = target.batches.get(i);
+            assertEquals(IdRange.encodeBound(batch.get(batch.size() - 1)), target.checkpoints.get(i));
+        }
+        assertEquals("COMPLETED", progress.getStatus());
+    }
+
+    @Test
+    void resumedTaskCountsOnFromItsCheckpoint() {
+        source(ids(4, 8));
+        TableMigrationTask task = task();
+        task.resumeFrom(new TargetCheckpointStore.Checkpoint(IdRange.encodeBound(3), 4, 100));
+
+        assertTrue(task.call());
+
+        assertEquals(ids(4, 8), target.rows);
+        assertEquals(IdRange.encodeBound(7), target.checkpoint);
+        assertEquals(8, target.rowsCommitted);
+        assertEquals(8, progress.getRowsProcessed());
+    }
+
+    @Test
+    void rejectedBatchIsBisectedAndBadDocumentsDeadLettered() {
+        source(ids(0, 8));
+        target.rejected.addAll(Set.of(2, 7));
+
+        assertTrue(task().call());
+
+        assertEquals(List.of(List.of(0, 1), List.of(3), List.of(4, 5), List.of(6)), target.batches);
+        assertEquals(List.of(2, 7), target.deadLetters);
+        // Commits and dead letters both move the checkpoint, in _id order
+        assertEquals(List.of(1, 2, 3, 5, 6, 7).stream().map(IdRange::encodeBound).collect(Collectors.toList()),
+                target.checkpoints);
+        // Isolation chunks are small by design and must not shrink the batches that follow
+        assertEquals(MAX_ROWS, batchSizer.currentBatchSize());
+    }
+
+    @Test
+    void documentThatFailsToConvertIsIsolatedLikeARejectedOne() {
+        source(ids(0, 4));
+        assertTrue(task(new FakeSink(target, Set.of(1)), new FakeSink(target, Set.of(1))).call());
+
+        assertEquals(List.of(List.of(0), List.of(2, 3)), target.batches);
+        assertEquals(List.of(1), target.deadLetters);
+    }
+
+    @Test
+    void transientFailureDuringIsolationIsRetried() {
+        source(ids(0, 8));
+        target.rejected.add(2);
+        target.transientFailures.add(3);
+
+        assertTrue(task().call());
+
+        // The chunk 0..3 loses its connection, is replayed, and only then rejected and split
+        assertEquals(List.of(List.of(0, 1), List.of(3), List.of(4, 5, 6, 7)), target.batches);
+        assertEquals(List.of(2), target.deadLetters);
+        assertTrue(target.transientFailures.isEmpty());
+    }
+
+    @Test
+    void otherFailuresFailTheTask() {
+        source(ids(0, 4));
+        target.broken = true;
+
+        assertFalse(task().call());
+
+        assertTrue(target.rows.isEmpty());
+        assertEquals("FAILED", progress.getStatus());
+    }
+
+    @Test
+    void runStoppedBeforeTheTaskStartsReadsNothing() {
+        source(ids(0, 4));
+        control.pause();
+
+        assertFalse(task().call());
+
+        verify(database, never()).getCollection(any(), any());
+        assertTrue(target.rows.isEmpty());
+    }
+
+    private TableMigrationTask task() {
+        return task(new FakeSink(target, Set.of()), new FakeSink(target, Set.of()));
+    }
+
+    private TableMigrationTask task(RowSink rowSink, RowSink isolationSink) {
+        return new TableMigrationTask("orders", "orders", BinaryCopySinkTest.mapping("count", "INTEGER"),
+                database, target.jdbcTemplate(), progress, runId, progressId, new ObjectMapper(),
+                rowSink, isolationSink, IdRange.all(), new TaskMetrics(progressId, "orders", null), stageExecutor,
+                batchSizer, new AimdConcurrencyLimiter(1, 4), new SourceReadGovernor(0, 0, 0, null), null,
+                new RetryPolicy(3, 1, 2), control, new MemoryBudget(1L << 20));
+    }
+
+    /**
+     * A source collection whose cursor returns the given _ids in order, whatever the filter
+     */
+    @SuppressWarnings("unchecked")
+    private void source(List<Integer> ids) {
+        Iterator<RawBsonDocument> documents = ids.stream()
+                .map(id -> BinaryCopySinkTest.raw(new BsonDocument("_id", new BsonInt32(id))
+                        .append("count", new BsonInt32(id))))
+                .iterator();
+        MongoCursor<RawBsonDocument> cursor = mock(MongoCursor.class);
+        when(cursor.hasNext()).thenAnswer(invocation -> documents.hasNext());
+        when(cursor.next()).thenAnswer(invocation -> documents.next());
+        FindIterable<RawBsonDocument> find = mock(FindIterable.class, RETURNS_SELF);
+        when(find.iterator()).thenReturn(cursor);
+        MongoCollection<RawBsonDocument> collection = mock(MongoCollection.class);
+        when(collection.find(any(Bson.class))).thenReturn(find);
+        database = mock(MongoDatabase.class);
+        when(database.getCollection("orders", RawBsonDocument.class)).thenReturn(collection);
+    }
+
+    private static List<Integer> ids(int from, int to) {
+        return IntStream.range(from, to).boxed().collect(Collectors.toList());
+    }
+
+    /**
+     * Encodes a batch as its _ids. Documents listed as unconvertible fail to encode, like a
+     * value that does not fit its column.
+     */
+    private static class FakeSink implements RowSink {
+        private final FakeTarget target;
+        private final Set<Integer> unconvertible;
+
+        FakeSink(FakeTarget target, Set<Integer> unconvertible) {
+            this.target = target;
+            this.unconvertible = unconvertible;
+        }
+
+        @Override
+        public String getName() {
+            return "FAKE";
+        }
+
+        @Override
+        public RowBatch encode(CompiledTableMapping mapping, List<? extends BsonDocument> documents) {
+            ByteBuffer ids = ByteBuffer.allocate(documents.size() * 4);
+            for (BsonDocument document : documents) {
+                int id = document.getInt32("_id").getValue();
+                if (unconvertible.contains(id)) {
+                    throw new RowConversionException("Cannot convert count to INTEGER",
+                            new NumberFormatException());
+                }
+                ids.putInt(id);
+            }
+            return RowBatch.encoded(documents.size(), documents.get(documents.size() - 1).getInt32("_id").getValue(),
+                    ids.array());
+        }
+
+        @Override
+        public long write(Connection connection, String targetTable, CompiledTableMapping mapping, RowBatch batch)
+                throws SQLException {
+            ByteBuffer encoded = ByteBuffer.wrap(batch.getEncodedRows());
+            List<Integer> ids = new ArrayList<>();
+            while (encoded.hasRemaining()) {
+                ids.add(encoded.getInt());
+            }
+            target.write(ids);
+            return encoded.capacity();
+        }
+    }
+
+    /**
+     * In-memory target table. Rows, checkpoints and dead letters written in a transaction
+     * become visible on commit and are dropped on rollback.
+     */
+    private static class FakeTarget {
+        final List<Integer> rows = new ArrayList<>();
+        final List<List<Integer>> batches = new ArrayList<>();
+        final List<String> checkpoints = new ArrayList<>();
+        final List<Integer> deadLetters = new ArrayList<>();
+        String checkpoint;
+        long rowsCommitted;
+        long bytesCommitted;
+
+        // Rows the target rejects with a unique violation
+        final Set<Integer> rejected = new HashSet<>();
+        // Last _ids of writes that lose their connection once
+        final Set<Integer> transientFailures = new HashSet<>();
+        boolean broken;
+
+        private final List<Runnable> pending = new ArrayList<>();
+
+        void write(List<Integer> ids) throws SQLException {
+            if (broken) {
+                throw new SQLException("relation does not exist", "42P01");
+            }
+            if (transientFailures.remove(ids.get(ids.size() - 1))) {
+                throw new SQLException("connection lost", "08006");
+            }
+            if (ids.stream().anyMatch(rejected::contains)) {
+                throw new SQLException("duplicate key", "23505");
+            }
+            pending.add(() -> {
+                rows.addAll(ids);
+                batches.add(ids);
+            });
+        }
+
+        JdbcTemplate jdbcTemplate() {
+            return new JdbcTemplate() {
+                @Override
+                public <T> T execute(ConnectionCallback<T> action) {
+                    try {
+                        return action.doInConnection(connection());
+                    } catch (SQLException e) {
+                        throw new UncategorizedSQLException("execute", null, e);
+                    }
+                }
+
+                @Override
+                @SuppressWarnings("unchecked")
+                public <T> List<T> query(String sql, RowMapper<T> rowMapper, Object... args) {
+                    return checkpoint == null ? List.of()
+                            : (List<T>) List.of(new TargetCheckpointStore.Checkpoint(checkpoint, rowsCommitted,
+                                    bytesCommitted));
+                }
+            };
+        }
+
+        private Connection connection() {
+            return (Connection) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] {Connection.class},
+                    (proxy, method, args) -> {
+                        switch (method.getName()) {
+                            case "getAutoCommit":
+                                return true;
+                            case "prepareStatement":
+                                return statement((String) args[0]);
+                            case "commit":
+                                pending.forEach(Runnable::run);
+                                pending.clear();
+                                return null;
+                            case "rollback":
+                                pending.clear();
+                                return null;
+                            default:
+                                return null;
+                        }
+                    });
+        }
+
+        private PreparedStatement statement(String sql) {
+            Map<Integer, Object> parameters = new HashMap<>();
+            return (PreparedStatement) Proxy.newProxyInstance(getClass().getClassLoader(),
+                    new Class<?>[] {PreparedStatement.class},
+                    (proxy, method, args) -> {
+                        if (method.getName().startsWith("set")) {
+                            parameters.put((Integer) args[0], args[1]);
+                            return null;
+                        }
+                        if (method.getName().equals("executeUpdate")) {
+                            execute(sql, parameters);
+                            return 1;
+                        }
+                        return null;
+                    });
+        }
+
+        private void execute(String sql, Map<Integer, Object> parameters) {
+            if (sql.contains(TargetCheckpointStore.TABLE_NAME)) {
+                String lastId = (String) parameters.get(2);
+                long rows = (Long) parameters.get(3);
+                long bytes = (Long) parameters.get(4);
+                pending.add(() -> {
+                    checkpoint = lastId;
+                    rowsCommitted = rows;
+                    bytesCommitted = bytes;
+                    checkpoints.add(lastId);
+                });
+            } else if (sql.contains(DeadLetterStore.TABLE_NAME)) {
+                int id = ((Number) IdRange.decodeBound((String) parameters.get(5))).intValue();
+                pending.add(() -> deadLetters.add(id));
+            }
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package com.sahil.backend.service.worker;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TableSchedulerTest {
+
+    private static final String PLAN = "{"
+            + "\"tableMappings\": ["
+            + "  {\"sourceCollection\": \"users\", \"targetTable\": \"t_users\"},"
+            + "  {\"sourceCollection\": \"orders\", \"targetTable\": \"t_orders\"},"
+            + "  {\"sourceCollection\": \"items\", \"targetTable\": \"t_items\"},"
+            + "  {\"sourceCollection\": \"logs\", \"targetTable\": \"t_logs\"}"
+            + "],"
+            + "\"foreignKeys\": ["
+            + "  {\"sourceTable\": \"orders\", \"targetTable\": \"users\"},"
+            + "  {\"sourceTable\": \"items\", \"targetTable\": \"orders\"},"
+            + "  {\"sourceTable\": \"users\", \"targetTable\": \"users\"}"
+            + "]}";
+
+    @Test
+    void dependenciesMapTargetTablesAndIgnoreSelfReferences() throws Exception {
+        Map<String, Set<String>> dependsOn = TableScheduler.dependencies(plan());
+
+        assertEquals(Set.of("t_users"), dependsOn.get("t_orders"));
+        assertEquals(Set.of("t_orders"), dependsOn.get("t_items"));
+        assertTrue(!dependsOn.containsKey("t_users"));
+    }
+
+    @Test
+    void orderDispatchesParentsFirstAndLargestReadyUnitFirst() throws Exception {
+        List<TableScheduler.Unit> units = List.of(
+                unit("t_items", null, 900),
+                unit("t_orders", 0, 50),
+                unit("t_orders", 1, 60),
+                unit("t_users", null, 10),
+                unit("t_logs", null, 500));
+
+        List<String> order = TableScheduler.order(units, TableScheduler.dependencies(plan())).stream()
+                .map(TableScheduler.Unit::getTableName)
+                .collect(Collectors.toList());
+
+        // t_logs and t_users are ready at once; the larger goes first
+        assertEquals(List.of("t_logs", "t_users", "t_orders", "t_orders", "t_items"), order);
+    }
+
+    @Test
+    void orderReleasesTheLargestTableOfACycle() {
+        Map<String, Set<String>> cycle = Map.of("a", Set.of("b"), "b", Set.of("a"));
+        List<TableScheduler.Unit> units = List.of(unit("a", null, 10), unit("b", null, 20));
+
+        List<TableScheduler.Unit> ordered = TableScheduler.order(units, cycle);
+
+        assertEquals("b", ordered.get(0).getTableName());
+        assertEquals("a", ordered.get(1).getTableName());
+    }
+
+    @Test
+    void wavesPutEveryTableAfterTheTablesItReferences() throws Exception {
+        List<List<String>> waves = TableScheduler.waves(
+                List.of("t_items", "t_orders", "t_users", "t_logs"), TableScheduler.dependencies(plan()));
+
+        assertEquals(List.of(List.of("t_users", "t_logs"), List.of("t_orders"), List.of("t_items")), waves);
+    }
+
+    @Test
+    void wavesIgnoreParentsOutsideTheTableSetAndEndWithCycles() {
+        Map<String, Set<String>> dependsOn = Map.of(
+                "a", Set.of("b"),
+                "b", Set.of("a"),
+                "c", Set.of("missing"));
+
+        List<List<String>> waves = TableScheduler.waves(List.of("a", "b", "c"), dependsOn);
+
+        assertEquals(List.of(List.of("c"), List.of("a", "b")), waves);
+    }
+
+    @Test
+    void simulatePlacesUnitsOnTheFirstFreeWorker() {
+        List<TableScheduler.Unit> units = List.of(unit("a", null, 100), unit("b", null, 60), unit("c", null, 30));
+
+        double makespan = TableScheduler.simulate(units, 2, 10);
+
+        assertEquals(10.0, makespan, 1e-9);
+        assertEquals(6.0, units.get(2).getPredictedStartSeconds(), 1e-9);
+        assertEquals(1, units.get(2).getPredictedWorker());
+    }
+
+    private static TableScheduler.Unit unit(String table, Integer partition, long bytes) {
+        return new TableScheduler.Unit(table, UUID.randomUUID(), partition, bytes);
+    }
+
+    private static JsonNode plan() throws Exception {
+        return new ObjectMapper().readTree(PLAN);
+    }
+}
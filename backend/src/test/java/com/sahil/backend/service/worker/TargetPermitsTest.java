@@ -0,0 +1,75 @@
+package com.sahil.backend.service.worker;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TargetPermitsTest {
+
+    @Test
+    void withoutRunsTheDefaultApplies() {
+        TargetPermits permits = new TargetPermits(10);
+
+        assertEquals(10, permits.getLimit());
+        assertEquals(10, permits.availablePermits());
+    }
+
+    @Test
+    void lowestLimitOfTheRegisteredRunsApplies() {
+        TargetPermits permits = new TargetPermits(10);
+        UUID wide = UUID.randomUUID();
+        UUID narrow = UUID.randomUUID();
+
+        permits.addLimit(wide, 20);
+        assertEquals(20, permits.availablePermits());
+        permits.addLimit(narrow, 3);
+        assertEquals(3, permits.availablePermits());
+
+        permits.removeLimit(narrow);
+        assertEquals(20, permits.getLimit());
+        permits.removeLimit(wide);
+        assertEquals(10, permits.getLimit());
+        assertEquals(10, permits.availablePermits());
+    }
+
+    @Test
+    void laterRunWithALowerLimitIsNotIgnored() {
+        TargetPermits permits = new TargetPermits(10);
+        permits.addLimit(UUID.randomUUID(), 8);
+        permits.addLimit(UUID.randomUUID(), 2);
+
+        assertTrue(permits.tryAcquire(2));
+        assertFalse(permits.tryAcquire());
+    }
+
+    @Test
+    void shrinkingBelowThePermitsInUseHoldsBackNewOnes() {
+        TargetPermits permits = new TargetPermits(4);
+        permits.acquireUninterruptibly(4);
+
+        UUID run = UUID.randomUUID();
+        permits.addLimit(run, 1);
+        assertEquals(-3, permits.availablePermits());
+
+        permits.release(4);
+        assertEquals(1, permits.availablePermits());
+
+        permits.removeLimit(run);
+        assertEquals(4, permits.availablePermits());
+    }
+
+    @Test
+    void removingAnUnknownRunChangesNothing() {
+        TargetPermits permits = new TargetPermits(5);
+        permits.addLimit(UUID.randomUUID(), 2);
+
+        permits.removeLimit(UUID.randomUUID());
+
+        assertEquals(2, permits.getLimit());
+        assertEquals(2, permits.availablePermits());
+    }
+}
@@ -8,7 +8,15 @@ interface MigrationProgress {
     rowsTotal: number;
     rowsProcessed: number;
     status: string;
-    updatedAt: string;
+    rowsPerSecond?: number;
+    etaSeconds?: number | null;
+}
+
+interface ProgressEvent {
+    runId: string;
+    status: string;
+    full: boolean;
+    tables: MigrationProgress[];
 }
 
 interface MigrationExecutionProps {
@@ -30,18 +38,42 @@ export function MigrationExecution({ migrationId }: MigrationExecutionProps) {
     const [targetUsername, setTargetUsername] = useState('');
     const [targetPassword, setTargetPassword] = useState('');
 
-    // Poll for progress
+    // Stream progress from the server; full events replace the list, others update changed tables
     useEffect(() => {
-        let interval: any;
+        if (!runId) return;
 
-        if (runId && (overallStatus === 'RUNNING' || overallStatus === 'IDLE')) { // IDLE here means we just started
-            interval = setInterval(fetchProgress, 2000);
-        }
+        const source = new EventSource(`http://localhost:8080/api/migrations/run/${runId}/progress/stream`);
+
+        const applyEvent = (event: MessageEvent) => {
+            const data: ProgressEvent = JSON.parse(event.data);
+            setProgress(prev => {
+                if (data.full) return data.tables;
+                const updated = new Map(prev.map(p => [p.id, p]));
+                data.tables.forEach(t => updated.set(t.id, t));
+                return Array.from(updated.values());
+            });
+            setOverallStatus(data.status);
+            return data;
+        };
 
-        return () => {
-            if (interval) clearInterval(interval);
+        source.addEventListener('progress', (event) => {
+            applyEvent(event as MessageEvent);
+        });
+
+        // Sent once the run reaches a final status: COMPLETED, FAILED, PAUSED, CANCELLED or NOT_FOUND
+        source.addEventListener('complete', (event) => {
+            applyEvent(event as MessageEvent);
+            setExecuting(false);
+            source.close();
+        });
+
+        source.onerror = () => {
+            // EventSource reconnects on its own; the server sends a full snapshot on reconnect
+            console.error('Progress stream interrupted');
         };
-    }, [runId, overallStatus]);
+
+        return () => source.close();
+    }, [runId]);
 
     // Check if credentials are already saved
     useEffect(() => {
@@ -118,7 +150,7 @@ export function MigrationExecution({ migrationId }: MigrationExecutionProps) {
 
             if (response.ok) {
                 setRunId(data.runId);
-                setOverallStatus('RUNNING');
+                setOverallStatus(data.status || 'RUNNING');
             } else {
                 setError(data.error || 'Failed to start migration');
                 setExecuting(false);
@@ -129,38 +161,26 @@ export function MigrationExecution({ migrationId }: MigrationExecutionProps) {
         }
     };
 
-    const fetchProgress = async () => {
-        if (!runId) return;
-
-        try {
-            const response = await fetch(`http://localhost:8080/api/migrations/run/${runId}/progress`);
-            const data = await response.json();
-
-            if (Array.isArray(data)) {
-                setProgress(data);
-
-                // Check if all completed
-                const allDone = data.every(p => p.status === 'COMPLETED' || p.status === 'FAILED');
-                if (allDone && data.length > 0) {
-                    setOverallStatus('COMPLETED');
-                    setExecuting(false);
-                }
-            }
-        } catch (err) {
-            console.error(err);
-        }
-    };
-
     const calculatePercentage = (processed: number, total: number) => {
         if (!total || total === 0) return 0;
         return Math.min(100, Math.round((processed / total) * 100));
     };
 
+    const formatEta = (seconds: number) => {
+        if (seconds < 60) return `${seconds}s`;
+        if (seconds < 3600) return `${Math.floor(seconds / 60)}m ${seconds % 60}s`;
+        return `${Math.floor(seconds / 3600)}h ${Math.floor((seconds % 3600) / 60)}m`;
+    };
+
     const getStatusColor = (status: string) => {
         switch (status) {
             case 'COMPLETED': return 'text-green-400';
             case 'FAILED': return 'text-red-400';
-            case 'RUNNING': return 'text-orange-400 animate-pulse';
+            case 'RUNNING':
+            case 'REPLICATING': return 'text-orange-400 animate-pulse';
+            case 'PAUSING':
+            case 'CANCELLING': return 'text-yellow-400 animate-pulse';
+            case 'PAUSED': return 'text-yellow-400';
             default: return 'text-slate-400';
         }
     };
@@ -348,9 +368,11 @@ export function MigrationExecution({ migrationId }: MigrationExecutionProps) {
                 <div className="space-y-6">
                     <div className="flex items-center justify-between">
                         <h3 className="text-xl font-bold text-white flex items-center gap-2">
-                            {overallStatus === 'RUNNING' && <Loader2 className="w-5 h-5 animate-spin text-orange-500" />}
+                            {(overallStatus === 'RUNNING' || overallStatus === 'REPLICATING') && <Loader2 className="w-5 h-5 animate-spin text-orange-500" />}
                             {overallStatus === 'COMPLETED' && <CheckCircle2 className="w-5 h-5 text-green-500" />}
+                            {overallStatus === 'FAILED' && <AlertTriangle className="w-5 h-5 text-red-500" />}
                             Migration Progress
+                            <span className={`text-sm font-mono ${getStatusColor(overallStatus)}`}>{overallStatus}</span>
                         </h3>
                         <div className="text-slate-400 font-mono text-sm">
                             Run ID: {runId}
@@ -377,6 +399,12 @@ export function MigrationExecution({ migrationId }: MigrationExecutionProps) {
                                         <div className="text-xs text-slate-500 font-mono">
                                             {p.rowsProcessed.toLocaleString()} / {p.rowsTotal.toLocaleString()} rows
                                         </div>
+                                        {p.status === 'RUNNING' && !!p.rowsPerSecond && (
+                                            <div className="text-xs text-slate-500 font-mono">
+                                                {p.rowsPerSecond.toLocaleString()} rows/s
+                                                {p.etaSeconds != null && ` · ETA ${formatEta(p.etaSeconds)}`}
+                                            </div>
+                                        )}
                                     </div>
                                 </div>
 